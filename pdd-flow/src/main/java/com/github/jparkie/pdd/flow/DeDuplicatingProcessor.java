@@ -0,0 +1,274 @@
+package com.github.jparkie.pdd.flow;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Flow.Processor} which drops the duplicate elements of its upstream publisher.
+ * <p>
+ * Elements are accumulated into micro-batches of up to batchSize elements, which are classified by a single call to
+ * {@link ProbabilisticDeDuplicator#classifyDistinct(byte[][], boolean[])}. The distinct elements of a batch are then
+ * published to the subscribers of this {@link SubmissionPublisher}, whose delivery runs on its executor (e.g. a local
+ * pool or a virtual-thread-per-task executor). A partial batch is flushed once its oldest element is older than the
+ * maximum batch delay, if any, by a scheduler thread of its own, or when the upstream completes.
+ * <p>
+ * Backpressure: at most batchSize elements are ever requested from the upstream beyond those already flushed, and a
+ * flush blocks while a subscriber's buffer of maxBufferCapacity elements is full, so a slow subscriber slows the
+ * upstream down instead of growing memory. The de-duplicator is only accessed under a lock, so it needs not be
+ * thread-safe. The classified batches are queued in order under that lock, and submitted after releasing it, under a
+ * second lock, so a blocked flush does not hold up the batching of the next elements.
+ */
+public class DeDuplicatingProcessor extends SubmissionPublisher<byte[]> implements Flow.Processor<byte[], byte[]> {
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    final ProbabilisticDeDuplicator deDuplicator;
+    final int batchSize;
+    final long maxBatchDelayNanos;
+
+    private final ScheduledExecutorService flushScheduler;
+    // Guards the batch and the de-duplicator.
+    private final ReentrantLock lock;
+    // Guards the submission of flushed batches, which is never waited for under the lock.
+    private final ReentrantLock submitLock;
+    // The classified batches in order, which are added under the lock and polled under the submit lock.
+    private final Queue<byte[][]> flushedBatches;
+    private final byte[][] batch;
+    private final boolean[] results;
+    private int batchLength;
+    private long batchSequence;
+    // Set under the lock, and read by submit without it.
+    private volatile Flow.Subscription subscription;
+
+    public DeDuplicatingProcessor(ProbabilisticDeDuplicator deDuplicator) {
+        this(deDuplicator, DEFAULT_BATCH_SIZE, 0L, TimeUnit.NANOSECONDS);
+    }
+
+    public DeDuplicatingProcessor(
+            ProbabilisticDeDuplicator deDuplicator,
+            int batchSize,
+            long maxBatchDelay,
+            TimeUnit unit
+    ) {
+        this(deDuplicator, batchSize, maxBatchDelay, unit, ForkJoinPool.commonPool(), Flow.defaultBufferSize());
+    }
+
+    /**
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @param batchSize The maximum number of elements of a micro-batch.
+     * @param maxBatchDelay The maximum time that an element waits for its batch to fill, or 0 to always wait.
+     * @param unit The {@link TimeUnit} of maxBatchDelay.
+     * @param executor The {@link Executor} which delivers elements to subscribers.
+     * @param maxBufferCapacity The maximum number of buffered elements of each subscriber.
+     */
+    public DeDuplicatingProcessor(
+            ProbabilisticDeDuplicator deDuplicator,
+            int batchSize,
+            long maxBatchDelay,
+            TimeUnit unit,
+            Executor executor,
+            int maxBufferCapacity
+    ) {
+        super(executor, maxBufferCapacity);
+        if (deDuplicator == null) {
+            throw new IllegalArgumentException("deDuplicator must not be null");
+        }
+        if (batchSize <= 0) {
+            final String error = String.format("batchSize must be positive, but got %d", batchSize);
+            throw new IllegalArgumentException(error);
+        }
+        if (maxBatchDelay < 0L) {
+            final String error = String.format("maxBatchDelay must not be negative, but got %d", maxBatchDelay);
+            throw new IllegalArgumentException(error);
+        }
+        this.deDuplicator = deDuplicator;
+        this.batchSize = batchSize;
+        this.maxBatchDelayNanos = unit.toNanos(maxBatchDelay);
+        // Not the delivery executor, which a delayed flush blocked on a full subscriber could otherwise starve.
+        this.flushScheduler = maxBatchDelayNanos > 0L ?
+                Executors.newSingleThreadScheduledExecutor(DeDuplicatingProcessor::newFlushThread) :
+                null;
+        this.lock = new ReentrantLock();
+        this.submitLock = new ReentrantLock();
+        this.flushedBatches = new ConcurrentLinkedQueue<>();
+        this.batch = new byte[batchSize][];
+        this.results = new boolean[batchSize];
+    }
+
+    private static Thread newFlushThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "pdd-flush");
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (subscription == null) {
+            throw new NullPointerException("subscription must not be null");
+        }
+        lock.lock();
+        try {
+            if (this.subscription != null || isClosed()) {
+                subscription.cancel();
+                return;
+            }
+            this.subscription = subscription;
+        } finally {
+            lock.unlock();
+        }
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(byte[] item) {
+        if (item == null) {
+            throw new NullPointerException("item must not be null");
+        }
+        lock.lock();
+        try {
+            batch[batchLength++] = item;
+            if (batchLength < batchSize) {
+                if (batchLength == 1 && flushScheduler != null) {
+                    final long currentBatchSequence = batchSequence;
+                    flushScheduler.schedule(
+                            () -> flushIfPending(currentBatchSequence),
+                            maxBatchDelayNanos,
+                            TimeUnit.NANOSECONDS
+                    );
+                }
+                return;
+            }
+            classify();
+        } finally {
+            lock.unlock();
+        }
+        publishFlushed();
+    }
+
+    /**
+     * Discards the pending batch, as {@link #closeExceptionally(Throwable)} may drop elements which are still buffered.
+     */
+    @Override
+    public void onError(Throwable throwable) {
+        lock.lock();
+        try {
+            Arrays.fill(batch, 0, batchLength, null);
+            batchLength = 0;
+            batchSequence++;
+        } finally {
+            lock.unlock();
+        }
+        closeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        lock.lock();
+        try {
+            classify();
+        } finally {
+            lock.unlock();
+        }
+        publishFlushed();
+        close();
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        shutdownFlushScheduler();
+    }
+
+    @Override
+    public void closeExceptionally(Throwable error) {
+        super.closeExceptionally(error);
+        shutdownFlushScheduler();
+    }
+
+    private void shutdownFlushScheduler() {
+        if (flushScheduler != null) {
+            flushScheduler.shutdownNow();
+        }
+    }
+
+    private void flushIfPending(long expectedBatchSequence) {
+        lock.lock();
+        try {
+            if (batchSequence != expectedBatchSequence) {
+                return;
+            }
+            classify();
+        } finally {
+            lock.unlock();
+        }
+        publishFlushed();
+    }
+
+    /**
+     * Classifies the pending batch and queues it for publishing, where the distinct elements are left non-null. Must
+     * hold the lock.
+     */
+    private void classify() {
+        final int numElements = batchLength;
+        final byte[][] elements = Arrays.copyOf(batch, numElements);
+        if (numElements > 0) {
+            deDuplicator.classifyDistinct(elements, results);
+            for (int index = 0; index < numElements; index++) {
+                if (!results[index]) {
+                    elements[index] = null;
+                }
+            }
+            Arrays.fill(batch, 0, numElements, null);
+            batchLength = 0;
+            batchSequence++;
+            flushedBatches.add(elements);
+        }
+    }
+
+    /**
+     * Publishes the queued batches in order, including those which other threads queued meanwhile. Must not hold the
+     * lock, as a publish may block.
+     */
+    private void publishFlushed() {
+        submitLock.lock();
+        try {
+            byte[][] flushed;
+            while ((flushed = flushedBatches.poll()) != null) {
+                publish(flushed);
+            }
+        } finally {
+            submitLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the distinct elements of a classified batch, and requests as many elements as were flushed. Must hold
+     * the submit lock.
+     */
+    private void publish(byte[][] flushed) {
+        for (byte[] element : flushed) {
+            if (element != null && !isClosed()) {
+                submit(element);
+            }
+        }
+        final Flow.Subscription subscription = this.subscription;
+        if (subscription == null) {
+            return;
+        }
+        if (isClosed()) {
+            subscription.cancel();
+        } else {
+            subscription.request(flushed.length);
+        }
+    }
+}
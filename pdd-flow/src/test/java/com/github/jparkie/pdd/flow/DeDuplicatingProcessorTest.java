@@ -0,0 +1,233 @@
+package com.github.jparkie.pdd.flow;
+
+import com.github.jparkie.pdd.impl.BSBFDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class DeDuplicatingProcessorTest {
+    private static final long NUM_BITS = 64 * 8L * 1024L * 64L;
+    private static final int BATCH_SIZE = 64;
+    private static final int NUM_ELEMENTS = (int) 1E5;
+    private static final int NUM_DISTINCT = (int) 1E4;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullDeDuplicator() {
+        new DeDuplicatingProcessor(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidBatchSize() {
+        new DeDuplicatingProcessor(new BSBFDeDuplicator(NUM_BITS, 2), 0, 0L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidMaxBatchDelay() {
+        new DeDuplicatingProcessor(new BSBFDeDuplicator(NUM_BITS, 2), BATCH_SIZE, -1L, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testUpstreamDemand() {
+        final DeDuplicatingProcessor processor =
+                new DeDuplicatingProcessor(new BSBFDeDuplicator(NUM_BITS, 4), BATCH_SIZE, 0L, TimeUnit.MILLISECONDS);
+        final RecordingSubscription subscription = new RecordingSubscription();
+        processor.onSubscribe(subscription);
+        assertEquals(BATCH_SIZE, subscription.numRequested.get());
+        for (int element = 0; element < BATCH_SIZE - 1; element++) {
+            processor.onNext(bytes(element));
+        }
+        assertEquals(BATCH_SIZE, subscription.numRequested.get());
+        processor.onNext(bytes(BATCH_SIZE - 1));
+        assertEquals(2 * BATCH_SIZE, subscription.numRequested.get());
+
+        final RecordingSubscription secondSubscription = new RecordingSubscription();
+        processor.onSubscribe(secondSubscription);
+        assertTrue(secondSubscription.isCancelled);
+        processor.close();
+    }
+
+    @Test
+    public void testDropsDuplicates() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        final SubmissionPublisher<byte[]> publisher = new SubmissionPublisher<>(executorService, BATCH_SIZE);
+        try {
+            final DeDuplicatingProcessor processor = new DeDuplicatingProcessor(
+                    new BSBFDeDuplicator(NUM_BITS, 4),
+                    BATCH_SIZE,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    executorService,
+                    BATCH_SIZE
+            );
+            publisher.subscribe(processor);
+            final AtomicLong numDistinct = new AtomicLong();
+            // Requests one element at a time, so the processor must never outrun the subscriber.
+            final CompletableFuture<Void> future = processor.consume(element -> numDistinct.incrementAndGet());
+            for (int element = 0; element < NUM_ELEMENTS; element++) {
+                publisher.submit(bytes(element % NUM_DISTINCT));
+            }
+            publisher.close();
+            future.get(1, TimeUnit.MINUTES);
+            assertEquals(NUM_DISTINCT, numDistinct.get(), NUM_DISTINCT * 0.01D);
+        } finally {
+            publisher.close();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSlowSubscriber() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final DeDuplicatingProcessor processor = new DeDuplicatingProcessor(
+                    new BSBFDeDuplicator(NUM_BITS, 4),
+                    BATCH_SIZE,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    executorService,
+                    BATCH_SIZE
+            );
+            final RecordingSubscription subscription = new RecordingSubscription();
+            processor.onSubscribe(subscription);
+            final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+            final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+            processor.subscribe(new Flow.Subscriber<byte[]>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(1);
+                    subscribed.complete(subscription);
+                }
+
+                @Override
+                public void onNext(byte[] item) {
+                    received.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            final Flow.Subscription downstream = subscribed.get(1, TimeUnit.MINUTES);
+            // Fills the buffer of the subscriber, which only requested one element, and then blocks the upstream.
+            final Future<?> upstream = executorService.submit(() -> {
+                for (int element = 0; element < 4 * BATCH_SIZE; element++) {
+                    processor.onNext(bytes(element));
+                }
+            });
+            assertNotNull(received.poll(1, TimeUnit.MINUTES));
+            try {
+                upstream.get(200, TimeUnit.MILLISECONDS);
+                fail("The upstream must block while the subscriber does not request");
+            } catch (TimeoutException e) {
+                // Expected.
+            }
+            assertTrue(received.isEmpty());
+            assertTrue(subscription.numRequested.get() <= 3 * BATCH_SIZE);
+            downstream.request(Long.MAX_VALUE);
+            upstream.get(1, TimeUnit.MINUTES);
+            processor.close();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testMaxBatchDelay() throws Exception {
+        final DeDuplicatingProcessor processor =
+                new DeDuplicatingProcessor(new BSBFDeDuplicator(NUM_BITS, 4), BATCH_SIZE, 10L, TimeUnit.MILLISECONDS);
+        processor.onSubscribe(new RecordingSubscription());
+        final BlockingQueue<byte[]> received = new LinkedBlockingQueue<>();
+        processor.consume(received::add);
+        processor.onNext(bytes(1));
+        processor.onNext(bytes(2));
+        processor.onNext(bytes(1));
+        final byte[] first = received.poll(1, TimeUnit.MINUTES);
+        final byte[] second = received.poll(1, TimeUnit.MINUTES);
+        assertArrayEquals(bytes(1), first);
+        assertArrayEquals(bytes(2), second);
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        processor.close();
+    }
+
+    @Test
+    public void testMaxBatchDelayWithBusyExecutor() throws Exception {
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            final DeDuplicatingProcessor processor = new DeDuplicatingProcessor(
+                    new BSBFDeDuplicator(NUM_BITS, 4),
+                    BATCH_SIZE,
+                    10L,
+                    TimeUnit.MILLISECONDS,
+                    executorService,
+                    BATCH_SIZE
+            );
+            final RecordingSubscription subscription = new RecordingSubscription();
+            processor.onSubscribe(subscription);
+            // Occupies the delivery executor, which the delayed flush must not depend on.
+            executorService.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            processor.onNext(bytes(1));
+            final long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (subscription.numRequested.get() == BATCH_SIZE && System.nanoTime() < deadline) {
+                Thread.sleep(1L);
+            }
+            assertEquals(BATCH_SIZE + 1, subscription.numRequested.get());
+            processor.close();
+        } finally {
+            release.countDown();
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOnError() throws Exception {
+        final DeDuplicatingProcessor processor =
+                new DeDuplicatingProcessor(new BSBFDeDuplicator(NUM_BITS, 4), BATCH_SIZE, 0L, TimeUnit.MILLISECONDS);
+        processor.onSubscribe(new RecordingSubscription());
+        final CompletableFuture<Void> future = processor.consume(element -> {
+        });
+        processor.onNext(bytes(1));
+        final IllegalStateException error = new IllegalStateException();
+        processor.onError(error);
+        try {
+            future.get(1, TimeUnit.MINUTES);
+            fail("The error must be propagated");
+        } catch (ExecutionException e) {
+            assertSame(error, e.getCause());
+        }
+        assertTrue(processor.isClosed());
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+
+    private static final class RecordingSubscription implements Flow.Subscription {
+        private final AtomicLong numRequested = new AtomicLong();
+        private volatile boolean isCancelled;
+
+        @Override
+        public void request(long n) {
+            numRequested.addAndGet(n);
+        }
+
+        @Override
+        public void cancel() {
+            isCancelled = true;
+        }
+    }
+}
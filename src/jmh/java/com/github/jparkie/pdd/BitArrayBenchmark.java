@@ -14,6 +14,7 @@ import java.util.concurrent.TimeUnit;
 public class BitArrayBenchmark {
     private static final long BIT_ARRAY_LENGTH = 64L;
     private static final long BIT_ARRAY_INDEX = 1L;
+    private static final long BULK_BIT_ARRAY_LENGTH = 8 * 8L * 1024L * 1024L;
 
     @State(Scope.Benchmark)
     public static class GetState {
@@ -40,6 +41,19 @@ public class BitArrayBenchmark {
         }
     }
 
+    @State(Scope.Benchmark)
+    public static class BulkState {
+        private BitArray bitArray = new BitArray(BULK_BIT_ARRAY_LENGTH);
+        private BitArray otherBitArray = new BitArray(BULK_BIT_ARRAY_LENGTH);
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            for (long index = 0L; index < BULK_BIT_ARRAY_LENGTH; index += 3L) {
+                otherBitArray.set(index);
+            }
+        }
+    }
+
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     @OutputTimeUnit(TimeUnit.SECONDS)
@@ -60,4 +74,19 @@ public class BitArrayBenchmark {
     public void benchmarkClear(ClearState clearState, Blackhole blackhole) {
         blackhole.consume(clearState.bitArray.clear(BIT_ARRAY_INDEX));
     }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkPutAll(BulkState bulkState, Blackhole blackhole) {
+        bulkState.bitArray.putAll(bulkState.otherBitArray);
+        blackhole.consume(bulkState.bitArray.bitCount());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkDifferenceCount(BulkState bulkState, Blackhole blackhole) {
+        blackhole.consume(bulkState.bitArray.differenceCount(bulkState.otherBitArray));
+    }
 }
@@ -0,0 +1,70 @@
+package com.github.jparkie.pdd;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sun.misc.Unsafe Platform on JDK 8 with the VarHandle Platform of the Multi-Release JAR on JDK 9+.
+ */
+public class Murmur3_x86_32Benchmark {
+    private static final int NUM_KEYS = 256;
+
+    @State(Scope.Benchmark)
+    public static class BytesState {
+        @Param({"8", "16", "64"})
+        private int lengthInBytes;
+
+        private byte[] bytes;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            bytes = new byte[lengthInBytes];
+            new Random().nextBytes(bytes);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LanesState {
+        @Param({"2", "4"})
+        private int lengthInInts;
+
+        private int[] words;
+        private final int[] seeds = new int[NUM_KEYS];
+        private final int[] hashes = new int[NUM_KEYS];
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            final Random random = new Random();
+            words = new int[lengthInInts * NUM_KEYS];
+            for (int index = 0; index < words.length; index++) {
+                words[index] = random.nextInt();
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkHashUnsafeBytes(BytesState bytesState, Blackhole blackhole) {
+        final byte[] bytes = bytesState.bytes;
+        blackhole.consume(Murmur3_x86_32.hashUnsafeBytes(bytes, Platform.BYTE_ARRAY_OFFSET, bytes.length, 0));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(NUM_KEYS)
+    public void benchmarkHashIntLanes(LanesState lanesState, Blackhole blackhole) {
+        Murmur3_x86_32.hashIntLanes(
+                lanesState.words,
+                lanesState.lengthInInts,
+                NUM_KEYS,
+                lanesState.seeds,
+                lanesState.hashes
+        );
+        blackhole.consume(lanesState.hashes);
+    }
+}
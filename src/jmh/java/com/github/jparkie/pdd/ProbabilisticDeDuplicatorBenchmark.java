@@ -0,0 +1,114 @@
+package com.github.jparkie.pdd;
+
+import com.github.jparkie.pdd.impl.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+public class ProbabilisticDeDuplicatorBenchmark {
+    private static final long NUM_BITS = 8 * 8L * 1024L * 1024L;
+    private static final double FPP = 0.03D;
+    private static final long CARDINALITY = 4L * 1024L * 1024L;
+    private static final int LONG_BYTES = Long.SIZE / Byte.SIZE;
+    private static final int BATCH_SIZE = 256;
+    private static final int NUM_STRING_KEYS = 64 * 1024;
+    private static final Funnel<String> UTF8_FUNNEL = (from, into) -> into.putUtf8(from);
+
+    @State(Scope.Benchmark)
+    public static class DeDuplicatorState {
+        @Param({"BSBF", "BSBFSD", "RLBSBF", "CUCKOO", "QUOTIENT"})
+        private String algorithm;
+
+        private ProbabilisticDeDuplicator deDuplicator;
+        private final byte[] elementBytes = new byte[LONG_BYTES];
+        private final byte[][] batchBytes = new byte[BATCH_SIZE][LONG_BYTES];
+        private final boolean[] batchResults = new boolean[BATCH_SIZE];
+        private final String[] stringKeys = new String[NUM_STRING_KEYS];
+        private long counter;
+
+        @Setup(Level.Trial)
+        public void doSetup() {
+            switch (algorithm) {
+                case "BSBF":
+                    deDuplicator = BSBFDeDuplicator.create(NUM_BITS, FPP);
+                    break;
+                case "BSBFSD":
+                    deDuplicator = BSBFSDDeDuplicator.create(NUM_BITS, FPP);
+                    break;
+                case "RLBSBF":
+                    deDuplicator = RLBSBFDeDuplicator.create(NUM_BITS, FPP);
+                    break;
+                case "CUCKOO":
+                    deDuplicator = CuckooFilterDeDuplicator.create(NUM_BITS, FPP);
+                    break;
+                case "QUOTIENT":
+                    deDuplicator = QuotientFilterDeDuplicator.create(NUM_BITS, FPP);
+                    break;
+                default:
+                    throw new IllegalArgumentException(algorithm);
+            }
+            for (int index = 0; index < NUM_STRING_KEYS; index++) {
+                stringKeys[index] = "tenant-" + (index % 16) + "/user-" + index;
+            }
+        }
+
+        private String nextStringKey() {
+            return stringKeys[(int) (counter++ % NUM_STRING_KEYS)];
+        }
+
+        private byte[] nextElement() {
+            long value = counter++ % CARDINALITY;
+            for (int index = LONG_BYTES - 1; index >= 0; index--) {
+                elementBytes[index] = (byte) (value & 0xffL);
+                value >>= 8;
+            }
+            return elementBytes;
+        }
+
+        private byte[][] nextBatch() {
+            for (byte[] batchElementBytes : batchBytes) {
+                System.arraycopy(nextElement(), 0, batchElementBytes, 0, LONG_BYTES);
+            }
+            return batchBytes;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkClassifyDistinct(DeDuplicatorState state, Blackhole blackhole) {
+        blackhole.consume(state.deDuplicator.classifyDistinct(state.nextElement()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void benchmarkClassifyDistinctBatch(DeDuplicatorState state, Blackhole blackhole) {
+        state.deDuplicator.classifyDistinct(state.nextBatch(), state.batchResults);
+        blackhole.consume(state.batchResults);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkPeekDistinct(DeDuplicatorState state, Blackhole blackhole) {
+        blackhole.consume(state.deDuplicator.peekDistinct(state.nextElement()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkClassifyDistinctStringBytes(DeDuplicatorState state, Blackhole blackhole) {
+        blackhole.consume(state.deDuplicator.classifyDistinct(state.nextStringKey().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void benchmarkClassifyDistinctStringFunnel(DeDuplicatorState state, Blackhole blackhole) {
+        blackhole.consume(state.deDuplicator.classifyDistinct(state.nextStringKey(), UTF8_FUNNEL));
+    }
+}
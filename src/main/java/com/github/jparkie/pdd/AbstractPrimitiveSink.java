@@ -0,0 +1,128 @@
+package com.github.jparkie.pdd;
+
+/**
+ * A {@link PrimitiveSink} which decomposes every value into {@link #putByte(byte)} and {@link #putInt(int)}.
+ */
+abstract class AbstractPrimitiveSink implements PrimitiveSink {
+    @Override
+    public PrimitiveSink putBytes(byte[] bytes) {
+        return putBytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public PrimitiveSink putBytes(byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        for (int index = offset; index < offset + length; index++) {
+            putByte(bytes[index]);
+        }
+        return this;
+    }
+
+    @Override
+    public PrimitiveSink putBoolean(boolean b) {
+        return putByte(b ? (byte) 1 : (byte) 0);
+    }
+
+    @Override
+    public PrimitiveSink putShort(short s) {
+        putByte((byte) s);
+        return putByte((byte) (s >>> 8));
+    }
+
+    @Override
+    public PrimitiveSink putChar(char c) {
+        putByte((byte) c);
+        return putByte((byte) (c >>> 8));
+    }
+
+    @Override
+    public PrimitiveSink putInt(int i) {
+        putByte((byte) i);
+        putByte((byte) (i >>> 8));
+        putByte((byte) (i >>> 16));
+        return putByte((byte) (i >>> 24));
+    }
+
+    @Override
+    public PrimitiveSink putLong(long l) {
+        putInt((int) l);
+        return putInt((int) (l >>> 32));
+    }
+
+    @Override
+    public PrimitiveSink putFloat(float f) {
+        return putInt(Float.floatToRawIntBits(f));
+    }
+
+    @Override
+    public PrimitiveSink putDouble(double d) {
+        return putLong(Double.doubleToRawLongBits(d));
+    }
+
+    @Override
+    public PrimitiveSink putUnencodedChars(CharSequence charSequence) {
+        final int length = charSequence.length();
+        int index = 0;
+        for (; index + 1 < length; index += 2) {
+            putInt(charSequence.charAt(index) | (charSequence.charAt(index + 1) << 16));
+        }
+        if (index < length) {
+            putChar(charSequence.charAt(index));
+        }
+        return this;
+    }
+
+    @Override
+    public PrimitiveSink putUtf8(CharSequence charSequence) {
+        final int length = charSequence.length();
+        int index = 0;
+        while (index < length) {
+            // Runs of ASCII are put 4 chars at a time.
+            if (index + 3 < length) {
+                final char c0 = charSequence.charAt(index);
+                final char c1 = charSequence.charAt(index + 1);
+                final char c2 = charSequence.charAt(index + 2);
+                final char c3 = charSequence.charAt(index + 3);
+                if ((c0 | c1 | c2 | c3) < 0x80) {
+                    putInt(c0 | (c1 << 8) | (c2 << 16) | (c3 << 24));
+                    index += 4;
+                    continue;
+                }
+            }
+            final char c = charSequence.charAt(index++);
+            if (c < 0x80) {
+                putByte((byte) c);
+            } else if (c < 0x800) {
+                putByte((byte) (0xc0 | (c >>> 6)));
+                putByte((byte) (0x80 | (c & 0x3f)));
+            } else if (!Character.isSurrogate(c)) {
+                putByte((byte) (0xe0 | (c >>> 12)));
+                putByte((byte) (0x80 | ((c >>> 6) & 0x3f)));
+                putByte((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) &&
+                    index < length &&
+                    Character.isLowSurrogate(charSequence.charAt(index))) {
+                final int codePoint = Character.toCodePoint(c, charSequence.charAt(index++));
+                putByte((byte) (0xf0 | (codePoint >>> 18)));
+                putByte((byte) (0x80 | ((codePoint >>> 12) & 0x3f)));
+                putByte((byte) (0x80 | ((codePoint >>> 6) & 0x3f)));
+                putByte((byte) (0x80 | (codePoint & 0x3f)));
+            } else {
+                putByte((byte) '?');
+            }
+        }
+        return this;
+    }
+
+    static void checkRange(byte[] bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > bytes.length - length) {
+            final String error = String.format(
+                    "offset and length must be within %d bytes, but got %d and %d",
+                    bytes.length,
+                    offset,
+                    length
+            );
+            throw new IllegalArgumentException(error);
+        }
+    }
+}
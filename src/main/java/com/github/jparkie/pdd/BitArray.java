@@ -9,46 +9,76 @@ import java.util.Arrays;
  * Adapted From: https://github.com/apache/spark/blob/branch-2.0/common/sketch/src/main/java/org/apache/spark/util/sketch/BitArray.java
  */
 public final class BitArray {
-    private final long[] data;
+    /**
+     * The words of an array are stored in segments of 2^SEGMENT_SHIFT words (i.e. 1GiB), so that an array may hold
+     * more than Integer.MAX_VALUE words. Every segment but the last is full.
+     */
+    static final int SEGMENT_SHIFT = 27;
+
+    // Marks a number of words which does not fit an int within the serialized form.
+    private static final int LONG_NUM_WORDS = -1;
+
+    private final long[][] segments;
+    private final long numWords;
+    private final int segmentShift;
+    private final long segmentMask;
     private long bitCount;
 
     public BitArray(long numBits) {
-        this(new long[numWords(numBits)]);
+        this(numWords(numBits), SEGMENT_SHIFT);
+    }
+
+    BitArray(long numWords, int segmentShift) {
+        this(allocateSegments(numWords, segmentShift), numWords, segmentShift);
     }
 
-    private BitArray(long[] data) {
-        this.data = data;
-        long bitCount = 0;
-        for (long word : data) {
-            bitCount += Long.bitCount(word);
+    private BitArray(long[][] segments, long numWords, int segmentShift) {
+        this.segments = segments;
+        this.numWords = numWords;
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1L;
+        this.bitCount = 0L;
+        for (long[] segment : segments) {
+            this.bitCount += BulkOperation.BIT_COUNT.apply(segment, segment);
         }
-        this.bitCount = bitCount;
     }
 
-    private static int numWords(long numBits) {
+    private static long numWords(long numBits) {
         if (numBits <= 0) {
             final String error = String.format("numBits must be positive, but got %d", numBits);
             throw new IllegalArgumentException(error);
         }
-        final long numWords = (long) Math.ceil(numBits / 64D);
-        if (numWords > Integer.MAX_VALUE) {
-            final String error = String.format("Cannot allocate enough space for %d bits", numBits);
+        return ((numBits - 1L) >>> 6) + 1L;
+    }
+
+    private static long[][] allocateSegments(long numWords, int segmentShift) {
+        final long segmentWords = 1L << segmentShift;
+        final long numSegments = (numWords + segmentWords - 1L) >>> segmentShift;
+        if (numSegments > Integer.MAX_VALUE) {
+            final String error = String.format("Cannot allocate enough space for %d words", numWords);
             throw new IllegalArgumentException(error);
         }
-        return (int) numWords;
+        final long[][] segments = new long[(int) numSegments][];
+        for (int index = 0; index < segments.length; index++) {
+            final long fromWordIndex = (long) index << segmentShift;
+            segments[index] = new long[(int) Math.min(segmentWords, numWords - fromWordIndex)];
+        }
+        return segments;
     }
 
     public boolean get(long index) {
-        final int arrayIndex = (int)(index >>> 6);
+        final long wordIndex = index >>> 6;
         final long bitMask = 1L << index;
-        return (data[arrayIndex] & bitMask) != 0;
+        return (segments[(int) (wordIndex >>> segmentShift)][(int) (wordIndex & segmentMask)] & bitMask) != 0;
     }
 
     public boolean set(long index) {
-        final int arrayIndex = (int)(index >>> 6);
+        final long wordIndex = index >>> 6;
+        final long[] segment = segments[(int) (wordIndex >>> segmentShift)];
+        final int segmentIndex = (int) (wordIndex & segmentMask);
         final long bitMask = 1L << index;
-        if ((data[arrayIndex] & bitMask) == 0) {
-            data[arrayIndex] |= bitMask;
+        if ((segment[segmentIndex] & bitMask) == 0) {
+            segment[segmentIndex] |= bitMask;
             bitCount++;
             return true;
         }
@@ -56,10 +86,12 @@ public final class BitArray {
     }
 
     public boolean clear(long index) {
-        final int arrayIndex = (int)(index >>> 6);
+        final long wordIndex = index >>> 6;
+        final long[] segment = segments[(int) (wordIndex >>> segmentShift)];
+        final int segmentIndex = (int) (wordIndex & segmentMask);
         final long bitMask = 1L << index;
-        if ((data[arrayIndex] & bitMask) != 0) {
-            data[arrayIndex] &= ~bitMask;
+        if ((segment[segmentIndex] & bitMask) != 0) {
+            segment[segmentIndex] &= ~bitMask;
             bitCount--;
             return true;
         }
@@ -67,44 +99,166 @@ public final class BitArray {
     }
 
     public long bitSize() {
-        return (long) data.length * Long.SIZE;
+        return numWords * Long.SIZE;
     }
 
     public long bitCount() {
         return bitCount;
     }
 
+    /**
+     * Clears every bit in place, across the common ForkJoinPool for large arrays.
+     */
+    public void clearAll() {
+        for (long[] segment : segments) {
+            BulkOperation.CLEAR.apply(segment, segment);
+        }
+        this.bitCount = 0L;
+    }
+
+    /**
+     * Sets every bit which is set in the given {@link BitArray} (i.e. this |= array).
+     */
     public void putAll(BitArray array) {
-        if (data.length != array.data.length) {
+        checkEqualLength(array);
+        this.bitCount = applyAll(BulkOperation.OR, array);
+    }
+
+    /**
+     * Clears every bit which is not set in the given {@link BitArray} (i.e. this &amp;= array).
+     */
+    public void retainAll(BitArray array) {
+        checkEqualLength(array);
+        this.bitCount = applyAll(BulkOperation.AND, array);
+    }
+
+    /**
+     * Flips every bit which is set in the given {@link BitArray} (i.e. this ^= array).
+     */
+    public void xorAll(BitArray array) {
+        checkEqualLength(array);
+        this.bitCount = applyAll(BulkOperation.XOR, array);
+    }
+
+    /**
+     * The number of bits which differ from the given {@link BitArray}.
+     */
+    public long differenceCount(BitArray array) {
+        checkEqualLength(array);
+        return applyAll(BulkOperation.DIFFERENCE_COUNT, array);
+    }
+
+    /**
+     * Folds this {@link BitArray} into a new {@link BitArray} of bitSize() / factor bits, whose bit i is set if any
+     * bit i + j * bitSize() / factor is set, i.e. bit index is moved to index % (bitSize() / factor).
+     * <p>
+     * A folded Bloom filter still contains every element that it contained only if its positions are the same hash
+     * reduced modulo either size. The de-duplicators of com.github.jparkie.pdd.impl reduce a 32-bit combined hash up to
+     * 2^31 bits but a 64-bit one above, so only a fold which stays on the same side of 2^31 bits keeps their elements.
+     */
+    public BitArray fold(int factor) {
+        if (factor <= 0 || numWords % factor != 0) {
+            final String error = String.format(
+                    "factor must be a positive divisor of %d, but got %d",
+                    numWords,
+                    factor
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final long foldedNumWords = numWords / factor;
+        final long[][] foldedSegments = allocateSegments(foldedNumWords, segmentShift);
+        long foldedWordIndex = 0L;
+        for (long[] segment : segments) {
+            for (long word : segment) {
+                foldedSegments[(int) (foldedWordIndex >>> segmentShift)][(int) (foldedWordIndex & segmentMask)] |= word;
+                if (++foldedWordIndex == foldedNumWords) {
+                    foldedWordIndex = 0L;
+                }
+            }
+        }
+        return new BitArray(foldedSegments, foldedNumWords, segmentShift);
+    }
+
+    private long applyAll(BulkOperation operation, BitArray array) {
+        long bitCount = 0L;
+        for (int index = 0; index < segments.length; index++) {
+            bitCount += operation.apply(segments[index], array.segments[index]);
+        }
+        return bitCount;
+    }
+
+    private void checkEqualLength(BitArray array) {
+        if (numWords != array.numWords) {
             final String error = String.format(
                     "BitArrays must be of equal length (%d != %d)",
-                    data.length,
-                    array.data.length);
+                    numWords,
+                    array.numWords);
             throw new IllegalArgumentException(error);
         }
-        long bitCount = 0;
-        for (int i = 0; i < data.length; i++) {
-            data[i] |= array.data[i];
-            bitCount += Long.bitCount(data[i]);
+        if (segmentShift != array.segmentShift) {
+            final String error = String.format(
+                    "BitArrays must be of equal segments (%d != %d)",
+                    segmentShift,
+                    array.segmentShift);
+            throw new IllegalArgumentException(error);
         }
-        this.bitCount = bitCount;
+    }
+
+    private long word(long wordIndex) {
+        return segments[(int) (wordIndex >>> segmentShift)][(int) (wordIndex & segmentMask)];
     }
 
     // @formatter:off
+    /**
+     * Writes the number of words as an int, as before segmentation, unless it does not fit an int.
+     */
     public void writeTo(DataOutputStream out) throws IOException {
-        out.writeInt(data.length);
-        for (long datum : data) {
-            out.writeLong(datum);
+        if (numWords <= Integer.MAX_VALUE) {
+            out.writeInt((int) numWords);
+        } else {
+            out.writeInt(LONG_NUM_WORDS);
+            out.writeLong(numWords);
+        }
+        for (long[] segment : segments) {
+            for (long datum : segment) {
+                out.writeLong(datum);
+            }
         }
     }
 
     public static BitArray readFrom(DataInputStream in) throws IOException {
-        final int numWords = in.readInt();
-        long[] data = new long[numWords];
-        for (int i = 0; i < numWords; i++) {
-            data[i] = in.readLong();
+        final long numWords = readNumWords(in);
+        final long[][] segments = allocateSegments(numWords, SEGMENT_SHIFT);
+        for (long[] segment : segments) {
+            LongArrays.readFully(in, segment);
+        }
+        return new BitArray(segments, numWords, SEGMENT_SHIFT);
+    }
+
+    /**
+     * Reads a {@link BitArray} of the same number of words over an existing one, without allocating its words.
+     */
+    public static void readInto(BitArray existing, DataInputStream in) throws IOException {
+        final long numWords = readNumWords(in);
+        if (numWords != existing.numWords) {
+            final String error =
+                    String.format("Unexpected number of words %d, expected %d", numWords, existing.numWords);
+            throw new IOException(error);
+        }
+        existing.bitCount = 0L;
+        for (long[] segment : existing.segments) {
+            LongArrays.readFully(in, segment);
+            existing.bitCount += BulkOperation.BIT_COUNT.apply(segment, segment);
+        }
+    }
+
+    private static long readNumWords(DataInputStream in) throws IOException {
+        final int intNumWords = in.readInt();
+        final long numWords = intNumWords == LONG_NUM_WORDS ? in.readLong() : intNumWords;
+        if (numWords <= 0L) {
+            throw new IOException(String.format("Invalid number of words %d", numWords));
         }
-        return new BitArray(data);
+        return numWords;
     }
     // @formatter:on
 
@@ -117,11 +271,31 @@ public final class BitArray {
             return false;
         }
         final BitArray that = (BitArray) other;
-        return Arrays.equals(data, that.data);
+        if (numWords != that.numWords) {
+            return false;
+        }
+        if (segmentShift == that.segmentShift) {
+            return Arrays.deepEquals(segments, that.segments);
+        }
+        for (long wordIndex = 0L; wordIndex < numWords; wordIndex++) {
+            if (word(wordIndex) != that.word(wordIndex)) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /**
+     * The same as Arrays.hashCode of all words, however they are segmented.
+     */
     @Override
     public int hashCode() {
-        return Arrays.hashCode(data);
+        int result = 1;
+        for (long[] segment : segments) {
+            for (long word : segment) {
+                result = 31 * result + (int) (word ^ (word >>> 32));
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,208 @@
+package com.github.jparkie.pdd;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Word-wise operations over the data of {@link BitArray}s which return the number of set bits of their result.
+ * <p>
+ * Every loop is unrolled by four words with independent bit counts to keep several words in flight at once. Arrays of
+ * at least {@link #PARALLEL_THRESHOLD} words are split into ranges of {@link #SEQUENTIAL_THRESHOLD} words across the
+ * common {@link ForkJoinPool}.
+ */
+enum BulkOperation {
+    /**
+     * data |= other.
+     */
+    OR {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            long bitCount0 = 0L;
+            long bitCount1 = 0L;
+            long bitCount2 = 0L;
+            long bitCount3 = 0L;
+            int index = fromIndex;
+            for (; index + 3 < toIndex; index += 4) {
+                final long word0 = data[index] | other[index];
+                final long word1 = data[index + 1] | other[index + 1];
+                final long word2 = data[index + 2] | other[index + 2];
+                final long word3 = data[index + 3] | other[index + 3];
+                data[index] = word0;
+                data[index + 1] = word1;
+                data[index + 2] = word2;
+                data[index + 3] = word3;
+                bitCount0 += Long.bitCount(word0);
+                bitCount1 += Long.bitCount(word1);
+                bitCount2 += Long.bitCount(word2);
+                bitCount3 += Long.bitCount(word3);
+            }
+            for (; index < toIndex; index++) {
+                data[index] |= other[index];
+                bitCount0 += Long.bitCount(data[index]);
+            }
+            return bitCount0 + bitCount1 + bitCount2 + bitCount3;
+        }
+    },
+    /**
+     * data &amp;= other.
+     */
+    AND {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            long bitCount0 = 0L;
+            long bitCount1 = 0L;
+            long bitCount2 = 0L;
+            long bitCount3 = 0L;
+            int index = fromIndex;
+            for (; index + 3 < toIndex; index += 4) {
+                final long word0 = data[index] & other[index];
+                final long word1 = data[index + 1] & other[index + 1];
+                final long word2 = data[index + 2] & other[index + 2];
+                final long word3 = data[index + 3] & other[index + 3];
+                data[index] = word0;
+                data[index + 1] = word1;
+                data[index + 2] = word2;
+                data[index + 3] = word3;
+                bitCount0 += Long.bitCount(word0);
+                bitCount1 += Long.bitCount(word1);
+                bitCount2 += Long.bitCount(word2);
+                bitCount3 += Long.bitCount(word3);
+            }
+            for (; index < toIndex; index++) {
+                data[index] &= other[index];
+                bitCount0 += Long.bitCount(data[index]);
+            }
+            return bitCount0 + bitCount1 + bitCount2 + bitCount3;
+        }
+    },
+    /**
+     * data ^= other.
+     */
+    XOR {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            long bitCount0 = 0L;
+            long bitCount1 = 0L;
+            long bitCount2 = 0L;
+            long bitCount3 = 0L;
+            int index = fromIndex;
+            for (; index + 3 < toIndex; index += 4) {
+                final long word0 = data[index] ^ other[index];
+                final long word1 = data[index + 1] ^ other[index + 1];
+                final long word2 = data[index + 2] ^ other[index + 2];
+                final long word3 = data[index + 3] ^ other[index + 3];
+                data[index] = word0;
+                data[index + 1] = word1;
+                data[index + 2] = word2;
+                data[index + 3] = word3;
+                bitCount0 += Long.bitCount(word0);
+                bitCount1 += Long.bitCount(word1);
+                bitCount2 += Long.bitCount(word2);
+                bitCount3 += Long.bitCount(word3);
+            }
+            for (; index < toIndex; index++) {
+                data[index] ^= other[index];
+                bitCount0 += Long.bitCount(data[index]);
+            }
+            return bitCount0 + bitCount1 + bitCount2 + bitCount3;
+        }
+    },
+    /**
+     * The number of set bits of data ^ other, without modifying data.
+     */
+    DIFFERENCE_COUNT {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            long bitCount0 = 0L;
+            long bitCount1 = 0L;
+            long bitCount2 = 0L;
+            long bitCount3 = 0L;
+            int index = fromIndex;
+            for (; index + 3 < toIndex; index += 4) {
+                bitCount0 += Long.bitCount(data[index] ^ other[index]);
+                bitCount1 += Long.bitCount(data[index + 1] ^ other[index + 1]);
+                bitCount2 += Long.bitCount(data[index + 2] ^ other[index + 2]);
+                bitCount3 += Long.bitCount(data[index + 3] ^ other[index + 3]);
+            }
+            for (; index < toIndex; index++) {
+                bitCount0 += Long.bitCount(data[index] ^ other[index]);
+            }
+            return bitCount0 + bitCount1 + bitCount2 + bitCount3;
+        }
+    },
+    /**
+     * data = 0; other is ignored.
+     */
+    CLEAR {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            Arrays.fill(data, fromIndex, toIndex, 0L);
+            return 0L;
+        }
+    },
+    /**
+     * The number of set bits of data; other is ignored.
+     */
+    BIT_COUNT {
+        @Override
+        long applySequential(long[] data, long[] other, int fromIndex, int toIndex) {
+            long bitCount0 = 0L;
+            long bitCount1 = 0L;
+            long bitCount2 = 0L;
+            long bitCount3 = 0L;
+            int index = fromIndex;
+            for (; index + 3 < toIndex; index += 4) {
+                bitCount0 += Long.bitCount(data[index]);
+                bitCount1 += Long.bitCount(data[index + 1]);
+                bitCount2 += Long.bitCount(data[index + 2]);
+                bitCount3 += Long.bitCount(data[index + 3]);
+            }
+            for (; index < toIndex; index++) {
+                bitCount0 += Long.bitCount(data[index]);
+            }
+            return bitCount0 + bitCount1 + bitCount2 + bitCount3;
+        }
+    };
+
+    static final int SEQUENTIAL_THRESHOLD = 1 << 16;
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+
+    abstract long applySequential(long[] data, long[] other, int fromIndex, int toIndex);
+
+    long apply(long[] data, long[] other) {
+        if (data.length < PARALLEL_THRESHOLD) {
+            return applySequential(data, other, 0, data.length);
+        }
+        return ForkJoinPool.commonPool().invoke(new BulkTask(this, data, other, 0, data.length));
+    }
+
+    private static final class BulkTask extends RecursiveTask<Long> {
+        private final BulkOperation operation;
+        private final long[] data;
+        private final long[] other;
+        private final int fromIndex;
+        private final int toIndex;
+
+        private BulkTask(BulkOperation operation, long[] data, long[] other, int fromIndex, int toIndex) {
+            this.operation = operation;
+            this.data = data;
+            this.other = other;
+            this.fromIndex = fromIndex;
+            this.toIndex = toIndex;
+        }
+
+        @Override
+        protected Long compute() {
+            if (toIndex - fromIndex <= SEQUENTIAL_THRESHOLD) {
+                return operation.applySequential(data, other, fromIndex, toIndex);
+            }
+            final int middleIndex = (fromIndex + toIndex) >>> 1;
+            final BulkTask leftTask = new BulkTask(operation, data, other, fromIndex, middleIndex);
+            final BulkTask rightTask = new BulkTask(operation, data, other, middleIndex, toIndex);
+            leftTask.fork();
+            final long rightBitCount = rightTask.compute();
+            return leftTask.join() + rightBitCount;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.github.jparkie.pdd;
+
+import java.util.Arrays;
+
+/**
+ * A {@link PrimitiveSink} which collects the bytes put into a growing array.
+ */
+final class ByteArraySink extends AbstractPrimitiveSink {
+    private static final int INITIAL_CAPACITY = 32;
+
+    private byte[] bytes;
+    private int length;
+
+    ByteArraySink() {
+        this.bytes = new byte[INITIAL_CAPACITY];
+        this.length = 0;
+    }
+
+    static <T> byte[] toByteArray(T element, Funnel<? super T> funnel) {
+        final ByteArraySink sink = new ByteArraySink();
+        funnel.funnel(element, sink);
+        return sink.toByteArray();
+    }
+
+    @Override
+    public PrimitiveSink putByte(byte b) {
+        ensureCapacity(1);
+        bytes[length++] = b;
+        return this;
+    }
+
+    @Override
+    public PrimitiveSink putBytes(byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        ensureCapacity(length);
+        System.arraycopy(bytes, offset, this.bytes, this.length, length);
+        this.length += length;
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private void ensureCapacity(int numBytes) {
+        if (length + numBytes > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + numBytes));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.jparkie.pdd;
+
+/**
+ * Decomposes an element into primitive values, so that it is classified without being encoded into a byte[].
+ * <p>
+ * A funnel must put the same values for equal elements, and may be invoked more than once per element.
+ *
+ * @param <T> The type of the elements.
+ */
+@FunctionalInterface
+public interface Funnel<T> {
+    /**
+     * Puts the primitive values of an element into a sink.
+     *
+     * @param from The element.
+     * @param into The {@link PrimitiveSink}.
+     */
+    void funnel(T from, PrimitiveSink into);
+}
@@ -0,0 +1,100 @@
+package com.github.jparkie.pdd;
+
+/**
+ * An element which is hashed once into the two Murmur3 hashes of the Kirsch-Mitzenmacher double hashing, so that it
+ * can be classified or peeked against any number of {@link ProbabilisticDeDuplicator}s without hashing it again.
+ * <p>
+ * hash1 is the hash of the element with a seed of 0 and hash2 is the hash of the element with hash1 as its seed, so
+ * that a {@link HashedElement} of an element is classified exactly as the element itself.
+ */
+public final class HashedElement {
+    private final int hash1;
+    private final int hash2;
+
+    private HashedElement(int hash1, int hash2) {
+        this.hash1 = hash1;
+        this.hash2 = hash2;
+    }
+
+    /**
+     * Hashes an element.
+     *
+     * @param element An element from an unbounded sequence.
+     * @return The {@link HashedElement} of the element.
+     */
+    public static HashedElement of(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return new HashedElement(hash1, hash2);
+    }
+
+    /**
+     * Hashes an element which is decomposed by a {@link Funnel}, as the bytes which the funnel puts.
+     *
+     * @param element An element from an unbounded sequence.
+     * @param funnel The {@link Funnel} of the element.
+     * @param <T> The type of the element.
+     * @return The {@link HashedElement} of the element.
+     */
+    public static <T> HashedElement of(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return new HashedElement(hash1, hash2);
+    }
+
+    /**
+     * Hashes an element which is identified by a 64-bit key or by a hash which was computed upstream (e.g. by a
+     * partitioner) with {@link Murmur3_x86_32#hashLong(long, int)}, which on little-endian platforms is the same as
+     * funnelling it by {@link PrimitiveSink#putLong(long)}. Hashing again spreads narrower hashes over both hashes.
+     *
+     * @param hash A 64-bit key or hash.
+     * @return The {@link HashedElement} of the long.
+     */
+    public static HashedElement ofLong(long hash) {
+        final int hash1 = Murmur3_x86_32.hashLong(hash, 0);
+        final int hash2 = Murmur3_x86_32.hashLong(hash, hash1);
+        return new HashedElement(hash1, hash2);
+    }
+
+    /**
+     * Wraps the two hashes of an element as they are, e.g. those of a {@link HashedElement} which was passed along.
+     *
+     * @param hash1 The hash of the element with a seed of 0.
+     * @param hash2 The hash of the element with hash1 as its seed.
+     * @return The {@link HashedElement} of the hashes.
+     */
+    public static HashedElement ofHashes(int hash1, int hash2) {
+        return new HashedElement(hash1, hash2);
+    }
+
+    public int hash1() {
+        return hash1;
+    }
+
+    public int hash2() {
+        return hash2;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final HashedElement that = (HashedElement) other;
+        return hash1 == that.hash1 && hash2 == that.hash2;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * hash1 + hash2;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HashedElement(%08x, %08x)", hash1, hash2);
+    }
+}
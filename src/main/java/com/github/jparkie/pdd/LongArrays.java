@@ -0,0 +1,58 @@
+package com.github.jparkie.pdd;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Bulk reads of the big-endian longs written by {@link java.io.DataOutputStream#writeLong(long)}.
+ */
+public final class LongArrays {
+    // 8KiB, so that a read of any number of longs only buffers a constant amount of memory.
+    private static final int CHUNK_LONGS = 1024;
+
+    private LongArrays() {
+    }
+
+    /**
+     * Reads longs into a range of an existing array, a chunk of bytes at a time rather than a long at a time.
+     *
+     * @param in The input stream to read the longs.
+     * @param data The array to overwrite.
+     * @param offset The first index of the range.
+     * @param length The number of longs to read.
+     * @throws IOException Thrown if the read fails or the stream ends early.
+     */
+    public static void readFully(DataInputStream in, long[] data, int offset, int length) throws IOException {
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            final String error = String.format(
+                    "offset and length must be within %d longs, but got %d and %d",
+                    data.length,
+                    offset,
+                    length
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final byte[] chunk = new byte[Math.min(length, CHUNK_LONGS) * Long.BYTES];
+        final ByteBuffer chunkBuffer = ByteBuffer.wrap(chunk);
+        int index = offset;
+        final int toIndex = offset + length;
+        while (index < toIndex) {
+            final int chunkLongs = Math.min(toIndex - index, CHUNK_LONGS);
+            in.readFully(chunk, 0, chunkLongs * Long.BYTES);
+            chunkBuffer.asLongBuffer().get(data, index, chunkLongs);
+            index += chunkLongs;
+        }
+    }
+
+    /**
+     * Reads longs into the whole of an existing array.
+     *
+     * @param in The input stream to read the longs.
+     * @param data The array to overwrite.
+     * @throws IOException Thrown if the read fails or the stream ends early.
+     */
+    public static void readFully(DataInputStream in, long[] data) throws IOException {
+        readFully(in, data, 0, data.length);
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.jparkie.pdd;
+
+import java.nio.ByteOrder;
+
+/**
+ * A streaming {@link Murmur3_x86_32} hasher which is fed through the {@link PrimitiveSink} API.
+ * <p>
+ * After {@link #reset(int)}, the {@link #hash()} of the bytes put equals Murmur3_x86_32.hashUnsafeBytes of the same
+ * bytes with the same seed, but without an intermediate array. Whole words are mixed as they arrive and up to 3 bytes
+ * are held back for the next word. A hasher is not thread-safe and is meant to be reused.
+ */
+public final class Murmur3Hasher extends AbstractPrimitiveSink {
+    private static final boolean IS_LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private int h1;
+    private int lengthInBytes;
+    // The pending bytes in little-endian order.
+    private int pendingWord;
+    private int numPendingBytes;
+
+    public Murmur3Hasher() {
+        reset(0);
+    }
+
+    /**
+     * Discards every byte put, and restarts from a seed.
+     *
+     * @param seed The seed of the hash.
+     * @return This hasher.
+     */
+    public Murmur3Hasher reset(int seed) {
+        this.h1 = seed;
+        this.lengthInBytes = 0;
+        this.pendingWord = 0;
+        this.numPendingBytes = 0;
+        return this;
+    }
+
+    /**
+     * The hash of the bytes put since the last {@link #reset(int)}; more bytes may be put afterwards.
+     *
+     * @return The 32-bit hash.
+     */
+    public int hash() {
+        int h1 = this.h1;
+        // As Murmur3_x86_32.hashUnsafeBytes, every trailing byte is mixed on its own.
+        for (int index = 0; index < numPendingBytes; index++) {
+            h1 = Murmur3_x86_32.mixH1(h1, Murmur3_x86_32.mixK1((byte) (pendingWord >>> (index * 8))));
+        }
+        return Murmur3_x86_32.fmix(h1, lengthInBytes);
+    }
+
+    /**
+     * Funnels an element into a reset hasher.
+     *
+     * @param element The element.
+     * @param funnel The {@link Funnel} of the element.
+     * @param seed The seed of the hash.
+     * @return The 32-bit hash of the element.
+     */
+    public <T> int hash(T element, Funnel<? super T> funnel, int seed) {
+        reset(seed);
+        funnel.funnel(element, this);
+        return hash();
+    }
+
+    @Override
+    public PrimitiveSink putByte(byte b) {
+        pendingWord |= (b & 0xff) << (numPendingBytes * 8);
+        lengthInBytes++;
+        if (++numPendingBytes == 4) {
+            mixWord(pendingWord);
+            pendingWord = 0;
+            numPendingBytes = 0;
+        }
+        return this;
+    }
+
+    @Override
+    public PrimitiveSink putBytes(byte[] bytes, int offset, int length) {
+        checkRange(bytes, offset, length);
+        int index = offset;
+        final int toIndex = offset + length;
+        for (; numPendingBytes != 0 && index < toIndex; index++) {
+            putByte(bytes[index]);
+        }
+        // Whole words are read in the native byte order, exactly as Murmur3_x86_32.hashUnsafeBytes reads them.
+        final int fromWordIndex = index;
+        int h1 = this.h1;
+        for (; index + 3 < toIndex; index += 4) {
+            h1 = Murmur3_x86_32.mixH1(
+                    h1,
+                    Murmur3_x86_32.mixK1(Platform.getInt(bytes, Platform.BYTE_ARRAY_OFFSET + index))
+            );
+        }
+        this.h1 = h1;
+        this.lengthInBytes += index - fromWordIndex;
+        for (; index < toIndex; index++) {
+            putByte(bytes[index]);
+        }
+        return this;
+    }
+
+    @Override
+    public PrimitiveSink putInt(int i) {
+        if (numPendingBytes != 0) {
+            return super.putInt(i);
+        }
+        mixWord(i);
+        lengthInBytes += 4;
+        return this;
+    }
+
+    private void mixWord(int littleEndianWord) {
+        // Murmur3_x86_32.hashUnsafeBytes reads words in the native byte order.
+        final int word = IS_LITTLE_ENDIAN ? littleEndianWord : Integer.reverseBytes(littleEndianWord);
+        h1 = Murmur3_x86_32.mixH1(h1, Murmur3_x86_32.mixK1(word));
+    }
+}
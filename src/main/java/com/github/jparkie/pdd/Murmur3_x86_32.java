@@ -83,6 +83,27 @@ public final class Murmur3_x86_32 {
         return h1;
     }
 
+    /**
+     * Hashes numKeys keys of lengthInInts ints at once, where the i-th int of the j-th key is at
+     * words[i * numKeys + j]. Every key is a lane which runs the same mixes in the same loop, so that the JIT compiler
+     * can vectorize them. The j-th hash equals hashUnsafeBytes of the j-th key with seeds[j]; seeds and hashes may be
+     * the same array.
+     */
+    public static void hashIntLanes(int[] words, int lengthInInts, int numKeys, int[] seeds, int[] hashes) {
+        assert (words.length >= lengthInInts * numKeys): "words must hold lengthInInts * numKeys ints";
+        System.arraycopy(seeds, 0, hashes, 0, numKeys);
+        for (int i = 0; i < lengthInInts; i++) {
+            final int wordsOffset = i * numKeys;
+            for (int j = 0; j < numKeys; j++) {
+                hashes[j] = mixH1(hashes[j], mixK1(words[wordsOffset + j]));
+            }
+        }
+        final int lengthInBytes = lengthInInts * 4;
+        for (int j = 0; j < numKeys; j++) {
+            hashes[j] = fmix(hashes[j], lengthInBytes);
+        }
+    }
+
     public int hashLong(long input) {
         return hashLong(input, seed);
     }
@@ -100,14 +121,14 @@ public final class Murmur3_x86_32 {
         return fmix(h1, 8);
     }
 
-    private static int mixK1(int k1) {
+    static int mixK1(int k1) {
         k1 *= C1;
         k1 = Integer.rotateLeft(k1, 15);
         k1 *= C2;
         return k1;
     }
 
-    private static int mixH1(int h1, int k1) {
+    static int mixH1(int h1, int k1) {
         h1 ^= k1;
         h1 = Integer.rotateLeft(h1, 13);
         h1 = h1 * 5 + 0xe6546b64;
@@ -115,7 +136,7 @@ public final class Murmur3_x86_32 {
     }
 
     // Finalization mix - force all bits of a hash block to avalanche
-    private static int fmix(int h1, int length) {
+    static int fmix(int h1, int length) {
         h1 ^= length;
         h1 ^= h1 >>> 16;
         h1 *= 0x85ebca6b;
@@ -0,0 +1,49 @@
+package com.github.jparkie.pdd;
+
+/**
+ * A sink of primitive values which a {@link Funnel} decomposes an element into.
+ * <p>
+ * Every value is put as its little-endian bytes, so funnelling an element is equivalent to classifying the
+ * concatenation of the bytes of its values, e.g. putInt(1) is equivalent to putBytes(new byte[]{1, 0, 0, 0}).
+ */
+public interface PrimitiveSink {
+    PrimitiveSink putByte(byte b);
+
+    PrimitiveSink putBytes(byte[] bytes);
+
+    PrimitiveSink putBytes(byte[] bytes, int offset, int length);
+
+    /**
+     * Puts 1 for true; otherwise, 0 for false.
+     */
+    PrimitiveSink putBoolean(boolean b);
+
+    PrimitiveSink putShort(short s);
+
+    PrimitiveSink putChar(char c);
+
+    PrimitiveSink putInt(int i);
+
+    PrimitiveSink putLong(long l);
+
+    /**
+     * Puts {@link Float#floatToRawIntBits(float)}.
+     */
+    PrimitiveSink putFloat(float f);
+
+    /**
+     * Puts {@link Double#doubleToRawLongBits(double)}.
+     */
+    PrimitiveSink putDouble(double d);
+
+    /**
+     * Puts every char of a sequence with {@link #putChar(char)}, i.e. its UTF-16LE bytes.
+     */
+    PrimitiveSink putUnencodedChars(CharSequence charSequence);
+
+    /**
+     * Puts the UTF-8 bytes of a sequence, i.e. the bytes of String.getBytes(UTF_8), without encoding it into an
+     * array. Unpaired surrogates are put as '?', as by String.getBytes(UTF_8).
+     */
+    PrimitiveSink putUtf8(CharSequence charSequence);
+}
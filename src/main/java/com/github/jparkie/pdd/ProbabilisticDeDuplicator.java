@@ -1,5 +1,8 @@
 package com.github.jparkie.pdd;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 /**
  * A classifier which detects whether a given element is a distinct or a duplicate element.
  */
@@ -27,6 +30,56 @@ public interface ProbabilisticDeDuplicator {
      */
     boolean classifyDistinct(byte[] element);
 
+    /**
+     * Probabilistically classifies whether each element of a batch is a distinct or a duplicate element, in order.
+     * This operation does record the results into its history.
+     *
+     * @param elements A batch of elements from an unbounded sequence.
+     * @param results The results, where results[i] is true if elements[i] is a distinct element; otherwise, false.
+     */
+    default void classifyDistinct(byte[][] elements, boolean[] results) {
+        if (results.length < elements.length) {
+            final String error = String.format(
+                    "results must hold at least %d results, but got %d",
+                    elements.length,
+                    results.length
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final int elementsLength = elements.length;
+        for (int index = 0; index < elementsLength; index++) {
+            results[index] = classifyDistinct(elements[index]);
+        }
+    }
+
+    /**
+     * Probabilistically classifies whether a given element is a distinct or a duplicate element, where the element is
+     * decomposed by a {@link Funnel} instead of being encoded into a byte[]. The result is the same as classifying the
+     * bytes which the funnel puts. This operation does record the result into its history.
+     *
+     * @param element An element from an unbounded sequence.
+     * @param funnel The {@link Funnel} of the element.
+     * @param <T> The type of the element.
+     * @return True if the element is a distinct element; otherwise, false if the element is a duplicate element.
+     */
+    default <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        return classifyDistinct(ByteArraySink.toByteArray(element, funnel));
+    }
+
+    /**
+     * Probabilistically classifies whether a given element is a distinct or a duplicate element, where the element was
+     * hashed once by {@link HashedElement} to be classified by several {@link ProbabilisticDeDuplicator}s. The result
+     * is the same as classifying the element itself. This operation does record the result into its history.
+     *
+     * @param element A {@link HashedElement} from an unbounded sequence.
+     * @return True if the element is a distinct element; otherwise, false if the element is a duplicate element.
+     * @throws UnsupportedOperationException Thrown if the {@link ProbabilisticDeDuplicator} needs the element itself.
+     */
+    default boolean classifyDistinct(HashedElement element) {
+        final String error = String.format("%s does not support hashed elements", getClass().getSimpleName());
+        throw new UnsupportedOperationException(error);
+    }
+
     /**
      * Probabilistically peeks whether a given element is a distinct or a duplicate element.
      * This operation does not record the result into its history.
@@ -36,6 +89,33 @@ public interface ProbabilisticDeDuplicator {
      */
     boolean peekDistinct(byte[] element);
 
+    /**
+     * Probabilistically peeks whether a given element is a distinct or a duplicate element, where the element is
+     * decomposed by a {@link Funnel} instead of being encoded into a byte[].
+     * This operation does not record the result into its history.
+     *
+     * @param element An element from an unbounded sequence.
+     * @param funnel The {@link Funnel} of the element.
+     * @param <T> The type of the element.
+     * @return True if the element is a distinct element; otherwise, false if the element is a duplicate element.
+     */
+    default <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        return peekDistinct(ByteArraySink.toByteArray(element, funnel));
+    }
+
+    /**
+     * Probabilistically peeks whether a given element is a distinct or a duplicate element, where the element was
+     * hashed once by {@link HashedElement}. This operation does not record the result into its history.
+     *
+     * @param element A {@link HashedElement} from an unbounded sequence.
+     * @return True if the element is a distinct element; otherwise, false if the element is a duplicate element.
+     * @throws UnsupportedOperationException Thrown if the {@link ProbabilisticDeDuplicator} needs the element itself.
+     */
+    default boolean peekDistinct(HashedElement element) {
+        final String error = String.format("%s does not support hashed elements", getClass().getSimpleName());
+        throw new UnsupportedOperationException(error);
+    }
+
     /**
      * The probability that a distinct element of the stream is reported as duplicate.
      *
@@ -56,4 +136,16 @@ public interface ProbabilisticDeDuplicator {
      * Reset the history of the {@link ProbabilisticDeDuplicator}.
      */
     void reset();
+
+    /**
+     * Reset the history of the {@link ProbabilisticDeDuplicator}, where the clearing of the old history may continue on
+     * an executor after this returns. Classification may continue immediately.
+     *
+     * @param executor The {@link Executor} to clear the old history on.
+     * @return A {@link CompletableFuture} which completes once the old history is cleared.
+     */
+    default CompletableFuture<Void> resetAsync(Executor executor) {
+        reset();
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -36,4 +36,20 @@ public interface ProbabilisticDeDuplicatorSerializer<T extends ProbabilisticDeDu
      * @throws IOException Thrown if the read fails.
      */
     T readFrom(InputStream in) throws IOException;
+
+    /**
+     * Reads in a {@link ProbabilisticDeDuplicator} from an input stream over an existing one of the same shape,
+     * overwriting its storage in place instead of allocating new storage. Restores and rollbacks then run at constant
+     * memory. If the read fails, the existing {@link ProbabilisticDeDuplicator} is left partially overwritten and
+     * should be reset or read into again.
+     * It is the caller's responsibility to close the stream.
+     *
+     * @param existing The {@link ProbabilisticDeDuplicator} to overwrite.
+     * @param in The input stream to read the {@link ProbabilisticDeDuplicator}.
+     * @throws IOException Thrown if the read fails or the persisted shape does not match the existing one.
+     */
+    default void readInto(T existing, InputStream in) throws IOException {
+        final String error = String.format("Version %d cannot be read into an existing instance.", version());
+        throw new UnsupportedOperationException(error);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A BSBF, BSBFSD, or RLBSBF de-duplicator which holds a target false positive probability while the mix of the stream
+ * drifts, by tuning how aggressively it resets bits instead of fixing the deletion policy at construction.
+ * <p>
+ * A distinct element is reported as duplicate with probability L^k, so the target fpp is held by holding the average
+ * load of the Bloom filters at L* = targetFpp^(1/k). Below L*, nothing is reset, which spends no random draws and loses
+ * no duplicate element. At or above L*, the expected number of resets per insertion is scaled by s, such that L* is the
+ * stable load of the scaled algorithm (see {@link DeDuplicatorAlgorithm#stableLoad(int)}), i.e.
+ * s * r(L*) * L* * (1 + L* + ... + L*^(k - 1)) = 1. When more of the stream is distinct (e.g. by day), the load rises
+ * above L* and the resets pull it back; when less is (e.g. by night), the resets stop and duplicates are remembered for
+ * as long as the target allows. False negatives only come from resets, so this is the lowest fnp for the target fpp.
+ * <p>
+ * The number of hash functions stays fixed: an element which was recorded in k Bloom filters would be lost from those
+ * which are dropped, and one which was recorded in fewer would be reported as distinct by those which are added back.
+ * <p>
+ * The scale is chosen again after every insertion from the bit counts of the k Bloom filters. Like the de-duplicators
+ * it wraps, it is not thread-safe; see {@link SingleWriterDeDuplicator}.
+ */
+public class AdaptiveDeDuplicator implements ProbabilisticDeDuplicator {
+    private final DeDuplicatorAlgorithm algorithm;
+    private final ProbabilisticDeDuplicator deDuplicator;
+    private final double targetFpp;
+    private final double targetBitCount;
+    private final double stableDeletionScale;
+
+    private double deletionScale;
+    // Whether bits may have been reset since the last reset, i.e. whether duplicates may have been lost.
+    private boolean hasDeleted;
+
+    public AdaptiveDeDuplicator(DeDuplicatorAlgorithm algorithm, long numBits, int numHashFunctions, double targetFpp) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("algorithm must not be null");
+        }
+        if (targetFpp <= 0D || targetFpp >= 1D) {
+            final String error = String.format("targetFpp must be in the range (0, 1), but got %f", targetFpp);
+            throw new IllegalArgumentException(error);
+        }
+        this.algorithm = algorithm;
+        this.deDuplicator = algorithm.create(numBits, numHashFunctions);
+        this.targetFpp = targetFpp;
+        final double targetLoad = Math.pow(targetFpp, 1D / numHashFunctions);
+        double totalBits = 0D;
+        for (BitArray bloomFilter : algorithm.bloomFilters(deDuplicator)) {
+            totalBits += bloomFilter.bitSize();
+        }
+        this.targetBitCount = targetLoad * totalBits;
+        this.stableDeletionScale = stableDeletionScale(algorithm, numHashFunctions, targetLoad);
+        this.deletionScale = 0D;
+        this.hasDeleted = false;
+        algorithm.deletionScale(deDuplicator, deletionScale);
+    }
+
+    /**
+     * The scale of the resets for which the target load is the stable load of the algorithm.
+     */
+    static double stableDeletionScale(DeDuplicatorAlgorithm algorithm, int numHashFunctions, double targetLoad) {
+        double loadSum = 0D;
+        double loadPower = 1D;
+        for (int index = 0; index < numHashFunctions; index++) {
+            loadSum += loadPower;
+            loadPower *= targetLoad;
+        }
+        return 1D / (algorithm.resetProbability(numHashFunctions, targetLoad) * targetLoad * loadSum);
+    }
+
+    /**
+     * The wrapped de-duplicator, which must not be accessed directly while this is in use.
+     *
+     * @return The wrapped {@link ProbabilisticDeDuplicator}.
+     */
+    public ProbabilisticDeDuplicator deDuplicator() {
+        return deDuplicator;
+    }
+
+    public double targetFpp() {
+        return targetFpp;
+    }
+
+    /**
+     * The current scale of the expected number of resets per insertion relative to the algorithm, which is 0 while
+     * the load is below the target load.
+     *
+     * @return The current deletion scale.
+     */
+    public double deletionScale() {
+        return deletionScale;
+    }
+
+    @Override
+    public long numBits() {
+        return deDuplicator.numBits();
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return deDuplicator.numHashFunctions();
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        return observe(deDuplicator.classifyDistinct(element));
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        return observe(deDuplicator.classifyDistinct(element, funnel));
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return observe(deDuplicator.classifyDistinct(element));
+    }
+
+    private boolean observe(boolean isDistinct) {
+        if (isDistinct) {
+            // Only an insertion changes the load.
+            adjustDeletionScale();
+        }
+        return isDistinct;
+    }
+
+    private void adjustDeletionScale() {
+        long bitCount = 0L;
+        for (BitArray bloomFilter : algorithm.bloomFilters(deDuplicator)) {
+            bitCount += bloomFilter.bitCount();
+        }
+        final double nextDeletionScale = bitCount < targetBitCount ? 0D : stableDeletionScale;
+        if (nextDeletionScale != deletionScale) {
+            deletionScale = nextDeletionScale;
+            hasDeleted |= deletionScale > 0D;
+            algorithm.deletionScale(deDuplicator, deletionScale);
+        }
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        return deDuplicator.peekDistinct(element);
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        return deDuplicator.peekDistinct(element, funnel);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return deDuplicator.peekDistinct(element);
+    }
+
+    /**
+     * From the current loads of the Bloom filters, as the reported duplicate probability of the wrapped de-duplicator
+     * models the unscaled resets.
+     */
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * reportedDuplicateProbability();
+    }
+
+    /**
+     * From the scaled model rather than the wrapped de-duplicator, which models the unscaled resets: as long as the
+     * load stayed below the target load, nothing was reset and no duplicate is reported as distinct. Once resets
+     * began, a duplicate is taken to keep all of its bits with the probability L^k at the current loads, as a distinct
+     * element finds all of its bits set, so it is reported as distinct with probability 1 - L^k, which the resets hold
+     * near 1 - targetFpp.
+     */
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        if (!hasDeleted) {
+            return 0D;
+        }
+        return (1D - actuallyDistinctProbability) * (1D - reportedDuplicateProbability());
+    }
+
+    // The product of the current loads of the Bloom filters.
+    private double reportedDuplicateProbability() {
+        double reportedDuplicateProbability = 1D;
+        for (BitArray bloomFilter : algorithm.bloomFilters(deDuplicator)) {
+            reportedDuplicateProbability *= ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
+        }
+        return reportedDuplicateProbability;
+    }
+
+    @Override
+    public void reset() {
+        deDuplicator.reset();
+        hasDeleted = false;
+        adjustDeletionScale();
+    }
+
+    @Override
+    public CompletableFuture<Void> resetAsync(Executor executor) {
+        final CompletableFuture<Void> cleared = deDuplicator.resetAsync(executor);
+        hasDeleted = false;
+        adjustDeletionScale();
+        return cleared;
+    }
+}
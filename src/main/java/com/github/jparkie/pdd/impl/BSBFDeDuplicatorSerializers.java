@@ -41,7 +41,26 @@ public enum BSBFDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSeri
             for (int index = 0; index < numHashFunctions; index++) {
                 bloomFilters[index] = BitArray.readFrom(dis);
             }
-            return new BSBFDeDuplicator(numBits, numHashFunctions, bloomFilters, 0D);
+            return new BSBFDeDuplicator(numBits, numHashFunctions, bloomFilters, 0D, DeletionMode.RANDOM);
+        }
+
+        @Override
+        public void readInto(BSBFDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final byte serializedVersion = dis.readByte();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            readBloomFiltersInto(existing, dis);
+            existing.reportedDuplicateProbability = 0D;
+            existing.deletionMode = DeletionMode.RANDOM;
+            existing.estimatedCardinality = 0D;
+            existing.estimatedCardinalityVariance = 0D;
         }
     },
     VERSION_2(2) {
@@ -76,7 +95,161 @@ public enum BSBFDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSeri
                 bloomFilters[index] = BitArray.readFrom(dis);
             }
             final double reportedDuplicateProbability = dis.readDouble();
-            return new BSBFDeDuplicator(numBits, numHashFunctions, bloomFilters, reportedDuplicateProbability);
+            return new BSBFDeDuplicator(
+                    numBits,
+                    numHashFunctions,
+                    bloomFilters,
+                    reportedDuplicateProbability,
+                    DeletionMode.RANDOM
+            );
+        }
+
+        @Override
+        public void readInto(BSBFDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            readBloomFiltersInto(existing, dis);
+            existing.reportedDuplicateProbability = dis.readDouble();
+            existing.deletionMode = DeletionMode.RANDOM;
+            existing.estimatedCardinality = 0D;
+            existing.estimatedCardinalityVariance = 0D;
+        }
+    },
+    VERSION_3(3) {
+        @Override
+        public void writeTo(BSBFDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeLong(probabilisticDeDuplicator.numBits);
+            dos.writeInt(probabilisticDeDuplicator.numHashFunctions);
+            for (BitArray bloomFilter : probabilisticDeDuplicator.bloomFilters) {
+                bloomFilter.writeTo(dos);
+            }
+            dos.writeDouble(probabilisticDeDuplicator.reportedDuplicateProbability);
+            dos.writeUTF(probabilisticDeDuplicator.deletionMode.name());
+        }
+
+        @Override
+        public BSBFDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int numHashFunctions = dis.readInt();
+            final BitArray[] bloomFilters = new BitArray[numHashFunctions];
+            for (int index = 0; index < numHashFunctions; index++) {
+                bloomFilters[index] = BitArray.readFrom(dis);
+            }
+            final double reportedDuplicateProbability = dis.readDouble();
+            final DeletionMode deletionMode = readDeletionMode(dis);
+            return new BSBFDeDuplicator(
+                    numBits,
+                    numHashFunctions,
+                    bloomFilters,
+                    reportedDuplicateProbability,
+                    deletionMode
+            );
+        }
+
+        @Override
+        public void readInto(BSBFDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            readBloomFiltersInto(existing, dis);
+            existing.reportedDuplicateProbability = dis.readDouble();
+            existing.deletionMode = readDeletionMode(dis);
+            existing.estimatedCardinality = 0D;
+            existing.estimatedCardinalityVariance = 0D;
+        }
+    },
+    VERSION_4(4) {
+        @Override
+        public void writeTo(BSBFDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeLong(probabilisticDeDuplicator.numBits);
+            dos.writeInt(probabilisticDeDuplicator.numHashFunctions);
+            for (BitArray bloomFilter : probabilisticDeDuplicator.bloomFilters) {
+                bloomFilter.writeTo(dos);
+            }
+            dos.writeDouble(probabilisticDeDuplicator.reportedDuplicateProbability);
+            dos.writeUTF(probabilisticDeDuplicator.deletionMode.name());
+            dos.writeDouble(probabilisticDeDuplicator.estimatedCardinality);
+            dos.writeDouble(probabilisticDeDuplicator.estimatedCardinalityVariance);
+        }
+
+        @Override
+        public BSBFDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int numHashFunctions = dis.readInt();
+            final BitArray[] bloomFilters = new BitArray[numHashFunctions];
+            for (int index = 0; index < numHashFunctions; index++) {
+                bloomFilters[index] = BitArray.readFrom(dis);
+            }
+            final double reportedDuplicateProbability = dis.readDouble();
+            final DeletionMode deletionMode = readDeletionMode(dis);
+            final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(
+                    numBits,
+                    numHashFunctions,
+                    bloomFilters,
+                    reportedDuplicateProbability,
+                    deletionMode
+            );
+            deDuplicator.estimatedCardinality = dis.readDouble();
+            deDuplicator.estimatedCardinalityVariance = dis.readDouble();
+            return deDuplicator;
+        }
+
+        @Override
+        public void readInto(BSBFDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            readBloomFiltersInto(existing, dis);
+            existing.reportedDuplicateProbability = dis.readDouble();
+            existing.deletionMode = readDeletionMode(dis);
+            existing.estimatedCardinality = dis.readDouble();
+            existing.estimatedCardinalityVariance = dis.readDouble();
         }
     };
 
@@ -90,4 +263,32 @@ public enum BSBFDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSeri
     public int version() {
         return version;
     }
+
+    private static void readBloomFiltersInto(BSBFDeDuplicator existing, DataInputStream dis) throws IOException {
+        final long numBits = dis.readLong();
+        final int numHashFunctions = dis.readInt();
+        if (numBits != existing.numBits || numHashFunctions != existing.numHashFunctions) {
+            final String error = String.format(
+                    "Unexpected shape of %d bits and %d hash functions, expected %d bits and %d hash functions",
+                    numBits,
+                    numHashFunctions,
+                    existing.numBits,
+                    existing.numHashFunctions
+            );
+            throw new IOException(error);
+        }
+        for (BitArray bloomFilter : existing.bloomFilters) {
+            BitArray.readInto(bloomFilter, dis);
+        }
+    }
+
+    private static DeletionMode readDeletionMode(DataInputStream dis) throws IOException {
+        final String deletionModeName = dis.readUTF();
+        try {
+            return DeletionMode.valueOf(deletionModeName);
+        } catch (IllegalArgumentException e) {
+            final String error = String.format("Unexpected DeletionMode (%s)", deletionModeName);
+            throw new IOException(error, e);
+        }
+    }
 }
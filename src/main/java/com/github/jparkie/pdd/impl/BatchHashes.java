@@ -0,0 +1,68 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+
+/**
+ * The two Murmur3 hashes of the Kirsch-Mitzenmacher double hashing for a batch of elements.
+ * <p>
+ * When all elements have the same length, which is a multiple of 4 bytes (i.e. fixed-width keys), the elements are
+ * transposed into lanes and hashed by {@link Murmur3_x86_32#hashIntLanes(int[], int, int, int[], int[])}; otherwise,
+ * each element is hashed on its own. Both paths produce the same hashes.
+ */
+final class BatchHashes {
+    private BatchHashes() {
+    }
+
+    static void checkBatch(byte[][] elements, boolean[] results) {
+        if (results.length < elements.length) {
+            final String error = String.format(
+                    "results must hold at least %d results, but got %d",
+                    elements.length,
+                    results.length
+            );
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    static void fill(byte[][] elements, int[] hashes1, int[] hashes2) {
+        final int numKeys = elements.length;
+        if (numKeys == 0) {
+            return;
+        }
+        final int lengthInBytes = elements[0].length;
+        if (lengthInBytes == 0 || lengthInBytes % 4 != 0 || !isFixedWidth(elements, lengthInBytes)) {
+            for (int index = 0; index < numKeys; index++) {
+                final byte[] element = elements[index];
+                final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+                hashes1[index] = hash1;
+                hashes2[index] =
+                        Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+            }
+            return;
+        }
+        final int lengthInInts = lengthInBytes / 4;
+        final int[] words = new int[lengthInInts * numKeys];
+        for (int index = 0; index < numKeys; index++) {
+            final byte[] element = elements[index];
+            for (int wordIndex = 0; wordIndex < lengthInInts; wordIndex++) {
+                words[wordIndex * numKeys + index] =
+                        Platform.getInt(element, Platform.BYTE_ARRAY_OFFSET + wordIndex * 4L);
+            }
+        }
+        for (int index = 0; index < numKeys; index++) {
+            hashes1[index] = 0;
+        }
+        Murmur3_x86_32.hashIntLanes(words, lengthInInts, numKeys, hashes1, hashes1);
+        Murmur3_x86_32.hashIntLanes(words, lengthInInts, numKeys, hashes1, hashes2);
+    }
+
+    private static boolean isFixedWidth(byte[][] elements, int lengthInBytes) {
+        for (byte[] element : elements) {
+            if (element.length != lengthInBytes) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
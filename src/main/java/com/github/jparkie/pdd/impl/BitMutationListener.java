@@ -0,0 +1,11 @@
+package com.github.jparkie.pdd.impl;
+
+/**
+ * Observes the bits which a classification actually flips in the Bloom filters of BSBF, BSBFSD, and RLBSBF, so that
+ * they can be journaled (e.g. {@link MutationJournal}). Bits which were already set or clear are not reported.
+ */
+interface BitMutationListener {
+    void onSet(int bloomFilterIndex, long position);
+
+    void onClear(int bloomFilterIndex, long position);
+}
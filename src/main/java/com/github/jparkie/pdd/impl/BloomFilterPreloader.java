@@ -0,0 +1,151 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Sets the bits of a batch of elements in the Bloom filters of BSBF, BSBFSD, or RLBSBF, where the order of the elements
+ * does not matter (e.g. seeding from a known key set).
+ * <p>
+ * Elements are loaded a chunk of {@link #CHUNK_ELEMENTS} at a time. The elements of a chunk are hashed in parallel
+ * batches of {@link #HASH_BATCH_ELEMENTS}, and then each Bloom filter sorts its positions of the chunk by an LSD radix
+ * sort and sets them in ascending order, so its words are visited sequentially instead of at random. The Bloom filters
+ * are sorted and set in parallel, as each one only depends on its own positions.
+ * <p>
+ * After each chunk, a Bloom filter whose load exceeds maxLoad has random bits reset until it is back at maxLoad, as
+ * the deletions of classification would have kept it there. Otherwise a key set larger than the capacity of the Bloom
+ * filters would set every bit, and every element would be reported as duplicate from then on, as bits are only reset
+ * after a distinct element. The elements of later chunks are the more likely to be kept, as in a stream.
+ */
+final class BloomFilterPreloader {
+    static final int CHUNK_ELEMENTS = 1 << 20;
+    static final int HASH_BATCH_ELEMENTS = 1 << 12;
+
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private BloomFilterPreloader() {
+    }
+
+    /**
+     * Sets the k bits of every element, and resets random bits of a Bloom filter whose load exceeds maxLoad.
+     *
+     * @param bloomFilters The Bloom filters, which must not be accessed concurrently.
+     * @param elements The elements.
+     * @param maxLoad The maximum fraction of set bits of each Bloom filter after each chunk.
+     */
+    static void preload(BitArray[] bloomFilters, byte[][] elements, double maxLoad) {
+        final int numBloomFilters = bloomFilters.length;
+        final SplittableRandom[] randoms = new SplittableRandom[numBloomFilters];
+        for (int index = 0; index < numBloomFilters; index++) {
+            randoms[index] = new SplittableRandom(31L * bloomFilters[index].bitSize() + index);
+        }
+        final int chunkLength = Math.min(elements.length, CHUNK_ELEMENTS);
+        final long[][] positions = new long[numBloomFilters][chunkLength];
+        final long[][] scratch = new long[numBloomFilters][chunkLength];
+        for (int fromIndex = 0; fromIndex < elements.length; fromIndex += CHUNK_ELEMENTS) {
+            final int chunkFromIndex = fromIndex;
+            final int numElements = Math.min(CHUNK_ELEMENTS, elements.length - fromIndex);
+            final int numBatches = (numElements + HASH_BATCH_ELEMENTS - 1) / HASH_BATCH_ELEMENTS;
+            IntStream.range(0, numBatches).parallel().forEach(batchIndex -> {
+                final int batchFromIndex = batchIndex * HASH_BATCH_ELEMENTS;
+                final int batchToIndex = Math.min(numElements, batchFromIndex + HASH_BATCH_ELEMENTS);
+                fillPositions(bloomFilters, elements, chunkFromIndex, batchFromIndex, batchToIndex, positions);
+            });
+            IntStream.range(0, numBloomFilters).parallel().forEach(bloomFilterIndex -> {
+                final BitArray bloomFilter = bloomFilters[bloomFilterIndex];
+                final long[] sortedPositions = radixSort(
+                        positions[bloomFilterIndex],
+                        scratch[bloomFilterIndex],
+                        numElements,
+                        Long.SIZE - Long.numberOfLeadingZeros(bloomFilter.bitSize() - 1L)
+                );
+                for (int index = 0; index < numElements; index++) {
+                    bloomFilter.set(sortedPositions[index]);
+                }
+                resetToLoad(bloomFilter, maxLoad, randoms[bloomFilterIndex]);
+            });
+        }
+    }
+
+    /**
+     * Resets random bits until the load of the Bloom filter is at most maxLoad.
+     */
+    static void resetToLoad(BitArray bloomFilter, double maxLoad, SplittableRandom random) {
+        final long bitSize = bloomFilter.bitSize();
+        final long maxBitCount = (long) (maxLoad * bitSize);
+        while (bloomFilter.bitCount() > maxBitCount) {
+            bloomFilter.clear(random.nextLong(bitSize));
+        }
+    }
+
+    private static void fillPositions(
+            BitArray[] bloomFilters,
+            byte[][] elements,
+            int chunkFromIndex,
+            int batchFromIndex,
+            int batchToIndex,
+            long[][] positions
+    ) {
+        final byte[][] batch =
+                Arrays.copyOfRange(elements, chunkFromIndex + batchFromIndex, chunkFromIndex + batchToIndex);
+        final int[] hashes1 = new int[batch.length];
+        final int[] hashes2 = new int[batch.length];
+        BatchHashes.fill(batch, hashes1, hashes2);
+        for (int bloomFilterIndex = 0; bloomFilterIndex < bloomFilters.length; bloomFilterIndex++) {
+            final long bitSize = bloomFilters[bloomFilterIndex].bitSize();
+            final long[] bloomFilterPositions = positions[bloomFilterIndex];
+            for (int index = 0; index < batch.length; index++) {
+                bloomFilterPositions[batchFromIndex + index] =
+                        CombinedHashes.position(hashes1[index], hashes2[index], bloomFilterIndex, bitSize);
+            }
+        }
+    }
+
+    /**
+     * Sorts the first length values, which are non-negative and below 2^numBits, by digits of {@link #RADIX_BITS}
+     * bits from the least significant one.
+     *
+     * @return Either values or scratch, whichever holds the sorted values after the last pass.
+     */
+    static long[] radixSort(long[] values, long[] scratch, int length, int numBits) {
+        final int[] counts = new int[RADIX];
+        long[] from = values;
+        long[] to = scratch;
+        for (int shift = 0; shift < numBits; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int index = 0; index < length; index++) {
+                counts[(int) (from[index] >>> shift) & (RADIX - 1)]++;
+            }
+            int offset = 0;
+            for (int digit = 0; digit < RADIX; digit++) {
+                final int count = counts[digit];
+                counts[digit] = offset;
+                offset += count;
+            }
+            for (int index = 0; index < length; index++) {
+                final long value = from[index];
+                to[counts[(int) (value >>> shift) & (RADIX - 1)]++] = value;
+            }
+            final long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        return from;
+    }
+
+    /**
+     * The probability that a distinct element is reported as duplicate, i.e. that its k bits are all set, at the
+     * current loads of the Bloom filters.
+     */
+    static double reportedDuplicateProbability(BitArray[] bloomFilters) {
+        double reportedDuplicateProbability = 1D;
+        for (BitArray bloomFilter : bloomFilters) {
+            reportedDuplicateProbability *= ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
+        }
+        return reportedDuplicateProbability;
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.jparkie.pdd.impl;
+
+/**
+ * The bit positions of the Kirsch-Mitzenmacher double hashing, where the i-th position of an element is
+ * (hash1 + (i + 1) * hash2) mod bitSize.
+ * <p>
+ * Bloom filters of at most 2^31 bits combine the two 32-bit Murmur3 hashes as ints, which already reach every bit and
+ * keep the positions of existing snapshots. An int could never address beyond 2^31 bits, so larger Bloom filters
+ * combine two 64-bit hashes which are mixed from both 32-bit hashes instead.
+ * <p>
+ * Adam Kirsch and Michael Mitzenmacher. 2008. Less hashing, same performance: Building a better Bloom filter.
+ * Random Struct. Algorithms 33, 2 (September 2008), 187-218. DOI=http://dx.doi.org/10.1002/rsa.v33:2
+ */
+final class CombinedHashes {
+    static final long MAX_INT_ADDRESSABLE_BITS = 1L << 31;
+
+    private CombinedHashes() {
+    }
+
+    static long position(int hash1, int hash2, int index, long bitSize) {
+        if (bitSize <= MAX_INT_ADDRESSABLE_BITS) {
+            return combinedHash(hash1, hash2, index) % bitSize;
+        }
+        return combinedHash64(hash1, hash2, index) % bitSize;
+    }
+
+    static int combinedHash(int hash1, int hash2, int index) {
+        final int combinedHash = hash1 + ((index + 1) * hash2);
+        return combinedHash < 0 ? ~combinedHash : combinedHash;
+    }
+
+    static long combinedHash64(int hash1, int hash2, int index) {
+        // Mixed by the Murmur3 finalizer rather than SplitMix64, so as not to correlate with HashDerivedRandom.
+        final long hashes = ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+        final long combinedHash = fmix64(hashes) + ((index + 1) * fmix64(~hashes));
+        return combinedHash < 0 ? ~combinedHash : combinedHash;
+    }
+
+    static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
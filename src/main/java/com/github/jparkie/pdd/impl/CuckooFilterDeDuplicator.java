@@ -0,0 +1,361 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * De-Duplication by a Cuckoo Filter with Random Eviction.
+ * <p>
+ * Described by Bin Fan, Dave G. Andersen, Michael Kaminsky, Michael D. Mitzenmacher in
+ * Cuckoo Filter: Practically Better Than Bloom:
+ * <p>
+ * https://doi.org/10.1145/2674005.2674994
+ * <p>
+ * Each bucket is packed into a single long of 64 / fingerprintBits fingerprints, so a lookup touches at most two
+ * words. When an insertion still fails after a bounded number of cuckoo kicks, the homeless fingerprint is dropped,
+ * which evicts a randomly chosen older element and keeps the filter stable on unbounded streams.
+ */
+public class CuckooFilterDeDuplicator implements ProbabilisticDeDuplicator, Serializable {
+    static final int NUM_HASH_FUNCTIONS = 2;
+    static final int MAX_NUM_KICKS = 32;
+    private static final int FINGERPRINT_SEED = 0x5bd1e995;
+
+    long numBits;
+    int fingerprintBits;
+    long[] buckets;
+
+    long numEntries;
+    long numInsertions;
+    long numClassifications;
+
+    private transient long fingerprintMask;
+    private transient int bucketSize;
+    private transient SplittableRandom random;
+    private transient Murmur3Hasher hasher;
+
+    public CuckooFilterDeDuplicator(long numBits, int fingerprintBits) {
+        this(numBits, fingerprintBits, buckets(numBits, fingerprintBits), 0L, 0L, 0L);
+    }
+
+    CuckooFilterDeDuplicator(
+            long numBits,
+            int fingerprintBits,
+            long[] buckets,
+            long numEntries,
+            long numInsertions,
+            long numClassifications
+    ) {
+        this.numBits = numBits;
+        this.fingerprintBits = fingerprintBits;
+        this.buckets = buckets;
+        this.numEntries = numEntries;
+        this.numInsertions = numInsertions;
+        this.numClassifications = numClassifications;
+        this.fingerprintMask = (1L << fingerprintBits) - 1L;
+        this.bucketSize = Long.SIZE / fingerprintBits;
+        this.random = new SplittableRandom(generateRandomSeed(numBits, fingerprintBits));
+        this.hasher = new Murmur3Hasher();
+    }
+
+    private CuckooFilterDeDuplicator() {
+    }
+
+    public static CuckooFilterDeDuplicator create(long numBits, double fpp) {
+        return new CuckooFilterDeDuplicator(numBits, optimalFingerprintBits(fpp));
+    }
+
+    private static int optimalFingerprintBits(double fpp) {
+        if (fpp <= 0D || fpp >= 1D) {
+            final String error = String.format("fpp must be in the range (0, 1), but got %f", fpp);
+            throw new IllegalArgumentException(error);
+        }
+        /*
+         * From Cuckoo Filter: Practically Better Than Bloom:
+         * The upper bound of the false positive rate is 2b / 2^f, where b is the number of entries per bucket.
+         */
+        for (int fingerprintBits = Byte.SIZE; fingerprintBits < Long.SIZE; fingerprintBits *= 2) {
+            final double bucketSize = Long.SIZE / fingerprintBits;
+            if (2D * bucketSize / Math.pow(2D, fingerprintBits) <= fpp) {
+                return fingerprintBits;
+            }
+        }
+        return Integer.SIZE;
+    }
+
+    private static long[] buckets(long numBits, int fingerprintBits) {
+        if (numBits < Long.SIZE) {
+            final String error = String.format("numBits must be at least %d, but got %d", Long.SIZE, numBits);
+            throw new IllegalArgumentException(error);
+        }
+        if (fingerprintBits != Byte.SIZE && fingerprintBits != Short.SIZE && fingerprintBits != Integer.SIZE) {
+            final String error = String.format("fingerprintBits must be one of 8, 16, or 32, but got %d", fingerprintBits);
+            throw new IllegalArgumentException(error);
+        }
+        final long numBuckets = numBits / Long.SIZE;
+        if (numBuckets > Integer.MAX_VALUE) {
+            final String error = String.format("Cannot allocate enough space for %d bits", numBits);
+            throw new IllegalArgumentException(error);
+        }
+        return new long[(int) numBuckets];
+    }
+
+    private static long generateRandomSeed(long numBits, int fingerprintBits) {
+        return 31L * numBits + fingerprintBits;
+    }
+
+    @Override
+    public long numBits() {
+        return numBits;
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return NUM_HASH_FUNCTIONS;
+    }
+
+    public int fingerprintBits() {
+        return fingerprintBits;
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return classifyHashes(hash1, hash2);
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return classifyHashes(hash1, hash2);
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return classifyHashes(element.hash1(), element.hash2());
+    }
+
+    private boolean classifyHashes(int hash1, int hash2) {
+        final long fingerprint = fingerprint(hash2);
+        final int index1 = index(hash1);
+        final int index2 = alternateIndex(index1, fingerprint);
+        numClassifications++;
+        if (containsFingerprint(buckets[index1], fingerprint) || containsFingerprint(buckets[index2], fingerprint)) {
+            return false;
+        }
+        insertFingerprint(index1, index2, fingerprint);
+        return true;
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return peekHashes(hash1, hash2);
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return peekHashes(hash1, hash2);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return peekHashes(element.hash1(), element.hash2());
+    }
+
+    private boolean peekHashes(int hash1, int hash2) {
+        final long fingerprint = fingerprint(hash2);
+        final int index1 = index(hash1);
+        final int index2 = alternateIndex(index1, fingerprint);
+        return !containsFingerprint(buckets[index1], fingerprint) && !containsFingerprint(buckets[index2], fingerprint);
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * reportedDuplicateProbability();
+    }
+
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        /*
+         * A duplicate is reported as distinct only when its fingerprint was evicted, which depends on the unknown reuse
+         * distances of the stream. Instead, the observed rate of distinct reports r satisfies
+         * r = p (1 - X) + FNP, so the false negative probability is estimated as r - p (1 - X).
+         */
+        if (numClassifications == 0L) {
+            return 0D;
+        }
+        final double reportedDistinctProbability = ((double) numInsertions) / ((double) numClassifications);
+        final double expectedDistinctProbability = actuallyDistinctProbability * (1D - reportedDuplicateProbability());
+        return Math.max(0D, reportedDistinctProbability - expectedDistinctProbability);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(buckets, 0L);
+        numEntries = 0L;
+        numInsertions = 0L;
+        numClassifications = 0L;
+    }
+
+    private double reportedDuplicateProbability() {
+        /*
+         * A distinct element is reported as duplicate when one of the 2b occupied entries of its two candidate
+         * buckets holds the same non-zero fingerprint.
+         */
+        final double load = ((double) numEntries) / ((double) buckets.length * bucketSize);
+        final double matchProbability = load / ((double) fingerprintMask);
+        return 1D - Math.pow(1D - matchProbability, 2D * bucketSize);
+    }
+
+    private long fingerprint(int hash) {
+        final long fingerprint = hash & fingerprintMask;
+        // A fingerprint of zero marks an empty entry.
+        return fingerprint == 0L ? 1L : fingerprint;
+    }
+
+    private int index(int hash) {
+        return (int) ((hash & 0xffffffffL) % buckets.length);
+    }
+
+    private int alternateIndex(int index, long fingerprint) {
+        /*
+         * The partial-key cuckoo hashing of the paper XORs with the hash of the fingerprint, which requires a power of
+         * two number of buckets. Subtracting from the hash of the fingerprint is also an involution, for any modulus.
+         */
+        final long fingerprintHash = Murmur3_x86_32.hashLong(fingerprint, FINGERPRINT_SEED) & 0xffffffffL;
+        return (int) Math.floorMod(fingerprintHash - index, (long) buckets.length);
+    }
+
+    private boolean containsFingerprint(long bucket, long fingerprint) {
+        for (int entry = 0; entry < bucketSize; entry++) {
+            if (((bucket >>> (entry * fingerprintBits)) & fingerprintMask) == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean insertIntoBucket(int index, long fingerprint) {
+        final long bucket = buckets[index];
+        for (int entry = 0; entry < bucketSize; entry++) {
+            final int shift = entry * fingerprintBits;
+            if (((bucket >>> shift) & fingerprintMask) == 0L) {
+                buckets[index] = bucket | (fingerprint << shift);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void insertFingerprint(int index1, int index2, long fingerprint) {
+        /*
+         * Algorithm 1: Insert(x)
+         *
+         * f = fingerprint(x);
+         * i1 = hash(x);
+         * i2 = i1 ⊕ hash(f);
+         * if bucket[i1] or bucket[i2] has an empty entry then
+         *   add f to that bucket;
+         *   return Done;
+         * // must relocate existing items;
+         * i = randomly pick i1 or i2;
+         * for n = 0; n < MaxNumKicks; n++ do
+         *   randomly select an entry e from bucket[i];
+         *   swap f and the fingerprint stored in entry e;
+         *   i = i ⊕ hash(f);
+         *   if bucket[i] has an empty entry then
+         *     add f to bucket[i];
+         *     return Done;
+         * // Hashtable is considered full;
+         * return Failure;
+         *
+         * Instead of failing, the last displaced fingerprint is evicted.
+         */
+        numInsertions++;
+        if (insertIntoBucket(index1, fingerprint) || insertIntoBucket(index2, fingerprint)) {
+            numEntries++;
+            return;
+        }
+        int index = random.nextBoolean() ? index1 : index2;
+        long homelessFingerprint = fingerprint;
+        for (int kick = 0; kick < MAX_NUM_KICKS; kick++) {
+            final int shift = random.nextInt(bucketSize) * fingerprintBits;
+            final long bucket = buckets[index];
+            final long victimFingerprint = (bucket >>> shift) & fingerprintMask;
+            buckets[index] = (bucket & ~(fingerprintMask << shift)) | (homelessFingerprint << shift);
+            homelessFingerprint = victimFingerprint;
+            index = alternateIndex(index, homelessFingerprint);
+            if (insertIntoBucket(index, homelessFingerprint)) {
+                numEntries++;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final CuckooFilterDeDuplicator that = (CuckooFilterDeDuplicator) other;
+        if (numBits != that.numBits) {
+            return false;
+        }
+        if (fingerprintBits != that.fingerprintBits) {
+            return false;
+        }
+        if (!Arrays.equals(buckets, that.buckets)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = (int) (numBits ^ (numBits >>> 32));
+        result = 31 * result + fingerprintBits;
+        result = 31 * result + Arrays.hashCode(buckets);
+        return result;
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        CuckooFilterDeDuplicatorSerializers.VERSION_1.writeTo(this, out);
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final CuckooFilterDeDuplicator tempDeDuplicator = CuckooFilterDeDuplicatorSerializers.VERSION_1.readFrom(in);
+        this.numBits = tempDeDuplicator.numBits;
+        this.fingerprintBits = tempDeDuplicator.fingerprintBits;
+        this.buckets = tempDeDuplicator.buckets;
+        this.numEntries = tempDeDuplicator.numEntries;
+        this.numInsertions = tempDeDuplicator.numInsertions;
+        this.numClassifications = tempDeDuplicator.numClassifications;
+        this.fingerprintMask = tempDeDuplicator.fingerprintMask;
+        this.bucketSize = tempDeDuplicator.bucketSize;
+        this.random = new SplittableRandom(generateRandomSeed(this.numBits, this.fingerprintBits));
+        this.hasher = new Murmur3Hasher();
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.LongArrays;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+
+import java.io.*;
+
+public enum CuckooFilterDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSerializer<CuckooFilterDeDuplicator> {
+    VERSION_1(1) {
+        @Override
+        public void writeTo(CuckooFilterDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeLong(probabilisticDeDuplicator.numBits);
+            dos.writeInt(probabilisticDeDuplicator.fingerprintBits);
+            dos.writeInt(probabilisticDeDuplicator.buckets.length);
+            for (long bucket : probabilisticDeDuplicator.buckets) {
+                dos.writeLong(bucket);
+            }
+            dos.writeLong(probabilisticDeDuplicator.numEntries);
+            dos.writeLong(probabilisticDeDuplicator.numInsertions);
+            dos.writeLong(probabilisticDeDuplicator.numClassifications);
+        }
+
+        @Override
+        public CuckooFilterDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int fingerprintBits = dis.readInt();
+            final int numBuckets = dis.readInt();
+            final long[] buckets = new long[numBuckets];
+            LongArrays.readFully(dis, buckets);
+            final long numEntries = dis.readLong();
+            final long numInsertions = dis.readLong();
+            final long numClassifications = dis.readLong();
+            return new CuckooFilterDeDuplicator(
+                    numBits,
+                    fingerprintBits,
+                    buckets,
+                    numEntries,
+                    numInsertions,
+                    numClassifications
+            );
+        }
+
+        @Override
+        public void readInto(CuckooFilterDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int fingerprintBits = dis.readInt();
+            final int numBuckets = dis.readInt();
+            if (numBits != existing.numBits
+                    || fingerprintBits != existing.fingerprintBits
+                    || numBuckets != existing.buckets.length) {
+                final String error = String.format(
+                        "Unexpected shape of %d bits, %d fingerprintBits and %d buckets, expected %d, %d and %d",
+                        numBits,
+                        fingerprintBits,
+                        numBuckets,
+                        existing.numBits,
+                        existing.fingerprintBits,
+                        existing.buckets.length
+                );
+                throw new IOException(error);
+            }
+            LongArrays.readFully(dis, existing.buckets);
+            existing.numEntries = dis.readLong();
+            existing.numInsertions = dis.readLong();
+            existing.numClassifications = dis.readLong();
+        }
+    };
+
+    private final int version;
+
+    CuckooFilterDeDuplicatorSerializers(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+}
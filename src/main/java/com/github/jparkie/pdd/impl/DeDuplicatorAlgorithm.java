@@ -0,0 +1,545 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The Biased Sampling based Bloom Filter algorithms with their stable state models.
+ * <p>
+ * On an unbounded stream, each distinct element sets one bit per Bloom filter and the deletion policy resets bits, so
+ * the load L of every Bloom filter converges to a fixed point that only depends on the algorithm and k. A distinct
+ * element is then reported as duplicate with probability L^k, while a duplicate element is reported as distinct when
+ * one of its k bits was reset since its last occurrence.
+ */
+public enum DeDuplicatorAlgorithm {
+    BSBF {
+        @Override
+        public BSBFDeDuplicator create(long numBits, int numHashFunctions) {
+            return new BSBFDeDuplicator(numBits, numHashFunctions);
+        }
+
+        @Override
+        BitArray[] bloomFilters(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFDeDuplicator) deDuplicator).bloomFilters;
+        }
+
+        @Override
+        void mutationListener(ProbabilisticDeDuplicator deDuplicator, BitMutationListener mutationListener) {
+            ((BSBFDeDuplicator) deDuplicator).mutationListener = mutationListener;
+        }
+
+        @Override
+        void reportedDuplicateProbability(ProbabilisticDeDuplicator deDuplicator, double reportedDuplicateProbability) {
+            ((BSBFDeDuplicator) deDuplicator).reportedDuplicateProbability = reportedDuplicateProbability;
+        }
+
+        @Override
+        double estimatedCardinality(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFDeDuplicator) deDuplicator).estimatedCardinality;
+        }
+
+        @Override
+        double estimatedCardinalityVariance(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFDeDuplicator) deDuplicator).estimatedCardinalityVariance;
+        }
+
+        @Override
+        void estimatedCardinality(
+                ProbabilisticDeDuplicator deDuplicator,
+                double estimatedCardinality,
+                double estimatedCardinalityVariance
+        ) {
+            ((BSBFDeDuplicator) deDuplicator).estimatedCardinality = estimatedCardinality;
+            ((BSBFDeDuplicator) deDuplicator).estimatedCardinalityVariance = estimatedCardinalityVariance;
+        }
+
+        @Override
+        void deletionScale(ProbabilisticDeDuplicator deDuplicator, double deletionScale) {
+            ((BSBFDeDuplicator) deDuplicator).deletionScale = deletionScale;
+        }
+
+        @Override
+        boolean classifyHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((BSBFDeDuplicator) deDuplicator).classifyHashes(hash1, hash2);
+        }
+
+        @Override
+        boolean peekHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((BSBFDeDuplicator) deDuplicator).peekHashes(hash1, hash2);
+        }
+
+        @Override
+        void writeTo(ProbabilisticDeDuplicator deDuplicator, OutputStream out) throws IOException {
+            BSBFDeDuplicatorSerializers.VERSION_4.writeTo((BSBFDeDuplicator) deDuplicator, out);
+        }
+
+        @Override
+        BSBFDeDuplicator readFrom(InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            return serializer(BSBFDeDuplicatorSerializers.values(), pushbackIn).readFrom(pushbackIn);
+        }
+
+        @Override
+        void readInto(ProbabilisticDeDuplicator existing, InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            final BSBFDeDuplicatorSerializers serializer = serializer(BSBFDeDuplicatorSerializers.values(), pushbackIn);
+            serializer.readInto((BSBFDeDuplicator) existing, pushbackIn);
+        }
+
+        @Override
+        double resetProbability(int numHashFunctions, double load) {
+            return 1D;
+        }
+    },
+    BSBFSD {
+        @Override
+        public BSBFSDDeDuplicator create(long numBits, int numHashFunctions) {
+            return new BSBFSDDeDuplicator(numBits, numHashFunctions);
+        }
+
+        @Override
+        BitArray[] bloomFilters(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFSDDeDuplicator) deDuplicator).bloomFilters;
+        }
+
+        @Override
+        void mutationListener(ProbabilisticDeDuplicator deDuplicator, BitMutationListener mutationListener) {
+            ((BSBFSDDeDuplicator) deDuplicator).mutationListener = mutationListener;
+        }
+
+        @Override
+        void reportedDuplicateProbability(ProbabilisticDeDuplicator deDuplicator, double reportedDuplicateProbability) {
+            ((BSBFSDDeDuplicator) deDuplicator).reportedDuplicateProbability = reportedDuplicateProbability;
+        }
+
+        @Override
+        double estimatedCardinality(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFSDDeDuplicator) deDuplicator).estimatedCardinality;
+        }
+
+        @Override
+        double estimatedCardinalityVariance(ProbabilisticDeDuplicator deDuplicator) {
+            return ((BSBFSDDeDuplicator) deDuplicator).estimatedCardinalityVariance;
+        }
+
+        @Override
+        void estimatedCardinality(
+                ProbabilisticDeDuplicator deDuplicator,
+                double estimatedCardinality,
+                double estimatedCardinalityVariance
+        ) {
+            ((BSBFSDDeDuplicator) deDuplicator).estimatedCardinality = estimatedCardinality;
+            ((BSBFSDDeDuplicator) deDuplicator).estimatedCardinalityVariance = estimatedCardinalityVariance;
+        }
+
+        @Override
+        void deletionScale(ProbabilisticDeDuplicator deDuplicator, double deletionScale) {
+            ((BSBFSDDeDuplicator) deDuplicator).deletionScale = deletionScale;
+        }
+
+        @Override
+        boolean classifyHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((BSBFSDDeDuplicator) deDuplicator).classifyHashes(hash1, hash2);
+        }
+
+        @Override
+        boolean peekHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((BSBFSDDeDuplicator) deDuplicator).peekHashes(hash1, hash2);
+        }
+
+        @Override
+        void writeTo(ProbabilisticDeDuplicator deDuplicator, OutputStream out) throws IOException {
+            BSBFSDDeDuplicatorSerializers.VERSION_4.writeTo((BSBFSDDeDuplicator) deDuplicator, out);
+        }
+
+        @Override
+        BSBFSDDeDuplicator readFrom(InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            return serializer(BSBFSDDeDuplicatorSerializers.values(), pushbackIn).readFrom(pushbackIn);
+        }
+
+        @Override
+        void readInto(ProbabilisticDeDuplicator existing, InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            final BSBFSDDeDuplicatorSerializers serializer =
+                    serializer(BSBFSDDeDuplicatorSerializers.values(), pushbackIn);
+            serializer.readInto((BSBFSDDeDuplicator) existing, pushbackIn);
+        }
+
+        @Override
+        double resetProbability(int numHashFunctions, double load) {
+            return 1D / numHashFunctions;
+        }
+    },
+    RLBSBF {
+        @Override
+        public RLBSBFDeDuplicator create(long numBits, int numHashFunctions) {
+            return new RLBSBFDeDuplicator(numBits, numHashFunctions);
+        }
+
+        @Override
+        BitArray[] bloomFilters(ProbabilisticDeDuplicator deDuplicator) {
+            return ((RLBSBFDeDuplicator) deDuplicator).bloomFilters;
+        }
+
+        @Override
+        void mutationListener(ProbabilisticDeDuplicator deDuplicator, BitMutationListener mutationListener) {
+            ((RLBSBFDeDuplicator) deDuplicator).mutationListener = mutationListener;
+        }
+
+        @Override
+        void reportedDuplicateProbability(ProbabilisticDeDuplicator deDuplicator, double reportedDuplicateProbability) {
+            ((RLBSBFDeDuplicator) deDuplicator).reportedDuplicateProbability = reportedDuplicateProbability;
+        }
+
+        @Override
+        double estimatedCardinality(ProbabilisticDeDuplicator deDuplicator) {
+            return ((RLBSBFDeDuplicator) deDuplicator).estimatedCardinality;
+        }
+
+        @Override
+        double estimatedCardinalityVariance(ProbabilisticDeDuplicator deDuplicator) {
+            return ((RLBSBFDeDuplicator) deDuplicator).estimatedCardinalityVariance;
+        }
+
+        @Override
+        void estimatedCardinality(
+                ProbabilisticDeDuplicator deDuplicator,
+                double estimatedCardinality,
+                double estimatedCardinalityVariance
+        ) {
+            ((RLBSBFDeDuplicator) deDuplicator).estimatedCardinality = estimatedCardinality;
+            ((RLBSBFDeDuplicator) deDuplicator).estimatedCardinalityVariance = estimatedCardinalityVariance;
+        }
+
+        @Override
+        void deletionScale(ProbabilisticDeDuplicator deDuplicator, double deletionScale) {
+            ((RLBSBFDeDuplicator) deDuplicator).deletionScale = deletionScale;
+        }
+
+        @Override
+        boolean classifyHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((RLBSBFDeDuplicator) deDuplicator).classifyHashes(hash1, hash2);
+        }
+
+        @Override
+        boolean peekHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2) {
+            return ((RLBSBFDeDuplicator) deDuplicator).peekHashes(hash1, hash2);
+        }
+
+        @Override
+        void writeTo(ProbabilisticDeDuplicator deDuplicator, OutputStream out) throws IOException {
+            RLBSBFDeDuplicatorSerializers.VERSION_4.writeTo((RLBSBFDeDuplicator) deDuplicator, out);
+        }
+
+        @Override
+        RLBSBFDeDuplicator readFrom(InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            return serializer(RLBSBFDeDuplicatorSerializers.values(), pushbackIn).readFrom(pushbackIn);
+        }
+
+        @Override
+        void readInto(ProbabilisticDeDuplicator existing, InputStream in) throws IOException {
+            final PushbackInputStream pushbackIn = new PushbackInputStream(in, Integer.BYTES);
+            final RLBSBFDeDuplicatorSerializers serializer =
+                    serializer(RLBSBFDeDuplicatorSerializers.values(), pushbackIn);
+            serializer.readInto((RLBSBFDeDuplicator) existing, pushbackIn);
+        }
+
+        @Override
+        double resetProbability(int numHashFunctions, double load) {
+            return load;
+        }
+    };
+
+    private static final int NUM_BISECTIONS = 64;
+
+    /**
+     * Creates a new {@link ProbabilisticDeDuplicator} of this algorithm.
+     *
+     * @param numBits The number of bits.
+     * @param numHashFunctions The number of hash functions.
+     * @return A new {@link ProbabilisticDeDuplicator}.
+     */
+    public abstract ProbabilisticDeDuplicator create(long numBits, int numHashFunctions);
+
+    /**
+     * The algorithm of a {@link ProbabilisticDeDuplicator}, or null if it is not of any algorithm.
+     */
+    static DeDuplicatorAlgorithm of(ProbabilisticDeDuplicator deDuplicator) {
+        if (deDuplicator instanceof BSBFDeDuplicator) {
+            return BSBF;
+        }
+        if (deDuplicator instanceof BSBFSDDeDuplicator) {
+            return BSBFSD;
+        }
+        if (deDuplicator instanceof RLBSBFDeDuplicator) {
+            return RLBSBF;
+        }
+        return null;
+    }
+
+    /**
+     * The Bloom filters of a {@link ProbabilisticDeDuplicator} of this algorithm.
+     */
+    abstract BitArray[] bloomFilters(ProbabilisticDeDuplicator deDuplicator);
+
+    /**
+     * Attaches a {@link BitMutationListener} to a {@link ProbabilisticDeDuplicator} of this algorithm, or detaches it
+     * if null.
+     */
+    abstract void mutationListener(ProbabilisticDeDuplicator deDuplicator, BitMutationListener mutationListener);
+
+    /**
+     * Overwrites the reported duplicate probability of a {@link ProbabilisticDeDuplicator} of this algorithm, which
+     * {@link ProbabilisticDeDuplicator#estimateFpp(double)} reports for an actually distinct probability of 1.
+     */
+    abstract void reportedDuplicateProbability(
+            ProbabilisticDeDuplicator deDuplicator,
+            double reportedDuplicateProbability
+    );
+
+    /**
+     * The running sum of the Horvitz-Thompson estimator of the number of distinct elements of a
+     * {@link ProbabilisticDeDuplicator} of this algorithm.
+     */
+    abstract double estimatedCardinality(ProbabilisticDeDuplicator deDuplicator);
+
+    /**
+     * The running sum of the estimated variance of {@link #estimatedCardinality(ProbabilisticDeDuplicator)}.
+     */
+    abstract double estimatedCardinalityVariance(ProbabilisticDeDuplicator deDuplicator);
+
+    /**
+     * Overwrites the running sums of the estimated number of distinct elements and of its variance of a
+     * {@link ProbabilisticDeDuplicator} of this algorithm.
+     */
+    abstract void estimatedCardinality(
+            ProbabilisticDeDuplicator deDuplicator,
+            double estimatedCardinality,
+            double estimatedCardinalityVariance
+    );
+
+    /**
+     * Scales the expected number of resets per insertion of a {@link ProbabilisticDeDuplicator} of this algorithm,
+     * where 1 is the algorithm itself and 0 resets nothing. The scale is not serialized.
+     */
+    abstract void deletionScale(ProbabilisticDeDuplicator deDuplicator, double deletionScale);
+
+    /**
+     * Classifies an element of a {@link ProbabilisticDeDuplicator} of this algorithm by its two Murmur3_x86_32 hashes,
+     * as {@link ProbabilisticDeDuplicator#classifyDistinct(HashedElement)} without a {@link HashedElement}.
+     */
+    abstract boolean classifyHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2);
+
+    /**
+     * Peeks an element of a {@link ProbabilisticDeDuplicator} of this algorithm by its two Murmur3_x86_32 hashes, as
+     * {@link ProbabilisticDeDuplicator#peekDistinct(HashedElement)} without a {@link HashedElement}.
+     */
+    abstract boolean peekHashes(ProbabilisticDeDuplicator deDuplicator, int hash1, int hash2);
+
+    /**
+     * Writes out a {@link ProbabilisticDeDuplicator} of this algorithm with its latest serializer.
+     */
+    abstract void writeTo(ProbabilisticDeDuplicator deDuplicator, OutputStream out) throws IOException;
+
+    /**
+     * Reads in a {@link ProbabilisticDeDuplicator} of this algorithm with the serializer of its version, so that
+     * snapshots of an earlier version remain readable.
+     */
+    abstract ProbabilisticDeDuplicator readFrom(InputStream in) throws IOException;
+
+    /**
+     * Reads in a {@link ProbabilisticDeDuplicator} of this algorithm with the serializer of its version over an
+     * existing one.
+     */
+    abstract void readInto(ProbabilisticDeDuplicator existing, InputStream in) throws IOException;
+
+    /**
+     * Bulk loads elements into a {@link ProbabilisticDeDuplicator} of this algorithm (e.g. to warm start it from the
+     * key set of a previous run), where the order of the elements does not matter.
+     * <p>
+     * The elements are hashed in parallel, and the bits of each Bloom filter are radix sorted and set in ascending
+     * order in parallel across the Bloom filters. Bits are only reset once the load of a Bloom filter exceeds
+     * {@link #stableLoad(int)}, by resetting random bits back down to it after each chunk of elements, so a key set
+     * larger than the capacity keeps a random sample of it instead of saturating the Bloom filters; below that, the
+     * result is the same as classifying every element without deletions. The bit counts are exact afterwards, and the
+     * reported duplicate probability is the product of the loads of the Bloom filters. Preloaded elements are not
+     * counted by the cardinality estimate of the {@link ProbabilisticDeDuplicator}.
+     * <p>
+     * The {@link ProbabilisticDeDuplicator} must not be accessed concurrently, and the bits are not recorded by a
+     * {@link JournaledDeDuplicator}, so preload before opening its journal or checkpoint afterwards.
+     *
+     * @param deDuplicator A {@link ProbabilisticDeDuplicator} of this algorithm.
+     * @param elements The elements to load.
+     */
+    public void preload(ProbabilisticDeDuplicator deDuplicator, byte[][] elements) {
+        if (deDuplicator == null || elements == null) {
+            throw new IllegalArgumentException("deDuplicator and elements must not be null");
+        }
+        final BitArray[] bloomFilters = bloomFilters(deDuplicator);
+        BloomFilterPreloader.preload(bloomFilters, elements, stableLoad(deDuplicator.numHashFunctions()));
+        reportedDuplicateProbability(deDuplicator, BloomFilterPreloader.reportedDuplicateProbability(bloomFilters));
+    }
+
+    /**
+     * The serializer of the int version at the head of the stream, which is pushed back to be read again, or the latest
+     * serializer if no serializer has that version (which then rejects it).
+     */
+    private static <S extends ProbabilisticDeDuplicatorSerializer<?>> S serializer(
+            S[] serializers,
+            PushbackInputStream in
+    ) throws IOException {
+        final byte[] versionBytes = new byte[Integer.BYTES];
+        int numVersionBytes = 0;
+        while (numVersionBytes < versionBytes.length) {
+            final int numBytes = in.read(versionBytes, numVersionBytes, versionBytes.length - numVersionBytes);
+            if (numBytes < 0) {
+                break;
+            }
+            numVersionBytes += numBytes;
+        }
+        in.unread(versionBytes, 0, numVersionBytes);
+        if (numVersionBytes == versionBytes.length) {
+            final int version = ByteBuffer.wrap(versionBytes).getInt();
+            for (S serializer : serializers) {
+                if (serializer.version() == version) {
+                    return serializer;
+                }
+            }
+        }
+        return serializers[serializers.length - 1];
+    }
+
+    /**
+     * The average fraction of set bits of the Bloom filters of a {@link ProbabilisticDeDuplicator} of this algorithm.
+     */
+    double load(ProbabilisticDeDuplicator deDuplicator) {
+        final BitArray[] bloomFilters = bloomFilters(deDuplicator);
+        double totalLoad = 0D;
+        for (BitArray bloomFilter : bloomFilters) {
+            totalLoad += ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
+        }
+        return totalLoad / bloomFilters.length;
+    }
+
+    /**
+     * The probability that an insertion resets a bit of a given Bloom filter at the given load.
+     */
+    abstract double resetProbability(int numHashFunctions, double load);
+
+    /**
+     * The expected fraction of set bits of each Bloom filter once the {@link ProbabilisticDeDuplicator} is stable.
+     * <p>
+     * An insertion only happens when one of the k bits is unset, so it sets a new bit of a given Bloom filter with
+     * probability (1 - L) / (1 - L^k) and resets a set bit with probability r(L) * L. The stable load is the fixed
+     * point r(L) * L * (1 + L + ... + L^(k - 1)) = 1, or 1 if the Bloom filters saturate.
+     *
+     * @param numHashFunctions The number of hash functions.
+     * @return The stable load between 0 and 1.
+     */
+    public double stableLoad(int numHashFunctions) {
+        if (resetBalance(numHashFunctions, 1D) <= 0D) {
+            return 1D;
+        }
+        double lowerLoad = 0D;
+        double upperLoad = 1D;
+        for (int bisection = 0; bisection < NUM_BISECTIONS; bisection++) {
+            final double load = (lowerLoad + upperLoad) / 2D;
+            if (resetBalance(numHashFunctions, load) < 0D) {
+                lowerLoad = load;
+            } else {
+                upperLoad = load;
+            }
+        }
+        return (lowerLoad + upperLoad) / 2D;
+    }
+
+    private double resetBalance(int numHashFunctions, double load) {
+        double loadSum = 0D;
+        double loadPower = 1D;
+        for (int index = 0; index < numHashFunctions; index++) {
+            loadSum += loadPower;
+            loadPower *= load;
+        }
+        return resetProbability(numHashFunctions, load) * load * loadSum - 1D;
+    }
+
+    /**
+     * The expected number of insertions per element of the stream once the {@link ProbabilisticDeDuplicator} is
+     * stable, as distinct elements which are reported as duplicate are not inserted.
+     */
+    double stableInsertionProbability(int numHashFunctions, double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * (1D - Math.pow(stableLoad(numHashFunctions), numHashFunctions));
+    }
+
+    /**
+     * The stable probability that an element of the stream is distinct and reported as duplicate.
+     *
+     * @param numHashFunctions The number of hash functions.
+     * @param actuallyDistinctProbability The probability that the next element is actually distinct.
+     * @return The estimated false positive probability between 0 and 1.
+     */
+    public double estimateStableFpp(int numHashFunctions, double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * Math.pow(stableLoad(numHashFunctions), numHashFunctions);
+    }
+
+    /**
+     * The stable probability that an element of the stream is duplicate and reported as distinct.
+     * <p>
+     * Between two occurrences of a duplicate element, about reuseDistance * p * (1 - L^k) distinct elements are
+     * inserted, and each of them resets a given bit of each of the k Bloom filters of s = numBits / k bits with
+     * probability r(L) / s.
+     *
+     * @param numBits The number of bits.
+     * @param numHashFunctions The number of hash functions.
+     * @param actuallyDistinctProbability The probability that the next element is actually distinct.
+     * @param reuseDistance The mean number of elements between two occurrences of a duplicate element.
+     * @return The estimated false negative probability between 0 and 1.
+     */
+    public double estimateStableFnp(
+            long numBits,
+            int numHashFunctions,
+            double actuallyDistinctProbability,
+            double reuseDistance
+    ) {
+        final double bloomFilterBits = Math.floor((double) numBits / numHashFunctions);
+        final double numInsertions =
+                reuseDistance * stableInsertionProbability(numHashFunctions, actuallyDistinctProbability);
+        final double resetRate =
+                numHashFunctions * resetProbability(numHashFunctions, stableLoad(numHashFunctions)) / bloomFilterBits;
+        return (1D - actuallyDistinctProbability) * -Math.expm1(-resetRate * numInsertions);
+    }
+
+    /**
+     * The minimum number of bits for which {@link #estimateStableFnp(long, int, double, double)} does not exceed the
+     * given fnp, or {@link Long#MAX_VALUE} if no number of bits suffices.
+     */
+    long minNumBits(int numHashFunctions, double actuallyDistinctProbability, double reuseDistance, double fnp) {
+        final double ratio = fnp / (1D - actuallyDistinctProbability);
+        final long minNumBits = (long) Long.SIZE * numHashFunctions;
+        if (ratio >= 1D) {
+            return minNumBits;
+        }
+        if (ratio <= 0D) {
+            return Long.MAX_VALUE;
+        }
+        final double numInsertions =
+                reuseDistance * stableInsertionProbability(numHashFunctions, actuallyDistinctProbability);
+        final double resetProbability = resetProbability(numHashFunctions, stableLoad(numHashFunctions));
+        final double bloomFilterBits = numHashFunctions * resetProbability * numInsertions / -Math.log1p(-ratio);
+        final double numBits = Math.ceil(bloomFilterBits / Long.SIZE) * Long.SIZE * numHashFunctions;
+        if (numBits >= Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(minNumBits, (long) numBits);
+    }
+}
@@ -0,0 +1,518 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Many small BSBF, BSBFSD, or RLBSBF de-duplicators of the same shape, which are packed into shared slabs and
+ * addressed by tenant IDs.
+ * <p>
+ * A standalone de-duplicator carries an object header, an array of {@link com.github.jparkie.pdd.BitArray}s with their
+ * own headers and segments, and its own hash buffer, random, and hasher, which dwarf the bits of a small tenant. Here,
+ * the k Bloom filters of a tenant are a contiguous range of words in a slab of tenantsPerSlab tenants, and the hash
+ * buffer, random, and hasher are shared by every tenant. A tenant costs its bits, its reported duplicate probability,
+ * and for RLBSBF, the number of set bits of each Bloom filter.
+ * <p>
+ * With {@link DeletionMode#HASH_DERIVED}, a tenant records a stream into the same bits and reports the same estimates
+ * as a standalone de-duplicator of the same algorithm and shape. With {@link DeletionMode#RANDOM}, the tenants draw
+ * from one shared random.
+ * <p>
+ * Released tenant IDs are reused by later allocations, and slabs are never freed. It is not thread-safe.
+ */
+public final class DeDuplicatorArena {
+    static final int DEFAULT_SLAB_WORDS = 1 << 17;
+
+    private final DeDuplicatorAlgorithm algorithm;
+    private final long numBits;
+    private final int numHashFunctions;
+    private final DeletionMode deletionMode;
+    private final long bloomFilterBitSize;
+    private final int bloomFilterWords;
+    private final int tenantWords;
+    private final int tenantsPerSlab;
+
+    private long[][] slabs;
+    private double[] reportedDuplicateProbabilities;
+    // The number of set bits of each Bloom filter of each tenant, for RLBSBF only.
+    private int[] bitCounts;
+    private final BitSet allocatedTenants;
+    private int[] releasedTenants;
+    private int numReleasedTenants;
+    private int tenantLimit;
+
+    // Scratch, which is shared by every tenant.
+    private final long[] hashBuffer;
+    private final SplittableRandom random;
+    private final HashDerivedRandom hashDerivedRandom;
+    private final Murmur3Hasher hasher;
+
+    public DeDuplicatorArena(DeDuplicatorAlgorithm algorithm, long numBits, int numHashFunctions) {
+        this(algorithm, numBits, numHashFunctions, DeletionMode.RANDOM);
+    }
+
+    public DeDuplicatorArena(
+            DeDuplicatorAlgorithm algorithm,
+            long numBits,
+            int numHashFunctions,
+            DeletionMode deletionMode
+    ) {
+        this(algorithm, numBits, numHashFunctions, deletionMode, defaultTenantsPerSlab(numBits, numHashFunctions));
+    }
+
+    public DeDuplicatorArena(
+            DeDuplicatorAlgorithm algorithm,
+            long numBits,
+            int numHashFunctions,
+            DeletionMode deletionMode,
+            int tenantsPerSlab
+    ) {
+        if (algorithm == null || deletionMode == null) {
+            throw new IllegalArgumentException("algorithm and deletionMode must not be null");
+        }
+        checkShape(numBits, numHashFunctions);
+        if (tenantsPerSlab <= 0) {
+            final String error = String.format("tenantsPerSlab must be positive, but got %d", tenantsPerSlab);
+            throw new IllegalArgumentException(error);
+        }
+        // As com.github.jparkie.pdd.BitArray, each Bloom filter is rounded up to whole words.
+        final long bloomFilterWords = (((numBits / numHashFunctions) - 1L) >>> 6) + 1L;
+        final long tenantWords = bloomFilterWords * numHashFunctions;
+        if (tenantWords * tenantsPerSlab > Integer.MAX_VALUE - 8) {
+            final String error = String.format(
+                    "Cannot allocate slabs of %d tenants of %d words",
+                    tenantsPerSlab,
+                    tenantWords
+            );
+            throw new IllegalArgumentException(error);
+        }
+        this.algorithm = algorithm;
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+        this.deletionMode = deletionMode;
+        this.bloomFilterBitSize = bloomFilterWords * Long.SIZE;
+        this.bloomFilterWords = (int) bloomFilterWords;
+        this.tenantWords = (int) tenantWords;
+        this.tenantsPerSlab = tenantsPerSlab;
+        this.slabs = new long[0][];
+        this.reportedDuplicateProbabilities = new double[0];
+        this.bitCounts = algorithm == DeDuplicatorAlgorithm.RLBSBF ? new int[0] : null;
+        this.allocatedTenants = new BitSet();
+        this.releasedTenants = new int[0];
+        this.hashBuffer = new long[numHashFunctions];
+        this.random = new SplittableRandom(31L * numBits + numHashFunctions);
+        this.hashDerivedRandom = new HashDerivedRandom();
+        this.hasher = new Murmur3Hasher();
+    }
+
+    private static void checkShape(long numBits, int numHashFunctions) {
+        if (numHashFunctions <= 0) {
+            final String error = String.format("numHashFunctions must be positive, but got %d", numHashFunctions);
+            throw new IllegalArgumentException(error);
+        }
+        if (numBits < numHashFunctions) {
+            final String error = String.format(
+                    "numBits must be at least numHashFunctions (%d), but got %d",
+                    numHashFunctions,
+                    numBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static int defaultTenantsPerSlab(long numBits, int numHashFunctions) {
+        checkShape(numBits, numHashFunctions);
+        final long tenantWords = ((((numBits / numHashFunctions) - 1L) >>> 6) + 1L) * numHashFunctions;
+        return (int) Math.max(1L, DEFAULT_SLAB_WORDS / tenantWords);
+    }
+
+    public DeDuplicatorAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    public long numBits() {
+        return numBits;
+    }
+
+    public int numHashFunctions() {
+        return numHashFunctions;
+    }
+
+    public DeletionMode deletionMode() {
+        return deletionMode;
+    }
+
+    public int tenantsPerSlab() {
+        return tenantsPerSlab;
+    }
+
+    /**
+     * The number of allocated tenants.
+     *
+     * @return The number of tenants which were allocated and not released.
+     */
+    public int numTenants() {
+        return allocatedTenants.cardinality();
+    }
+
+    /**
+     * The number of tenants which the allocated slabs hold, which only grows.
+     *
+     * @return The capacity of the allocated slabs.
+     */
+    public long tenantCapacity() {
+        return (long) slabs.length * tenantsPerSlab;
+    }
+
+    /**
+     * Allocates an empty tenant, which reuses a released tenant ID if there is any, or else the next one, allocating
+     * a new slab when the last one is full.
+     *
+     * @return The ID of the tenant.
+     */
+    public int allocate() {
+        final int tenant;
+        if (numReleasedTenants > 0) {
+            tenant = releasedTenants[--numReleasedTenants];
+        } else {
+            if (tenantLimit == Integer.MAX_VALUE) {
+                throw new IllegalStateException("Cannot allocate more than Integer.MAX_VALUE tenants");
+            }
+            tenant = tenantLimit++;
+            if (tenant / tenantsPerSlab == slabs.length) {
+                allocateSlab();
+            }
+        }
+        allocatedTenants.set(tenant);
+        return tenant;
+    }
+
+    /**
+     * Releases a tenant, whose bits are cleared for the next tenant which reuses its ID.
+     *
+     * @param tenant The ID of an allocated tenant.
+     */
+    public void release(int tenant) {
+        reset(tenant);
+        allocatedTenants.clear(tenant);
+        if (numReleasedTenants == releasedTenants.length) {
+            releasedTenants = Arrays.copyOf(releasedTenants, Math.max(16, numReleasedTenants * 2));
+        }
+        releasedTenants[numReleasedTenants++] = tenant;
+    }
+
+    private void allocateSlab() {
+        final int numSlabs = slabs.length;
+        slabs = Arrays.copyOf(slabs, numSlabs + 1);
+        slabs[numSlabs] = new long[tenantWords * tenantsPerSlab];
+        final int capacity = (int) Math.min(Integer.MAX_VALUE, tenantCapacity());
+        reportedDuplicateProbabilities = Arrays.copyOf(reportedDuplicateProbabilities, capacity);
+        if (bitCounts != null) {
+            bitCounts = Arrays.copyOf(bitCounts, capacity * numHashFunctions);
+        }
+    }
+
+    public boolean classifyDistinct(int tenant, byte[] element) {
+        checkTenant(tenant);
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return classifyHashes(tenant, hash1, hash2);
+    }
+
+    public <T> boolean classifyDistinct(int tenant, T element, Funnel<? super T> funnel) {
+        checkTenant(tenant);
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return classifyHashes(tenant, hash1, hash2);
+    }
+
+    public boolean classifyDistinct(int tenant, HashedElement element) {
+        checkTenant(tenant);
+        return classifyHashes(tenant, element.hash1(), element.hash2());
+    }
+
+    public boolean peekDistinct(int tenant, byte[] element) {
+        checkTenant(tenant);
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        fillHashBuffer(hash1, hash2);
+        return !containsHashBuffer(slab(tenant), offset(tenant));
+    }
+
+    public <T> boolean peekDistinct(int tenant, T element, Funnel<? super T> funnel) {
+        checkTenant(tenant);
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        fillHashBuffer(hash1, hash2);
+        return !containsHashBuffer(slab(tenant), offset(tenant));
+    }
+
+    public boolean peekDistinct(int tenant, HashedElement element) {
+        checkTenant(tenant);
+        fillHashBuffer(element.hash1(), element.hash2());
+        return !containsHashBuffer(slab(tenant), offset(tenant));
+    }
+
+    public double estimateFpp(int tenant, double actuallyDistinctProbability) {
+        checkTenant(tenant);
+        return actuallyDistinctProbability * reportedDuplicateProbabilities[tenant];
+    }
+
+    public double estimateFnp(int tenant, double actuallyDistinctProbability) {
+        checkTenant(tenant);
+        return (1 - actuallyDistinctProbability) * (1 - reportedDuplicateProbabilities[tenant]);
+    }
+
+    /**
+     * Clears the bits of a tenant in place.
+     *
+     * @param tenant The ID of an allocated tenant.
+     */
+    public void reset(int tenant) {
+        checkTenant(tenant);
+        final int offset = offset(tenant);
+        Arrays.fill(slab(tenant), offset, offset + tenantWords, 0L);
+        reportedDuplicateProbabilities[tenant] = 0D;
+        if (bitCounts != null) {
+            Arrays.fill(bitCounts, tenant * numHashFunctions, (tenant + 1) * numHashFunctions, 0);
+        }
+    }
+
+    /**
+     * A {@link ProbabilisticDeDuplicator} view of a tenant, which is only valid until the tenant is released.
+     *
+     * @param tenant The ID of an allocated tenant.
+     * @return A {@link ProbabilisticDeDuplicator} backed by this arena.
+     */
+    public ProbabilisticDeDuplicator deDuplicator(int tenant) {
+        checkTenant(tenant);
+        return new TenantDeDuplicator(tenant);
+    }
+
+    private void checkTenant(int tenant) {
+        if (tenant < 0 || !allocatedTenants.get(tenant)) {
+            final String error = String.format("tenant %d is not allocated", tenant);
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private long[] slab(int tenant) {
+        return slabs[tenant / tenantsPerSlab];
+    }
+
+    private int offset(int tenant) {
+        return (tenant % tenantsPerSlab) * tenantWords;
+    }
+
+    private boolean classifyHashes(int tenant, int hash1, int hash2) {
+        final long[] slab = slab(tenant);
+        final int offset = offset(tenant);
+        fillHashBuffer(hash1, hash2);
+        final boolean temporaryIsDistinct = !containsHashBuffer(slab, offset);
+        if (temporaryIsDistinct) {
+            switch (algorithm) {
+                case BSBF:
+                    setHashBufferBSBF(slab, offset);
+                    break;
+                case BSBFSD:
+                    setHashBufferBSBFSD(slab, offset);
+                    break;
+                case RLBSBF:
+                    setHashBufferRLBSBF(slab, offset, tenant * numHashFunctions);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected algorithm " + algorithm);
+            }
+        }
+        updateReportedDuplicateProbability(tenant);
+        return temporaryIsDistinct;
+    }
+
+    private void fillHashBuffer(int hash1, int hash2) {
+        hashDerivedRandom.reset(hash1, hash2);
+        for (int index = 0; index < numHashFunctions; index++) {
+            hashBuffer[index] = CombinedHashes.position(hash1, hash2, index, bloomFilterBitSize);
+        }
+    }
+
+    private boolean containsHashBuffer(long[] slab, int offset) {
+        for (int index = 0; index < numHashFunctions; index++) {
+            final long position = hashBuffer[index];
+            final long word = slab[offset + index * bloomFilterWords + (int) (position >>> 6)];
+            if ((word & (1L << position)) == 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setHashBufferBSBF(long[] slab, int offset) {
+        for (int index = 0; index < numHashFunctions; index++) {
+            final int bloomFilterOffset = offset + index * bloomFilterWords;
+            clear(slab, bloomFilterOffset, nextLong(bloomFilterBitSize));
+            set(slab, bloomFilterOffset, hashBuffer[index]);
+        }
+    }
+
+    private void setHashBufferBSBFSD(long[] slab, int offset) {
+        final int randomIndex = nextInt(numHashFunctions);
+        clear(slab, offset + randomIndex * bloomFilterWords, nextLong(bloomFilterBitSize));
+        for (int index = 0; index < numHashFunctions; index++) {
+            set(slab, offset + index * bloomFilterWords, hashBuffer[index]);
+        }
+    }
+
+    private void setHashBufferRLBSBF(long[] slab, int offset, int bitCountOffset) {
+        for (int index = 0; index < numHashFunctions; index++) {
+            final int bloomFilterOffset = offset + index * bloomFilterWords;
+            final double resetProbability = ((double) bitCounts[bitCountOffset + index]) / bloomFilterBitSize;
+            if (nextDouble() < resetProbability) {
+                if (clear(slab, bloomFilterOffset, nextLong(bloomFilterBitSize))) {
+                    bitCounts[bitCountOffset + index]--;
+                }
+            }
+            if (set(slab, bloomFilterOffset, hashBuffer[index])) {
+                bitCounts[bitCountOffset + index]++;
+            }
+        }
+    }
+
+    private static boolean set(long[] slab, int bloomFilterOffset, long position) {
+        final int wordIndex = bloomFilterOffset + (int) (position >>> 6);
+        final long word = slab[wordIndex];
+        slab[wordIndex] = word | (1L << position);
+        return (word & (1L << position)) == 0L;
+    }
+
+    private static boolean clear(long[] slab, int bloomFilterOffset, long position) {
+        final int wordIndex = bloomFilterOffset + (int) (position >>> 6);
+        final long word = slab[wordIndex];
+        slab[wordIndex] = word & ~(1L << position);
+        return (word & (1L << position)) != 0L;
+    }
+
+    private int nextInt(int bound) {
+        if (deletionMode == DeletionMode.HASH_DERIVED) {
+            return hashDerivedRandom.nextInt(bound);
+        }
+        return random.nextInt(bound);
+    }
+
+    private long nextLong(long bound) {
+        if (deletionMode == DeletionMode.HASH_DERIVED) {
+            return hashDerivedRandom.nextLong(bound);
+        }
+        return random.nextLong(bound);
+    }
+
+    private double nextDouble() {
+        if (deletionMode == DeletionMode.HASH_DERIVED) {
+            return hashDerivedRandom.nextDouble();
+        }
+        return random.nextDouble();
+    }
+
+    private void updateReportedDuplicateProbability(int tenant) {
+        // The stable state models of BSBFDeDuplicator, BSBFSDDeDuplicator, and RLBSBFDeDuplicator.
+        final double K = numHashFunctions;
+        final double S = bloomFilterBitSize;
+        final double X = reportedDuplicateProbabilities[tenant];
+        final double calculation1 = Math.pow(X, 1D / K);
+        final double calculation2;
+        switch (algorithm) {
+            case BSBF:
+                calculation2 = X + (1D - X) * (1D - (1D / S));
+                break;
+            case BSBFSD:
+                calculation2 = X + (1D - X) * (1D - (1D / (K * S)));
+                break;
+            case RLBSBF:
+                calculation2 = X + (1D - X) * (1D - (averageLoad(tenant * numHashFunctions) / (S * S)));
+                break;
+            default:
+                throw new IllegalStateException("Unexpected algorithm " + algorithm);
+        }
+        final double calculation3 = (1D - X) * (1D / S);
+        final double calculation4 = calculation1 * calculation2 + calculation3;
+        reportedDuplicateProbabilities[tenant] = Math.pow(calculation4, K);
+    }
+
+    private double averageLoad(int bitCountOffset) {
+        // The same load as RLBSBFDeDuplicator, so that a tenant reports the same estimates.
+        double totalLoad = 0D;
+        for (int index = 0; index < numHashFunctions; index++) {
+            totalLoad += bitCounts[bitCountOffset + index] / bloomFilterBitSize;
+        }
+        return totalLoad / numHashFunctions;
+    }
+
+    private final class TenantDeDuplicator implements ProbabilisticDeDuplicator {
+        private final int tenant;
+
+        private TenantDeDuplicator(int tenant) {
+            this.tenant = tenant;
+        }
+
+        @Override
+        public long numBits() {
+            return numBits;
+        }
+
+        @Override
+        public int numHashFunctions() {
+            return numHashFunctions;
+        }
+
+        @Override
+        public boolean classifyDistinct(byte[] element) {
+            return DeDuplicatorArena.this.classifyDistinct(tenant, element);
+        }
+
+        @Override
+        public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+            return DeDuplicatorArena.this.classifyDistinct(tenant, element, funnel);
+        }
+
+        @Override
+        public boolean classifyDistinct(HashedElement element) {
+            return DeDuplicatorArena.this.classifyDistinct(tenant, element);
+        }
+
+        @Override
+        public boolean peekDistinct(byte[] element) {
+            return DeDuplicatorArena.this.peekDistinct(tenant, element);
+        }
+
+        @Override
+        public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+            return DeDuplicatorArena.this.peekDistinct(tenant, element, funnel);
+        }
+
+        @Override
+        public boolean peekDistinct(HashedElement element) {
+            return DeDuplicatorArena.this.peekDistinct(tenant, element);
+        }
+
+        @Override
+        public double estimateFpp(double actuallyDistinctProbability) {
+            return DeDuplicatorArena.this.estimateFpp(tenant, actuallyDistinctProbability);
+        }
+
+        @Override
+        public double estimateFnp(double actuallyDistinctProbability) {
+            return DeDuplicatorArena.this.estimateFnp(tenant, actuallyDistinctProbability);
+        }
+
+        @Override
+        public void reset() {
+            DeDuplicatorArena.this.reset(tenant);
+        }
+    }
+}
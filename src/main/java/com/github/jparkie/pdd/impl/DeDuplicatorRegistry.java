@@ -0,0 +1,428 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A registry of BSBF, BSBFSD, or RLBSBF de-duplicators of the same shape by key (e.g. tenant or topic), which keeps the
+ * de-duplicators of recently accessed keys resident within a memory budget and spills the others to disk.
+ * <p>
+ * Each key has its own lock, so threads which access different keys do not contend. When loading a de-duplicator puts
+ * the resident bits over the budget, cold de-duplicators are evicted by CLOCK: an access sets the reference bit of a
+ * key, and the hand gives referenced keys a second chance. An evicted de-duplicator is written to the spill directory
+ * with the latest serializer of its {@link DeDuplicatorAlgorithm} if it changed since it was loaded, and is read back
+ * on its next access, so the latency of a miss is bounded by reading numBits / 8 bytes, plus writing the spill of one
+ * victim, which happens under the lock of the victim rather than of the registry. A key which is locked by another
+ * thread is skipped by the hand, so the resident bits may exceed the budget while every resident key is busy, or after
+ * a spill failed.
+ * <p>
+ * Each registry spills into a new directory of its own within the given spill directory, so registries which share a
+ * spill directory, or files left behind by a crash, are never mistaken for the spill of a key. {@link #close()}
+ * deletes that directory with its spill files.
+ */
+public final class DeDuplicatorRegistry<K> implements Closeable {
+    private static final String SPILL_FILE_SUFFIX = ".pdd";
+    private static final String SPILL_DIRECTORY_PREFIX = "pdd-registry-";
+
+    private final DeDuplicatorAlgorithm algorithm;
+    private final long numBits;
+    private final int numHashFunctions;
+    private final long memoryBudgetBits;
+    private final Path spillDirectory;
+
+    private final ConcurrentHashMap<K, Entry> entries;
+    private final AtomicLong nextSpillId;
+    private final AtomicLong residentBits;
+    // The CLOCK of the resident entries, which is guarded by its own monitor.
+    private final ArrayDeque<Entry> clock;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+    private final LongAdder spillCount;
+    private final LongAdder spillFailureCount;
+    private volatile IOException lastSpillFailure;
+
+    public DeDuplicatorRegistry(
+            DeDuplicatorAlgorithm algorithm,
+            long numBits,
+            int numHashFunctions,
+            long memoryBudgetBits,
+            Path spillDirectory
+    ) throws IOException {
+        if (algorithm == null || spillDirectory == null) {
+            throw new IllegalArgumentException("algorithm and spillDirectory must not be null");
+        }
+        final ProbabilisticDeDuplicator prototype = algorithm.create(numBits, numHashFunctions);
+        if (memoryBudgetBits < prototype.numBits()) {
+            final String error = String.format(
+                    "memoryBudgetBits must be at least numBits (%d), but got %d",
+                    prototype.numBits(),
+                    memoryBudgetBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        this.algorithm = algorithm;
+        this.numBits = numBits;
+        this.numHashFunctions = numHashFunctions;
+        this.memoryBudgetBits = memoryBudgetBits;
+        this.spillDirectory = Files.createTempDirectory(
+                Files.createDirectories(spillDirectory),
+                SPILL_DIRECTORY_PREFIX
+        );
+        this.entries = new ConcurrentHashMap<>();
+        this.nextSpillId = new AtomicLong();
+        this.residentBits = new AtomicLong();
+        this.clock = new ArrayDeque<>();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+        this.spillCount = new LongAdder();
+        this.spillFailureCount = new LongAdder();
+    }
+
+    public boolean classifyDistinct(K key, byte[] element) {
+        return apply(key, true, deDuplicator -> deDuplicator.classifyDistinct(element));
+    }
+
+    public <T> boolean classifyDistinct(K key, T element, Funnel<? super T> funnel) {
+        return apply(key, true, deDuplicator -> deDuplicator.classifyDistinct(element, funnel));
+    }
+
+    public boolean classifyDistinct(K key, HashedElement element) {
+        return apply(key, true, deDuplicator -> deDuplicator.classifyDistinct(element));
+    }
+
+    public boolean peekDistinct(K key, byte[] element) {
+        return apply(key, false, deDuplicator -> deDuplicator.peekDistinct(element));
+    }
+
+    public <T> boolean peekDistinct(K key, T element, Funnel<? super T> funnel) {
+        return apply(key, false, deDuplicator -> deDuplicator.peekDistinct(element, funnel));
+    }
+
+    public boolean peekDistinct(K key, HashedElement element) {
+        return apply(key, false, deDuplicator -> deDuplicator.peekDistinct(element));
+    }
+
+    /**
+     * Applies a function to the de-duplicator of a key under the lock of the key, which loads it if it was spilled or
+     * creates it if the key is new. The de-duplicator must not escape the function, as it may be evicted afterwards.
+     *
+     * @param key The key.
+     * @param function The function, which may modify the de-duplicator.
+     * @return The result of the function.
+     * @throws UncheckedIOException Thrown if the de-duplicator cannot be loaded; a failed spill of an eviction is only
+     *                              recorded (see {@link #spillFailureCount()}).
+     */
+    public <R> R apply(K key, Function<? super ProbabilisticDeDuplicator, ? extends R> function) {
+        return apply(key, true, function);
+    }
+
+    private <R> R apply(K key, boolean isModifying, Function<? super ProbabilisticDeDuplicator, ? extends R> function) {
+        if (key == null) {
+            throw new IllegalArgumentException("key must not be null");
+        }
+        while (true) {
+            final Entry entry = entries.computeIfAbsent(key, unused -> new Entry(nextSpillId.getAndIncrement()));
+            boolean isLoaded = false;
+            entry.lock.lock();
+            try {
+                if (entry.isRemoved) {
+                    // Removed between the lookup and the lock, so retry with the entry which replaces it.
+                    continue;
+                }
+                if (entry.deDuplicator == null) {
+                    missCount.increment();
+                    entry.deDuplicator = load(entry);
+                    residentBits.addAndGet(entry.deDuplicator.numBits());
+                    isLoaded = true;
+                } else {
+                    hitCount.increment();
+                }
+                entry.isReferenced = true;
+                entry.isDirty |= isModifying;
+                return function.apply(entry.deDuplicator);
+            } finally {
+                entry.lock.unlock();
+                if (isLoaded) {
+                    // Outside of the lock of the key, as an eviction only tries the lock of its victim.
+                    returnToClock(entry);
+                    evictIfOverBudget();
+                }
+            }
+        }
+    }
+
+    private ProbabilisticDeDuplicator load(Entry entry) {
+        if (!entry.isSpilled) {
+            return algorithm.create(numBits, numHashFunctions);
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(spillPath(entry)))) {
+            return algorithm.readFrom(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Evicts cold de-duplicators while the resident bits exceed the budget. Only the choice of a victim holds the
+     * monitor of the CLOCK; the victim is spilled under its own lock, so a miss never waits on the disk writes of
+     * other keys. A failed spill keeps the victim resident and is recorded instead of thrown, as the access which
+     * triggered the eviction already succeeded.
+     */
+    private void evictIfOverBudget() {
+        int remainingVictims;
+        synchronized (clock) {
+            remainingVictims = clock.size();
+        }
+        for (; remainingVictims > 0 && residentBits.get() > memoryBudgetBits; remainingVictims--) {
+            final Entry victim = nextVictim();
+            if (victim == null || !evict(victim)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the next unreferenced entry off the CLOCK, or null if none was found.
+     */
+    private Entry nextVictim() {
+        synchronized (clock) {
+            // Every entry is passed at most twice: once to clear its reference bit, and once to take it.
+            for (int remaining = 2 * clock.size(); remaining > 0; remaining--) {
+                final Entry entry = clock.pollFirst();
+                if (entry.isRemoved) {
+                    continue;
+                }
+                if (entry.isReferenced) {
+                    entry.isReferenced = false;
+                    clock.addLast(entry);
+                    continue;
+                }
+                return entry;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Spills and unloads a victim under its lock, or puts it back on the CLOCK if it is locked by another thread,
+     * was accessed since it was taken, or cannot be spilled.
+     *
+     * @return False if the spill failed, in which case the eviction stops.
+     */
+    private boolean evict(Entry victim) {
+        if (!victim.lock.tryLock()) {
+            returnToClock(victim);
+            return true;
+        }
+        try {
+            if (victim.isRemoved || victim.deDuplicator == null) {
+                return true;
+            }
+            if (victim.isReferenced) {
+                returnToClock(victim);
+                return true;
+            }
+            try {
+                spill(victim);
+            } catch (IOException e) {
+                spillFailureCount.increment();
+                lastSpillFailure = e;
+                returnToClock(victim);
+                return false;
+            }
+            residentBits.addAndGet(-victim.deDuplicator.numBits());
+            victim.deDuplicator = null;
+            evictionCount.increment();
+            return true;
+        } finally {
+            victim.lock.unlock();
+        }
+    }
+
+    private void returnToClock(Entry entry) {
+        synchronized (clock) {
+            clock.addLast(entry);
+        }
+    }
+
+    private void spill(Entry entry) throws IOException {
+        if (!entry.isDirty && entry.isSpilled) {
+            return;
+        }
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(spillPath(entry)))) {
+            algorithm.writeTo(entry.deDuplicator, out);
+        }
+        entry.isDirty = false;
+        entry.isSpilled = true;
+        spillCount.increment();
+    }
+
+    private Path spillPath(Entry entry) {
+        return spillDirectory.resolve(entry.spillId + SPILL_FILE_SUFFIX);
+    }
+
+    /**
+     * Removes the de-duplicator of a key, whether it is resident or spilled.
+     *
+     * @param key The key.
+     * @return Whether the key was registered.
+     * @throws IOException Thrown if the spill file cannot be deleted.
+     */
+    public boolean remove(K key) throws IOException {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.lock.lock();
+        try {
+            if (entry.isRemoved) {
+                return false;
+            }
+            entry.isRemoved = true;
+            entries.remove(key, entry);
+            if (entry.deDuplicator != null) {
+                residentBits.addAndGet(-entry.deDuplicator.numBits());
+                entry.deDuplicator = null;
+            }
+            if (entry.isSpilled) {
+                Files.deleteIfExists(spillPath(entry));
+            }
+            return true;
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * The directory of the spill files of this registry, which it created within the given spill directory.
+     *
+     * @return The spill directory of this registry.
+     */
+    public Path spillDirectory() {
+        return spillDirectory;
+    }
+
+    public long memoryBudgetBits() {
+        return memoryBudgetBits;
+    }
+
+    /**
+     * The number of bits of the resident de-duplicators.
+     *
+     * @return The resident bits.
+     */
+    public long residentBits() {
+        return residentBits.get();
+    }
+
+    /**
+     * The number of registered keys, whether resident or spilled.
+     *
+     * @return The number of keys.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of accesses which found the de-duplicator resident.
+     *
+     * @return The number of hits.
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * The number of accesses which loaded the de-duplicator from disk or created it.
+     *
+     * @return The number of misses.
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * The number of de-duplicators which were evicted, whether they were spilled or unchanged.
+     *
+     * @return The number of evictions.
+     */
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * The number of spill files which were written.
+     *
+     * @return The number of spills.
+     */
+    public long spillCount() {
+        return spillCount.sum();
+    }
+
+    /**
+     * The number of evictions whose spill failed, which kept their de-duplicators resident (e.g. over the budget) and
+     * did not fail the access which triggered them.
+     *
+     * @return The number of failed spills.
+     */
+    public long spillFailureCount() {
+        return spillFailureCount.sum();
+    }
+
+    /**
+     * The cause of the last failed spill, if any.
+     *
+     * @return The last {@link IOException} of a spill, or null.
+     */
+    public IOException lastSpillFailure() {
+        return lastSpillFailure;
+    }
+
+    /**
+     * Removes every key and deletes their spill files, and then the spill directory of this registry.
+     *
+     * @throws IOException Thrown if a spill file or the spill directory cannot be deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        for (K key : entries.keySet()) {
+            remove(key);
+        }
+        synchronized (clock) {
+            clock.clear();
+        }
+        Files.deleteIfExists(spillDirectory);
+    }
+
+    private static final class Entry {
+        final long spillId;
+        final ReentrantLock lock;
+        // Guarded by the lock, except isRemoved and isReferenced, which the hand reads without it.
+        ProbabilisticDeDuplicator deDuplicator;
+        volatile boolean isReferenced;
+        boolean isDirty;
+        // Whether the spill file of the entry was written, as it is the only one which may read it back.
+        boolean isSpilled;
+        volatile boolean isRemoved;
+
+        Entry(long spillId) {
+            this.spillId = spillId;
+            this.lock = new ReentrantLock();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Picks a {@link DeDuplicatorAlgorithm}, a number of bits, and a number of hash functions for a
+ * {@link WorkloadProfile}.
+ * <p>
+ * Every candidate is first rated by the stable state models of {@link DeDuplicatorAlgorithm}. The cheapest candidate
+ * which meets both targets wins, preferring fewer bits and then fewer hash functions; if no candidate meets both
+ * targets within the memory budget, the candidate closest to the targets wins. Optionally, the best candidates are
+ * then replayed in parallel against a sample of the stream, and the measured rates decide instead.
+ */
+public final class DeDuplicatorTuner {
+    static final int MAX_NUM_HASH_FUNCTIONS = 16;
+    static final int MAX_NUM_SIMULATIONS = 8;
+
+    private static final Comparator<Recommendation> RECOMMENDATION_ORDER = new Comparator<Recommendation>() {
+        @Override
+        public int compare(Recommendation recommendation1, Recommendation recommendation2) {
+            if (recommendation1.meetsTargets != recommendation2.meetsTargets) {
+                return recommendation1.meetsTargets ? -1 : 1;
+            }
+            if (recommendation1.meetsTargets) {
+                final int numBitsComparison = Long.compare(recommendation1.numBits, recommendation2.numBits);
+                if (numBitsComparison != 0) {
+                    return numBitsComparison;
+                }
+                return Integer.compare(recommendation1.numHashFunctions, recommendation2.numHashFunctions);
+            }
+            return Double.compare(recommendation1.distance, recommendation2.distance);
+        }
+    };
+
+    private DeDuplicatorTuner() {
+    }
+
+    /**
+     * Recommends a {@link ProbabilisticDeDuplicator} from the stable state models only.
+     *
+     * @param profile The {@link WorkloadProfile} to tune for.
+     * @return The best {@link Recommendation}.
+     */
+    public static Recommendation recommend(WorkloadProfile profile) {
+        return candidates(profile).get(0);
+    }
+
+    /**
+     * Recommends a {@link ProbabilisticDeDuplicator} by replaying the best candidates of the stable state models
+     * against a sample of the stream. The sample should be a contiguous window of the stream that is long enough for
+     * the candidates to become stable.
+     * <p>
+     * Each simulation allocates its candidate, of up to the memory budget, so at most as many simulations run at once
+     * as budgets fit into half of the maximum heap, and the others wait for a permit on their executor thread.
+     *
+     * @param profile The {@link WorkloadProfile} to tune for.
+     * @param sampledStream A contiguous sample of the stream.
+     * @param executorService The {@link ExecutorService} which runs one simulation per candidate.
+     * @return The best {@link Recommendation}, with its measured rates.
+     * @throws InterruptedException Thrown if interrupted while waiting for the simulations.
+     */
+    public static Recommendation recommend(
+            WorkloadProfile profile,
+            List<byte[]> sampledStream,
+            ExecutorService executorService
+    ) throws InterruptedException {
+        if (sampledStream.isEmpty()) {
+            throw new IllegalArgumentException("sampledStream must not be empty");
+        }
+        final boolean[] isActuallyDistinct = isActuallyDistinct(sampledStream);
+        final List<Recommendation> candidates = candidates(profile);
+        final Semaphore permits = new Semaphore(
+                maxConcurrentSimulations(profile.memoryBudgetBits(), Runtime.getRuntime().maxMemory())
+        );
+        final List<Future<Recommendation>> futures = new ArrayList<>();
+        for (Recommendation candidate : candidates.subList(0, Math.min(MAX_NUM_SIMULATIONS, candidates.size()))) {
+            futures.add(executorService.submit(
+                    simulation(profile, candidate, sampledStream, isActuallyDistinct, permits)
+            ));
+        }
+        final List<Recommendation> simulations = new ArrayList<>();
+        try {
+            for (Future<Recommendation> future : futures) {
+                simulations.add(future.get());
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            for (Future<Recommendation> future : futures) {
+                future.cancel(true);
+            }
+        }
+        Collections.sort(simulations, RECOMMENDATION_ORDER);
+        return simulations.get(0);
+    }
+
+    static List<Recommendation> candidates(WorkloadProfile profile) {
+        final double actuallyDistinctProbability = profile.actuallyDistinctProbability();
+        final List<Recommendation> candidates = new ArrayList<>();
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            for (int numHashFunctions = 1; numHashFunctions <= MAX_NUM_HASH_FUNCTIONS; numHashFunctions++) {
+                final long bloomFilterWords = profile.memoryBudgetBits() / Long.SIZE / numHashFunctions;
+                if (bloomFilterWords == 0L) {
+                    break;
+                }
+                final long maxNumBits = bloomFilterWords * Long.SIZE * numHashFunctions;
+                final long minNumBits = algorithm.minNumBits(
+                        numHashFunctions,
+                        actuallyDistinctProbability,
+                        profile.reuseDistance(),
+                        profile.targetFnp()
+                );
+                final long numBits = Math.min(minNumBits, maxNumBits);
+                final double estimatedFpp = algorithm.estimateStableFpp(numHashFunctions, actuallyDistinctProbability);
+                final double estimatedFnp = algorithm.estimateStableFnp(
+                        numBits,
+                        numHashFunctions,
+                        actuallyDistinctProbability,
+                        profile.reuseDistance()
+                );
+                candidates.add(new Recommendation(
+                        profile,
+                        algorithm,
+                        numBits,
+                        numHashFunctions,
+                        estimatedFpp,
+                        estimatedFnp
+                ));
+            }
+        }
+        if (candidates.isEmpty()) {
+            final String error = String.format("memoryBudgetBits is too small, got %d", profile.memoryBudgetBits());
+            throw new IllegalArgumentException(error);
+        }
+        Collections.sort(candidates, RECOMMENDATION_ORDER);
+        return candidates;
+    }
+
+    /**
+     * The number of simulations whose de-duplicators of up to memoryBudgetBits fit into half of maxMemoryBytes, which
+     * leaves the other half to the sample and the rest of the application, but at least 1.
+     */
+    static int maxConcurrentSimulations(long memoryBudgetBits, long maxMemoryBytes) {
+        final long memoryBudgetBytes = Math.max(1L, memoryBudgetBits / Byte.SIZE);
+        final long maxConcurrentSimulations = maxMemoryBytes / 2L / memoryBudgetBytes;
+        return (int) Math.max(1L, Math.min(MAX_NUM_SIMULATIONS, maxConcurrentSimulations));
+    }
+
+    private static boolean[] isActuallyDistinct(List<byte[]> sampledStream) {
+        final boolean[] isActuallyDistinct = new boolean[sampledStream.size()];
+        final Set<ByteBuffer> visited = new HashSet<>();
+        int index = 0;
+        for (byte[] element : sampledStream) {
+            isActuallyDistinct[index++] = visited.add(ByteBuffer.wrap(element));
+        }
+        return isActuallyDistinct;
+    }
+
+    private static Callable<Recommendation> simulation(
+            final WorkloadProfile profile,
+            final Recommendation candidate,
+            final List<byte[]> sampledStream,
+            final boolean[] isActuallyDistinct,
+            final Semaphore permits
+    ) {
+        return new Callable<Recommendation>() {
+            @Override
+            public Recommendation call() throws InterruptedException {
+                permits.acquire();
+                try {
+                    return simulate();
+                } finally {
+                    permits.release();
+                }
+            }
+
+            private Recommendation simulate() {
+                final ProbabilisticDeDuplicator deDuplicator = candidate.create();
+                long fpNumber = 0L;
+                long fnNumber = 0L;
+                int index = 0;
+                for (byte[] element : sampledStream) {
+                    final boolean reportedDistinct = deDuplicator.classifyDistinct(element);
+                    if (isActuallyDistinct[index] && !reportedDistinct) {
+                        fpNumber++;
+                    } else if (!isActuallyDistinct[index] && reportedDistinct) {
+                        fnNumber++;
+                    }
+                    index++;
+                }
+                return new Recommendation(
+                        profile,
+                        candidate.algorithm,
+                        candidate.numBits,
+                        candidate.numHashFunctions,
+                        ((double) fpNumber) / ((double) index),
+                        ((double) fnNumber) / ((double) index)
+                );
+            }
+        };
+    }
+
+    /**
+     * A recommended {@link DeDuplicatorAlgorithm}, number of bits, and number of hash functions.
+     */
+    public static final class Recommendation {
+        private final DeDuplicatorAlgorithm algorithm;
+        private final long numBits;
+        private final int numHashFunctions;
+        private final double estimatedFpp;
+        private final double estimatedFnp;
+        private final boolean meetsTargets;
+        private final double distance;
+
+        Recommendation(
+                WorkloadProfile profile,
+                DeDuplicatorAlgorithm algorithm,
+                long numBits,
+                int numHashFunctions,
+                double estimatedFpp,
+                double estimatedFnp
+        ) {
+            this.algorithm = algorithm;
+            this.numBits = numBits;
+            this.numHashFunctions = numHashFunctions;
+            this.estimatedFpp = estimatedFpp;
+            this.estimatedFnp = estimatedFnp;
+            this.meetsTargets = estimatedFpp <= profile.targetFpp() && estimatedFnp <= profile.targetFnp();
+            this.distance = Math.max(estimatedFpp / profile.targetFpp(), estimatedFnp / profile.targetFnp());
+        }
+
+        public DeDuplicatorAlgorithm algorithm() {
+            return algorithm;
+        }
+
+        public long numBits() {
+            return numBits;
+        }
+
+        public int numHashFunctions() {
+            return numHashFunctions;
+        }
+
+        public double estimatedFpp() {
+            return estimatedFpp;
+        }
+
+        public double estimatedFnp() {
+            return estimatedFnp;
+        }
+
+        /**
+         * @return True if both the estimated fpp and fnp are within the targets of the {@link WorkloadProfile}.
+         */
+        public boolean meetsTargets() {
+            return meetsTargets;
+        }
+
+        public ProbabilisticDeDuplicator create() {
+            return algorithm.create(numBits, numHashFunctions);
+        }
+
+        @Override
+        public String toString() {
+            return "Recommendation(" +
+                    "algorithm=" + algorithm +
+                    ", numBits=" + numBits +
+                    ", numHashFunctions=" + numHashFunctions +
+                    ", estimatedFpp=" + estimatedFpp +
+                    ", estimatedFnp=" + estimatedFnp +
+                    ", meetsTargets=" + meetsTargets +
+                    ")";
+        }
+    }
+}
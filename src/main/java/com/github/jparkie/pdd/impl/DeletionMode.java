@@ -0,0 +1,17 @@
+package com.github.jparkie.pdd.impl;
+
+/**
+ * How a Biased Sampling based Bloom Filter selects the bits that it resets when it records a distinct element.
+ */
+public enum DeletionMode {
+    /**
+     * The reset decisions and positions are drawn from a {@link java.util.SplittableRandom}, whose state is neither
+     * shared nor serialized.
+     */
+    RANDOM,
+    /**
+     * The reset decisions and positions are derived from the hashes of the element, so that two de-duplicators which
+     * record the same stream from the same state end in bit-identical states (e.g. replicas and replays).
+     */
+    HASH_DERIVED
+}
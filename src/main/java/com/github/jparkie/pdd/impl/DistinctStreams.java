@@ -0,0 +1,253 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.BaseStream;
+import java.util.stream.Collector;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Adapters of {@link ProbabilisticDeDuplicator}s to java.util.stream.
+ * <p>
+ * A parallel stream classifies elements from several threads, so its de-duplicator must be thread-safe. A
+ * {@link PartitionedDeDuplicator} routes every element by hash onto an independent partition with its own lock, which
+ * lets a parallel stream use all cores without contending on a shared lock. Which occurrence of a duplicate element
+ * is kept is only defined for sequential streams.
+ * <p>
+ * A stream which is parallel when it is adapted is rejected unless its de-duplicator is thread-safe. As a stream may
+ * still be made parallel afterwards, and a predicate or a collector may be used by any stream, a de-duplicator which is
+ * not thread-safe is wrapped in a {@link SingleWriterDeDuplicator}, whose lock serializes its classifications.
+ */
+public final class DistinctStreams {
+    private DistinctStreams() {
+    }
+
+    /**
+     * A {@link Predicate} which records every element it tests and only passes distinct elements.
+     *
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return A stateful {@link Predicate}.
+     */
+    public static Predicate<byte[]> distinctPredicate(ProbabilisticDeDuplicator deDuplicator) {
+        checkDeDuplicator(deDuplicator);
+        return threadSafe(deDuplicator)::classifyDistinct;
+    }
+
+    /**
+     * A {@link LongPredicate} which records every element it tests as its 8 big-endian bytes and only passes distinct
+     * elements.
+     *
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return A stateful {@link LongPredicate}.
+     */
+    public static LongPredicate distinctLongPredicate(ProbabilisticDeDuplicator deDuplicator) {
+        checkDeDuplicator(deDuplicator);
+        final ProbabilisticDeDuplicator threadSafeDeDuplicator = threadSafe(deDuplicator);
+        return element -> threadSafeDeDuplicator.classifyDistinct(toBytes(element));
+    }
+
+    /**
+     * Filters a stream down to its probabilistically distinct elements.
+     *
+     * @param stream The stream of elements.
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return The stream of distinct elements.
+     */
+    public static Stream<byte[]> filterDistinct(Stream<byte[]> stream, ProbabilisticDeDuplicator deDuplicator) {
+        checkStream(stream, deDuplicator);
+        return stream.filter(distinctPredicate(deDuplicator));
+    }
+
+    /**
+     * Filters a stream of longs down to its probabilistically distinct elements, classifying each element as its 8
+     * big-endian bytes.
+     *
+     * @param stream The stream of elements.
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return The stream of distinct elements.
+     */
+    public static LongStream filterDistinct(LongStream stream, ProbabilisticDeDuplicator deDuplicator) {
+        checkStream(stream, deDuplicator);
+        return stream.filter(distinctLongPredicate(deDuplicator));
+    }
+
+    /**
+     * Filters a stream of buffers down to its probabilistically distinct elements, classifying each element as its
+     * remaining bytes. The positions of the buffers are not modified.
+     *
+     * @param stream The stream of elements.
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return The stream of distinct elements.
+     */
+    public static Stream<ByteBuffer> filterDistinctBuffers(
+            Stream<ByteBuffer> stream,
+            ProbabilisticDeDuplicator deDuplicator
+    ) {
+        checkStream(stream, deDuplicator);
+        final ProbabilisticDeDuplicator threadSafeDeDuplicator = threadSafe(deDuplicator);
+        return stream.filter(element -> threadSafeDeDuplicator.classifyDistinct(toBytes(element)));
+    }
+
+    /**
+     * A {@link Collector} of the probabilistically distinct elements into a {@link List}. A parallel stream should use
+     * a thread-safe de-duplicator, e.g. a {@link PartitionedDeDuplicator}, as any other is serialized on a lock.
+     *
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return A {@link Collector} of the distinct elements.
+     */
+    public static Collector<byte[], ?, List<byte[]>> toDistinctList(ProbabilisticDeDuplicator deDuplicator) {
+        checkDeDuplicator(deDuplicator);
+        final ProbabilisticDeDuplicator threadSafeDeDuplicator = threadSafe(deDuplicator);
+        return Collector.of(
+                ArrayList::new,
+                (distinctElements, element) -> {
+                    if (threadSafeDeDuplicator.classifyDistinct(element)) {
+                        distinctElements.add(element);
+                    }
+                },
+                (leftElements, rightElements) -> {
+                    leftElements.addAll(rightElements);
+                    return leftElements;
+                }
+        );
+    }
+
+    /**
+     * A {@link Spliterator} over the probabilistically distinct elements of another. Its splits share the
+     * de-duplicator, so traversing them from several threads should use a thread-safe de-duplicator, e.g. a
+     * {@link PartitionedDeDuplicator}, as any other is serialized on a lock.
+     *
+     * @param spliterator The {@link Spliterator} of elements.
+     * @param deDuplicator The {@link ProbabilisticDeDuplicator} to classify elements with.
+     * @return A {@link Spliterator} of the distinct elements.
+     */
+    public static Spliterator<byte[]> distinctSpliterator(
+            Spliterator<byte[]> spliterator,
+            ProbabilisticDeDuplicator deDuplicator
+    ) {
+        if (spliterator == null) {
+            throw new IllegalArgumentException("spliterator must not be null");
+        }
+        checkDeDuplicator(deDuplicator);
+        return new DistinctSpliterator(spliterator, threadSafe(deDuplicator));
+    }
+
+    static boolean isThreadSafe(ProbabilisticDeDuplicator deDuplicator) {
+        return deDuplicator instanceof PartitionedDeDuplicator ||
+                deDuplicator instanceof SingleWriterDeDuplicator;
+    }
+
+    static ProbabilisticDeDuplicator threadSafe(ProbabilisticDeDuplicator deDuplicator) {
+        return isThreadSafe(deDuplicator) ? deDuplicator : new SingleWriterDeDuplicator(deDuplicator);
+    }
+
+    static byte[] toBytes(long element) {
+        final byte[] bytes = new byte[8];
+        for (int index = 7; index >= 0; index--) {
+            bytes[index] = (byte) element;
+            element >>>= 8;
+        }
+        return bytes;
+    }
+
+    static byte[] toBytes(ByteBuffer element) {
+        if (element.hasArray() &&
+                element.arrayOffset() + element.position() == 0 &&
+                element.remaining() == element.array().length) {
+            return element.array();
+        }
+        final byte[] bytes = new byte[element.remaining()];
+        element.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static void checkDeDuplicator(ProbabilisticDeDuplicator deDuplicator) {
+        if (deDuplicator == null) {
+            throw new IllegalArgumentException("deDuplicator must not be null");
+        }
+    }
+
+    private static void checkStream(BaseStream<?, ?> stream, ProbabilisticDeDuplicator deDuplicator) {
+        if (stream == null) {
+            throw new IllegalArgumentException("stream must not be null");
+        }
+        checkDeDuplicator(deDuplicator);
+        if (stream.isParallel() && !isThreadSafe(deDuplicator)) {
+            final String error = String.format(
+                    "A parallel stream requires a thread-safe deDuplicator, e.g. %s, but got %s",
+                    PartitionedDeDuplicator.class.getSimpleName(),
+                    deDuplicator.getClass().getSimpleName()
+            );
+            throw new IllegalArgumentException(error);
+        }
+    }
+
+    private static final class DistinctSpliterator implements Spliterator<byte[]>, Consumer<byte[]> {
+        private final Spliterator<byte[]> spliterator;
+        private final ProbabilisticDeDuplicator deDuplicator;
+        private byte[] currentElement;
+
+        private DistinctSpliterator(Spliterator<byte[]> spliterator, ProbabilisticDeDuplicator deDuplicator) {
+            this.spliterator = spliterator;
+            this.deDuplicator = deDuplicator;
+        }
+
+        @Override
+        public void accept(byte[] element) {
+            currentElement = element;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super byte[]> action) {
+            while (spliterator.tryAdvance(this)) {
+                final byte[] element = currentElement;
+                currentElement = null;
+                if (deDuplicator.classifyDistinct(element)) {
+                    action.accept(element);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super byte[]> action) {
+            spliterator.forEachRemaining(element -> {
+                if (deDuplicator.classifyDistinct(element)) {
+                    action.accept(element);
+                }
+            });
+        }
+
+        @Override
+        public Spliterator<byte[]> trySplit() {
+            final Spliterator<byte[]> prefix = spliterator.trySplit();
+            return prefix == null ? null : new DistinctSpliterator(prefix, deDuplicator);
+        }
+
+        @Override
+        public long estimateSize() {
+            return spliterator.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return spliterator.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+        }
+
+        // Filtering keeps the order, so a SORTED source stays sorted by its comparator.
+        @Override
+        public Comparator<? super byte[]> getComparator() {
+            return spliterator.getComparator();
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * De-Duplication by a growing sequence of tiers of a {@link DeDuplicatorAlgorithm}.
+ * <p>
+ * Only the newest tier records elements; the older tiers are only peeked. Once the load of the newest tier approaches
+ * the stable load of its algorithm, or its reported duplicate probability exceeds maxFpp, a new tier with twice the
+ * bits is added, up to half of maxNumBits. The oldest tiers are retired whenever all tiers exceed maxNumBits, so the
+ * history of an under-sized tier is kept instead of being sampled away by its deletions.
+ */
+public class ElasticDeDuplicator implements ProbabilisticDeDuplicator, Serializable {
+    static final int GROWTH_FACTOR = 2;
+    static final double MAX_LOAD_RATIO = 0.9D;
+
+    DeDuplicatorAlgorithm algorithm;
+    long initialNumBits;
+    int numHashFunctions;
+    long maxNumBits;
+    double maxFpp;
+    List<ProbabilisticDeDuplicator> tiers;
+
+    private transient long numBits;
+    private transient double maxLoad;
+    private transient Murmur3Hasher hasher;
+
+    public ElasticDeDuplicator(
+            DeDuplicatorAlgorithm algorithm,
+            long initialNumBits,
+            int numHashFunctions,
+            long maxNumBits,
+            double maxFpp
+    ) {
+        this(
+                algorithm,
+                initialNumBits,
+                numHashFunctions,
+                maxNumBits,
+                maxFpp,
+                tiers(algorithm, initialNumBits, numHashFunctions, maxNumBits, maxFpp)
+        );
+    }
+
+    ElasticDeDuplicator(
+            DeDuplicatorAlgorithm algorithm,
+            long initialNumBits,
+            int numHashFunctions,
+            long maxNumBits,
+            double maxFpp,
+            List<ProbabilisticDeDuplicator> tiers
+    ) {
+        this.algorithm = algorithm;
+        this.initialNumBits = initialNumBits;
+        this.numHashFunctions = numHashFunctions;
+        this.maxNumBits = maxNumBits;
+        this.maxFpp = maxFpp;
+        this.tiers = tiers;
+        this.numBits = sumNumBits(tiers);
+        this.maxLoad = MAX_LOAD_RATIO * algorithm.stableLoad(numHashFunctions);
+        this.hasher = new Murmur3Hasher();
+    }
+
+    private ElasticDeDuplicator() {
+    }
+
+    private static List<ProbabilisticDeDuplicator> tiers(
+            DeDuplicatorAlgorithm algorithm,
+            long initialNumBits,
+            int numHashFunctions,
+            long maxNumBits,
+            double maxFpp
+    ) {
+        if (algorithm == null) {
+            throw new IllegalArgumentException("algorithm must not be null");
+        }
+        if (initialNumBits <= 0L) {
+            final String error = String.format("initialNumBits must be positive, but got %d", initialNumBits);
+            throw new IllegalArgumentException(error);
+        }
+        if (maxNumBits / GROWTH_FACTOR < initialNumBits) {
+            final String error = String.format(
+                    "maxNumBits must be at least %d times initialNumBits, but got %d",
+                    GROWTH_FACTOR,
+                    maxNumBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        if (maxFpp <= 0D || maxFpp >= 1D) {
+            final String error = String.format("maxFpp must be in the range (0, 1), but got %f", maxFpp);
+            throw new IllegalArgumentException(error);
+        }
+        final List<ProbabilisticDeDuplicator> tiers = new ArrayList<>();
+        tiers.add(algorithm.create(initialNumBits, numHashFunctions));
+        return tiers;
+    }
+
+    private static long sumNumBits(List<ProbabilisticDeDuplicator> tiers) {
+        long numBits = 0L;
+        for (ProbabilisticDeDuplicator tier : tiers) {
+            numBits += tier.numBits();
+        }
+        return numBits;
+    }
+
+    /**
+     * The number of bits of all the tiers, which grows up to maxNumBits.
+     *
+     * @return The number of bits.
+     */
+    @Override
+    public long numBits() {
+        return numBits;
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return numHashFunctions;
+    }
+
+    public int numTiers() {
+        return tiers.size();
+    }
+
+    /**
+     * The element is hashed once for every tier, which all share the hashes of the Kirsch-Mitzenmacher double hashing.
+     */
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return classifyHashes(hash1, hash2);
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return classifyHashes(hash1, hash2);
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return classifyHashes(element.hash1(), element.hash2());
+    }
+
+    private boolean classifyHashes(int hash1, int hash2) {
+        final ProbabilisticDeDuplicator activeTier = tiers.get(tiers.size() - 1);
+        final boolean activeIsDistinct = algorithm.classifyHashes(activeTier, hash1, hash2);
+        if (activeIsDistinct && isSaturated(activeTier)) {
+            grow(activeTier);
+        }
+        return activeIsDistinct && peekRetiringTiers(hash1, hash2);
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return peekHashes(hash1, hash2);
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return peekHashes(hash1, hash2);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return peekHashes(element.hash1(), element.hash2());
+    }
+
+    private boolean peekHashes(int hash1, int hash2) {
+        final ProbabilisticDeDuplicator activeTier = tiers.get(tiers.size() - 1);
+        return algorithm.peekHashes(activeTier, hash1, hash2) && peekRetiringTiers(hash1, hash2);
+    }
+
+    private boolean peekRetiringTiers(int hash1, int hash2) {
+        final int activeIndex = tiers.size() - 1;
+        for (int index = 0; index < activeIndex; index++) {
+            if (!algorithm.peekHashes(tiers.get(index), hash1, hash2)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSaturated(ProbabilisticDeDuplicator activeTier) {
+        return algorithm.load(activeTier) >= maxLoad || activeTier.estimateFpp(1D) >= maxFpp;
+    }
+
+    private void grow(ProbabilisticDeDuplicator activeTier) {
+        final long nextNumBits = Math.min(activeTier.numBits() * GROWTH_FACTOR, maxNumBits / GROWTH_FACTOR);
+        tiers.add(algorithm.create(nextNumBits, numHashFunctions));
+        numBits += nextNumBits;
+        while (numBits > maxNumBits) {
+            numBits -= tiers.remove(0).numBits();
+        }
+    }
+
+    /**
+     * A distinct element is reported as duplicate if any tier reports it as duplicate.
+     */
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * (1D - reportedDistinctProbability());
+    }
+
+    /**
+     * A duplicate element is reported as distinct only if all tiers report it as distinct.
+     */
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        return (1D - actuallyDistinctProbability) * reportedDistinctProbability();
+    }
+
+    private double reportedDistinctProbability() {
+        double reportedDistinctProbability = 1D;
+        for (ProbabilisticDeDuplicator tier : tiers) {
+            reportedDistinctProbability *= 1D - tier.estimateFpp(1D);
+        }
+        return reportedDistinctProbability;
+    }
+
+    @Override
+    public void reset() {
+        tiers.clear();
+        tiers.add(algorithm.create(initialNumBits, numHashFunctions));
+        numBits = initialNumBits;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final ElasticDeDuplicator that = (ElasticDeDuplicator) other;
+        if (algorithm != that.algorithm) {
+            return false;
+        }
+        if (initialNumBits != that.initialNumBits) {
+            return false;
+        }
+        if (numHashFunctions != that.numHashFunctions) {
+            return false;
+        }
+        if (maxNumBits != that.maxNumBits) {
+            return false;
+        }
+        if (Double.compare(maxFpp, that.maxFpp) != 0) {
+            return false;
+        }
+        if (!tiers.equals(that.tiers)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = algorithm.hashCode();
+        result = 31 * result + (int) (initialNumBits ^ (initialNumBits >>> 32));
+        result = 31 * result + numHashFunctions;
+        result = 31 * result + (int) (maxNumBits ^ (maxNumBits >>> 32));
+        final long maxFppBits = Double.doubleToLongBits(maxFpp);
+        result = 31 * result + (int) (maxFppBits ^ (maxFppBits >>> 32));
+        result = 31 * result + tiers.hashCode();
+        return result;
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ElasticDeDuplicatorSerializers.VERSION_1.writeTo(this, out);
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ElasticDeDuplicator tempDeDuplicator = ElasticDeDuplicatorSerializers.VERSION_1.readFrom(in);
+        this.algorithm = tempDeDuplicator.algorithm;
+        this.initialNumBits = tempDeDuplicator.initialNumBits;
+        this.numHashFunctions = tempDeDuplicator.numHashFunctions;
+        this.maxNumBits = tempDeDuplicator.maxNumBits;
+        this.maxFpp = tempDeDuplicator.maxFpp;
+        this.tiers = tempDeDuplicator.tiers;
+        this.numBits = tempDeDuplicator.numBits;
+        this.maxLoad = tempDeDuplicator.maxLoad;
+        this.hasher = new Murmur3Hasher();
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public enum ElasticDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSerializer<ElasticDeDuplicator> {
+    VERSION_1(1) {
+        @Override
+        public void writeTo(ElasticDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeUTF(probabilisticDeDuplicator.algorithm.name());
+            dos.writeLong(probabilisticDeDuplicator.initialNumBits);
+            dos.writeInt(probabilisticDeDuplicator.numHashFunctions);
+            dos.writeLong(probabilisticDeDuplicator.maxNumBits);
+            dos.writeDouble(probabilisticDeDuplicator.maxFpp);
+            dos.writeInt(probabilisticDeDuplicator.tiers.size());
+            for (ProbabilisticDeDuplicator tier : probabilisticDeDuplicator.tiers) {
+                probabilisticDeDuplicator.algorithm.writeTo(tier, dos);
+            }
+        }
+
+        @Override
+        public ElasticDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final String algorithmName = dis.readUTF();
+            final DeDuplicatorAlgorithm algorithm;
+            try {
+                algorithm = DeDuplicatorAlgorithm.valueOf(algorithmName);
+            } catch (IllegalArgumentException e) {
+                final String error = String.format("Unexpected DeDuplicatorAlgorithm (%s)", algorithmName);
+                throw new IOException(error, e);
+            }
+            final long initialNumBits = dis.readLong();
+            final int numHashFunctions = dis.readInt();
+            final long maxNumBits = dis.readLong();
+            final double maxFpp = dis.readDouble();
+            final int numTiers = dis.readInt();
+            final List<ProbabilisticDeDuplicator> tiers = new ArrayList<>(numTiers);
+            for (int index = 0; index < numTiers; index++) {
+                tiers.add(algorithm.readFrom(dis));
+            }
+            return new ElasticDeDuplicator(algorithm, initialNumBits, numHashFunctions, maxNumBits, maxFpp, tiers);
+        }
+
+        @Override
+        public void readInto(ElasticDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final String algorithmName = dis.readUTF();
+            final long initialNumBits = dis.readLong();
+            final int numHashFunctions = dis.readInt();
+            final long maxNumBits = dis.readLong();
+            final double maxFpp = dis.readDouble();
+            final int numTiers = dis.readInt();
+            // The tiers grow and retire, so only a snapshot with as many tiers can be read in place.
+            if (!algorithmName.equals(existing.algorithm.name())
+                    || numHashFunctions != existing.numHashFunctions
+                    || numTiers != existing.tiers.size()) {
+                final String error = String.format(
+                        "Unexpected shape of %d %s tiers of %d hash functions, expected %d %s tiers of %d",
+                        numTiers,
+                        algorithmName,
+                        numHashFunctions,
+                        existing.tiers.size(),
+                        existing.algorithm.name(),
+                        existing.numHashFunctions
+                );
+                throw new IOException(error);
+            }
+            for (ProbabilisticDeDuplicator tier : existing.tiers) {
+                existing.algorithm.readInto(tier, dis);
+            }
+            existing.initialNumBits = initialNumBits;
+            existing.maxNumBits = maxNumBits;
+            existing.maxFpp = maxFpp;
+        }
+    };
+
+    private final int version;
+
+    ElasticDeDuplicatorSerializers(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.jparkie.pdd.impl;
+
+/**
+ * A SplitMix64 sequence which is seeded by the two hashes of an element for {@link DeletionMode#HASH_DERIVED}.
+ * <p>
+ * Guy L. Steele, Jr., Doug Lea, and Christine H. Flood. 2014. Fast splittable pseudorandom number generators.
+ * SIGPLAN Not. 49, 10 (October 2014), 453-472. DOI=http://dx.doi.org/10.1145/2714064.2660195
+ */
+final class HashDerivedRandom {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+
+    void reset(int hash1, int hash2) {
+        seed = ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+    }
+
+    long nextLong() {
+        long z = (seed += GOLDEN_GAMMA);
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    long nextLong(long bound) {
+        return (nextLong() >>> 1) % bound;
+    }
+
+    int nextInt(int bound) {
+        return (int) nextLong((long) bound);
+    }
+
+    double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
@@ -0,0 +1,266 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.Arrays;
+
+/**
+ * A {@link ProbabilisticDeDuplicator} which answers repeats of recently seen elements exactly from a small cache, and
+ * only falls through to the wrapped de-duplicator on a miss.
+ * <p>
+ * The cache is an open-addressing table of 64-bit fingerprints, split into buckets of {@link #BUCKET_SIZE} slots (i.e.
+ * one cache line), where a full bucket evicts by CLOCK: each slot has a reference bit which a hit sets, and the hand of
+ * the bucket skips and clears referenced slots until it finds an unreferenced one. A hit costs one word-at-a-time
+ * fingerprint and at most {@link #BUCKET_SIZE} comparisons, instead of the two Murmur3 hashes, the k probes, and the
+ * deletions of the wrapped de-duplicator, and is never a false negative. A miss is classified by the wrapped
+ * de-duplicator and then cached, whatever its result.
+ * <p>
+ * Two distinct elements which share a fingerprint are reported as duplicate, with a probability of about
+ * cacheCapacity / 2^64 per element, which is added to {@link #estimateFpp(double)}.
+ * <p>
+ * Like the de-duplicators it wraps, it is not thread-safe; see {@link SingleWriterDeDuplicator}.
+ */
+public class HotKeyCacheDeDuplicator implements ProbabilisticDeDuplicator {
+    static final int BUCKET_SIZE = 8;
+
+    private static final int BUCKET_SHIFT = 3;
+    private static final long FINGERPRINT_SEED = 0x9e3779b97f4a7c15L;
+    private static final long EMPTY = 0L;
+
+    private final ProbabilisticDeDuplicator deDuplicator;
+    private final long[] fingerprints;
+    private final byte[] references;
+    private final byte[] hands;
+    private final int bucketShift;
+    private final Murmur3Hasher hasher;
+
+    public HotKeyCacheDeDuplicator(ProbabilisticDeDuplicator deDuplicator, int cacheCapacity) {
+        if (deDuplicator == null) {
+            throw new IllegalArgumentException("deDuplicator must not be null");
+        }
+        if (cacheCapacity < BUCKET_SIZE || cacheCapacity > 1 << 30) {
+            final String error = String.format(
+                    "cacheCapacity must be in the range [%d, %d], but got %d",
+                    BUCKET_SIZE,
+                    1 << 30,
+                    cacheCapacity
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final int numBuckets = Integer.highestOneBit(cacheCapacity - 1) << 1 >> BUCKET_SHIFT;
+        this.deDuplicator = deDuplicator;
+        this.fingerprints = new long[numBuckets << BUCKET_SHIFT];
+        this.references = new byte[numBuckets];
+        this.hands = new byte[numBuckets];
+        this.bucketShift = Long.SIZE - Integer.numberOfTrailingZeros(numBuckets);
+        this.hasher = new Murmur3Hasher();
+    }
+
+    /**
+     * The wrapped de-duplicator, which must not be accessed directly while this is in use.
+     *
+     * @return The wrapped {@link ProbabilisticDeDuplicator}.
+     */
+    public ProbabilisticDeDuplicator deDuplicator() {
+        return deDuplicator;
+    }
+
+    /**
+     * The number of fingerprints which the cache holds, as a power of two.
+     *
+     * @return The capacity of the cache.
+     */
+    public int cacheCapacity() {
+        return fingerprints.length;
+    }
+
+    @Override
+    public long numBits() {
+        return deDuplicator.numBits();
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return deDuplicator.numHashFunctions();
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final long fingerprint = fingerprint(element);
+        final int bucketIndex = bucketIndex(fingerprint);
+        if (hit(bucketIndex, fingerprint)) {
+            return false;
+        }
+        final boolean isDistinct = deDuplicator.classifyDistinct(element);
+        insert(bucketIndex, fingerprint);
+        return isDistinct;
+    }
+
+    /**
+     * An element decomposed by a {@link Funnel} is cached by the fingerprint of its {@link HashedElement}, as the
+     * funnel puts its bytes one primitive at a time instead of into an array.
+     */
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        final long fingerprint = fingerprint(hash1, hash2);
+        final int bucketIndex = bucketIndex(fingerprint);
+        if (hit(bucketIndex, fingerprint)) {
+            return false;
+        }
+        final boolean isDistinct = deDuplicator.classifyDistinct(element, funnel);
+        insert(bucketIndex, fingerprint);
+        return isDistinct;
+    }
+
+    /**
+     * A {@link HashedElement} is cached by a fingerprint of its hashes, which differs from the fingerprint of the
+     * element itself, so an element which is classified both ways may take two entries of the cache.
+     */
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        final long fingerprint = fingerprint(element);
+        final int bucketIndex = bucketIndex(fingerprint);
+        if (hit(bucketIndex, fingerprint)) {
+            return false;
+        }
+        final boolean isDistinct = deDuplicator.classifyDistinct(element);
+        insert(bucketIndex, fingerprint);
+        return isDistinct;
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        final long fingerprint = fingerprint(element);
+        return slotIndex(bucketIndex(fingerprint), fingerprint) < 0 && deDuplicator.peekDistinct(element);
+    }
+
+    /**
+     * An element decomposed by a {@link Funnel} is looked up by the fingerprint of its hashes, as it is cached by
+     * {@link #classifyDistinct(Object, Funnel)}.
+     */
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        final long fingerprint = fingerprint(hash1, hash2);
+        return slotIndex(bucketIndex(fingerprint), fingerprint) < 0 && deDuplicator.peekDistinct(element, funnel);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        final long fingerprint = fingerprint(element);
+        return slotIndex(bucketIndex(fingerprint), fingerprint) < 0 && deDuplicator.peekDistinct(element);
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        final double collisionProbability = fingerprints.length * 0x1.0p-64;
+        return Math.min(1D, deDuplicator.estimateFpp(actuallyDistinctProbability)
+                + actuallyDistinctProbability * collisionProbability);
+    }
+
+    /**
+     * The cache never reports a duplicate element as distinct, so this is at most the wrapped estimate.
+     */
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        return deDuplicator.estimateFnp(actuallyDistinctProbability);
+    }
+
+    @Override
+    public void reset() {
+        deDuplicator.reset();
+        Arrays.fill(fingerprints, EMPTY);
+        Arrays.fill(references, (byte) 0);
+        Arrays.fill(hands, (byte) 0);
+    }
+
+    boolean isCached(byte[] element) {
+        final long fingerprint = fingerprint(element);
+        return slotIndex(bucketIndex(fingerprint), fingerprint) >= 0;
+    }
+
+    private boolean hit(int bucketIndex, long fingerprint) {
+        final int slotIndex = slotIndex(bucketIndex, fingerprint);
+        if (slotIndex < 0) {
+            return false;
+        }
+        references[bucketIndex] |= 1 << slotIndex;
+        return true;
+    }
+
+    private int slotIndex(int bucketIndex, long fingerprint) {
+        final int fromIndex = bucketIndex << BUCKET_SHIFT;
+        for (int slotIndex = 0; slotIndex < BUCKET_SIZE; slotIndex++) {
+            if (fingerprints[fromIndex + slotIndex] == fingerprint) {
+                return slotIndex;
+            }
+        }
+        return -1;
+    }
+
+    private void insert(int bucketIndex, long fingerprint) {
+        final int fromIndex = bucketIndex << BUCKET_SHIFT;
+        for (int slotIndex = 0; slotIndex < BUCKET_SIZE; slotIndex++) {
+            if (fingerprints[fromIndex + slotIndex] == EMPTY) {
+                fingerprints[fromIndex + slotIndex] = fingerprint;
+                references[bucketIndex] |= 1 << slotIndex;
+                return;
+            }
+        }
+        // CLOCK: the hand clears the reference bits which it skips, so it stops within two sweeps.
+        int hand = hands[bucketIndex];
+        int bucketReferences = references[bucketIndex];
+        while ((bucketReferences & (1 << hand)) != 0) {
+            bucketReferences &= ~(1 << hand);
+            hand = (hand + 1) & (BUCKET_SIZE - 1);
+        }
+        fingerprints[fromIndex + hand] = fingerprint;
+        references[bucketIndex] = (byte) (bucketReferences | (1 << hand));
+        hands[bucketIndex] = (byte) ((hand + 1) & (BUCKET_SIZE - 1));
+    }
+
+    private int bucketIndex(long fingerprint) {
+        return bucketShift == Long.SIZE ? 0 : (int) (fingerprint >>> bucketShift);
+    }
+
+    /**
+     * A 64-bit fingerprint which reads the element a word at a time, and is never {@link #EMPTY}. It is only kept in
+     * memory, so it may depend on the native byte order.
+     */
+    static long fingerprint(byte[] element) {
+        final int length = element.length;
+        long hash = FINGERPRINT_SEED ^ length;
+        int index = 0;
+        for (; index + Long.BYTES <= length; index += Long.BYTES) {
+            hash = mix(hash, Platform.getLong(element, Platform.BYTE_ARRAY_OFFSET + index));
+        }
+        long tail = 0L;
+        for (int shift = 0; index < length; index++, shift += Byte.SIZE) {
+            tail |= (element[index] & 0xffL) << shift;
+        }
+        hash = CombinedHashes.fmix64(mix(hash, tail));
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    static long fingerprint(HashedElement element) {
+        return fingerprint(element.hash1(), element.hash2());
+    }
+
+    private static long fingerprint(int hash1, int hash2) {
+        final long hashes = ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+        final long hash = CombinedHashes.fmix64(hashes ^ FINGERPRINT_SEED);
+        return hash == EMPTY ? 1L : hash;
+    }
+
+    private static long mix(long hash, long word) {
+        return Long.rotateLeft(hash ^ (word * 0x87c37b91114253d5L), 31) * 0x4cf5ad432745937fL;
+    }
+}
@@ -0,0 +1,283 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A BSBF, BSBFSD, or RLBSBF {@link ProbabilisticDeDuplicator} whose insertions survive a crash between checkpoints.
+ * <p>
+ * Every bit which a classification flips is recorded into a {@link MutationJournal}, which is appended a group of
+ * groupCommitSize bits at a time and forced to disk every groupsPerSync groups, so a crash only loses the bits of the
+ * unsynced groups. Each group also records the reported duplicate probability and the running sums of the estimated
+ * number of distinct elements, which the bits alone do not determine. A checkpoint writes a snapshot atomically and
+ * then truncates the journal. Opening the same paths again loads the last snapshot and replays the journal in parallel
+ * across the Bloom filters.
+ * <p>
+ * Like the de-duplicators it journals, it is not thread-safe; see {@link SingleWriterDeDuplicator}.
+ */
+public final class JournaledDeDuplicator implements ProbabilisticDeDuplicator, Closeable {
+    private static final boolean IS_WINDOWS = System.getProperty("os.name", "").startsWith("Windows");
+
+    final DeDuplicatorAlgorithm algorithm;
+    final ProbabilisticDeDuplicator deDuplicator;
+    private final Path snapshotPath;
+    private final MutationJournal journal;
+
+    private JournaledDeDuplicator(
+            DeDuplicatorAlgorithm algorithm,
+            ProbabilisticDeDuplicator deDuplicator,
+            Path snapshotPath,
+            MutationJournal journal
+    ) {
+        this.algorithm = algorithm;
+        this.deDuplicator = deDuplicator;
+        this.snapshotPath = snapshotPath;
+        this.journal = journal;
+        algorithm.mutationListener(deDuplicator, journal);
+    }
+
+    /**
+     * Opens a journaled {@link ProbabilisticDeDuplicator}, which recovers from the snapshot and the journal if they
+     * exist; otherwise, it starts empty.
+     *
+     * @param algorithm The {@link DeDuplicatorAlgorithm}.
+     * @param numBits The number of bits.
+     * @param numHashFunctions The number of hash functions.
+     * @param snapshotPath The path of the snapshot which {@link #checkpoint()} writes.
+     * @param journalPath The path of the journal.
+     * @param groupCommitSize The number of flipped bits which are appended to the journal at once.
+     * @param groupsPerSync The number of groups which are appended before the journal is forced to disk.
+     * @return A journaled {@link ProbabilisticDeDuplicator}.
+     * @throws IOException Thrown if the recovery fails or the snapshot does not have the given shape.
+     */
+    public static JournaledDeDuplicator open(
+            DeDuplicatorAlgorithm algorithm,
+            long numBits,
+            int numHashFunctions,
+            Path snapshotPath,
+            Path journalPath,
+            int groupCommitSize,
+            int groupsPerSync
+    ) throws IOException {
+        if (algorithm == null || snapshotPath == null || journalPath == null) {
+            throw new IllegalArgumentException("algorithm, snapshotPath, and journalPath must not be null");
+        }
+        if (groupCommitSize <= 0) {
+            final String error = String.format("groupCommitSize must be positive, but got %d", groupCommitSize);
+            throw new IllegalArgumentException(error);
+        }
+        if (groupsPerSync <= 0) {
+            final String error = String.format("groupsPerSync must be positive, but got %d", groupsPerSync);
+            throw new IllegalArgumentException(error);
+        }
+        final ProbabilisticDeDuplicator deDuplicator;
+        if (Files.exists(snapshotPath)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(snapshotPath))) {
+                deDuplicator = algorithm.readFrom(in);
+            }
+            if (deDuplicator.numBits() != numBits || deDuplicator.numHashFunctions() != numHashFunctions) {
+                final String error = String.format(
+                        "Unexpected shape of %d bits and %d hash functions, expected %d bits and %d hash functions",
+                        deDuplicator.numBits(),
+                        deDuplicator.numHashFunctions(),
+                        numBits,
+                        numHashFunctions
+                );
+                throw new IOException(error);
+            }
+        } else {
+            deDuplicator = algorithm.create(numBits, numHashFunctions);
+        }
+        final FileChannel channel = FileChannel.open(
+                journalPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        try {
+            final MutationJournal.Trailer trailer =
+                    MutationJournal.replay(channel, algorithm.bloomFilters(deDuplicator));
+            if (trailer != null) {
+                algorithm.reportedDuplicateProbability(deDuplicator, trailer.reportedDuplicateProbability);
+                algorithm.estimatedCardinality(
+                        deDuplicator,
+                        trailer.estimatedCardinality,
+                        trailer.estimatedCardinalityVariance
+                );
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        final MutationJournal journal = new MutationJournal(channel, groupCommitSize, groupsPerSync);
+        return new JournaledDeDuplicator(algorithm, deDuplicator, snapshotPath, journal);
+    }
+
+    @Override
+    public long numBits() {
+        return deDuplicator.numBits();
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return deDuplicator.numHashFunctions();
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final boolean isDistinct = deDuplicator.classifyDistinct(element);
+        commitIfGroupFull();
+        return isDistinct;
+    }
+
+    @Override
+    public void classifyDistinct(byte[][] elements, boolean[] results) {
+        deDuplicator.classifyDistinct(elements, results);
+        commitIfGroupFull();
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final boolean isDistinct = deDuplicator.classifyDistinct(element, funnel);
+        commitIfGroupFull();
+        return isDistinct;
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        final boolean isDistinct = deDuplicator.classifyDistinct(element);
+        commitIfGroupFull();
+        return isDistinct;
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        return deDuplicator.peekDistinct(element);
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        return deDuplicator.peekDistinct(element, funnel);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return deDuplicator.peekDistinct(element);
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        return deDuplicator.estimateFpp(actuallyDistinctProbability);
+    }
+
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        return deDuplicator.estimateFnp(actuallyDistinctProbability);
+    }
+
+    @Override
+    public void reset() {
+        deDuplicator.reset();
+        journal.onClearAll(deDuplicator.numHashFunctions());
+        try {
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the buffered bits to the journal and forces it to disk, so that no insertion is lost on a crash.
+     *
+     * @throws IOException Thrown if the write fails.
+     */
+    public void flush() throws IOException {
+        commit();
+        journal.sync();
+    }
+
+    /**
+     * Writes a snapshot to a temporary file, moves it over the last snapshot atomically, and truncates the journal.
+     * A crash between the move and the truncation is harmless, as the last record of each bit decides its value when
+     * the journal is replayed onto the snapshot which already holds it.
+     * <p>
+     * The directory of the snapshot must be forced to disk between the move and the truncation: the move is only a
+     * change of the directory, which may otherwise reach the disk after the truncation, in which case a power loss
+     * recovers the previous snapshot with an empty journal and loses every insertion since the previous checkpoint.
+     *
+     * @throws IOException Thrown if the write fails, in which case the last snapshot and the journal are kept.
+     */
+    public void checkpoint() throws IOException {
+        final Path temporaryPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(
+                temporaryPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            final OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            algorithm.writeTo(deDuplicator, out);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(snapshotPath.toAbsolutePath().getParent());
+        journal.truncate();
+    }
+
+    /**
+     * Forces the entries of a directory (e.g. a rename) to disk. Windows cannot open a directory as a channel, so it
+     * is skipped there.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        if (IS_WINDOWS) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flushes the journal and closes it. The de-duplicator is no longer journaled afterwards.
+     *
+     * @throws IOException Thrown if the flush fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            algorithm.mutationListener(deDuplicator, null);
+            journal.close();
+        }
+    }
+
+    private void commitIfGroupFull() {
+        if (journal.isGroupFull()) {
+            try {
+                commit();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void commit() throws IOException {
+        // The BSBF family reports estimateFpp(p) = p * reportedDuplicateProbability.
+        journal.commit(
+                deDuplicator.estimateFpp(1D),
+                algorithm.estimatedCardinality(deDuplicator),
+                algorithm.estimatedCardinalityVariance(deDuplicator)
+        );
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Murmur3Hasher;
+
+/**
+ * The {@link Murmur3Hasher} of each thread, which the de-duplicators share for the paths which may run concurrently,
+ * e.g. the peeks of a {@link SingleWriterDeDuplicator} or the routing of a {@link PartitionedDeDuplicator}, where the
+ * hasher of the de-duplicator itself would race and a new hasher per call would allocate. A hasher is only held for
+ * the duration of a single hash, so the de-duplicators of a thread never hold it at once.
+ */
+final class Murmur3Hashers {
+    private static final ThreadLocal<Murmur3Hasher> HASHERS = ThreadLocal.withInitial(Murmur3Hasher::new);
+
+    private Murmur3Hashers() {
+    }
+
+    static Murmur3Hasher perThread() {
+        return HASHERS.get();
+    }
+}
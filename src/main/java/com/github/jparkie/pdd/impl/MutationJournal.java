@@ -0,0 +1,271 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the bits which BSBF, BSBFSD, and RLBSBF flip between two checkpoints.
+ * <p>
+ * Records are buffered and appended a group at a time (group commit), and the journal is only forced to disk every
+ * groupsPerSync groups (batched fsync). A group is laid out as:
+ * <pre>
+ * [int numRecords][numRecords * (int header, long position)]
+ * [double reportedDuplicateProbability][double estimatedCardinality][double estimatedCardinalityVariance][int CRC32]
+ * </pre>
+ * where the header holds the index of the Bloom filter and the operation, and the trailer holds the running estimates
+ * which the bits alone do not determine. A crash may tear the last group, so a replay stops at the first incomplete
+ * or corrupt group and truncates the journal there.
+ */
+final class MutationJournal implements BitMutationListener, Closeable {
+    static final int OP_SET = 0;
+    static final int OP_CLEAR = 1;
+    static final int OP_CLEAR_ALL = 2;
+
+    static final int RECORD_BYTES = Integer.BYTES + Long.BYTES;
+    static final int HEADER_BYTES = Integer.BYTES;
+    static final int TRAILER_BYTES = 3 * Double.BYTES + Integer.BYTES;
+
+    private static final int OP_BITS = 2;
+    private static final int OP_MASK = (1 << OP_BITS) - 1;
+    // The number of records which are replayed at once, in parallel across the Bloom filters.
+    private static final int REPLAY_CHUNK_RECORDS = 1 << 16;
+
+    private final FileChannel channel;
+    private final int groupCommitSize;
+    private final int groupsPerSync;
+    private final CRC32 crc32;
+    private ByteBuffer group;
+    private int numRecords;
+    private int numUnsyncedGroups;
+
+    MutationJournal(FileChannel channel, int groupCommitSize, int groupsPerSync) {
+        this.channel = channel;
+        this.groupCommitSize = groupCommitSize;
+        this.groupsPerSync = groupsPerSync;
+        this.crc32 = new CRC32();
+        this.group = ByteBuffer.allocate(HEADER_BYTES + groupCommitSize * RECORD_BYTES + TRAILER_BYTES);
+        this.group.position(HEADER_BYTES);
+        this.numRecords = 0;
+        this.numUnsyncedGroups = 0;
+    }
+
+    @Override
+    public void onSet(int bloomFilterIndex, long position) {
+        append(OP_SET, bloomFilterIndex, position);
+    }
+
+    @Override
+    public void onClear(int bloomFilterIndex, long position) {
+        append(OP_CLEAR, bloomFilterIndex, position);
+    }
+
+    void onClearAll(int numBloomFilters) {
+        for (int index = 0; index < numBloomFilters; index++) {
+            append(OP_CLEAR_ALL, index, 0L);
+        }
+    }
+
+    private void append(int op, int bloomFilterIndex, long position) {
+        if (group.remaining() < RECORD_BYTES + TRAILER_BYTES) {
+            // A batch may flip more bits than a group holds; it is committed as a single larger group.
+            final ByteBuffer largerGroup = ByteBuffer.allocate(group.capacity() * 2);
+            group.flip();
+            largerGroup.put(group);
+            group = largerGroup;
+        }
+        group.putInt((bloomFilterIndex << OP_BITS) | op);
+        group.putLong(position);
+        numRecords++;
+    }
+
+    boolean isGroupFull() {
+        return numRecords >= groupCommitSize;
+    }
+
+    /**
+     * Appends the buffered records as a group, and forces the journal to disk once groupsPerSync groups are unsynced.
+     */
+    void commit(
+            double reportedDuplicateProbability,
+            double estimatedCardinality,
+            double estimatedCardinalityVariance
+    ) throws IOException {
+        if (numRecords == 0) {
+            return;
+        }
+        group.putInt(0, numRecords);
+        group.putDouble(reportedDuplicateProbability);
+        group.putDouble(estimatedCardinality);
+        group.putDouble(estimatedCardinalityVariance);
+        crc32.reset();
+        crc32.update(group.array(), 0, group.position());
+        group.putInt((int) crc32.getValue());
+        group.flip();
+        while (group.hasRemaining()) {
+            channel.write(group);
+        }
+        discard();
+        if (++numUnsyncedGroups >= groupsPerSync) {
+            sync();
+        }
+    }
+
+    void sync() throws IOException {
+        if (numUnsyncedGroups > 0) {
+            channel.force(false);
+            numUnsyncedGroups = 0;
+        }
+    }
+
+    /**
+     * Empties the journal once a checkpoint holds all of its records, including the buffered ones.
+     */
+    void truncate() throws IOException {
+        discard();
+        channel.truncate(0L);
+        channel.force(false);
+        numUnsyncedGroups = 0;
+    }
+
+    private void discard() {
+        group.clear();
+        group.position(HEADER_BYTES);
+        numRecords = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Replays a journal onto Bloom filters, in parallel across the Bloom filters, as the records of each Bloom filter
+     * only depend on each other. The journal is truncated after its last intact group, and positioned there to append.
+     *
+     * @param channel The journal.
+     * @param bloomFilters The Bloom filters of the last checkpoint.
+     * @return The trailer of the last intact group, or null if there is none.
+     * @throws IOException Thrown if the read fails or a record does not fit the Bloom filters.
+     */
+    static Trailer replay(FileChannel channel, BitArray[] bloomFilters) throws IOException {
+        final long size = channel.size();
+        final Replay replay = new Replay(bloomFilters);
+        final InputStream channelIn = Channels.newInputStream(channel.position(0L));
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(channelIn));
+        final CRC32 crc32 = new CRC32();
+        long validSize = 0L;
+        Trailer trailer = null;
+        while (size - validSize >= HEADER_BYTES + RECORD_BYTES + TRAILER_BYTES) {
+            final int numRecords = in.readInt();
+            if (numRecords <= 0 || numRecords > (size - validSize - HEADER_BYTES - TRAILER_BYTES) / RECORD_BYTES) {
+                break;
+            }
+            final byte[] bytes = new byte[HEADER_BYTES + numRecords * RECORD_BYTES + TRAILER_BYTES];
+            final ByteBuffer groupBuffer = ByteBuffer.wrap(bytes);
+            groupBuffer.putInt(numRecords);
+            in.readFully(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+            crc32.reset();
+            crc32.update(bytes, 0, bytes.length - Integer.BYTES);
+            if ((int) crc32.getValue() != groupBuffer.getInt(bytes.length - Integer.BYTES)) {
+                break;
+            }
+            for (int index = 0; index < numRecords; index++) {
+                final int header = groupBuffer.getInt();
+                final long position = groupBuffer.getLong();
+                replay.add(header >>> OP_BITS, header & OP_MASK, position);
+            }
+            trailer = new Trailer(groupBuffer.getDouble(), groupBuffer.getDouble(), groupBuffer.getDouble());
+            validSize += bytes.length;
+        }
+        replay.apply();
+        channel.truncate(validSize);
+        channel.position(validSize);
+        return trailer;
+    }
+
+    /**
+     * The running estimates of a de-duplicator as of the end of a group.
+     */
+    static final class Trailer {
+        final double reportedDuplicateProbability;
+        final double estimatedCardinality;
+        final double estimatedCardinalityVariance;
+
+        Trailer(double reportedDuplicateProbability, double estimatedCardinality, double estimatedCardinalityVariance) {
+            this.reportedDuplicateProbability = reportedDuplicateProbability;
+            this.estimatedCardinality = estimatedCardinality;
+            this.estimatedCardinalityVariance = estimatedCardinalityVariance;
+        }
+    }
+
+    private static final class Replay {
+        private final BitArray[] bloomFilters;
+        // The records of each Bloom filter in order, as (position << OP_BITS) | op.
+        private final long[][] records;
+        private final int[] numRecords;
+        private int totalNumRecords;
+
+        Replay(BitArray[] bloomFilters) {
+            this.bloomFilters = bloomFilters;
+            this.records = new long[bloomFilters.length][16];
+            this.numRecords = new int[bloomFilters.length];
+            this.totalNumRecords = 0;
+        }
+
+        void add(int bloomFilterIndex, int op, long position) throws IOException {
+            if (bloomFilterIndex >= bloomFilters.length
+                    || op > OP_CLEAR_ALL
+                    || position < 0L
+                    || position >= bloomFilters[bloomFilterIndex].bitSize()) {
+                final String error = String.format(
+                        "Unexpected record of operation %d at position %d of Bloom filter %d",
+                        op,
+                        position,
+                        bloomFilterIndex
+                );
+                throw new IOException(error);
+            }
+            if (numRecords[bloomFilterIndex] == records[bloomFilterIndex].length) {
+                records[bloomFilterIndex] = Arrays.copyOf(records[bloomFilterIndex], numRecords[bloomFilterIndex] * 2);
+            }
+            records[bloomFilterIndex][numRecords[bloomFilterIndex]++] = (position << OP_BITS) | op;
+            if (++totalNumRecords >= REPLAY_CHUNK_RECORDS) {
+                apply();
+            }
+        }
+
+        void apply() {
+            IntStream.range(0, bloomFilters.length).parallel().forEach(this::apply);
+            Arrays.fill(numRecords, 0);
+            totalNumRecords = 0;
+        }
+
+        private void apply(int bloomFilterIndex) {
+            final BitArray bloomFilter = bloomFilters[bloomFilterIndex];
+            final long[] bloomFilterRecords = records[bloomFilterIndex];
+            final int bloomFilterNumRecords = numRecords[bloomFilterIndex];
+            for (int index = 0; index < bloomFilterNumRecords; index++) {
+                final long record = bloomFilterRecords[index];
+                final long position = record >>> OP_BITS;
+                switch ((int) (record & OP_MASK)) {
+                    case OP_SET:
+                        bloomFilter.set(position);
+                        break;
+                    case OP_CLEAR:
+                        bloomFilter.clear(position);
+                        break;
+                    default:
+                        bloomFilter.clearAll();
+                        break;
+                }
+            }
+        }
+    }
+}
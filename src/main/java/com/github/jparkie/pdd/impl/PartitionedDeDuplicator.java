@@ -0,0 +1,236 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A thread-safe {@link ProbabilisticDeDuplicator} which partitions elements by hash onto independent de-duplicators.
+ * <p>
+ * Every element is always routed to the same partition, so each partition sees a disjoint sub-stream and only needs
+ * to be guarded by its own monitor. Threads which classify elements of different partitions never contend, so a
+ * parallel stream scales with the number of partitions instead of serializing on a shared lock.
+ * <p>
+ * Elements are routed by a mix of their two Murmur3 hashes, so an element, its {@link Funnel}, and its
+ * {@link HashedElement} are all routed to the same partition. A partition of a {@link DeDuplicatorAlgorithm} is then
+ * passed these hashes instead of hashing the element again; any other partition is passed the element itself.
+ */
+public class PartitionedDeDuplicator implements ProbabilisticDeDuplicator {
+    // Unlike the masks of CombinedHashes, so that the elements of a partition still spread over its bits.
+    static final long PARTITION_SEED = 0x2545f4914f6cdd1dL;
+
+    final ProbabilisticDeDuplicator[] partitions;
+    // The algorithm of each partition, or null if it is not of a DeDuplicatorAlgorithm.
+    private final DeDuplicatorAlgorithm[] algorithms;
+
+    public PartitionedDeDuplicator(ProbabilisticDeDuplicator[] partitions) {
+        if (partitions == null || partitions.length == 0) {
+            throw new IllegalArgumentException("partitions must not be empty");
+        }
+        for (int index = 0; index < partitions.length; index++) {
+            if (partitions[index] == null) {
+                final String error = String.format("partitions must not be null, but got null at %d", index);
+                throw new IllegalArgumentException(error);
+            }
+            for (int otherIndex = 0; otherIndex < index; otherIndex++) {
+                if (partitions[index] == partitions[otherIndex]) {
+                    final String error = String.format(
+                            "partitions must be distinct, but got the same at %d and %d",
+                            otherIndex,
+                            index
+                    );
+                    throw new IllegalArgumentException(error);
+                }
+            }
+        }
+        this.partitions = partitions.clone();
+        this.algorithms = new DeDuplicatorAlgorithm[partitions.length];
+        for (int index = 0; index < partitions.length; index++) {
+            algorithms[index] = DeDuplicatorAlgorithm.of(partitions[index]);
+        }
+    }
+
+    /**
+     * Creates numPartitions de-duplicators of an algorithm which share numBits between them.
+     *
+     * @param algorithm The {@link DeDuplicatorAlgorithm} of every partition.
+     * @param numBits The number of bits of all partitions.
+     * @param numHashFunctions The number of hash functions of every partition.
+     * @param numPartitions The number of partitions, e.g. a small multiple of the number of cores.
+     * @return A new {@link PartitionedDeDuplicator}.
+     */
+    public static PartitionedDeDuplicator create(
+            DeDuplicatorAlgorithm algorithm,
+            long numBits,
+            int numHashFunctions,
+            int numPartitions
+    ) {
+        if (numPartitions <= 0) {
+            final String error = String.format("numPartitions must be positive, but got %d", numPartitions);
+            throw new IllegalArgumentException(error);
+        }
+        final ProbabilisticDeDuplicator[] partitions = new ProbabilisticDeDuplicator[numPartitions];
+        for (int index = 0; index < numPartitions; index++) {
+            partitions[index] = algorithm.create(numBits / numPartitions, numHashFunctions);
+        }
+        return new PartitionedDeDuplicator(partitions);
+    }
+
+    public int numPartitions() {
+        return partitions.length;
+    }
+
+    @Override
+    public long numBits() {
+        long numBits = 0L;
+        for (ProbabilisticDeDuplicator partition : partitions) {
+            numBits += partition.numBits();
+        }
+        return numBits;
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return partitions[0].numHashFunctions();
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        final int index = partitionIndex(hash1, hash2);
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].classifyHashes(partition, hash1, hash2) :
+                    partition.classifyDistinct(element);
+        }
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        final int index = partitionIndex(hash1, hash2);
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].classifyHashes(partition, hash1, hash2) :
+                    partition.classifyDistinct(element, funnel);
+        }
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        final int index = partitionIndex(element.hash1(), element.hash2());
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].classifyHashes(partition, element.hash1(), element.hash2()) :
+                    partition.classifyDistinct(element);
+        }
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        final int index = partitionIndex(hash1, hash2);
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].peekHashes(partition, hash1, hash2) :
+                    partition.peekDistinct(element);
+        }
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        final int index = partitionIndex(hash1, hash2);
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].peekHashes(partition, hash1, hash2) :
+                    partition.peekDistinct(element, funnel);
+        }
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        final int index = partitionIndex(element.hash1(), element.hash2());
+        final ProbabilisticDeDuplicator partition = partitions[index];
+        synchronized (partition) {
+            return algorithms[index] != null ?
+                    algorithms[index].peekHashes(partition, element.hash1(), element.hash2()) :
+                    partition.peekDistinct(element);
+        }
+    }
+
+    /**
+     * The average of the partitions, as each partition sees a uniform share of the stream.
+     */
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        double totalFpp = 0D;
+        for (ProbabilisticDeDuplicator partition : partitions) {
+            synchronized (partition) {
+                totalFpp += partition.estimateFpp(actuallyDistinctProbability);
+            }
+        }
+        return totalFpp / partitions.length;
+    }
+
+    /**
+     * The average of the partitions, as each partition sees a uniform share of the stream.
+     */
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        double totalFnp = 0D;
+        for (ProbabilisticDeDuplicator partition : partitions) {
+            synchronized (partition) {
+                totalFnp += partition.estimateFnp(actuallyDistinctProbability);
+            }
+        }
+        return totalFnp / partitions.length;
+    }
+
+    @Override
+    public void reset() {
+        for (ProbabilisticDeDuplicator partition : partitions) {
+            synchronized (partition) {
+                partition.reset();
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> resetAsync(Executor executor) {
+        final CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.length];
+        for (int index = 0; index < partitions.length; index++) {
+            synchronized (partitions[index]) {
+                futures[index] = partitions[index].resetAsync(executor);
+            }
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * The partition of an element by the high bits of a mix of its hashes, which its positions within the partition,
+     * taken modulo the bits of the partition, do not depend on.
+     */
+    int partitionIndex(int hash1, int hash2) {
+        final long hashes = ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+        final long mixedHashes = CombinedHashes.fmix64(hashes ^ PARTITION_SEED);
+        return (int) (((mixedHashes >>> 32) * partitions.length) >>> 32);
+    }
+}
@@ -0,0 +1,578 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * De-Duplication by a Quotient Filter with Random Eviction.
+ * <p>
+ * Described by Michael A. Bender, Martin Farach-Colton, Rob Johnson, Russell Kraner, Bradley C. Kuszmaul, Dzejla
+ * Medjedovic, Pablo Montes, Pradeep Shetty, Richard P. Spillane, Erez Zadok in Don't Thrash: How to Cache Your Hash on
+ * Flash:
+ * <p>
+ * https://doi.org/10.14778/2350229.2350275
+ * <p>
+ * Every slot is packed into a single long array as three metadata bits followed by a remainder, so the runs and
+ * clusters probed by a lookup or an insertion are contiguous in memory. Once the load reaches
+ * {@link #MAX_LOAD_FACTOR}, every insertion first removes a randomly chosen older element, which keeps the filter
+ * stable on unbounded streams.
+ */
+public class QuotientFilterDeDuplicator implements ProbabilisticDeDuplicator, Serializable {
+    static final int NUM_HASH_FUNCTIONS = 1;
+    static final double MAX_LOAD_FACTOR = 0.8D;
+    static final int MAX_REMAINDER_BITS = 60;
+
+    private static final int METADATA_BITS = 3;
+    private static final long OCCUPIED = 1L;
+    private static final long CONTINUATION = 2L;
+    private static final long SHIFTED = 4L;
+    private static final long METADATA_MASK = OCCUPIED | CONTINUATION | SHIFTED;
+
+    long numBits;
+    int remainderBits;
+    long[] slots;
+
+    long numEntries;
+    long numInsertions;
+    long numClassifications;
+
+    private transient int quotientBits;
+    private transient int slotBits;
+    private transient long slotMask;
+    private transient long indexMask;
+    private transient long remainderMask;
+    private transient long maxEntries;
+    private transient SplittableRandom random;
+    private transient Murmur3Hasher hasher;
+
+    public QuotientFilterDeDuplicator(long numBits, int remainderBits) {
+        this(numBits, remainderBits, slots(numBits, remainderBits), 0L, 0L, 0L);
+    }
+
+    QuotientFilterDeDuplicator(
+            long numBits,
+            int remainderBits,
+            long[] slots,
+            long numEntries,
+            long numInsertions,
+            long numClassifications
+    ) {
+        this.numBits = numBits;
+        this.remainderBits = remainderBits;
+        this.slots = slots;
+        this.numEntries = numEntries;
+        this.numInsertions = numInsertions;
+        this.numClassifications = numClassifications;
+        this.quotientBits = quotientBits(numBits, remainderBits);
+        this.slotBits = remainderBits + METADATA_BITS;
+        this.slotMask = (1L << slotBits) - 1L;
+        this.indexMask = (1L << quotientBits) - 1L;
+        this.remainderMask = (1L << remainderBits) - 1L;
+        this.maxEntries = maxEntries(quotientBits);
+        this.random = new SplittableRandom(generateRandomSeed(numBits, remainderBits));
+        this.hasher = new Murmur3Hasher();
+    }
+
+    private QuotientFilterDeDuplicator() {
+    }
+
+    public static QuotientFilterDeDuplicator create(long numBits, double fpp) {
+        return new QuotientFilterDeDuplicator(numBits, optimalRemainderBits(fpp));
+    }
+
+    private static int optimalRemainderBits(double fpp) {
+        if (fpp <= 0D || fpp >= 1D) {
+            final String error = String.format("fpp must be in the range (0, 1), but got %f", fpp);
+            throw new IllegalArgumentException(error);
+        }
+        /*
+         * From Don't Thrash: How to Cache Your Hash on Flash:
+         * The false positive rate is 1 - e^{-α / 2^r} ≤ α / 2^r, where α is the load factor.
+         */
+        final int remainderBits = (int) Math.ceil(Math.log(MAX_LOAD_FACTOR / fpp) / Math.log(2D));
+        return Math.min(Math.max(remainderBits, 1), MAX_REMAINDER_BITS);
+    }
+
+    private static int quotientBits(long numBits, int remainderBits) {
+        final long numSlots = numBits / (remainderBits + METADATA_BITS);
+        return numSlots <= 1L ? 0 : Long.SIZE - 1 - Long.numberOfLeadingZeros(numSlots);
+    }
+
+    private static long[] slots(long numBits, int remainderBits) {
+        if (remainderBits <= 0 || remainderBits > MAX_REMAINDER_BITS) {
+            final String error = String.format(
+                    "remainderBits must be in the range [1, %d], but got %d",
+                    MAX_REMAINDER_BITS,
+                    remainderBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final int quotientBits = quotientBits(numBits, remainderBits);
+        if (quotientBits <= 0) {
+            final String error = String.format(
+                    "numBits must fit at least 2 slots of %d bits, but got %d",
+                    remainderBits + METADATA_BITS,
+                    numBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        if (quotientBits + remainderBits > Long.SIZE) {
+            final String error = String.format(
+                    "quotientBits and remainderBits must not exceed %d bits, but got %d",
+                    Long.SIZE,
+                    quotientBits + remainderBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        final long numWords = (long) Math.ceil((double) (1L << quotientBits) * (remainderBits + METADATA_BITS) / 64D);
+        if (numWords > Integer.MAX_VALUE) {
+            final String error = String.format("Cannot allocate enough space for %d bits", numBits);
+            throw new IllegalArgumentException(error);
+        }
+        return new long[(int) numWords];
+    }
+
+    private static long maxEntries(int quotientBits) {
+        // At least one slot is always kept empty, so that every probe terminates.
+        final long numSlots = 1L << quotientBits;
+        return Math.max(1L, Math.min(numSlots - 1L, (long) (numSlots * MAX_LOAD_FACTOR)));
+    }
+
+    private static long generateRandomSeed(long numBits, int remainderBits) {
+        return 31L * numBits + remainderBits;
+    }
+
+    @Override
+    public long numBits() {
+        return numBits;
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return NUM_HASH_FUNCTIONS;
+    }
+
+    public int remainderBits() {
+        return remainderBits;
+    }
+
+    public long numSlots() {
+        return 1L << quotientBits;
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        return classifyFingerprint(fingerprint(element));
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return classifyFingerprint(fingerprint(hash1, hash2));
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return classifyFingerprint(fingerprint(element.hash1(), element.hash2()));
+    }
+
+    private boolean classifyFingerprint(long fingerprint) {
+        final long quotient = (fingerprint >>> remainderBits) & indexMask;
+        final long remainder = fingerprint & remainderMask;
+        numClassifications++;
+        if (mayContain(quotient, remainder)) {
+            return false;
+        }
+        if (numEntries >= maxEntries) {
+            evictRandomEntry();
+        }
+        insert(quotient, remainder);
+        numInsertions++;
+        return true;
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        return peekFingerprint(fingerprint(element));
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return peekFingerprint(fingerprint(hash1, hash2));
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return peekFingerprint(fingerprint(element.hash1(), element.hash2()));
+    }
+
+    private boolean peekFingerprint(long fingerprint) {
+        final long quotient = (fingerprint >>> remainderBits) & indexMask;
+        final long remainder = fingerprint & remainderMask;
+        return !mayContain(quotient, remainder);
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        return actuallyDistinctProbability * reportedDuplicateProbability();
+    }
+
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        /*
+         * A duplicate is reported as distinct only when it was evicted, which depends on the unknown reuse distances
+         * of the stream. Instead, the observed rate of distinct reports r satisfies r = p (1 - X) + FNP, so the false
+         * negative probability is estimated as r - p (1 - X).
+         */
+        if (numClassifications == 0L) {
+            return 0D;
+        }
+        final double reportedDistinctProbability = ((double) numInsertions) / ((double) numClassifications);
+        final double expectedDistinctProbability = actuallyDistinctProbability * (1D - reportedDuplicateProbability());
+        return Math.max(0D, reportedDistinctProbability - expectedDistinctProbability);
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(slots, 0L);
+        numEntries = 0L;
+        numInsertions = 0L;
+        numClassifications = 0L;
+    }
+
+    private double reportedDuplicateProbability() {
+        final double load = ((double) numEntries) / ((double) numSlots());
+        return 1D - Math.exp(-load / Math.pow(2D, remainderBits));
+    }
+
+    private long fingerprint(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return fingerprint(hash1, hash2);
+    }
+
+    private long fingerprint(int hash1, int hash2) {
+        final long hash = ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+        return hash >>> (Long.SIZE - quotientBits - remainderBits);
+    }
+
+    private boolean mayContain(long quotient, long remainder) {
+        if (!isOccupied(getSlot(quotient))) {
+            return false;
+        }
+        long index = findRunIndex(quotient);
+        do {
+            final long currentRemainder = getSlot(index) >>> METADATA_BITS;
+            if (currentRemainder == remainder) {
+                return true;
+            } else if (currentRemainder > remainder) {
+                return false;
+            }
+            index = increment(index);
+        } while (isContinuation(getSlot(index)));
+        return false;
+    }
+
+    private void insert(long quotient, long remainder) {
+        final long canonicalSlot = getSlot(quotient);
+        long entry = remainder << METADATA_BITS;
+        if (isEmpty(canonicalSlot)) {
+            setSlot(quotient, entry | OCCUPIED);
+            numEntries++;
+            return;
+        }
+        if (!isOccupied(canonicalSlot)) {
+            setSlot(quotient, canonicalSlot | OCCUPIED);
+        }
+        final long runStart = findRunIndex(quotient);
+        long index = runStart;
+        if (isOccupied(canonicalSlot)) {
+            // Move to the sorted position of the remainder within the run of the quotient.
+            do {
+                final long currentRemainder = getSlot(index) >>> METADATA_BITS;
+                if (currentRemainder == remainder) {
+                    return;
+                } else if (currentRemainder > remainder) {
+                    break;
+                }
+                index = increment(index);
+            } while (isContinuation(getSlot(index)));
+            if (index == runStart) {
+                // The old start of the run becomes a continuation.
+                setSlot(runStart, getSlot(runStart) | CONTINUATION);
+            } else {
+                entry |= CONTINUATION;
+            }
+        }
+        if (index != quotient) {
+            entry |= SHIFTED;
+        }
+        shiftInsert(index, entry);
+        numEntries++;
+    }
+
+    private void shiftInsert(long index, long entry) {
+        // The occupied bit belongs to the slot, while the rest of each entry shifts right by one slot.
+        long currentEntry = entry;
+        boolean isEmpty;
+        do {
+            long previousEntry = getSlot(index);
+            isEmpty = isEmpty(previousEntry);
+            if (!isEmpty) {
+                previousEntry |= SHIFTED;
+                if (isOccupied(previousEntry)) {
+                    currentEntry |= OCCUPIED;
+                    previousEntry &= ~OCCUPIED;
+                }
+            }
+            setSlot(index, currentEntry);
+            currentEntry = previousEntry;
+            index = increment(index);
+        } while (!isEmpty);
+    }
+
+    private void remove(long quotient, long remainder) {
+        long canonicalSlot = getSlot(quotient);
+        if (!isOccupied(canonicalSlot)) {
+            return;
+        }
+        final long runStart = findRunIndex(quotient);
+        long index = runStart;
+        long currentRemainder;
+        do {
+            currentRemainder = getSlot(index) >>> METADATA_BITS;
+            if (currentRemainder == remainder) {
+                break;
+            } else if (currentRemainder > remainder) {
+                return;
+            }
+            index = increment(index);
+        } while (isContinuation(getSlot(index)));
+        if (currentRemainder != remainder) {
+            return;
+        }
+        final long killedEntry = index == quotient ? canonicalSlot : getSlot(index);
+        final boolean isReplacingRunStart = isRunStart(killedEntry);
+        if (isReplacingRunStart && !isContinuation(getSlot(increment(index)))) {
+            // The run of the quotient becomes empty.
+            canonicalSlot &= ~OCCUPIED;
+            setSlot(quotient, canonicalSlot);
+        }
+        shiftDelete(index, quotient);
+        if (isReplacingRunStart) {
+            final long nextEntry = getSlot(index);
+            long updatedNextEntry = nextEntry & ~CONTINUATION;
+            if (index == quotient && isRunStart(updatedNextEntry)) {
+                updatedNextEntry &= ~SHIFTED;
+            }
+            if (updatedNextEntry != nextEntry) {
+                setSlot(index, updatedNextEntry);
+            }
+        }
+        numEntries--;
+    }
+
+    private void shiftDelete(long index, long quotient) {
+        // The entries following the removed entry in its cluster shift left by one slot.
+        long currentEntry = getSlot(index);
+        long nextIndex = increment(index);
+        final long originalIndex = index;
+        while (true) {
+            final long nextEntry = getSlot(nextIndex);
+            final boolean isCurrentOccupied = isOccupied(currentEntry);
+            if (isEmpty(nextEntry) || isClusterStart(nextEntry) || nextIndex == originalIndex) {
+                setSlot(index, 0L);
+                return;
+            }
+            long updatedNextEntry = nextEntry;
+            if (isRunStart(nextEntry)) {
+                do {
+                    quotient = increment(quotient);
+                } while (!isOccupied(getSlot(quotient)));
+                if (isCurrentOccupied && quotient == index) {
+                    updatedNextEntry &= ~SHIFTED;
+                }
+            }
+            setSlot(index, isCurrentOccupied ? updatedNextEntry | OCCUPIED : updatedNextEntry & ~OCCUPIED);
+            index = nextIndex;
+            nextIndex = increment(nextIndex);
+            currentEntry = nextEntry;
+        }
+    }
+
+    private void evictRandomEntry() {
+        long index = random.nextLong(numSlots());
+        while (isEmpty(getSlot(index))) {
+            index = increment(index);
+        }
+        remove(quotientOf(index), getSlot(index) >>> METADATA_BITS);
+    }
+
+    private long findRunIndex(long quotient) {
+        // Walk back to the start of the cluster, then forward over one run per occupied quotient.
+        long clusterIndex = quotient;
+        while (isShifted(getSlot(clusterIndex))) {
+            clusterIndex = decrement(clusterIndex);
+        }
+        long runIndex = clusterIndex;
+        while (clusterIndex != quotient) {
+            do {
+                runIndex = increment(runIndex);
+            } while (isContinuation(getSlot(runIndex)));
+            do {
+                clusterIndex = increment(clusterIndex);
+            } while (!isOccupied(getSlot(clusterIndex)));
+        }
+        return runIndex;
+    }
+
+    private long quotientOf(long index) {
+        // Walk back to the start of the cluster, then forward over the runs until the one containing the index.
+        long quotient = index;
+        while (isShifted(getSlot(quotient))) {
+            quotient = decrement(quotient);
+        }
+        long runIndex = quotient;
+        while (true) {
+            while (true) {
+                if (runIndex == index) {
+                    return quotient;
+                }
+                final long nextIndex = increment(runIndex);
+                if (!isContinuation(getSlot(nextIndex))) {
+                    runIndex = nextIndex;
+                    break;
+                }
+                runIndex = nextIndex;
+            }
+            do {
+                quotient = increment(quotient);
+            } while (!isOccupied(getSlot(quotient)));
+        }
+    }
+
+    private long increment(long index) {
+        return (index + 1L) & indexMask;
+    }
+
+    private long decrement(long index) {
+        return (index - 1L) & indexMask;
+    }
+
+    private long getSlot(long index) {
+        final long bitIndex = index * slotBits;
+        final int wordIndex = (int) (bitIndex >>> 6);
+        final int bitOffset = (int) (bitIndex & 63L);
+        long value = slots[wordIndex] >>> bitOffset;
+        final int spillBits = bitOffset + slotBits - Long.SIZE;
+        if (spillBits > 0) {
+            value |= slots[wordIndex + 1] << (slotBits - spillBits);
+        }
+        return value & slotMask;
+    }
+
+    private void setSlot(long index, long value) {
+        final long bitIndex = index * slotBits;
+        final int wordIndex = (int) (bitIndex >>> 6);
+        final int bitOffset = (int) (bitIndex & 63L);
+        slots[wordIndex] = (slots[wordIndex] & ~(slotMask << bitOffset)) | (value << bitOffset);
+        final int spillBits = bitOffset + slotBits - Long.SIZE;
+        if (spillBits > 0) {
+            final int shift = slotBits - spillBits;
+            slots[wordIndex + 1] = (slots[wordIndex + 1] & ~(slotMask >>> shift)) | (value >>> shift);
+        }
+    }
+
+    private static boolean isOccupied(long entry) {
+        return (entry & OCCUPIED) != 0L;
+    }
+
+    private static boolean isContinuation(long entry) {
+        return (entry & CONTINUATION) != 0L;
+    }
+
+    private static boolean isShifted(long entry) {
+        return (entry & SHIFTED) != 0L;
+    }
+
+    private static boolean isEmpty(long entry) {
+        return (entry & METADATA_MASK) == 0L;
+    }
+
+    private static boolean isClusterStart(long entry) {
+        return isOccupied(entry) && !isContinuation(entry) && !isShifted(entry);
+    }
+
+    private static boolean isRunStart(long entry) {
+        return !isContinuation(entry) && (isOccupied(entry) || isShifted(entry));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final QuotientFilterDeDuplicator that = (QuotientFilterDeDuplicator) other;
+        if (numBits != that.numBits) {
+            return false;
+        }
+        if (remainderBits != that.remainderBits) {
+            return false;
+        }
+        if (!Arrays.equals(slots, that.slots)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = (int) (numBits ^ (numBits >>> 32));
+        result = 31 * result + remainderBits;
+        result = 31 * result + Arrays.hashCode(slots);
+        return result;
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        QuotientFilterDeDuplicatorSerializers.VERSION_1.writeTo(this, out);
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final QuotientFilterDeDuplicator tempDeDuplicator = QuotientFilterDeDuplicatorSerializers.VERSION_1.readFrom(in);
+        this.numBits = tempDeDuplicator.numBits;
+        this.remainderBits = tempDeDuplicator.remainderBits;
+        this.slots = tempDeDuplicator.slots;
+        this.numEntries = tempDeDuplicator.numEntries;
+        this.numInsertions = tempDeDuplicator.numInsertions;
+        this.numClassifications = tempDeDuplicator.numClassifications;
+        this.quotientBits = tempDeDuplicator.quotientBits;
+        this.slotBits = tempDeDuplicator.slotBits;
+        this.slotMask = tempDeDuplicator.slotMask;
+        this.indexMask = tempDeDuplicator.indexMask;
+        this.remainderMask = tempDeDuplicator.remainderMask;
+        this.maxEntries = tempDeDuplicator.maxEntries;
+        this.random = new SplittableRandom(generateRandomSeed(this.numBits, this.remainderBits));
+        this.hasher = new Murmur3Hasher();
+    }
+}
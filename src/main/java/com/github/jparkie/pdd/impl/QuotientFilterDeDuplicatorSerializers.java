@@ -0,0 +1,101 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.LongArrays;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+
+import java.io.*;
+
+public enum QuotientFilterDeDuplicatorSerializers implements ProbabilisticDeDuplicatorSerializer<QuotientFilterDeDuplicator> {
+    VERSION_1(1) {
+        @Override
+        public void writeTo(QuotientFilterDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeLong(probabilisticDeDuplicator.numBits);
+            dos.writeInt(probabilisticDeDuplicator.remainderBits);
+            dos.writeInt(probabilisticDeDuplicator.slots.length);
+            for (long slot : probabilisticDeDuplicator.slots) {
+                dos.writeLong(slot);
+            }
+            dos.writeLong(probabilisticDeDuplicator.numEntries);
+            dos.writeLong(probabilisticDeDuplicator.numInsertions);
+            dos.writeLong(probabilisticDeDuplicator.numClassifications);
+        }
+
+        @Override
+        public QuotientFilterDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int remainderBits = dis.readInt();
+            final int numWords = dis.readInt();
+            final long[] slots = new long[numWords];
+            LongArrays.readFully(dis, slots);
+            final long numEntries = dis.readLong();
+            final long numInsertions = dis.readLong();
+            final long numClassifications = dis.readLong();
+            return new QuotientFilterDeDuplicator(
+                    numBits,
+                    remainderBits,
+                    slots,
+                    numEntries,
+                    numInsertions,
+                    numClassifications
+            );
+        }
+
+        @Override
+        public void readInto(QuotientFilterDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            final int serializedVersion = dis.readInt();
+            if (serializedVersion != version()) {
+                final String error = String.format(
+                        "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                        serializedVersion,
+                        version()
+                );
+                throw new IOException(error);
+            }
+            final long numBits = dis.readLong();
+            final int remainderBits = dis.readInt();
+            final int numWords = dis.readInt();
+            if (numBits != existing.numBits
+                    || remainderBits != existing.remainderBits
+                    || numWords != existing.slots.length) {
+                final String error = String.format(
+                        "Unexpected shape of %d bits, %d remainderBits and %d slot words, expected %d, %d and %d",
+                        numBits,
+                        remainderBits,
+                        numWords,
+                        existing.numBits,
+                        existing.remainderBits,
+                        existing.slots.length
+                );
+                throw new IOException(error);
+            }
+            LongArrays.readFully(dis, existing.slots);
+            existing.numEntries = dis.readLong();
+            existing.numInsertions = dis.readLong();
+            existing.numClassifications = dis.readLong();
+        }
+    };
+
+    private final int version;
+
+    QuotientFilterDeDuplicatorSerializers(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.jparkie.pdd.impl;
 
 import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
 import com.github.jparkie.pdd.Murmur3_x86_32;
 import com.github.jparkie.pdd.Platform;
 import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
@@ -11,6 +14,8 @@ import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * De-Duplication by a Randomized Load Balanced Biased Sampling based Bloom Filter (RLBSBF).
@@ -26,26 +31,44 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
     BitArray[] bloomFilters;
 
     double reportedDuplicateProbability;
+    DeletionMode deletionMode;
+    double estimatedCardinality;
+    double estimatedCardinalityVariance;
 
-    private transient int[] hashBuffer;
+    private transient long[] hashBuffer;
     private transient SplittableRandom random;
+    private transient HashDerivedRandom hashDerivedRandom;
+    private transient Murmur3Hasher hasher;
+    private transient StandbyBloomFilters standbyBloomFilters;
+    transient BitMutationListener mutationListener;
+    // The expected number of resets per insertion relative to the algorithm, which AdaptiveDeDuplicator tunes.
+    transient double deletionScale;
 
     public RLBSBFDeDuplicator(long numBits, int numHashFunctions) {
-        this(numBits, numHashFunctions, bloomFilters(numBits, numHashFunctions), 0D);
+        this(numBits, numHashFunctions, DeletionMode.RANDOM);
+    }
+
+    public RLBSBFDeDuplicator(long numBits, int numHashFunctions, DeletionMode deletionMode) {
+        this(numBits, numHashFunctions, bloomFilters(numBits, numHashFunctions), 0D, deletionMode(deletionMode));
     }
 
     RLBSBFDeDuplicator(
             long numBits,
             int numHashFunctions,
             BitArray[] bloomFilters,
-            double reportedDuplicateProbability
+            double reportedDuplicateProbability,
+            DeletionMode deletionMode
     ) {
         this.numBits = numBits;
         this.numHashFunctions = numHashFunctions;
         this.bloomFilters = bloomFilters;
         this.reportedDuplicateProbability = reportedDuplicateProbability;
-        this.hashBuffer = new int[this.bloomFilters.length];
+        this.deletionMode = deletionMode;
+        this.hashBuffer = new long[this.bloomFilters.length];
         this.random = new SplittableRandom(generateRandomSeed(numBits, numHashFunctions));
+        this.hashDerivedRandom = new HashDerivedRandom();
+        this.hasher = new Murmur3Hasher();
+        this.deletionScale = 1D;
     }
 
     private RLBSBFDeDuplicator() {
@@ -55,6 +78,10 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         return new RLBSBFDeDuplicator(numBits, optimalNumOfHashFunctions(fpp));
     }
 
+    public static RLBSBFDeDuplicator create(long numBits, double fpp, DeletionMode deletionMode) {
+        return new RLBSBFDeDuplicator(numBits, optimalNumOfHashFunctions(fpp), deletionMode);
+    }
+
     private static int optimalNumOfHashFunctions(double fpp) {
         if (fpp <= 0D || fpp >= 1D) {
             final String error = String.format("fpp must be in the range (0, 1), but got %f", fpp);
@@ -84,6 +111,13 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         return bloomFilters;
     }
 
+    private static DeletionMode deletionMode(DeletionMode deletionMode) {
+        if (deletionMode == null) {
+            throw new IllegalArgumentException("deletionMode must not be null");
+        }
+        return deletionMode;
+    }
+
     private static long generateRandomSeed(long numBits, int numHashFunctions) {
         return 31L * numBits + numHashFunctions;
     }
@@ -98,6 +132,10 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         return numHashFunctions;
     }
 
+    public DeletionMode deletionMode() {
+        return deletionMode;
+    }
+
     @Override
     public boolean classifyDistinct(byte[] element) {
         /*
@@ -125,9 +163,45 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
          * end for
          */
         fillHashBuffer(element, hashBuffer);
+        return classifyHashBuffer(hashBuffer);
+    }
+
+    @Override
+    public void classifyDistinct(byte[][] elements, boolean[] results) {
+        BatchHashes.checkBatch(elements, results);
+        final int elementsLength = elements.length;
+        final int[] hashes1 = new int[elementsLength];
+        final int[] hashes2 = new int[elementsLength];
+        BatchHashes.fill(elements, hashes1, hashes2);
+        for (int index = 0; index < elementsLength; index++) {
+            fillHashBuffer(hashes1[index], hashes2[index], hashBuffer);
+            results[index] = classifyHashBuffer(hashBuffer);
+        }
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        fillHashBuffer(hash1, hash2, hashBuffer);
+        return classifyHashBuffer(hashBuffer);
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return classifyHashes(element.hash1(), element.hash2());
+    }
+
+    boolean classifyHashes(int hash1, int hash2) {
+        fillHashBuffer(hash1, hash2, hashBuffer);
+        return classifyHashBuffer(hashBuffer);
+    }
+
+    private boolean classifyHashBuffer(long[] hashBuffer) {
         final boolean temporaryIsDistinct = !containsHashBuffer(bloomFilters, hashBuffer);
         if (temporaryIsDistinct) {
-            setHashBuffer(bloomFilters, hashBuffer, random);
+            updateEstimatedCardinality(bloomFilters);
+            setHashBuffer(bloomFilters, hashBuffer);
         }
         updateReportedDuplicateProbability();
         return temporaryIsDistinct;
@@ -135,8 +209,27 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
 
     @Override
     public boolean peekDistinct(byte[] element) {
-        fillHashBuffer(element, hashBuffer);
-        return !containsHashBuffer(bloomFilters, hashBuffer);
+        // Without the shared hashBuffer, so that peeks may run concurrently (e.g. SingleWriterDeDuplicator).
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return !containsHashes(bloomFilters, hash1, hash2);
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return !containsHashes(bloomFilters, hash1, hash2);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return peekHashes(element.hash1(), element.hash2());
+    }
+
+    boolean peekHashes(int hash1, int hash2) {
+        return !containsHashes(bloomFilters, hash1, hash2);
     }
 
     @Override
@@ -149,55 +242,154 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         return (1 - actuallyDistinctProbability) * (1 - reportedDuplicateProbability);
     }
 
+    /**
+     * Estimates the number of distinct elements which were classified since the last reset, without a separate sketch.
+     * <p>
+     * A distinct element is reported as distinct with probability 1 - X, where X is the product of the loads of the
+     * Bloom filters at the time, so counting each element which is reported as distinct with a weight of 1 / (1 - X)
+     * is the Horvitz-Thompson estimator of the number of distinct elements. Its variance is estimated by the sum of
+     * X / (1 - X)^2 over the same elements, which {@link #estimateCardinalityStandardError()} reports. Duplicate
+     * elements which are reported as distinct (see {@link #estimateFnp(double)}) are counted again, so the estimate
+     * is biased upwards by the number of false negatives, which only matters once deletions begin.
+     *
+     * @return The estimated number of distinct elements.
+     */
+    public double estimateCardinality() {
+        return estimatedCardinality;
+    }
+
+    /**
+     * The estimated standard error of {@link #estimateCardinality()} due to false positives, excluding its bias.
+     *
+     * @return The estimated standard error.
+     */
+    public double estimateCardinalityStandardError() {
+        return Math.sqrt(estimatedCardinalityVariance);
+    }
+
     @Override
     public void reset() {
         final int bloomFiltersLength = bloomFilters.length;
         for (int index = 0; index < bloomFiltersLength; index++) {
-            bloomFilters[index] = new BitArray(bloomFilters[index].bitSize());
+            bloomFilters[index].clearAll();
+        }
+        reportedDuplicateProbability = 0D;
+        estimatedCardinality = 0D;
+        estimatedCardinalityVariance = 0D;
+    }
+
+    /**
+     * Swaps in a standby set of zeroed Bloom filters and clears the old ones on the executor to become the next standby.
+     * The first call allocates the standby set, which doubles the memory of the Bloom filters from then on.
+     */
+    @Override
+    public CompletableFuture<Void> resetAsync(Executor executor) {
+        if (standbyBloomFilters == null) {
+            standbyBloomFilters = new StandbyBloomFilters();
         }
+        bloomFilters = standbyBloomFilters.swap(bloomFilters, executor);
         reportedDuplicateProbability = 0D;
+        estimatedCardinality = 0D;
+        estimatedCardinalityVariance = 0D;
+        return standbyBloomFilters.cleared();
+    }
+
+    private void fillHashBuffer(byte[] element, long[] hashBuffer) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        fillHashBuffer(hash1, hash2, hashBuffer);
     }
 
-    private void fillHashBuffer(byte[] element, int[] hashBuffer) {
+    private void fillHashBuffer(int hash1, int hash2, long[] hashBuffer) {
         /*
          * Adam Kirsch and Michael Mitzenmacher. 2008. Less hashing, same performance: Building a better Bloom filter.
          * Random Struct. Algorithms 33, 2 (September 2008), 187-218. DOI=http://dx.doi.org/10.1002/rsa.v33:2
          */
+        hashDerivedRandom.reset(hash1, hash2);
         final int hashBufferLength = hashBuffer.length;
-        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
-        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
         for (int index = 0; index < hashBufferLength; index++) {
-            int combinedHash = hash1 + ((index + 1) * hash2);
-            if (combinedHash < 0) {
-                combinedHash = ~combinedHash;
-            }
-            hashBuffer[index] = combinedHash;
+            hashBuffer[index] = CombinedHashes.position(hash1, hash2, index, bloomFilters[index].bitSize());
         }
     }
 
-    private boolean containsHashBuffer(BitArray[] bloomFilters, int[] hashBuffer) {
+    private boolean containsHashBuffer(BitArray[] bloomFilters, long[] hashBuffer) {
         final int hashBufferLength = hashBuffer.length;
         for (int index = 0; index < hashBufferLength; index++) {
-            final int combinedHash = hashBuffer[index];
+            final long position = hashBuffer[index];
             final BitArray bloomFilter = bloomFilters[index];
-            if (!bloomFilter.get(combinedHash % bloomFilter.bitSize())) {
+            if (!bloomFilter.get(position)) {
                 return false;
             }
         }
         return true;
     }
 
-    private void setHashBuffer(BitArray[] bloomFilters, int[] hashBuffer, SplittableRandom random) {
+    private boolean containsHashes(BitArray[] bloomFilters, int hash1, int hash2) {
+        final int bloomFiltersLength = bloomFilters.length;
+        for (int index = 0; index < bloomFiltersLength; index++) {
+            final BitArray bloomFilter = bloomFilters[index];
+            if (!bloomFilter.get(CombinedHashes.position(hash1, hash2, index, bloomFilter.bitSize()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setHashBuffer(BitArray[] bloomFilters, long[] hashBuffer) {
         final int hashBufferLength = hashBuffer.length;
         for (int index = 0; index < hashBufferLength; index++) {
-            final int combinedHash = hashBuffer[index];
+            final long position = hashBuffer[index];
             final BitArray bloomFilter = bloomFilters[index];
             final double resetProbability = ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
-            if (random.nextDouble() < resetProbability) {
-                bloomFilter.clear(random.nextLong(bloomFilter.bitSize()));
+            final int numResets = deletionScale == 1D
+                    ? (nextDouble() < resetProbability ? 1 : 0)
+                    : numResets(deletionScale * resetProbability);
+            for (int reset = 0; reset < numResets; reset++) {
+                final long resetPosition = nextLong(bloomFilter.bitSize());
+                if (bloomFilter.clear(resetPosition) && mutationListener != null) {
+                    mutationListener.onClear(index, resetPosition);
+                }
             }
-            bloomFilter.set(combinedHash % bloomFilter.bitSize());
+            if (bloomFilter.set(position) && mutationListener != null) {
+                mutationListener.onSet(index, position);
+            }
+        }
+    }
+
+    private long nextLong(long bound) {
+        if (deletionMode == DeletionMode.HASH_DERIVED) {
+            return hashDerivedRandom.nextLong(bound);
+        }
+        return random.nextLong(bound);
+    }
+
+    private double nextDouble() {
+        if (deletionMode == DeletionMode.HASH_DERIVED) {
+            return hashDerivedRandom.nextDouble();
         }
+        return random.nextDouble();
+    }
+
+    /**
+     * The whole part of the expected number of resets, and one more with the probability of its fractional part.
+     */
+    private int numResets(double expectedResets) {
+        if (expectedResets <= 0D) {
+            return 0;
+        }
+        final int wholeResets = (int) expectedResets;
+        return nextDouble() < expectedResets - wholeResets ? wholeResets + 1 : wholeResets;
+    }
+
+    private void updateEstimatedCardinality(BitArray[] bloomFilters) {
+        // By the loads before this element is set, at which a distinct element is reported as duplicate.
+        double duplicateProbability = 1D;
+        for (BitArray bloomFilter : bloomFilters) {
+            duplicateProbability *= ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
+        }
+        final double inclusionProbability = 1D - duplicateProbability;
+        estimatedCardinality += 1D / inclusionProbability;
+        estimatedCardinalityVariance += duplicateProbability / (inclusionProbability * inclusionProbability);
     }
 
     private void updateReportedDuplicateProbability() {
@@ -243,6 +435,9 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         if (!Arrays.equals(bloomFilters, that.bloomFilters)) {
             return false;
         }
+        if (deletionMode != that.deletionMode) {
+            return false;
+        }
         return true;
     }
 
@@ -252,21 +447,29 @@ public class RLBSBFDeDuplicator implements ProbabilisticDeDuplicator, Serializab
         result = (int) (numBits ^ (numBits >>> 32));
         result = 31 * result + numHashFunctions;
         result = 31 * result + Arrays.hashCode(bloomFilters);
+        result = 31 * result + deletionMode.ordinal();
         return result;
     }
 
     // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
     private void writeObject(ObjectOutputStream out) throws IOException {
-        RLBSBFDeDuplicatorSerializers.VERSION_2.writeTo(this, out);
+        RLBSBFDeDuplicatorSerializers.VERSION_4.writeTo(this, out);
     }
 
     // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        final RLBSBFDeDuplicator tempDeDuplicator = RLBSBFDeDuplicatorSerializers.VERSION_2.readFrom(in);
+        final RLBSBFDeDuplicator tempDeDuplicator = RLBSBFDeDuplicatorSerializers.VERSION_4.readFrom(in);
         this.numBits = tempDeDuplicator.numBits;
         this.numHashFunctions = tempDeDuplicator.numHashFunctions;
         this.bloomFilters = tempDeDuplicator.bloomFilters;
-        this.hashBuffer = new int[this.bloomFilters.length];
+        this.reportedDuplicateProbability = tempDeDuplicator.reportedDuplicateProbability;
+        this.deletionMode = tempDeDuplicator.deletionMode;
+        this.estimatedCardinality = tempDeDuplicator.estimatedCardinality;
+        this.estimatedCardinalityVariance = tempDeDuplicator.estimatedCardinalityVariance;
+        this.hashBuffer = new long[this.bloomFilters.length];
         this.random = new SplittableRandom(generateRandomSeed(this.numBits, this.numHashFunctions));
+        this.hashDerivedRandom = new HashDerivedRandom();
+        this.hasher = new Murmur3Hasher();
+        this.deletionScale = 1D;
     }
 }
@@ -0,0 +1,199 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A {@link ProbabilisticDeDuplicator} which one writer thread updates while any number of reader threads peek.
+ * <p>
+ * Writes (i.e. {@link #classifyDistinct(byte[])} and {@link #reset()}) hold the write lock of a {@link StampedLock},
+ * which acts as a sequence lock. Reads (i.e. {@link #peekDistinct(byte[])}) run without a lock as optimistic reads of
+ * the wrapped de-duplicator, and are only retried if a write overlapped them. After {@link #MAX_OPTIMISTIC_READS}
+ * retries, or for a de-duplicator whose peeks are not safe to run against a concurrent write, reads take the read lock
+ * instead.
+ * <p>
+ * A read is never stale: it observes exactly the writes which completed before it validated, and none of a write in
+ * progress. Writes from several threads are serialized, but only a single writer avoids contention between them.
+ */
+public class SingleWriterDeDuplicator implements ProbabilisticDeDuplicator {
+    static final int MAX_OPTIMISTIC_READS = 4;
+
+    private final ProbabilisticDeDuplicator deDuplicator;
+    private final boolean isOptimisticallyReadable;
+    private final StampedLock stampedLock;
+
+    public SingleWriterDeDuplicator(ProbabilisticDeDuplicator deDuplicator) {
+        if (deDuplicator == null) {
+            throw new IllegalArgumentException("deDuplicator must not be null");
+        }
+        this.deDuplicator = deDuplicator;
+        this.isOptimisticallyReadable = isOptimisticallyReadable(deDuplicator);
+        this.stampedLock = new StampedLock();
+    }
+
+    /**
+     * Whether the peeks of a de-duplicator keep no shared state and terminate on any bit pattern, as a concurrent
+     * write can be observed half-done before the read is validated.
+     */
+    static boolean isOptimisticallyReadable(ProbabilisticDeDuplicator deDuplicator) {
+        return deDuplicator instanceof BSBFDeDuplicator ||
+                deDuplicator instanceof BSBFSDDeDuplicator ||
+                deDuplicator instanceof RLBSBFDeDuplicator ||
+                deDuplicator instanceof CuckooFilterDeDuplicator;
+    }
+
+    /**
+     * The wrapped de-duplicator, which must not be accessed directly while this is in use.
+     *
+     * @return The wrapped {@link ProbabilisticDeDuplicator}.
+     */
+    public ProbabilisticDeDuplicator deDuplicator() {
+        return deDuplicator;
+    }
+
+    @Override
+    public long numBits() {
+        return deDuplicator.numBits();
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return deDuplicator.numHashFunctions();
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final long stamp = stampedLock.writeLock();
+        try {
+            return deDuplicator.classifyDistinct(element);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void classifyDistinct(byte[][] elements, boolean[] results) {
+        final long stamp = stampedLock.writeLock();
+        try {
+            deDuplicator.classifyDistinct(elements, results);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final long stamp = stampedLock.writeLock();
+        try {
+            return deDuplicator.classifyDistinct(element, funnel);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        final long stamp = stampedLock.writeLock();
+        try {
+            return deDuplicator.classifyDistinct(element);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        return peek(element, null, (deDuplicator, bytes, unused) -> deDuplicator.peekDistinct(bytes));
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        return peek(element, funnel, ProbabilisticDeDuplicator::peekDistinct);
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return peek(element, null, (deDuplicator, hashed, unused) -> deDuplicator.peekDistinct(hashed));
+    }
+
+    // The element is passed through instead of captured, so that the peeks do not allocate a lambda per call.
+    private <E, F> boolean peek(E element, F funnel, Peek<E, F> peek) {
+        if (isOptimisticallyReadable) {
+            for (int attempt = 0; attempt < MAX_OPTIMISTIC_READS; attempt++) {
+                final long stamp = stampedLock.tryOptimisticRead();
+                if (stamp == 0L) {
+                    continue;
+                }
+                final boolean isDistinct;
+                try {
+                    isDistinct = peek.test(deDuplicator, element, funnel);
+                } catch (RuntimeException e) {
+                    // A torn read of a concurrent write; retry unless the read was actually consistent.
+                    if (stampedLock.validate(stamp)) {
+                        throw e;
+                    }
+                    continue;
+                }
+                if (stampedLock.validate(stamp)) {
+                    return isDistinct;
+                }
+            }
+        }
+        final long stamp = stampedLock.readLock();
+        try {
+            return peek.test(deDuplicator, element, funnel);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        final long stamp = stampedLock.readLock();
+        try {
+            return deDuplicator.estimateFpp(actuallyDistinctProbability);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        final long stamp = stampedLock.readLock();
+        try {
+            return deDuplicator.estimateFnp(actuallyDistinctProbability);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void reset() {
+        final long stamp = stampedLock.writeLock();
+        try {
+            deDuplicator.reset();
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> resetAsync(Executor executor) {
+        final long stamp = stampedLock.writeLock();
+        try {
+            return deDuplicator.resetAsync(executor);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Peek<E, F> {
+        boolean test(ProbabilisticDeDuplicator deDuplicator, E element, F funnel);
+    }
+}
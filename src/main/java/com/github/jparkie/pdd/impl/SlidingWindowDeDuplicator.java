@@ -0,0 +1,296 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.Murmur3Hasher;
+import com.github.jparkie.pdd.Murmur3_x86_32;
+import com.github.jparkie.pdd.Platform;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Exact De-Duplication over a count-based sliding window of the last windowSize elements.
+ * <p>
+ * Each element is reduced to a 64-bit fingerprint of its two Murmur3 hashes. The fingerprints of the window are kept
+ * in a ring buffer, and an open-addressing index with linear probing maps each fingerprint to its latest position in
+ * the ring. An element is a duplicate if and only if its fingerprint occurs within the window, so there is no false
+ * negative within the window, and a false positive needs two distinct elements of the window to share a fingerprint.
+ * Elements older than the window are forgotten, so their repeats are reported as distinct by definition.
+ * <p>
+ * The index is kept at most half full. The oldest fingerprint is removed from the index by backward shift deletion
+ * when it leaves the window, unless a later occurrence of it is still in the window, so both insertion and expiry
+ * take O(1) expected time. Memory is fixed at construction, and classification allocates nothing.
+ */
+public class SlidingWindowDeDuplicator implements ProbabilisticDeDuplicator, Serializable {
+    static final int NUM_HASH_FUNCTIONS = 1;
+    // The largest window whose index of at least twice the window still fits in an int[], i.e. 2^30 slots.
+    static final int MAX_WINDOW_SIZE = 1 << 28;
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    private static final int EMPTY = 0;
+
+    int windowSize;
+    long[] ring;
+    int head;
+    int size;
+
+    private transient int[] index;
+    private transient int indexMask;
+    private transient int indexShift;
+    private transient Murmur3Hasher hasher;
+
+    public SlidingWindowDeDuplicator(int windowSize) {
+        this(windowSize, ring(windowSize), 0);
+    }
+
+    /**
+     * @param ring The fingerprints of the window from the oldest at 0 to the newest at size - 1.
+     */
+    SlidingWindowDeDuplicator(int windowSize, long[] ring, int size) {
+        this.windowSize = windowSize;
+        this.ring = ring;
+        this.size = size;
+        this.head = size % windowSize;
+        this.index = index(windowSize);
+        this.indexMask = this.index.length - 1;
+        this.indexShift = Integer.numberOfLeadingZeros(this.index.length - 1);
+        this.hasher = new Murmur3Hasher();
+        rebuildIndex();
+    }
+
+    private SlidingWindowDeDuplicator() {
+    }
+
+    private static long[] ring(int windowSize) {
+        if (windowSize <= 0 || windowSize > MAX_WINDOW_SIZE) {
+            final String error = String.format(
+                    "windowSize must be in the range [1, %d], but got %d",
+                    MAX_WINDOW_SIZE,
+                    windowSize
+            );
+            throw new IllegalArgumentException(error);
+        }
+        return new long[windowSize];
+    }
+
+    private static int[] index(int windowSize) {
+        return new int[indexLength(windowSize)];
+    }
+
+    /**
+     * At least twice the window, so that the load of the index never exceeds 1/2, as a power of two.
+     */
+    static int indexLength(int windowSize) {
+        return Integer.highestOneBit(windowSize) << 2;
+    }
+
+    @Override
+    public long numBits() {
+        return Long.SIZE * (long) ring.length + Integer.SIZE * (long) index.length;
+    }
+
+    @Override
+    public int numHashFunctions() {
+        return NUM_HASH_FUNCTIONS;
+    }
+
+    public int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * The number of elements in the window, which is windowSize once windowSize elements were classified.
+     *
+     * @return The number of elements in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean classifyDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return classifyFingerprint(fingerprint(hash1, hash2));
+    }
+
+    @Override
+    public <T> boolean classifyDistinct(T element, Funnel<? super T> funnel) {
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return classifyFingerprint(fingerprint(hash1, hash2));
+    }
+
+    @Override
+    public boolean classifyDistinct(HashedElement element) {
+        return classifyFingerprint(fingerprint(element.hash1(), element.hash2()));
+    }
+
+    private boolean classifyFingerprint(long fingerprint) {
+        final boolean isDistinct = index[findSlot(fingerprint)] == EMPTY;
+        if (size == windowSize) {
+            // The window is full, so the oldest fingerprint is at the head.
+            expire(head);
+        } else {
+            size++;
+        }
+        ring[head] = fingerprint;
+        // The slot is found again, as the expiry may have shifted it.
+        index[findSlot(fingerprint)] = head + 1;
+        head = head + 1 == windowSize ? 0 : head + 1;
+        return isDistinct;
+    }
+
+    @Override
+    public boolean peekDistinct(byte[] element) {
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        return index[findSlot(fingerprint(hash1, hash2))] == EMPTY;
+    }
+
+    @Override
+    public <T> boolean peekDistinct(T element, Funnel<? super T> funnel) {
+        final Murmur3Hasher hasher = Murmur3Hashers.perThread();
+        final int hash1 = hasher.hash(element, funnel, 0);
+        final int hash2 = hasher.hash(element, funnel, hash1);
+        return index[findSlot(fingerprint(hash1, hash2))] == EMPTY;
+    }
+
+    @Override
+    public boolean peekDistinct(HashedElement element) {
+        return index[findSlot(fingerprint(element.hash1(), element.hash2()))] == EMPTY;
+    }
+
+    @Override
+    public double estimateFpp(double actuallyDistinctProbability) {
+        // A distinct element is reported as duplicate only if it shares a fingerprint with an element of the window.
+        return actuallyDistinctProbability * -Math.expm1(size * Math.log1p(-0x1.0p-64));
+    }
+
+    /**
+     * No duplicate element within the window is reported as distinct, and older ones are distinct by definition.
+     */
+    @Override
+    public double estimateFnp(double actuallyDistinctProbability) {
+        return 0D;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(index, EMPTY);
+        head = 0;
+        size = 0;
+    }
+
+    void rebuildIndex() {
+        Arrays.fill(index, EMPTY);
+        // From the oldest to the newest, so that each fingerprint maps to its latest position.
+        final int oldest = size < windowSize ? 0 : head;
+        for (int offset = 0; offset < size; offset++) {
+            final int position = (oldest + offset) % windowSize;
+            index[findSlot(ring[position])] = position + 1;
+        }
+    }
+
+    long oldestFingerprint(int offset) {
+        final int oldest = size < windowSize ? 0 : head;
+        return ring[(oldest + offset) % windowSize];
+    }
+
+    private void expire(int position) {
+        final int slot = findSlot(ring[position]);
+        if (index[slot] != position + 1) {
+            // A later occurrence of the fingerprint is still in the window.
+            return;
+        }
+        // Backward shift deletion, so that no probe sequence is broken by the hole.
+        int hole = slot;
+        int next = (hole + 1) & indexMask;
+        while (index[next] != EMPTY) {
+            final int home = homeSlot(ring[index[next] - 1]);
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+            next = (next + 1) & indexMask;
+        }
+        index[hole] = EMPTY;
+    }
+
+    /**
+     * The slot of the index which maps the fingerprint, or the empty slot where it would be inserted.
+     */
+    private int findSlot(long fingerprint) {
+        int slot = homeSlot(fingerprint);
+        while (index[slot] != EMPTY && ring[index[slot] - 1] != fingerprint) {
+            slot = (slot + 1) & indexMask;
+        }
+        return slot;
+    }
+
+    private int homeSlot(long fingerprint) {
+        return (int) ((fingerprint * GOLDEN_GAMMA) >>> (Integer.SIZE + indexShift));
+    }
+
+    static long fingerprint(int hash1, int hash2) {
+        return ((long) hash1 << 32) | (hash2 & 0xffffffffL);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        final SlidingWindowDeDuplicator that = (SlidingWindowDeDuplicator) other;
+        if (windowSize != that.windowSize) {
+            return false;
+        }
+        if (size != that.size) {
+            return false;
+        }
+        for (int offset = 0; offset < size; offset++) {
+            if (oldestFingerprint(offset) != that.oldestFingerprint(offset)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = windowSize;
+        result = 31 * result + size;
+        for (int offset = 0; offset < size; offset++) {
+            final long fingerprint = oldestFingerprint(offset);
+            result = 31 * result + (int) (fingerprint ^ (fingerprint >>> 32));
+        }
+        return result;
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        SlidingWindowDeDuplicatorSerializers.VERSION_1.writeTo(this, out);
+    }
+
+    // http://docs.oracle.com/javase/8/docs/api/java/io/Serializable.html
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final SlidingWindowDeDuplicator tempDeDuplicator = SlidingWindowDeDuplicatorSerializers.VERSION_1.readFrom(in);
+        this.windowSize = tempDeDuplicator.windowSize;
+        this.ring = tempDeDuplicator.ring;
+        this.head = tempDeDuplicator.head;
+        this.size = tempDeDuplicator.size;
+        this.index = tempDeDuplicator.index;
+        this.indexMask = tempDeDuplicator.indexMask;
+        this.indexShift = tempDeDuplicator.indexShift;
+        this.hasher = new Murmur3Hasher();
+    }
+}
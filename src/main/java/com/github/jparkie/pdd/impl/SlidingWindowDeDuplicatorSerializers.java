@@ -0,0 +1,90 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.LongArrays;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+
+import java.io.*;
+
+public enum SlidingWindowDeDuplicatorSerializers
+        implements ProbabilisticDeDuplicatorSerializer<SlidingWindowDeDuplicator> {
+    VERSION_1(1) {
+        @Override
+        public void writeTo(SlidingWindowDeDuplicator probabilisticDeDuplicator, OutputStream out) throws IOException {
+            final DataOutputStream dos = new DataOutputStream(out);
+            dos.writeInt(version());
+            dos.writeInt(probabilisticDeDuplicator.windowSize);
+            dos.writeInt(probabilisticDeDuplicator.size);
+            // From the oldest to the newest, so that the index is rebuilt without the position of the head.
+            for (int offset = 0; offset < probabilisticDeDuplicator.size; offset++) {
+                dos.writeLong(probabilisticDeDuplicator.oldestFingerprint(offset));
+            }
+        }
+
+        @Override
+        public SlidingWindowDeDuplicator readFrom(InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            readVersion(dis, version());
+            final int windowSize = dis.readInt();
+            final int size = dis.readInt();
+            if (windowSize <= 0 || windowSize > SlidingWindowDeDuplicator.MAX_WINDOW_SIZE) {
+                final String error = String.format("Unexpected windowSize (%d)", windowSize);
+                throw new IOException(error);
+            }
+            checkSize(size, windowSize);
+            final long[] ring = new long[windowSize];
+            LongArrays.readFully(dis, ring, 0, size);
+            return new SlidingWindowDeDuplicator(windowSize, ring, size);
+        }
+
+        @Override
+        public void readInto(SlidingWindowDeDuplicator existing, InputStream in) throws IOException {
+            final DataInputStream dis = new DataInputStream(in);
+            readVersion(dis, version());
+            final int windowSize = dis.readInt();
+            final int size = dis.readInt();
+            if (windowSize != existing.windowSize) {
+                final String error = String.format(
+                        "Unexpected windowSize (%d), expected %d",
+                        windowSize,
+                        existing.windowSize
+                );
+                throw new IOException(error);
+            }
+            checkSize(size, windowSize);
+            LongArrays.readFully(dis, existing.ring, 0, size);
+            existing.size = size;
+            existing.head = size % windowSize;
+            existing.rebuildIndex();
+        }
+    };
+
+    private final int version;
+
+    SlidingWindowDeDuplicatorSerializers(int version) {
+        this.version = version;
+    }
+
+    @Override
+    public int version() {
+        return version;
+    }
+
+    private static void readVersion(DataInputStream dis, int version) throws IOException {
+        final int serializedVersion = dis.readInt();
+        if (serializedVersion != version) {
+            final String error = String.format(
+                    "Unexpected ProbabilisticDeDuplicator version number (%d), expected %d",
+                    serializedVersion,
+                    version
+            );
+            throw new IOException(error);
+        }
+    }
+
+    private static void checkSize(int size, int windowSize) throws IOException {
+        if (size < 0 || size > windowSize) {
+            final String error = String.format("Unexpected size (%d), expected at most %d", size, windowSize);
+            throw new IOException(error);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * A standby set of zeroed Bloom filters for the asynchronous resets of BSBF, BSBFSD, and RLBSBF.
+ * <p>
+ * A reset swaps the active Bloom filters for the standby ones, which are already zeroed, and clears the retired Bloom
+ * filters on an executor to become the next standby. The pause of a reset is only the swap, at the cost of holding
+ * a second set of Bloom filters from the first asynchronous reset onwards. If the previous clear has not finished,
+ * the next reset waits for it.
+ */
+final class StandbyBloomFilters {
+    private CompletableFuture<BitArray[]> standby;
+
+    /**
+     * Swaps the active Bloom filters for zeroed ones, and clears the active Bloom filters on an executor.
+     *
+     * @param active The active Bloom filters, which must no longer be used by the caller.
+     * @param executor The {@link Executor} to clear the active Bloom filters on.
+     * @return The zeroed Bloom filters of the same sizes.
+     */
+    BitArray[] swap(BitArray[] active, Executor executor) {
+        final BitArray[] zeroed = standby == null ? allocate(active) : standby.join();
+        standby = CompletableFuture.supplyAsync(() -> {
+            for (BitArray bloomFilter : active) {
+                bloomFilter.clearAll();
+            }
+            return active;
+        }, executor);
+        return zeroed;
+    }
+
+    /**
+     * Completes once the Bloom filters retired by the last swap are cleared.
+     */
+    CompletableFuture<Void> cleared() {
+        return standby.thenApply(ignored -> null);
+    }
+
+    private static BitArray[] allocate(BitArray[] active) {
+        final BitArray[] bloomFilters = new BitArray[active.length];
+        for (int index = 0; index < active.length; index++) {
+            bloomFilters[index] = new BitArray(active[index].bitSize());
+        }
+        return bloomFilters;
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.jparkie.pdd.impl;
+
+/**
+ * A description of a stream and of the accuracy that a {@link com.github.jparkie.pdd.ProbabilisticDeDuplicator}
+ * should achieve on it within a memory budget.
+ */
+public final class WorkloadProfile {
+    private final long memoryBudgetBits;
+    private final double actuallyDistinctProbability;
+    private final double reuseDistance;
+    private final double targetFpp;
+    private final double targetFnp;
+
+    /**
+     * @param memoryBudgetBits The maximum number of bits that the de-duplicator may use.
+     * @param actuallyDistinctProbability The probability that an element of the stream is actually distinct.
+     * @param reuseDistance The mean number of elements between two occurrences of a duplicate element.
+     * @param targetFpp The maximum probability that an element is distinct and reported as duplicate.
+     * @param targetFnp The maximum probability that an element is duplicate and reported as distinct.
+     */
+    public WorkloadProfile(
+            long memoryBudgetBits,
+            double actuallyDistinctProbability,
+            double reuseDistance,
+            double targetFpp,
+            double targetFnp
+    ) {
+        if (memoryBudgetBits < Long.SIZE) {
+            final String error = String.format(
+                    "memoryBudgetBits must be at least %d, but got %d",
+                    Long.SIZE,
+                    memoryBudgetBits
+            );
+            throw new IllegalArgumentException(error);
+        }
+        if (actuallyDistinctProbability <= 0D || actuallyDistinctProbability >= 1D) {
+            final String error = String.format(
+                    "actuallyDistinctProbability must be in the range (0, 1), but got %f",
+                    actuallyDistinctProbability
+            );
+            throw new IllegalArgumentException(error);
+        }
+        if (reuseDistance < 1D) {
+            final String error = String.format("reuseDistance must be at least 1, but got %f", reuseDistance);
+            throw new IllegalArgumentException(error);
+        }
+        if (targetFpp <= 0D || targetFpp >= 1D) {
+            final String error = String.format("targetFpp must be in the range (0, 1), but got %f", targetFpp);
+            throw new IllegalArgumentException(error);
+        }
+        if (targetFnp <= 0D || targetFnp >= 1D) {
+            final String error = String.format("targetFnp must be in the range (0, 1), but got %f", targetFnp);
+            throw new IllegalArgumentException(error);
+        }
+        this.memoryBudgetBits = memoryBudgetBits;
+        this.actuallyDistinctProbability = actuallyDistinctProbability;
+        this.reuseDistance = reuseDistance;
+        this.targetFpp = targetFpp;
+        this.targetFnp = targetFnp;
+    }
+
+    public long memoryBudgetBits() {
+        return memoryBudgetBits;
+    }
+
+    public double actuallyDistinctProbability() {
+        return actuallyDistinctProbability;
+    }
+
+    public double reuseDistance() {
+        return reuseDistance;
+    }
+
+    public double targetFpp() {
+        return targetFpp;
+    }
+
+    public double targetFnp() {
+        return targetFnp;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkloadProfile(" +
+                "memoryBudgetBits=" + memoryBudgetBits +
+                ", actuallyDistinctProbability=" + actuallyDistinctProbability +
+                ", reuseDistance=" + reuseDistance +
+                ", targetFpp=" + targetFpp +
+                ", targetFnp=" + targetFnp +
+                ")";
+    }
+}
@@ -0,0 +1,242 @@
+package com.github.jparkie.pdd;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The Java 9+ version of {@link Platform} within the Multi-Release JAR, which reads and writes heap arrays by
+ * {@link VarHandle}s instead of sun.misc.Unsafe.
+ * <p>
+ * Every array offset is 0, so offsets are byte indexes into byte[] and element indexes times the element size into the
+ * other arrays, exactly as the Unsafe version resolves them. Multi-byte reads and writes of a byte[] use the native
+ * byte order, as Unsafe does. Off-heap memory is not supported.
+ */
+public final class Platform {
+
+    public static final int BYTE_ARRAY_OFFSET = 0;
+
+    public static final int INT_ARRAY_OFFSET = 0;
+
+    public static final int LONG_ARRAY_OFFSET = 0;
+
+    public static final int DOUBLE_ARRAY_OFFSET = 0;
+
+    private static final VarHandle BYTE_ARRAY_AS_SHORT =
+            MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle BYTE_ARRAY_AS_INT =
+            MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle BYTE_ARRAY_AS_LONG =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle BYTE_ARRAY_AS_FLOAT =
+            MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle BYTE_ARRAY_AS_DOUBLE =
+            MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle OBJECT_ARRAY = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    public static int getInt(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return (int) BYTE_ARRAY_AS_INT.get((byte[]) object, (int) offset);
+        }
+        if (object instanceof int[]) {
+            return ((int[]) object)[(int) (offset >>> 2)];
+        }
+        throw unsupported(object);
+    }
+
+    public static void putInt(Object object, long offset, int value) {
+        if (object instanceof byte[]) {
+            BYTE_ARRAY_AS_INT.set((byte[]) object, (int) offset, value);
+        } else if (object instanceof int[]) {
+            ((int[]) object)[(int) (offset >>> 2)] = value;
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static boolean getBoolean(Object object, long offset) {
+        if (object instanceof boolean[]) {
+            return ((boolean[]) object)[(int) offset];
+        }
+        return getByte(object, offset) != 0;
+    }
+
+    public static void putBoolean(Object object, long offset, boolean value) {
+        if (object instanceof boolean[]) {
+            ((boolean[]) object)[(int) offset] = value;
+        } else {
+            putByte(object, offset, value ? (byte) 1 : (byte) 0);
+        }
+    }
+
+    public static byte getByte(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return ((byte[]) object)[(int) offset];
+        }
+        throw unsupported(object);
+    }
+
+    public static void putByte(Object object, long offset, byte value) {
+        if (object instanceof byte[]) {
+            ((byte[]) object)[(int) offset] = value;
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static short getShort(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return (short) BYTE_ARRAY_AS_SHORT.get((byte[]) object, (int) offset);
+        }
+        throw unsupported(object);
+    }
+
+    public static void putShort(Object object, long offset, short value) {
+        if (object instanceof byte[]) {
+            BYTE_ARRAY_AS_SHORT.set((byte[]) object, (int) offset, value);
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static long getLong(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return (long) BYTE_ARRAY_AS_LONG.get((byte[]) object, (int) offset);
+        }
+        if (object instanceof long[]) {
+            return ((long[]) object)[(int) (offset >>> 3)];
+        }
+        throw unsupported(object);
+    }
+
+    public static void putLong(Object object, long offset, long value) {
+        if (object instanceof byte[]) {
+            BYTE_ARRAY_AS_LONG.set((byte[]) object, (int) offset, value);
+        } else if (object instanceof long[]) {
+            ((long[]) object)[(int) (offset >>> 3)] = value;
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static float getFloat(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return (float) BYTE_ARRAY_AS_FLOAT.get((byte[]) object, (int) offset);
+        }
+        throw unsupported(object);
+    }
+
+    public static void putFloat(Object object, long offset, float value) {
+        if (object instanceof byte[]) {
+            BYTE_ARRAY_AS_FLOAT.set((byte[]) object, (int) offset, value);
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static double getDouble(Object object, long offset) {
+        if (object instanceof byte[]) {
+            return (double) BYTE_ARRAY_AS_DOUBLE.get((byte[]) object, (int) offset);
+        }
+        if (object instanceof double[]) {
+            return ((double[]) object)[(int) (offset >>> 3)];
+        }
+        throw unsupported(object);
+    }
+
+    public static void putDouble(Object object, long offset, double value) {
+        if (object instanceof byte[]) {
+            BYTE_ARRAY_AS_DOUBLE.set((byte[]) object, (int) offset, value);
+        } else if (object instanceof double[]) {
+            ((double[]) object)[(int) (offset >>> 3)] = value;
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    /**
+     * The offset of an Object[] is its element index.
+     */
+    public static Object getObjectVolatile(Object object, long offset) {
+        if (object instanceof Object[]) {
+            return OBJECT_ARRAY.getVolatile((Object[]) object, (int) offset);
+        }
+        throw unsupported(object);
+    }
+
+    /**
+     * The offset of an Object[] is its element index.
+     */
+    public static void putObjectVolatile(Object object, long offset, Object value) {
+        if (object instanceof Object[]) {
+            OBJECT_ARRAY.setVolatile((Object[]) object, (int) offset, value);
+        } else {
+            throw unsupported(object);
+        }
+    }
+
+    public static long allocateMemory(long size) {
+        throw new UnsupportedOperationException("Off-heap memory is not supported without sun.misc.Unsafe");
+    }
+
+    public static void freeMemory(long address) {
+        throw new UnsupportedOperationException("Off-heap memory is not supported without sun.misc.Unsafe");
+    }
+
+    /**
+     * Copies length bytes between two arrays of the same primitive type; the offsets and length must be multiples of
+     * the element size.
+     */
+    public static void copyMemory(Object src, long srcOffset, Object dst, long dstOffset, long length) {
+        if (src == null || dst == null || src.getClass() != dst.getClass() || !src.getClass().isArray()) {
+            throw new UnsupportedOperationException("copyMemory only supports arrays of the same type");
+        }
+        final int elementShift = elementShift(src.getClass().getComponentType());
+        System.arraycopy(
+                src,
+                (int) (srcOffset >>> elementShift),
+                dst,
+                (int) (dstOffset >>> elementShift),
+                (int) (length >>> elementShift)
+        );
+    }
+
+    /**
+     * Raises an exception bypassing compiler checks for checked exceptions.
+     */
+    public static void throwException(Throwable t) {
+        Platform.<RuntimeException>throwUnchecked(t);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> void throwUnchecked(Throwable t) throws T {
+        throw (T) t;
+    }
+
+    private static int elementShift(Class<?> componentType) {
+        if (componentType == byte.class || componentType == boolean.class) {
+            return 0;
+        }
+        if (componentType == short.class || componentType == char.class) {
+            return 1;
+        }
+        if (componentType == int.class || componentType == float.class) {
+            return 2;
+        }
+        if (componentType == long.class || componentType == double.class) {
+            return 3;
+        }
+        throw new UnsupportedOperationException("copyMemory only supports arrays of primitives");
+    }
+
+    private static UnsupportedOperationException unsupported(Object object) {
+        final String type = object == null ? "null" : object.getClass().getName();
+        final String error = String.format("Unsupported base object (%s) without sun.misc.Unsafe", type);
+        return new UnsupportedOperationException(error);
+    }
+}
@@ -3,6 +3,7 @@ package com.github.jparkie.pdd;
 import org.junit.Test;
 
 import java.io.*;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -12,9 +13,94 @@ public class BitArrayTest {
         new BitArray(0L);
     }
 
+    @Test
+    public void testSegments() {
+        final Random random = new Random();
+        final long numWords = 100L;
+        // 16 words per segment, so that 7 segments hold 100 words.
+        final BitArray segmented1 = new BitArray(numWords, 4);
+        final BitArray segmented2 = new BitArray(numWords, 4);
+        final BitArray bitArray1 = new BitArray(64L * numWords);
+        final BitArray bitArray2 = new BitArray(64L * numWords);
+        for (long index = 0L; index < 64L * numWords; index++) {
+            if (random.nextBoolean()) {
+                assertTrue(segmented1.set(index));
+                bitArray1.set(index);
+            }
+            if (random.nextBoolean()) {
+                assertTrue(segmented2.set(index));
+                bitArray2.set(index);
+            }
+        }
+        assertEquals(64L * numWords, segmented1.bitSize());
+        assertEquals(bitArray1.bitCount(), segmented1.bitCount());
+        assertEquals(bitArray1, segmented1);
+        assertEquals(bitArray1.hashCode(), segmented1.hashCode());
+        assertEquals(bitArray1.differenceCount(bitArray2), segmented1.differenceCount(segmented2));
+        assertEquals(bitArray1.fold(4), segmented1.fold(4));
+        assertEquals(bitArray1.fold(25), segmented1.fold(25));
+        segmented1.xorAll(segmented2);
+        bitArray1.xorAll(bitArray2);
+        assertEquals(bitArray1, segmented1);
+        assertEquals(bitArray1.bitCount(), segmented1.bitCount());
+        segmented1.putAll(segmented2);
+        bitArray1.putAll(bitArray2);
+        assertEquals(bitArray1, segmented1);
+        assertEquals(bitArray1.bitCount(), segmented1.bitCount());
+        for (long index = 0L; index < 64L * numWords; index++) {
+            assertEquals(bitArray1.get(index), segmented1.get(index));
+            assertEquals(bitArray1.clear(index), segmented1.clear(index));
+        }
+        assertEquals(0L, segmented1.bitCount());
+    }
+
     @Test(expected = IllegalArgumentException.class)
-    public void testNumWordsUpperBound() {
-        new BitArray(64L * Integer.MAX_VALUE + 1L);
+    public void testSegmentsUnequal() {
+        new BitArray(32L, 4).putAll(new BitArray(32L, 5));
+    }
+
+    @Test
+    public void testReadFromLongNumWords() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(out);
+        dos.writeInt(-1);
+        dos.writeLong(2L);
+        dos.writeLong(1L);
+        dos.writeLong(Long.MIN_VALUE);
+        final BitArray bitArray = BitArray.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(128L, bitArray.bitSize());
+        assertEquals(2L, bitArray.bitCount());
+        assertTrue(bitArray.get(0L));
+        assertTrue(bitArray.get(127L));
+    }
+
+    @Test
+    public void testReadInto() throws IOException {
+        final BitArray bitArray = new BitArray(4096L);
+        for (long index = 0L; index < bitArray.bitSize(); index += 7L) {
+            bitArray.set(index);
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitArray.writeTo(new DataOutputStream(out));
+        final BitArray existing = new BitArray(4096L);
+        existing.set(1L);
+        BitArray.readInto(existing, new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+        assertEquals(bitArray, existing);
+        assertEquals(bitArray.bitCount(), existing.bitCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadIntoNumWordsMismatch() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new BitArray(4096L).writeTo(new DataOutputStream(out));
+        BitArray.readInto(new BitArray(2048L), new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadFromInvalidNumWords() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DataOutputStream(out).writeInt(-2);
+        BitArray.readFrom(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
     }
 
     @Test
@@ -53,6 +139,17 @@ public class BitArrayTest {
         assertEquals(0L, bitArray.bitCount());
     }
 
+    @Test
+    public void testClearAll() {
+        final BitArray bitArray = new BitArray(100L, 4);
+        for (long index = 0L; index < bitArray.bitSize(); index += 3L) {
+            bitArray.set(index);
+        }
+        bitArray.clearAll();
+        assertEquals(0L, bitArray.bitCount());
+        assertEquals(new BitArray(100L, 4), bitArray);
+    }
+
     @Test
     public void testWriteToReadFrom() throws IOException {
         final BitArray bitArray = new BitArray(64L);
@@ -67,4 +164,106 @@ public class BitArrayTest {
         in.close();
         assertEquals(bitArray, serialized);
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutAllUnequalLength() {
+        new BitArray(64L).putAll(new BitArray(128L));
+    }
+
+    @Test
+    public void testPutAllRetainAllXorAll() {
+        final Random random = new Random();
+        final int numBits = 64 * 1031;
+        final BitArray bitArray1 = randomBitArray(random, numBits);
+        final BitArray bitArray2 = randomBitArray(random, numBits);
+        final BitArray or = copyOf(bitArray1);
+        final BitArray and = copyOf(bitArray1);
+        final BitArray xor = copyOf(bitArray1);
+        or.putAll(bitArray2);
+        and.retainAll(bitArray2);
+        xor.xorAll(bitArray2);
+        long orCount = 0L;
+        long andCount = 0L;
+        long xorCount = 0L;
+        for (long index = 0L; index < numBits; index++) {
+            final boolean bit1 = bitArray1.get(index);
+            final boolean bit2 = bitArray2.get(index);
+            assertEquals(bit1 | bit2, or.get(index));
+            assertEquals(bit1 & bit2, and.get(index));
+            assertEquals(bit1 ^ bit2, xor.get(index));
+            orCount += (bit1 | bit2) ? 1L : 0L;
+            andCount += (bit1 & bit2) ? 1L : 0L;
+            xorCount += (bit1 ^ bit2) ? 1L : 0L;
+        }
+        assertEquals(orCount, or.bitCount());
+        assertEquals(andCount, and.bitCount());
+        assertEquals(xorCount, xor.bitCount());
+        assertEquals(xorCount, bitArray1.differenceCount(bitArray2));
+        assertEquals(0L, bitArray1.differenceCount(bitArray1));
+    }
+
+    @Test
+    public void testParallelBulkOperations() {
+        final Random random = new Random();
+        final long numBits = 64L * (BulkOperation.PARALLEL_THRESHOLD + 3);
+        final BitArray bitArray1 = randomBitArray(random, numBits);
+        final BitArray bitArray2 = randomBitArray(random, numBits);
+        final BitArray or = copyOf(bitArray1);
+        or.putAll(bitArray2);
+        final long[] data1 = words(bitArray1);
+        final long[] data2 = words(bitArray2);
+        final long[] expected = words(bitArray1);
+        final long expectedOrCount = BulkOperation.OR.applySequential(expected, data2, 0, expected.length);
+        assertArrayEquals(expected, words(or));
+        assertEquals(expectedOrCount, or.bitCount());
+        assertEquals(
+                BulkOperation.DIFFERENCE_COUNT.applySequential(data1, data2, 0, data1.length),
+                bitArray1.differenceCount(bitArray2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFoldInvalidFactor() {
+        new BitArray(64L * 3).fold(2);
+    }
+
+    @Test
+    public void testFold() {
+        final Random random = new Random();
+        final long numBits = 64L * 12;
+        final BitArray bitArray = randomBitArray(random, numBits);
+        final BitArray folded = bitArray.fold(4);
+        assertEquals(numBits / 4, folded.bitSize());
+        for (long index = 0L; index < numBits; index++) {
+            if (bitArray.get(index)) {
+                assertTrue(folded.get(index % folded.bitSize()));
+            }
+        }
+        assertEquals(bitArray, bitArray.fold(1));
+    }
+
+    private static BitArray randomBitArray(Random random, long numBits) {
+        final BitArray bitArray = new BitArray(numBits);
+        for (long index = 0L; index < numBits; index++) {
+            if (random.nextBoolean()) {
+                bitArray.set(index);
+            }
+        }
+        return bitArray;
+    }
+
+    private static BitArray copyOf(BitArray bitArray) {
+        final BitArray copy = new BitArray(bitArray.bitSize());
+        copy.putAll(bitArray);
+        return copy;
+    }
+
+    private static long[] words(BitArray bitArray) {
+        final long[] words = new long[(int) (bitArray.bitSize() / 64L)];
+        for (long index = 0L; index < bitArray.bitSize(); index++) {
+            if (bitArray.get(index)) {
+                words[(int) (index >>> 6)] |= 1L << index;
+            }
+        }
+        return words;
+    }
 }
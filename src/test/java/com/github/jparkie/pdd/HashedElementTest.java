@@ -0,0 +1,52 @@
+package com.github.jparkie.pdd;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class HashedElementTest {
+    @Test
+    public void testOf() {
+        final Random random = new Random();
+        final byte[] element = new byte[37];
+        random.nextBytes(element);
+        final int hash1 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, 0);
+        final int hash2 = Murmur3_x86_32.hashUnsafeBytes(element, Platform.BYTE_ARRAY_OFFSET, element.length, hash1);
+        final HashedElement hashedElement = HashedElement.of(element);
+        assertEquals(hash1, hashedElement.hash1());
+        assertEquals(hash2, hashedElement.hash2());
+        assertEquals(HashedElement.ofHashes(hash1, hash2), hashedElement);
+        assertEquals(HashedElement.ofHashes(hash1, hash2).hashCode(), hashedElement.hashCode());
+        assertNotEquals(HashedElement.ofHashes(hash2, hash1), hashedElement);
+    }
+
+    @Test
+    public void testOfFunnel() {
+        final Funnel<CharSequence> funnel = (element, into) -> into.putUnencodedChars(element);
+        final byte[] bytes = ByteArraySink.toByteArray("Hello, World!", funnel);
+        assertEquals(HashedElement.of(bytes), HashedElement.of("Hello, World!", funnel));
+    }
+
+    @Test
+    public void testOfLong() {
+        final long hash = 0x0123456789abcdefL;
+        final int hash1 = Murmur3_x86_32.hashLong(hash, 0);
+        assertEquals(HashedElement.ofHashes(hash1, Murmur3_x86_32.hashLong(hash, hash1)), HashedElement.ofLong(hash));
+        assertNotEquals(HashedElement.ofLong(1L), HashedElement.ofLong(1L << 32));
+    }
+
+    @Test
+    public void testOfLongAsPutLong() {
+        assumeTrue(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN);
+        final long hash = 0x0123456789abcdefL;
+        final byte[] bytes = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(hash).array();
+        assertEquals(HashedElement.of(bytes), HashedElement.ofLong(hash));
+        final Funnel<Long> funnel = (element, into) -> into.putLong(element);
+        assertEquals(HashedElement.of(hash, funnel), HashedElement.ofLong(hash));
+    }
+}
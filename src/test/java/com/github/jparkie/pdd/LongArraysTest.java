@@ -0,0 +1,40 @@
+package com.github.jparkie.pdd;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongArraysTest {
+    @Test
+    public void testReadFully() throws IOException {
+        final Random random = new Random();
+        // More than one chunk, and not a multiple of it.
+        final long[] expected = new long[2500];
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final DataOutputStream dos = new DataOutputStream(out);
+        for (int index = 0; index < expected.length; index++) {
+            expected[index] = random.nextLong();
+            dos.writeLong(expected[index]);
+        }
+        final long[] actual = new long[expected.length + 2];
+        LongArrays.readFully(new DataInputStream(new ByteArrayInputStream(out.toByteArray())), actual, 1, 2500);
+        assertEquals(0L, actual[0]);
+        for (int index = 0; index < expected.length; index++) {
+            assertEquals(expected[index], actual[index + 1]);
+        }
+        assertEquals(0L, actual[actual.length - 1]);
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadFullyEndOfStream() throws IOException {
+        LongArrays.readFully(new DataInputStream(new ByteArrayInputStream(new byte[12])), new long[2]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadFullyOutOfRange() throws IOException {
+        LongArrays.readFully(new DataInputStream(new ByteArrayInputStream(new byte[0])), new long[2], 1, 2);
+    }
+}
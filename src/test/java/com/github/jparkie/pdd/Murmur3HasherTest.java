@@ -0,0 +1,109 @@
+package com.github.jparkie.pdd;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Murmur3HasherTest {
+    private static final long RANDOM_SEED = 13L;
+
+    @Test
+    public void testPutBytes() {
+        final Random random = new Random(RANDOM_SEED);
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        for (int length = 0; length < 64; length++) {
+            final byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            final int seed = random.nextInt();
+            final int expectedHash = hashBytes(bytes, seed);
+            hasher.reset(seed).putBytes(bytes);
+            assertEquals(expectedHash, hasher.hash());
+            // Split at every point, so that words straddle the calls.
+            for (int split = 0; split <= length; split++) {
+                hasher.reset(seed);
+                hasher.putBytes(bytes, 0, split);
+                hasher.putBytes(bytes, split, length - split);
+                assertEquals(expectedHash, hasher.hash());
+            }
+            hasher.reset(seed);
+            for (byte b : bytes) {
+                hasher.putByte(b);
+            }
+            assertEquals(expectedHash, hasher.hash());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPutBytesOutOfRange() {
+        new Murmur3Hasher().putBytes(new byte[4], 2, 3);
+    }
+
+    @Test
+    public void testPutPrimitives() {
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        for (int offset = 0; offset < 4; offset++) {
+            final ByteBuffer expected = ByteBuffer.allocate(offset + 30).order(ByteOrder.LITTLE_ENDIAN);
+            hasher.reset(42);
+            for (int index = 0; index < offset; index++) {
+                expected.put((byte) index);
+                hasher.putByte((byte) index);
+            }
+            expected.put((byte) 1).putShort((short) -2).putChar('é').putInt(0xdeadbeef);
+            hasher.putBoolean(true).putShort((short) -2).putChar('é').putInt(0xdeadbeef);
+            expected.putLong(Long.MIN_VALUE + 7L).putFloat(1.5F).putDouble(-0.25D).put((byte) 0);
+            hasher.putLong(Long.MIN_VALUE + 7L).putFloat(1.5F).putDouble(-0.25D).putBoolean(false);
+            assertEquals(hashBytes(expected.array(), 42), hasher.hash());
+        }
+    }
+
+    @Test
+    public void testPutUtf8() {
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        for (String string : new String[]{
+                "",
+                "abc",
+                "abcdefgh",
+                "dédupé",
+                "€100",
+                "😀 ok",
+                "unpaired \ud83d end",
+                "unpaired \ude00",
+                "\ud83d"
+        }) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            hasher.reset(7).putUtf8(string);
+            assertEquals(string, hashBytes(bytes, 7), hasher.hash());
+            hasher.reset(7).putUtf8(new StringBuilder(string));
+            assertEquals(string, hashBytes(bytes, 7), hasher.hash());
+        }
+    }
+
+    @Test
+    public void testPutUnencodedChars() {
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        for (String string : new String[]{"", "a", "abc", "dédupé", "😀"}) {
+            hasher.reset(7).putUnencodedChars(string);
+            assertEquals(string, hashBytes(string.getBytes(StandardCharsets.UTF_16LE), 7), hasher.hash());
+        }
+    }
+
+    @Test
+    public void testHashFunnel() {
+        final Funnel<String> funnel = (from, into) -> into.putInt(from.length()).putUtf8(from);
+        final Murmur3Hasher hasher = new Murmur3Hasher();
+        final ByteArraySink sink = new ByteArraySink();
+        funnel.funnel("key", sink);
+        assertArrayEquals(new byte[]{3, 0, 0, 0, 'k', 'e', 'y'}, sink.toByteArray());
+        assertEquals(hashBytes(sink.toByteArray(), 11), hasher.hash("key", funnel, 11));
+        assertEquals(hasher.hash("key", funnel, 11), hasher.hash("key", funnel, 11));
+    }
+
+    private static int hashBytes(byte[] bytes, int seed) {
+        return Murmur3_x86_32.hashUnsafeBytes(bytes, Platform.BYTE_ARRAY_OFFSET, bytes.length, seed);
+    }
+}
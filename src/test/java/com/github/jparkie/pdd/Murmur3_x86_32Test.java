@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -91,4 +92,31 @@ public class Murmur3_x86_32Test {
         // A very loose bound.
         assertTrue(hashcodes.size() > size * 0.95);
     }
+
+    @Test
+    public void testHashIntLanes() {
+        final Random random = new Random();
+        final int numKeys = 1000;
+        for (int lengthInInts : new int[]{1, 2, 4}) {
+            final byte[][] keys = new byte[numKeys][lengthInInts * 4];
+            final int[] words = new int[lengthInInts * numKeys];
+            final int[] seeds = new int[numKeys];
+            for (int j = 0; j < numKeys; j++) {
+                random.nextBytes(keys[j]);
+                seeds[j] = random.nextInt();
+                for (int i = 0; i < lengthInInts; i++) {
+                    words[i * numKeys + j] = Platform.getInt(keys[j], Platform.BYTE_ARRAY_OFFSET + i * 4);
+                }
+            }
+            final int[] hashes = new int[numKeys];
+            Murmur3_x86_32.hashIntLanes(words, lengthInInts, numKeys, seeds, hashes);
+            for (int j = 0; j < numKeys; j++) {
+                assertEquals(
+                        Murmur3_x86_32.hashUnsafeBytes(keys[j], Platform.BYTE_ARRAY_OFFSET, keys[j].length, seeds[j]),
+                        hashes[j]);
+            }
+            Murmur3_x86_32.hashIntLanes(words, lengthInInts, numKeys, seeds, seeds);
+            assertArrayEquals(hashes, seeds);
+        }
+    }
 }
@@ -0,0 +1,97 @@
+package com.github.jparkie.pdd.impl;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveDeDuplicatorTest {
+    private static final long NUM_BITS = 64 * 8L * 64L;
+    private static final int NUM_HASH_FUNCTIONS = 3;
+    private static final double TARGET_FPP = 0.01D;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullAlgorithm() {
+        new AdaptiveDeDuplicator(null, NUM_BITS, NUM_HASH_FUNCTIONS, TARGET_FPP);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorTargetFppLowerBound() {
+        new AdaptiveDeDuplicator(DeDuplicatorAlgorithm.BSBF, NUM_BITS, NUM_HASH_FUNCTIONS, 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorTargetFppUpperBound() {
+        new AdaptiveDeDuplicator(DeDuplicatorAlgorithm.BSBF, NUM_BITS, NUM_HASH_FUNCTIONS, 1D);
+    }
+
+    @Test
+    public void testStableDeletionScale() {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            // The unscaled algorithm is stable at its own stable load.
+            final double stableLoad = algorithm.stableLoad(NUM_HASH_FUNCTIONS);
+            assertEquals(
+                    algorithm.name(),
+                    1D,
+                    AdaptiveDeDuplicator.stableDeletionScale(algorithm, NUM_HASH_FUNCTIONS, stableLoad),
+                    1E-9
+            );
+        }
+    }
+
+    @Test
+    public void testHoldsTargetFpp() {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final AdaptiveDeDuplicator deDuplicator =
+                    new AdaptiveDeDuplicator(algorithm, NUM_BITS, NUM_HASH_FUNCTIONS, TARGET_FPP);
+            assertEquals(0D, deDuplicator.deletionScale(), 0D);
+            int fpNumber = 0;
+            for (int element = 0; element < 100000; element++) {
+                // Every element is distinct, so each one which is reported as duplicate is a false positive.
+                if (!deDuplicator.classifyDistinct(bytes(element)) && element >= 50000) {
+                    fpNumber++;
+                }
+            }
+            assertTrue(algorithm.name(), deDuplicator.deletionScale() > 0D);
+            assertEquals(algorithm.name(), TARGET_FPP, fpNumber / 50000D, TARGET_FPP / 2D);
+            assertEquals(algorithm.name(), TARGET_FPP, deDuplicator.estimateFpp(1D), TARGET_FPP / 2D);
+            assertEquals(algorithm.name(), 0.5D * (1D - TARGET_FPP), deDuplicator.estimateFnp(0.5D), TARGET_FPP);
+        }
+    }
+
+    @Test
+    public void testNoResetsBelowTargetLoad() {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final AdaptiveDeDuplicator deDuplicator =
+                    new AdaptiveDeDuplicator(algorithm, NUM_BITS, NUM_HASH_FUNCTIONS, TARGET_FPP);
+            for (int element = 0; element < 100; element++) {
+                deDuplicator.classifyDistinct(bytes(element));
+            }
+            assertEquals(algorithm.name(), 0D, deDuplicator.deletionScale(), 0D);
+            assertEquals(algorithm.name(), 0D, deDuplicator.estimateFnp(0.5D), 0D);
+            // Without resets, no duplicate is reported as distinct.
+            for (int element = 0; element < 100; element++) {
+                assertFalse(algorithm.name(), deDuplicator.peekDistinct(bytes(element)));
+            }
+        }
+    }
+
+    @Test
+    public void testReset() {
+        final AdaptiveDeDuplicator deDuplicator =
+                new AdaptiveDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, NUM_HASH_FUNCTIONS, TARGET_FPP);
+        for (int element = 0; element < 10000; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        assertTrue(deDuplicator.deletionScale() > 0D);
+        deDuplicator.reset();
+        assertEquals(0D, deDuplicator.deletionScale(), 0D);
+        assertEquals(0D, deDuplicator.estimateFnp(0.5D), 0D);
+        assertEquals(0D, deDuplicator.estimateFpp(1D), 0D);
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -1,15 +1,36 @@
 package com.github.jparkie.pdd.impl;
 
 import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
 import org.junit.Test;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Random;
 
 import static org.junit.Assert.*;
 
 public class BSBFDeDuplicatorTest {
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+        final BSBFDeDuplicator hashedDeDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        for (int index = 0; index < CARDINALITY; index++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(random.nextInt(CARDINALITY / 2));
+            final byte[] element = byteBuffer.array();
+            final HashedElement hashedElement = HashedElement.of(element);
+            assertEquals(deDuplicator.peekDistinct(element), hashedDeDuplicator.peekDistinct(hashedElement));
+            assertEquals(deDuplicator.classifyDistinct(element), hashedDeDuplicator.classifyDistinct(hashedElement));
+        }
+        assertEquals(deDuplicator, hashedDeDuplicator);
+    }
+
     private static final double FPP_DELTA = 1E-3;
     private static final double FNP_DELTA = 1E-2;
     private static final long NUM_BITS = 512 * 8L;
@@ -63,6 +84,72 @@ public class BSBFDeDuplicatorTest {
         assertFalse(deDuplicator.classifyDistinct(element));
     }
 
+    @Test
+    public void testClassifyDistinctBatch() {
+        final Random random = new Random(RANDOM_SEED);
+        for (int elementLength : new int[]{8, 16, 7}) {
+            final BSBFDeDuplicator scalarDeDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+            final BSBFDeDuplicator batchDeDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+            final byte[][] elements = new byte[CARDINALITY][elementLength];
+            final boolean[] results = new boolean[CARDINALITY];
+            for (int batch = 0; batch < 4; batch++) {
+                for (byte[] element : elements) {
+                    element[0] = (byte) random.nextInt(16);
+                }
+                batchDeDuplicator.classifyDistinct(elements, results);
+                for (int index = 0; index < CARDINALITY; index++) {
+                    assertEquals(scalarDeDuplicator.classifyDistinct(elements[index]), results[index]);
+                }
+            }
+            assertEquals(scalarDeDuplicator, batchDeDuplicator);
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final Random random = new Random(RANDOM_SEED);
+        final BSBFDeDuplicator bytesDeDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+        final BSBFDeDuplicator funnelDeDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+        final Funnel<String> funnel = (from, into) -> into.putUtf8(from);
+        for (int index = 0; index < CARDINALITY; index++) {
+            final String element = "élément-" + random.nextInt(CARDINALITY / 4);
+            final byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytesDeDuplicator.peekDistinct(bytes), funnelDeDuplicator.peekDistinct(element, funnel));
+            assertEquals(
+                    bytesDeDuplicator.classifyDistinct(bytes),
+                    funnelDeDuplicator.classifyDistinct(element, funnel)
+            );
+        }
+        assertEquals(bytesDeDuplicator, funnelDeDuplicator);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidDeletionMode() {
+        new BSBFDeDuplicator(64L, 1, null);
+    }
+
+    @Test
+    public void testHashDerivedDeletionMode() {
+        final BSBFDeDuplicator deDuplicator1 = new BSBFDeDuplicator(NUM_BITS, 2, DeletionMode.HASH_DERIVED);
+        final BSBFDeDuplicator replica1 = new BSBFDeDuplicator(NUM_BITS, 2, DeletionMode.HASH_DERIVED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        for (int element = 0; element < MAX_SEQUENCE_NUMBER / 10; element++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(element % (CARDINALITY * 10));
+            assertEquals(
+                    deDuplicator1.classifyDistinct(byteBuffer.array()),
+                    replica1.classifyDistinct(byteBuffer.array())
+            );
+        }
+        assertEquals(DeletionMode.HASH_DERIVED, deDuplicator1.deletionMode());
+        assertEquals(deDuplicator1, replica1);
+        assertEquals(deDuplicator1.reportedDuplicateProbability, replica1.reportedDuplicateProbability, 0D);
+        for (BitArray bloomFilter : deDuplicator1.bloomFilters) {
+            assertTrue(bloomFilter.bitCount() > 0L);
+            assertTrue(bloomFilter.bitCount() < bloomFilter.bitSize());
+        }
+    }
+
     @Test
     public void testPeekDistinct() {
         final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(64L, 2);
@@ -121,6 +208,28 @@ public class BSBFDeDuplicatorTest {
         assertEquals(actualFnp, estimatedFnp, FNP_DELTA);
     }
 
+    @Test
+    public void testEstimateCardinality() {
+        final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(NUM_BITS, 2);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        int reportedDistinctNumber = 0;
+        for (int element = 0; element < CARDINALITY; element++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(element);
+            if (deDuplicator.classifyDistinct(byteBuffer.array())) {
+                reportedDistinctNumber++;
+            }
+        }
+        // Some distinct elements were reported as duplicate, which the estimate accounts for.
+        assertTrue(reportedDistinctNumber < CARDINALITY);
+        final double standardError = deDuplicator.estimateCardinalityStandardError();
+        assertTrue(standardError > 0D);
+        assertEquals(CARDINALITY, deDuplicator.estimateCardinality(), 4D * standardError);
+        deDuplicator.reset();
+        assertEquals(0D, deDuplicator.estimateCardinality(), 0D);
+        assertEquals(0D, deDuplicator.estimateCardinalityStandardError(), 0D);
+    }
+
     @Test
     public void testReset() {
         final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(64L, 2);
@@ -128,11 +237,36 @@ public class BSBFDeDuplicatorTest {
         final byte[] element = new byte[128];
         random.nextBytes(element);
         assertTrue(deDuplicator.classifyDistinct(element));
+        final BitArray[] bloomFilters = deDuplicator.bloomFilters.clone();
         deDuplicator.reset();
-        for (BitArray bloomFilter : deDuplicator.bloomFilters) {
+        for (int index = 0; index < bloomFilters.length; index++) {
+            assertSame(bloomFilters[index], deDuplicator.bloomFilters[index]);
+            assertEquals(0L, deDuplicator.bloomFilters[index].bitCount());
+        }
+        assertEquals(0D, deDuplicator.reportedDuplicateProbability, 0);
+    }
+
+    @Test
+    public void testResetAsync() {
+        final BSBFDeDuplicator deDuplicator = new BSBFDeDuplicator(64L, 2);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        final BitArray[] bloomFilters1 = deDuplicator.bloomFilters;
+        deDuplicator.resetAsync(Runnable::run).join();
+        final BitArray[] bloomFilters2 = deDuplicator.bloomFilters;
+        assertNotSame(bloomFilters1, bloomFilters2);
+        for (BitArray bloomFilter : bloomFilters1) {
             assertEquals(0L, bloomFilter.bitCount());
         }
         assertEquals(0D, deDuplicator.reportedDuplicateProbability, 0);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.classifyDistinct(element));
+        // The second reset swaps back to the first Bloom filters, which were cleared by the first reset.
+        deDuplicator.resetAsync(Runnable::run).join();
+        assertSame(bloomFilters1, deDuplicator.bloomFilters);
+        assertTrue(deDuplicator.classifyDistinct(element));
     }
 
     @Test
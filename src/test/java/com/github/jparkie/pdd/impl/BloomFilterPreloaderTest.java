@@ -0,0 +1,113 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BloomFilterPreloaderTest {
+    private static final long NUM_BITS = 64 * 8L * 1024L;
+    private static final int NUM_HASH_FUNCTIONS = 3;
+    private static final int NUM_ELEMENTS = 10000;
+
+    @Test
+    public void testRadixSort() {
+        final Random random = new Random();
+        for (int numBits : new int[]{6, 11, 12, 31, 40, 63}) {
+            final long[] values = new long[1000];
+            for (int index = 0; index < values.length; index++) {
+                values[index] = random.nextLong() >>> (Long.SIZE - numBits);
+            }
+            final long[] expected = values.clone();
+            Arrays.sort(expected);
+            final long[] sorted =
+                    BloomFilterPreloader.radixSort(values, new long[values.length], values.length, numBits);
+            assertArrayEquals(expected, sorted);
+        }
+    }
+
+    @Test
+    public void testPreload() {
+        final byte[][] elements = elements(NUM_ELEMENTS);
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final ProbabilisticDeDuplicator deDuplicator = algorithm.create(NUM_BITS, NUM_HASH_FUNCTIONS);
+            algorithm.preload(deDuplicator, elements);
+            final BitArray[] bloomFilters = algorithm.bloomFilters(deDuplicator);
+            final BitArray[] expectedBloomFilters = new BitArray[bloomFilters.length];
+            for (int index = 0; index < bloomFilters.length; index++) {
+                expectedBloomFilters[index] = new BitArray(bloomFilters[index].bitSize());
+            }
+            for (byte[] element : elements) {
+                final HashedElement hashed = HashedElement.of(element);
+                for (int index = 0; index < expectedBloomFilters.length; index++) {
+                    final long bitSize = expectedBloomFilters[index].bitSize();
+                    expectedBloomFilters[index].set(
+                            CombinedHashes.position(hashed.hash1(), hashed.hash2(), index, bitSize)
+                    );
+                }
+                assertFalse(algorithm.name(), deDuplicator.peekDistinct(element));
+            }
+            assertArrayEquals(algorithm.name(), expectedBloomFilters, bloomFilters);
+            double expectedReportedDuplicateProbability = 1D;
+            for (int index = 0; index < bloomFilters.length; index++) {
+                assertEquals(expectedBloomFilters[index].bitCount(), bloomFilters[index].bitCount());
+                expectedReportedDuplicateProbability *=
+                        (double) bloomFilters[index].bitCount() / bloomFilters[index].bitSize();
+            }
+            assertEquals(expectedReportedDuplicateProbability, deDuplicator.estimateFpp(1D), 1e-12);
+        }
+    }
+
+    @Test
+    public void testPreloadBeyondCapacity() {
+        final long numBits = 1L << 16;
+        final byte[][] elements = elements(1 << 20);
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final ProbabilisticDeDuplicator deDuplicator = algorithm.create(numBits, NUM_HASH_FUNCTIONS);
+            algorithm.preload(deDuplicator, elements);
+            final double stableLoad = algorithm.stableLoad(NUM_HASH_FUNCTIONS);
+            for (BitArray bloomFilter : algorithm.bloomFilters(deDuplicator)) {
+                assertTrue(algorithm.name(), bloomFilter.bitCount() <= stableLoad * bloomFilter.bitSize());
+            }
+            // Fresh elements are still reported as distinct at about the stable fpp, instead of all as duplicate.
+            final double stableFpp = Math.pow(stableLoad, NUM_HASH_FUNCTIONS);
+            int numDistinct = 0;
+            for (int index = 0; index < NUM_ELEMENTS; index++) {
+                final byte[] element = ByteBuffer.allocate(8).putLong(-1L - index).array();
+                if (deDuplicator.peekDistinct(element)) {
+                    numDistinct++;
+                }
+            }
+            assertEquals(algorithm.name(), 1D - stableFpp, (double) numDistinct / NUM_ELEMENTS, 0.05D);
+            assertTrue(algorithm.name(), deDuplicator.estimateFpp(1D) <= stableFpp);
+        }
+    }
+
+    @Test
+    public void testPreloadEmpty() {
+        final ProbabilisticDeDuplicator deDuplicator =
+                DeDuplicatorAlgorithm.RLBSBF.create(NUM_BITS, NUM_HASH_FUNCTIONS);
+        DeDuplicatorAlgorithm.RLBSBF.preload(deDuplicator, new byte[0][]);
+        assertEquals(DeDuplicatorAlgorithm.RLBSBF.create(NUM_BITS, NUM_HASH_FUNCTIONS), deDuplicator);
+        assertEquals(0D, deDuplicator.estimateFpp(1D), 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPreloadNullElements() {
+        DeDuplicatorAlgorithm.BSBF.preload(DeDuplicatorAlgorithm.BSBF.create(NUM_BITS, NUM_HASH_FUNCTIONS), null);
+    }
+
+    private static byte[][] elements(int numElements) {
+        final byte[][] elements = new byte[numElements][];
+        for (int index = 0; index < numElements; index++) {
+            elements[index] = ByteBuffer.allocate(8).putLong(index).array();
+        }
+        return elements;
+    }
+}
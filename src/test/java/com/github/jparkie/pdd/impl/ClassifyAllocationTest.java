@@ -0,0 +1,148 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Asserts that classifyDistinct and peekDistinct allocate nothing per call, by the allocated bytes counter of the
+ * current thread, for every in-memory implementation and key shape.
+ * <p>
+ * Excluded by design: the batch classifyDistinct, which allocates its hashes once per batch; and the journaled and
+ * spilling de-duplicators, which do I/O.
+ */
+public class ClassifyAllocationTest {
+    private static final long NUM_BITS = 64 * 8L * 64L;
+    private static final int NUM_ELEMENTS = 1 << 10;
+    private static final int NUM_WARM_UP_CALLS = 1 << 15;
+    private static final int NUM_MEASURED_CALLS = 1 << 15;
+    private static final int[] ELEMENT_LENGTHS = {0, 3, 4, 8, 13, 16, 64};
+    private static final Funnel<Long> LONG_FUNNEL = (element, into) -> into.putLong(element);
+    // Fixed, so that a failure reproduces with the same elements.
+    private static final long RANDOM_SEED = 0x5DEECE66DL;
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    @BeforeClass
+    public static void setUpClass() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void testClassifyDistinctBytes() {
+        for (int length : ELEMENT_LENGTHS) {
+            final byte[][] elements = elements(length);
+            for (Map.Entry<String, Supplier<ProbabilisticDeDuplicator>> entry : deDuplicators().entrySet()) {
+                final ProbabilisticDeDuplicator deDuplicator = entry.getValue().get();
+                assertNoAllocation(entry.getKey() + " classifyDistinct(byte[" + length + "])", index ->
+                        deDuplicator.classifyDistinct(elements[index & (NUM_ELEMENTS - 1)]));
+                assertNoAllocation(entry.getKey() + " peekDistinct(byte[" + length + "])", index ->
+                        deDuplicator.peekDistinct(elements[index & (NUM_ELEMENTS - 1)]));
+            }
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final Long[] elements = new Long[NUM_ELEMENTS];
+        final Random random = new Random(RANDOM_SEED);
+        for (int index = 0; index < NUM_ELEMENTS; index++) {
+            elements[index] = random.nextLong();
+        }
+        for (Map.Entry<String, Supplier<ProbabilisticDeDuplicator>> entry : deDuplicators().entrySet()) {
+            final ProbabilisticDeDuplicator deDuplicator = entry.getValue().get();
+            assertNoAllocation(entry.getKey() + " classifyDistinct(Long, Funnel)", index ->
+                    deDuplicator.classifyDistinct(elements[index & (NUM_ELEMENTS - 1)], LONG_FUNNEL));
+            assertNoAllocation(entry.getKey() + " peekDistinct(Long, Funnel)", index ->
+                    deDuplicator.peekDistinct(elements[index & (NUM_ELEMENTS - 1)], LONG_FUNNEL));
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final HashedElement[] elements = new HashedElement[NUM_ELEMENTS];
+        final Random random = new Random(RANDOM_SEED);
+        for (int index = 0; index < NUM_ELEMENTS; index++) {
+            elements[index] = HashedElement.ofLong(random.nextLong());
+        }
+        for (Map.Entry<String, Supplier<ProbabilisticDeDuplicator>> entry : deDuplicators().entrySet()) {
+            final ProbabilisticDeDuplicator deDuplicator = entry.getValue().get();
+            assertNoAllocation(entry.getKey() + " classifyDistinct(HashedElement)", index ->
+                    deDuplicator.classifyDistinct(elements[index & (NUM_ELEMENTS - 1)]));
+            assertNoAllocation(entry.getKey() + " peekDistinct(HashedElement)", index ->
+                    deDuplicator.peekDistinct(elements[index & (NUM_ELEMENTS - 1)]));
+        }
+    }
+
+    private static Map<String, Supplier<ProbabilisticDeDuplicator>> deDuplicators() {
+        final Map<String, Supplier<ProbabilisticDeDuplicator>> deDuplicators = new LinkedHashMap<>();
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            deDuplicators.put(algorithm.name(), () -> algorithm.create(NUM_BITS, 3));
+        }
+        deDuplicators.put("BSBF HASH_DERIVED", () -> new BSBFDeDuplicator(NUM_BITS, 3, DeletionMode.HASH_DERIVED));
+        deDuplicators.put("BSBFSD HASH_DERIVED", () -> new BSBFSDDeDuplicator(NUM_BITS, 3, DeletionMode.HASH_DERIVED));
+        deDuplicators.put("RLBSBF HASH_DERIVED", () -> new RLBSBFDeDuplicator(NUM_BITS, 3, DeletionMode.HASH_DERIVED));
+        deDuplicators.put("CuckooFilter", () -> new CuckooFilterDeDuplicator(NUM_BITS, 16));
+        deDuplicators.put("QuotientFilter", () -> new QuotientFilterDeDuplicator(NUM_BITS, 16));
+        deDuplicators.put("SlidingWindow", () -> new SlidingWindowDeDuplicator(NUM_ELEMENTS / 2));
+        deDuplicators.put("Elastic", () ->
+                new ElasticDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 3, 4 * NUM_BITS, 0.1D));
+        deDuplicators.put("HotKeyCache", () -> new HotKeyCacheDeDuplicator(new RLBSBFDeDuplicator(NUM_BITS, 3), 64));
+        deDuplicators.put("SingleWriter", () -> new SingleWriterDeDuplicator(new RLBSBFDeDuplicator(NUM_BITS, 3)));
+        deDuplicators.put("Partitioned", () -> new PartitionedDeDuplicator(new ProbabilisticDeDuplicator[]{
+                new RLBSBFDeDuplicator(NUM_BITS, 3),
+                new RLBSBFDeDuplicator(NUM_BITS, 3)
+        }));
+        deDuplicators.put("Adaptive", () -> new AdaptiveDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 3, 0.01D));
+        deDuplicators.put("DeDuplicatorArena", () -> {
+            final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 3);
+            return arena.deDuplicator(arena.allocate());
+        });
+        return deDuplicators;
+    }
+
+    private static void assertNoAllocation(String message, Call call) {
+        // Warmed up first, so that class loading and compilation are not counted.
+        for (int index = 0; index < NUM_WARM_UP_CALLS; index++) {
+            call.call(index);
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long fromAllocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int index = 0; index < NUM_MEASURED_CALLS; index++) {
+            call.call(index);
+        }
+        final long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - fromAllocatedBytes;
+        // Less than one byte per call, which leaves room for the counter itself but not for a single object per call.
+        assertTrue(message + " allocated " + allocatedBytes + " bytes", allocatedBytes < NUM_MEASURED_CALLS);
+    }
+
+    private static byte[][] elements(int length) {
+        final Random random = new Random(RANDOM_SEED);
+        final byte[][] elements = new byte[NUM_ELEMENTS][length];
+        for (byte[] element : elements) {
+            random.nextBytes(element);
+        }
+        return elements;
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        boolean call(int index);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.jparkie.pdd.impl;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CombinedHashesTest {
+    private static final long RANDOM_SEED = 13L;
+    private static final int NUM_ELEMENTS = (int) 1E5;
+
+    @Test
+    public void testPositionIntAddressable() {
+        final Random random = new Random(RANDOM_SEED);
+        for (long bitSize : new long[]{64L, 1000L, CombinedHashes.MAX_INT_ADDRESSABLE_BITS}) {
+            for (int element = 0; element < NUM_ELEMENTS; element++) {
+                final int hash1 = random.nextInt();
+                final int hash2 = random.nextInt();
+                final int index = random.nextInt(8);
+                // The same positions as before 64-bit addressing, so that existing snapshots keep their elements.
+                final int combinedHash = hash1 + ((index + 1) * hash2);
+                final long expectedPosition = (combinedHash < 0 ? ~combinedHash : combinedHash) % bitSize;
+                assertEquals(expectedPosition, CombinedHashes.position(hash1, hash2, index, bitSize));
+            }
+        }
+    }
+
+    @Test
+    public void testPositionBeyondIntAddressable() {
+        final Random random = new Random(RANDOM_SEED);
+        final long bitSize = 64L * CombinedHashes.MAX_INT_ADDRESSABLE_BITS + 64L;
+        final int numBuckets = 64;
+        final int[] buckets = new int[numBuckets];
+        for (int element = 0; element < NUM_ELEMENTS; element++) {
+            final int hash1 = random.nextInt();
+            final int hash2 = random.nextInt();
+            for (int index = 0; index < 4; index++) {
+                final long position = CombinedHashes.position(hash1, hash2, index, bitSize);
+                assertTrue(position >= 0L && position < bitSize);
+                buckets[(int) (position / (bitSize / numBuckets + 1))]++;
+            }
+        }
+        // Every 1/64 of the bits is reached uniformly, not only the first 2^31 bits.
+        for (int bucket : buckets) {
+            assertEquals(4D * NUM_ELEMENTS / numBuckets, bucket, 4D * NUM_ELEMENTS / numBuckets * 0.1D);
+        }
+    }
+}
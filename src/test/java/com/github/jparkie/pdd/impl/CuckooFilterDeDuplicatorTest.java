@@ -0,0 +1,216 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CuckooFilterDeDuplicatorTest {
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final CuckooFilterDeDuplicator hashedDeDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        for (int index = 0; index < CARDINALITY; index++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(random.nextInt(CARDINALITY / 2));
+            final byte[] element = byteBuffer.array();
+            final HashedElement hashedElement = HashedElement.of(element);
+            assertEquals(deDuplicator.peekDistinct(element), hashedDeDuplicator.peekDistinct(hashedElement));
+            assertEquals(deDuplicator.classifyDistinct(element), hashedDeDuplicator.classifyDistinct(hashedElement));
+        }
+        assertEquals(deDuplicator, hashedDeDuplicator);
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final Random random = new Random(RANDOM_SEED);
+        final CuckooFilterDeDuplicator bytesDeDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final CuckooFilterDeDuplicator funnelDeDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final Funnel<String> funnel = (from, into) -> into.putUtf8(from);
+        for (int index = 0; index < CARDINALITY; index++) {
+            final String element = "élément-" + random.nextInt(CARDINALITY / 2);
+            final byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytesDeDuplicator.peekDistinct(bytes), funnelDeDuplicator.peekDistinct(element, funnel));
+            assertEquals(
+                    bytesDeDuplicator.classifyDistinct(bytes),
+                    funnelDeDuplicator.classifyDistinct(element, funnel)
+            );
+        }
+        assertEquals(bytesDeDuplicator, funnelDeDuplicator);
+    }
+
+    private static final double FPP_DELTA = 1E-3;
+    private static final double FNP_DELTA = 1E-2;
+    private static final long NUM_BITS = 512 * 8L;
+    private static final long RANDOM_SEED = 13L;
+    private static final int CARDINALITY = (int) 1E3;
+    private static final int MAX_SEQUENCE_NUMBER = (int) 1E6;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateFppLowerBound() {
+        CuckooFilterDeDuplicator.create(64L, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateFppUpperBound() {
+        CuckooFilterDeDuplicator.create(64L, 1);
+    }
+
+    @Test
+    public void testCreate() {
+        assertEquals(8, CuckooFilterDeDuplicator.create(64L, 0.1D).fingerprintBits());
+        assertEquals(16, CuckooFilterDeDuplicator.create(64L, 0.03D).fingerprintBits());
+        assertEquals(32, CuckooFilterDeDuplicator.create(64L, 1E-6D).fingerprintBits());
+        final CuckooFilterDeDuplicator deDuplicator = CuckooFilterDeDuplicator.create(128L, 0.03D);
+        assertEquals(128L, deDuplicator.numBits());
+        assertEquals(2, deDuplicator.numHashFunctions());
+        assertEquals(2, deDuplicator.buckets.length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidNumBits() {
+        new CuckooFilterDeDuplicator(63L, 16);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidFingerprintBits() {
+        new CuckooFilterDeDuplicator(64L, 12);
+    }
+
+    @Test
+    public void testConstructor() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(64L, 16);
+        assertEquals(64L, deDuplicator.numBits());
+        assertEquals(16, deDuplicator.fingerprintBits());
+        assertEquals(1, deDuplicator.buckets.length);
+    }
+
+    @Test
+    public void testClassifyDistinct() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(64L, 16);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.classifyDistinct(element));
+    }
+
+    @Test
+    public void testPeekDistinct() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(64L, 16);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.peekDistinct(element));
+    }
+
+    @Test
+    public void testRandomEviction() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        final long capacity = deDuplicator.buckets.length * 4L;
+        for (int element = 0; element < 16 * capacity; element++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+            assertTrue(deDuplicator.numEntries <= capacity);
+        }
+        assertTrue(deDuplicator.numEntries > capacity / 2);
+        assertTrue(deDuplicator.numInsertions > deDuplicator.numEntries);
+    }
+
+    @Test
+    public void testEstimateFpp() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        final boolean[] isVisited = new boolean[CARDINALITY];
+        int fpNumber = 0;
+        for (long sequenceNumber = 1; sequenceNumber <= MAX_SEQUENCE_NUMBER; sequenceNumber++) {
+            final int currentElement = random.nextInt(CARDINALITY);
+            byteBuffer.clear();
+            byteBuffer.putInt(currentElement);
+            final boolean actuallyDistinct = !isVisited[currentElement];
+            final boolean reportedDuplicate = !deDuplicator.classifyDistinct(byteBuffer.array());
+            if (actuallyDistinct && reportedDuplicate) {
+                fpNumber++;
+            }
+            isVisited[currentElement] = true;
+        }
+        final double actuallyDistinctProbability = Math.pow((CARDINALITY - 1D) / CARDINALITY, MAX_SEQUENCE_NUMBER);
+        final double actualFpp = ((double) fpNumber) / ((double) MAX_SEQUENCE_NUMBER);
+        final double estimatedFpp = deDuplicator.estimateFpp(actuallyDistinctProbability);
+        assertEquals(actualFpp, estimatedFpp, FPP_DELTA);
+    }
+
+    @Test
+    public void testEstimateFnp() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(NUM_BITS, 16);
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        final boolean[] isVisited = new boolean[CARDINALITY];
+        int fnNumber = 0;
+        for (long sequenceNumber = 1; sequenceNumber <= MAX_SEQUENCE_NUMBER; sequenceNumber++) {
+            final int currentElement = random.nextInt(CARDINALITY);
+            byteBuffer.clear();
+            byteBuffer.putInt(currentElement);
+            final boolean actuallyDuplicate = isVisited[currentElement];
+            final boolean reportedDistinct = deDuplicator.classifyDistinct(byteBuffer.array());
+            if (actuallyDuplicate && reportedDistinct) {
+                fnNumber++;
+            }
+            isVisited[currentElement] = true;
+        }
+        final double actuallyDistinctProbability = Math.pow((CARDINALITY - 1D) / CARDINALITY, MAX_SEQUENCE_NUMBER);
+        final double actualFnp = ((double) fnNumber) / ((double) MAX_SEQUENCE_NUMBER);
+        final double estimatedFnp = deDuplicator.estimateFnp(actuallyDistinctProbability);
+        assertEquals(actualFnp, estimatedFnp, FNP_DELTA);
+    }
+
+    @Test
+    public void testReset() {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(64L, 16);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        deDuplicator.reset();
+        for (long bucket : deDuplicator.buckets) {
+            assertEquals(0L, bucket);
+        }
+        assertEquals(0L, deDuplicator.numEntries);
+        assertEquals(0L, deDuplicator.numInsertions);
+        assertTrue(deDuplicator.peekDistinct(element));
+    }
+
+    @Test
+    public void testJavaSerializable() throws IOException, ClassNotFoundException {
+        final CuckooFilterDeDuplicator deDuplicator = new CuckooFilterDeDuplicator(64L, 16);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(deDuplicator);
+        oos.close();
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ObjectInputStream ois = new ObjectInputStream(in);
+        final CuckooFilterDeDuplicator serialized = (CuckooFilterDeDuplicator) ois.readObject();
+        ois.close();
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertFalse(serialized.classifyDistinct(element));
+    }
+}
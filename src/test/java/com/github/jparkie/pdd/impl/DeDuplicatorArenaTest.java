@@ -0,0 +1,178 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DeDuplicatorArenaTest {
+    private static final long RANDOM_SEED = 42L;
+    private static final long NUM_BITS = 1000L;
+    private static final int NUM_HASH_FUNCTIONS = 3;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullAlgorithm() {
+        new DeDuplicatorArena(null, NUM_BITS, NUM_HASH_FUNCTIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNumBitsLowerBound() {
+        new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_HASH_FUNCTIONS - 1, NUM_HASH_FUNCTIONS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNumHashFunctionsLowerBound() {
+        new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorTenantsPerSlabLowerBound() {
+        new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.RANDOM, 0);
+    }
+
+    @Test
+    public void testConstructor() {
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 3);
+        assertEquals(NUM_BITS, arena.numBits());
+        assertEquals(3, arena.numHashFunctions());
+        assertEquals(DeletionMode.RANDOM, arena.deletionMode());
+        // Each tenant holds 3 Bloom filters of 6 words.
+        assertEquals(DeDuplicatorArena.DEFAULT_SLAB_WORDS / 18, arena.tenantsPerSlab());
+        assertEquals(0, arena.numTenants());
+        assertEquals(0L, arena.tenantCapacity());
+    }
+
+    @Test
+    public void testMatchesStandalone() {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final DeDuplicatorArena arena =
+                    new DeDuplicatorArena(algorithm, NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.HASH_DERIVED, 2);
+            final int[] tenants = new int[5];
+            final ProbabilisticDeDuplicator[] standalones = new ProbabilisticDeDuplicator[tenants.length];
+            for (int index = 0; index < tenants.length; index++) {
+                tenants[index] = arena.allocate();
+                standalones[index] = standalone(algorithm);
+            }
+            final Random random = new Random(RANDOM_SEED);
+            for (int step = 0; step < 20000; step++) {
+                final int index = random.nextInt(tenants.length);
+                final byte[] element = bytes(random.nextInt(500));
+                assertEquals(standalones[index].peekDistinct(element), arena.peekDistinct(tenants[index], element));
+                assertEquals(
+                        algorithm.name(),
+                        standalones[index].classifyDistinct(element),
+                        arena.classifyDistinct(tenants[index], element)
+                );
+            }
+            for (int index = 0; index < tenants.length; index++) {
+                assertEquals(standalones[index].estimateFpp(0.5D), arena.estimateFpp(tenants[index], 0.5D), 0D);
+                assertEquals(standalones[index].estimateFnp(0.5D), arena.estimateFnp(tenants[index], 0.5D), 0D);
+            }
+        }
+    }
+
+    @Test
+    public void testTenantsAreIsolated() {
+        final DeDuplicatorArena arena =
+                new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.RANDOM, 2);
+        final int tenant1 = arena.allocate();
+        final int tenant2 = arena.allocate();
+        final int tenant3 = arena.allocate();
+        assertEquals(4L, arena.tenantCapacity());
+        assertTrue(arena.classifyDistinct(tenant2, bytes(42)));
+        assertFalse(arena.peekDistinct(tenant2, bytes(42)));
+        assertTrue(arena.peekDistinct(tenant1, bytes(42)));
+        assertTrue(arena.peekDistinct(tenant3, bytes(42)));
+        assertEquals(0D, arena.estimateFpp(tenant1, 1D), 0D);
+        assertTrue(arena.estimateFpp(tenant2, 1D) > 0D);
+    }
+
+    @Test
+    public void testReleaseReusesTenant() {
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2);
+        final int tenant = arena.allocate();
+        assertTrue(arena.classifyDistinct(tenant, bytes(42)));
+        arena.release(tenant);
+        assertEquals(0, arena.numTenants());
+        assertEquals(tenant, arena.allocate());
+        assertEquals(1, arena.numTenants());
+        assertTrue(arena.peekDistinct(tenant, bytes(42)));
+        assertEquals(0D, arena.estimateFpp(tenant, 1D), 0D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReleasedTenant() {
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2);
+        final int tenant = arena.allocate();
+        arena.release(tenant);
+        arena.classifyDistinct(tenant, bytes(42));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnallocatedTenant() {
+        new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2).peekDistinct(0, bytes(42));
+    }
+
+    @Test
+    public void testReset() {
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBFSD, NUM_BITS, 2);
+        final int tenant1 = arena.allocate();
+        final int tenant2 = arena.allocate();
+        assertTrue(arena.classifyDistinct(tenant1, bytes(42)));
+        assertTrue(arena.classifyDistinct(tenant2, bytes(42)));
+        arena.reset(tenant1);
+        assertTrue(arena.peekDistinct(tenant1, bytes(42)));
+        assertFalse(arena.peekDistinct(tenant2, bytes(42)));
+    }
+
+    @Test
+    public void testDeDuplicator() {
+        final Funnel<Integer> funnel = (element, into) -> into.putInt(element);
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2);
+        final int tenant = arena.allocate();
+        final ProbabilisticDeDuplicator deDuplicator = arena.deDuplicator(tenant);
+        assertEquals(NUM_BITS, deDuplicator.numBits());
+        assertEquals(2, deDuplicator.numHashFunctions());
+        assertTrue(deDuplicator.classifyDistinct(42, funnel));
+        assertFalse(deDuplicator.peekDistinct(42, funnel));
+        assertFalse(arena.peekDistinct(tenant, 42, funnel));
+        assertEquals(arena.estimateFpp(tenant, 1D), deDuplicator.estimateFpp(1D), 0D);
+        deDuplicator.reset();
+        assertTrue(arena.classifyDistinct(tenant, 42, funnel));
+    }
+
+    private static ProbabilisticDeDuplicator standalone(DeDuplicatorAlgorithm algorithm) {
+        switch (algorithm) {
+            case BSBF:
+                return new BSBFDeDuplicator(NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.HASH_DERIVED);
+            case BSBFSD:
+                return new BSBFSDDeDuplicator(NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.HASH_DERIVED);
+            default:
+                return new RLBSBFDeDuplicator(NUM_BITS, NUM_HASH_FUNCTIONS, DeletionMode.HASH_DERIVED);
+        }
+    }
+
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final DeDuplicatorArena arena = new DeDuplicatorArena(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2);
+        final int tenant1 = arena.allocate();
+        final int tenant2 = arena.allocate();
+        final HashedElement element = HashedElement.of(bytes(42));
+        assertTrue(arena.classifyDistinct(tenant1, element));
+        assertFalse(arena.peekDistinct(tenant1, element));
+        assertFalse(arena.peekDistinct(tenant1, bytes(42)));
+        assertTrue(arena.deDuplicator(tenant2).peekDistinct(element));
+        assertTrue(arena.deDuplicator(tenant2).classifyDistinct(element));
+        assertFalse(arena.classifyDistinct(tenant2, bytes(42)));
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
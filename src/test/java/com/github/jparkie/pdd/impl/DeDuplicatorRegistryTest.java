@@ -0,0 +1,189 @@
+package com.github.jparkie.pdd.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DeDuplicatorRegistryTest {
+    private static final long NUM_BITS = 64 * 1024L;
+    private static final int NUM_HASH_FUNCTIONS = 2;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorMemoryBudgetBitsLowerBound() throws IOException {
+        registry(NUM_BITS - 1L);
+    }
+
+    @Test
+    public void testSpillAndReload() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(2L * NUM_BITS);
+        assertTrue(registry.classifyDistinct("a", bytes(1)));
+        assertTrue(registry.classifyDistinct("b", bytes(1)));
+        assertEquals(0L, registry.evictionCount());
+        // The hand clears the reference bits of a and b, and then evicts a.
+        assertTrue(registry.classifyDistinct("c", bytes(1)));
+        assertEquals(1L, registry.evictionCount());
+        assertEquals(1L, registry.spillCount());
+        assertEquals(2L * NUM_BITS, registry.residentBits());
+        assertEquals(1L, spillFiles(registry).count());
+        assertFalse(registry.classifyDistinct("a", bytes(1)));
+        assertTrue(registry.classifyDistinct("a", bytes(2)));
+        assertEquals(3, registry.size());
+        assertEquals(4L, registry.missCount());
+        assertEquals(1L, registry.hitCount());
+        assertEquals(2L, registry.evictionCount());
+    }
+
+    @Test
+    public void testSpillFailureIsRecorded() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(NUM_BITS);
+        assertTrue(registry.classifyDistinct("a", bytes(1)));
+        // The spill directory is replaced by a file, so the spill of a fails.
+        final Path spillDirectory = registry.spillDirectory();
+        Files.delete(spillDirectory);
+        Files.createFile(spillDirectory);
+        // The classification of b succeeded, so the failed eviction of a is not thrown from it.
+        assertTrue(registry.classifyDistinct("b", bytes(1)));
+        assertEquals(1L, registry.spillFailureCount());
+        assertNotNull(registry.lastSpillFailure());
+        assertEquals(0L, registry.evictionCount());
+        assertEquals(2L * NUM_BITS, registry.residentBits());
+        // a is kept resident, and is not lost.
+        assertFalse(registry.peekDistinct("a", bytes(1)));
+        assertFalse(registry.classifyDistinct("b", bytes(1)));
+    }
+
+    @Test
+    public void testSecondChance() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(2L * NUM_BITS);
+        registry.classifyDistinct("a", bytes(1));
+        registry.classifyDistinct("b", bytes(1));
+        registry.classifyDistinct("c", bytes(1));
+        // a was evicted and b and c are unreferenced, so a hit on b spares it from the next eviction.
+        registry.peekDistinct("b", bytes(1));
+        registry.peekDistinct("a", bytes(1));
+        final long missCount = registry.missCount();
+        registry.peekDistinct("b", bytes(1));
+        assertEquals(missCount, registry.missCount());
+        registry.peekDistinct("c", bytes(1));
+        assertEquals(missCount + 1L, registry.missCount());
+    }
+
+    @Test
+    public void testUnchangedIsNotSpilledAgain() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(NUM_BITS);
+        registry.classifyDistinct("a", bytes(1));
+        registry.classifyDistinct("b", bytes(1));
+        assertEquals(1L, registry.spillCount());
+        for (int repeat = 0; repeat < 4; repeat++) {
+            assertFalse(registry.peekDistinct("a", bytes(1)));
+            assertFalse(registry.peekDistinct("b", bytes(1)));
+        }
+        assertEquals(2L, registry.spillCount());
+        assertEquals(9L, registry.evictionCount());
+    }
+
+    @Test
+    public void testRemoveAndClose() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(NUM_BITS);
+        registry.classifyDistinct("a", bytes(1));
+        registry.classifyDistinct("b", bytes(1));
+        assertEquals(1L, spillFiles(registry).count());
+        assertTrue(registry.remove("a"));
+        assertFalse(registry.remove("a"));
+        assertEquals(0L, spillFiles(registry).count());
+        assertTrue(registry.classifyDistinct("a", bytes(1)));
+        registry.close();
+        assertEquals(0, registry.size());
+        assertEquals(0L, registry.residentBits());
+        assertFalse(Files.exists(registry.spillDirectory()));
+    }
+
+    @Test
+    public void testSharedSpillDirectory() throws IOException {
+        final DeDuplicatorRegistry<String> registry = registry(NUM_BITS);
+        for (int element = 0; element < 1000; element++) {
+            registry.classifyDistinct("a", bytes(element));
+        }
+        // Spills a, as if the registry crashed afterwards without a close.
+        registry.classifyDistinct("b", bytes(0));
+        assertEquals(1L, registry.spillCount());
+        final DeDuplicatorRegistry<String> otherRegistry = registry(NUM_BITS);
+        assertNotEquals(registry.spillDirectory(), otherRegistry.spillDirectory());
+        // A new key of another registry starts empty instead of loading the spill of a.
+        for (int element = 0; element < 1000; element++) {
+            assertTrue(otherRegistry.classifyDistinct("c", bytes(element)));
+        }
+        otherRegistry.close();
+        registry.close();
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        final int numThreads = 8;
+        final int numKeys = 32;
+        final int numElements = 25;
+        final DeDuplicatorRegistry<Integer> registry = registry(8L * NUM_BITS);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < numThreads; thread++) {
+                final int fromElement = thread * numElements;
+                futures.add(executor.submit(() -> {
+                    for (int element = fromElement; element < fromElement + numElements; element++) {
+                        for (int key = 0; key < numKeys; key++) {
+                            registry.classifyDistinct(key, bytes(element));
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(numKeys, registry.size());
+        assertTrue(registry.residentBits() <= registry.memoryBudgetBits());
+        assertEquals((long) numThreads * numElements * numKeys, registry.hitCount() + registry.missCount());
+        for (int key = 0; key < numKeys; key++) {
+            for (int element = 0; element < numThreads * numElements; element++) {
+                assertFalse(registry.peekDistinct(key, bytes(element)));
+            }
+        }
+        registry.close();
+    }
+
+    private <K> DeDuplicatorRegistry<K> registry(long memoryBudgetBits) throws IOException {
+        return new DeDuplicatorRegistry<>(
+                DeDuplicatorAlgorithm.RLBSBF,
+                NUM_BITS,
+                NUM_HASH_FUNCTIONS,
+                memoryBudgetBits,
+                temporaryFolder.getRoot().toPath().resolve("spill")
+        );
+    }
+
+    private static Stream<Path> spillFiles(DeDuplicatorRegistry<?> registry) throws IOException {
+        return Files.list(registry.spillDirectory());
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -0,0 +1,145 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class DeDuplicatorTunerTest {
+    private static final double LOAD_DELTA = 5E-2;
+    private static final long NUM_BITS = 512 * 8L;
+    private static final long RANDOM_SEED = 13L;
+    private static final int STREAM_SIZE = (int) 1E5;
+    private static final int STABLE_STREAM_SIZE = (int) 1E6;
+    private static final double DISTINCT_PROBABILITY = 0.5D;
+    private static final int REUSE_DISTANCE = 1000;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkloadProfileInvalidMemoryBudgetBits() {
+        new WorkloadProfile(0L, 0.5D, 10D, 0.1D, 0.1D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkloadProfileInvalidDistinctProbability() {
+        new WorkloadProfile(64L, 1D, 10D, 0.1D, 0.1D);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWorkloadProfileInvalidTargetFpp() {
+        new WorkloadProfile(64L, 0.5D, 10D, 0D, 0.1D);
+    }
+
+    @Test
+    public void testStableLoad() {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final ProbabilisticDeDuplicator deDuplicator = algorithm.create(NUM_BITS, 2);
+            final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+            for (int element = 0; element < STABLE_STREAM_SIZE; element++) {
+                byteBuffer.clear();
+                byteBuffer.putInt(element);
+                deDuplicator.classifyDistinct(byteBuffer.array());
+            }
+            for (BitArray bloomFilter : algorithm.bloomFilters(deDuplicator)) {
+                final double load = ((double) bloomFilter.bitCount()) / ((double) bloomFilter.bitSize());
+                assertEquals(algorithm.name(), algorithm.stableLoad(2), load, LOAD_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testRecommendMeetsTargets() {
+        final WorkloadProfile profile = new WorkloadProfile(1L << 30, 0.5D, 1E4D, 0.01D, 0.01D);
+        final DeDuplicatorTuner.Recommendation recommendation = DeDuplicatorTuner.recommend(profile);
+        assertTrue(recommendation.meetsTargets());
+        assertTrue(recommendation.estimatedFpp() <= profile.targetFpp());
+        assertTrue(recommendation.estimatedFnp() <= profile.targetFnp());
+        assertTrue(recommendation.numBits() <= profile.memoryBudgetBits());
+        final ProbabilisticDeDuplicator deDuplicator = recommendation.create();
+        assertEquals(recommendation.numBits(), deDuplicator.numBits());
+        assertEquals(recommendation.numHashFunctions(), deDuplicator.numHashFunctions());
+    }
+
+    @Test
+    public void testRecommendDoesNotOverProvision() {
+        final WorkloadProfile smallProfile = new WorkloadProfile(1L << 30, 0.5D, 1E4D, 0.01D, 0.01D);
+        final WorkloadProfile largeProfile = new WorkloadProfile(1L << 40, 0.5D, 1E4D, 0.01D, 0.01D);
+        final DeDuplicatorTuner.Recommendation smallRecommendation = DeDuplicatorTuner.recommend(smallProfile);
+        final DeDuplicatorTuner.Recommendation largeRecommendation = DeDuplicatorTuner.recommend(largeProfile);
+        assertEquals(smallRecommendation.algorithm(), largeRecommendation.algorithm());
+        assertEquals(smallRecommendation.numBits(), largeRecommendation.numBits());
+        assertEquals(smallRecommendation.numHashFunctions(), largeRecommendation.numHashFunctions());
+    }
+
+    @Test
+    public void testRecommendWithinMemoryBudget() {
+        final WorkloadProfile profile = new WorkloadProfile(NUM_BITS, 0.5D, 1E6D, 0.01D, 0.01D);
+        final DeDuplicatorTuner.Recommendation recommendation = DeDuplicatorTuner.recommend(profile);
+        assertFalse(recommendation.meetsTargets());
+        assertTrue(recommendation.numBits() <= profile.memoryBudgetBits());
+    }
+
+    @Test
+    public void testMaxConcurrentSimulations() {
+        final long memoryBudgetBits = 8L * 1024L * 1024L * Byte.SIZE;
+        assertEquals(1, DeDuplicatorTuner.maxConcurrentSimulations(memoryBudgetBits, 8L * 1024L * 1024L));
+        assertEquals(2, DeDuplicatorTuner.maxConcurrentSimulations(memoryBudgetBits, 32L * 1024L * 1024L));
+        assertEquals(
+                DeDuplicatorTuner.MAX_NUM_SIMULATIONS,
+                DeDuplicatorTuner.maxConcurrentSimulations(memoryBudgetBits, Long.MAX_VALUE)
+        );
+        assertEquals(DeDuplicatorTuner.MAX_NUM_SIMULATIONS, DeDuplicatorTuner.maxConcurrentSimulations(1L, 1024L));
+    }
+
+    @Test
+    public void testRecommendWithSimulation() throws InterruptedException {
+        final WorkloadProfile profile = new WorkloadProfile(1L << 20, DISTINCT_PROBABILITY, REUSE_DISTANCE, 0.2D, 0.1D);
+        final List<byte[]> sampledStream = sampledStream();
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final DeDuplicatorTuner.Recommendation recommendation =
+                    DeDuplicatorTuner.recommend(profile, sampledStream, executorService);
+            assertTrue(recommendation.numBits() <= profile.memoryBudgetBits());
+            final ProbabilisticDeDuplicator deDuplicator = recommendation.create();
+            long fpNumber = 0L;
+            long fnNumber = 0L;
+            final java.util.Set<ByteBuffer> visited = new java.util.HashSet<>();
+            for (byte[] element : sampledStream) {
+                final boolean actuallyDistinct = visited.add(ByteBuffer.wrap(element));
+                final boolean reportedDistinct = deDuplicator.classifyDistinct(element);
+                if (actuallyDistinct && !reportedDistinct) {
+                    fpNumber++;
+                } else if (!actuallyDistinct && reportedDistinct) {
+                    fnNumber++;
+                }
+            }
+            assertEquals(((double) fpNumber) / STREAM_SIZE, recommendation.estimatedFpp(), 0D);
+            assertEquals(((double) fnNumber) / STREAM_SIZE, recommendation.estimatedFnp(), 0D);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static List<byte[]> sampledStream() {
+        final Random random = new Random(RANDOM_SEED);
+        final int[] elements = new int[STREAM_SIZE];
+        final List<byte[]> sampledStream = new ArrayList<>(STREAM_SIZE);
+        int nextElement = 0;
+        for (int index = 0; index < STREAM_SIZE; index++) {
+            if (index < REUSE_DISTANCE || random.nextDouble() < DISTINCT_PROBABILITY) {
+                elements[index] = nextElement++;
+            } else {
+                elements[index] = elements[index - 1 - random.nextInt(REUSE_DISTANCE)];
+            }
+            sampledStream.add(ByteBuffer.allocate(Integer.BYTES).putInt(elements[index]).array());
+        }
+        return sampledStream;
+    }
+}
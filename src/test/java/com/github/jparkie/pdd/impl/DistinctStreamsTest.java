@@ -0,0 +1,156 @@
+package com.github.jparkie.pdd.impl;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.*;
+
+public class DistinctStreamsTest {
+    private static final long NUM_BITS = 64 * 8L * 1024L * 64L;
+    private static final int NUM_PARTITIONS = 16;
+    private static final int NUM_ELEMENTS = (int) 1E5;
+    private static final int NUM_DISTINCT = (int) 1E4;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFilterDistinctNullDeDuplicator() {
+        DistinctStreams.filterDistinct(Stream.<byte[]>empty(), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFilterDistinctParallelNotThreadSafe() {
+        DistinctStreams.filterDistinct(Stream.<byte[]>empty().parallel(), new BSBFDeDuplicator(NUM_BITS, 2));
+    }
+
+    @Test
+    public void testToBytes() {
+        assertArrayEquals(ByteBuffer.allocate(8).putLong(0x0102030405060708L).array(),
+                DistinctStreams.toBytes(0x0102030405060708L));
+        final ByteBuffer buffer = ByteBuffer.wrap(new byte[]{1, 2, 3, 4});
+        assertSame(buffer.array(), DistinctStreams.toBytes(buffer));
+        buffer.position(1);
+        assertArrayEquals(new byte[]{2, 3, 4}, DistinctStreams.toBytes(buffer));
+        assertEquals(1, buffer.position());
+        final ByteBuffer directBuffer = ByteBuffer.allocateDirect(4).putInt(42);
+        directBuffer.flip();
+        assertArrayEquals(bytes(42), DistinctStreams.toBytes(directBuffer));
+    }
+
+    @Test
+    public void testFilterDistinctSequential() {
+        final List<byte[]> distinctElements = DistinctStreams.filterDistinct(
+                elements(),
+                new BSBFDeDuplicator(NUM_BITS, 4)
+        ).collect(Collectors.toList());
+        assertDistinct(distinctElements.size());
+        assertArrayEquals(bytes(0), distinctElements.get(0));
+    }
+
+    @Test
+    public void testFilterDistinctParallel() {
+        final long numDistinct = DistinctStreams.filterDistinct(
+                elements().parallel(),
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS)
+        ).count();
+        assertDistinct(numDistinct);
+    }
+
+    @Test
+    public void testFilterDistinctLongStream() {
+        final long numDistinct = DistinctStreams.filterDistinct(
+                LongStream.range(0, NUM_ELEMENTS).map(element -> element % NUM_DISTINCT).parallel(),
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS)
+        ).count();
+        assertDistinct(numDistinct);
+    }
+
+    @Test
+    public void testFilterDistinctBuffers() {
+        final long numDistinct = DistinctStreams.filterDistinctBuffers(
+                elements().map(ByteBuffer::wrap).parallel(),
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS)
+        ).count();
+        assertDistinct(numDistinct);
+    }
+
+    @Test
+    public void testToDistinctList() {
+        final List<byte[]> distinctElements = elements().parallel().collect(DistinctStreams.toDistinctList(
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS)
+        ));
+        assertDistinct(distinctElements.size());
+    }
+
+    @Test
+    public void testFilterDistinctMadeParallelNotThreadSafe() {
+        // Only parallel after it was adapted, so its de-duplicator is serialized on a lock instead of rejected.
+        final long numDistinct = DistinctStreams.filterDistinct(elements(), new BSBFDeDuplicator(NUM_BITS, 4))
+                .parallel()
+                .count();
+        assertDistinct(numDistinct);
+    }
+
+    @Test
+    public void testToDistinctListNotThreadSafe() {
+        final List<byte[]> distinctElements = elements().parallel().collect(DistinctStreams.toDistinctList(
+                new BSBFDeDuplicator(NUM_BITS, 4)
+        ));
+        assertDistinct(distinctElements.size());
+    }
+
+    @Test
+    public void testThreadSafe() {
+        final PartitionedDeDuplicator partitioned =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS);
+        assertSame(partitioned, DistinctStreams.threadSafe(partitioned));
+        assertTrue(DistinctStreams.threadSafe(new BSBFDeDuplicator(NUM_BITS, 4)) instanceof SingleWriterDeDuplicator);
+    }
+
+    @Test
+    public void testDistinctSpliterator() {
+        final Spliterator<byte[]> spliterator = DistinctStreams.distinctSpliterator(
+                Arrays.spliterator(elements().toArray(byte[][]::new)),
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 4, NUM_PARTITIONS)
+        );
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+        assertDistinct(StreamSupport.stream(spliterator, true).count());
+    }
+
+    @Test
+    public void testDistinctSpliteratorSorted() {
+        final Comparator<byte[]> comparator = Comparator.comparing(ByteBuffer::wrap);
+        final TreeSet<byte[]> elements = elements().collect(Collectors.toCollection(() -> new TreeSet<>(comparator)));
+        final Spliterator<byte[]> spliterator =
+                DistinctStreams.distinctSpliterator(elements.spliterator(), new BSBFDeDuplicator(NUM_BITS, 4));
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+        assertSame(comparator, spliterator.getComparator());
+        final List<byte[]> distinctElements = StreamSupport.stream(spliterator, false).collect(Collectors.toList());
+        assertDistinct(distinctElements.size());
+        for (int index = 1; index < distinctElements.size(); index++) {
+            assertTrue(comparator.compare(distinctElements.get(index - 1), distinctElements.get(index)) < 0);
+        }
+    }
+
+    private static Stream<byte[]> elements() {
+        return IntStream.range(0, NUM_ELEMENTS).mapToObj(element -> bytes(element % NUM_DISTINCT));
+    }
+
+    private static void assertDistinct(long numDistinct) {
+        assertEquals(NUM_DISTINCT, numDistinct, NUM_DISTINCT * 0.01D);
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ElasticDeDuplicatorSerializerTest {
+    @Test
+    public void testWriteToReadFromVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<ElasticDeDuplicator> serializer =
+                ElasticDeDuplicatorSerializers.VERSION_1;
+        final ElasticDeDuplicator deDuplicator =
+                new ElasticDeDuplicator(DeDuplicatorAlgorithm.BSBFSD, 64L, 1, 1024L, 0.5D);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        for (long element = 0L; element < 128L; element++) {
+            byteBuffer.clear();
+            byteBuffer.putLong(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+        }
+        assertTrue(deDuplicator.numTiers() > 1);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ElasticDeDuplicator serialized = serializer.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(deDuplicator.numBits(), serialized.numBits());
+        assertEquals(deDuplicator.estimateFpp(0.5D), serialized.estimateFpp(0.5D), 0D);
+    }
+
+    @Test
+    public void testWriteToReadIntoVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<ElasticDeDuplicator> serializer =
+                ElasticDeDuplicatorSerializers.VERSION_1;
+        final ElasticDeDuplicator deDuplicator = classified();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ElasticDeDuplicator existing = classified();
+        final List<ProbabilisticDeDuplicator> tiers = new ArrayList<>(existing.tiers);
+        for (ProbabilisticDeDuplicator tier : tiers) {
+            tier.reset();
+        }
+        assertNotEquals(deDuplicator, existing);
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        serializer.readInto(existing, in);
+        in.close();
+        assertEquals(tiers, existing.tiers);
+        for (int index = 0; index < tiers.size(); index++) {
+            assertSame(tiers.get(index), existing.tiers.get(index));
+        }
+        assertEquals(deDuplicator, existing);
+        assertEquals(deDuplicator.numBits(), existing.numBits());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadIntoNumTiersMismatch() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<ElasticDeDuplicator> serializer =
+                ElasticDeDuplicatorSerializers.VERSION_1;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(classified(), out);
+        out.close();
+        // A reset leaves a single tier, so a snapshot of several tiers no longer fits in place.
+        final ElasticDeDuplicator existing = classified();
+        existing.reset();
+        serializer.readInto(existing, new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static ElasticDeDuplicator classified() {
+        final ElasticDeDuplicator deDuplicator =
+                new ElasticDeDuplicator(DeDuplicatorAlgorithm.BSBFSD, 64L, 1, 1024L, 0.5D);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        for (long element = 0L; element < 128L; element++) {
+            byteBuffer.clear();
+            byteBuffer.putLong(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+        }
+        assertTrue(deDuplicator.numTiers() > 1);
+        return deDuplicator;
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ElasticDeDuplicatorTest {
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        final ElasticDeDuplicator hashedDeDuplicator = newDeDuplicator();
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        for (int index = 0; index < CARDINALITY; index++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(random.nextInt(CARDINALITY / 2));
+            final byte[] element = byteBuffer.array();
+            final HashedElement hashedElement = HashedElement.of(element);
+            assertEquals(deDuplicator.peekDistinct(element), hashedDeDuplicator.peekDistinct(hashedElement));
+            assertEquals(deDuplicator.classifyDistinct(element), hashedDeDuplicator.classifyDistinct(hashedElement));
+        }
+        assertEquals(deDuplicator, hashedDeDuplicator);
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final Random random = new Random(RANDOM_SEED);
+        final ElasticDeDuplicator bytesDeDuplicator = newDeDuplicator();
+        final ElasticDeDuplicator funnelDeDuplicator = newDeDuplicator();
+        final Funnel<String> funnel = (from, into) -> into.putUtf8(from);
+        for (int index = 0; index < CARDINALITY; index++) {
+            final String element = "élément-" + random.nextInt(CARDINALITY / 2);
+            final byte[] bytes = element.getBytes(StandardCharsets.UTF_8);
+            assertEquals(bytesDeDuplicator.peekDistinct(bytes), funnelDeDuplicator.peekDistinct(element, funnel));
+            assertEquals(
+                    bytesDeDuplicator.classifyDistinct(bytes),
+                    funnelDeDuplicator.classifyDistinct(element, funnel)
+            );
+        }
+        assertEquals(bytesDeDuplicator, funnelDeDuplicator);
+    }
+
+    private static final long INITIAL_NUM_BITS = 512 * 8L;
+    private static final long MAX_NUM_BITS = 64 * INITIAL_NUM_BITS;
+    private static final double MAX_FPP = 0.5D;
+    private static final long RANDOM_SEED = 13L;
+    private static final int CARDINALITY = (int) 1E4;
+    private static final int MAX_SEQUENCE_NUMBER = (int) 1E5;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidInitialNumBits() {
+        new ElasticDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, 0L, 2, MAX_NUM_BITS, MAX_FPP);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidMaxNumBits() {
+        new ElasticDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, INITIAL_NUM_BITS, 2, INITIAL_NUM_BITS, MAX_FPP);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorInvalidMaxFpp() {
+        new ElasticDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, INITIAL_NUM_BITS, 2, MAX_NUM_BITS, 1D);
+    }
+
+    @Test
+    public void testConstructor() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        assertEquals(INITIAL_NUM_BITS, deDuplicator.numBits());
+        assertEquals(2, deDuplicator.numHashFunctions());
+        assertEquals(1, deDuplicator.numTiers());
+    }
+
+    @Test
+    public void testClassifyDistinct() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.classifyDistinct(element));
+    }
+
+    @Test
+    public void testPeekDistinct() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.peekDistinct(element));
+    }
+
+    @Test
+    public void testGrowAndRetire() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        int maxNumTiers = 1;
+        for (int element = 0; element < 4 * MAX_NUM_BITS; element++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+            assertTrue(deDuplicator.numBits() <= MAX_NUM_BITS);
+            maxNumTiers = Math.max(maxNumTiers, deDuplicator.numTiers());
+        }
+        assertTrue(maxNumTiers > 2);
+        assertEquals(MAX_NUM_BITS / 2, deDuplicator.tiers.get(deDuplicator.numTiers() - 1).numBits());
+        assertTrue(deDuplicator.numTiers() <= 2);
+    }
+
+    @Test
+    public void testFewerFalseNegativesThanFixedSize() {
+        final ElasticDeDuplicator elasticDeDuplicator = newDeDuplicator();
+        final ProbabilisticDeDuplicator fixedDeDuplicator =
+                DeDuplicatorAlgorithm.RLBSBF.create(INITIAL_NUM_BITS, 2);
+        assertTrue(fnNumber(elasticDeDuplicator) < fnNumber(fixedDeDuplicator) / 2);
+    }
+
+    @Test
+    public void testEstimateFpp() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        assertEquals(0D, deDuplicator.estimateFpp(0.5D), 0D);
+        fnNumber(deDuplicator);
+        final double estimatedFpp = deDuplicator.estimateFpp(0.5D);
+        assertTrue(estimatedFpp > 0D && estimatedFpp < 0.5D);
+    }
+
+    @Test
+    public void testEstimateFnp() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        assertEquals(0.5D, deDuplicator.estimateFnp(0.5D), 0D);
+        fnNumber(deDuplicator);
+        final double estimatedFnp = deDuplicator.estimateFnp(0.5D);
+        assertTrue(estimatedFnp > 0D && estimatedFnp < 0.5D);
+    }
+
+    @Test
+    public void testReset() {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        fnNumber(deDuplicator);
+        assertTrue(deDuplicator.numTiers() > 1);
+        deDuplicator.reset();
+        assertEquals(1, deDuplicator.numTiers());
+        assertEquals(INITIAL_NUM_BITS, deDuplicator.numBits());
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        byteBuffer.putInt(0);
+        assertTrue(deDuplicator.peekDistinct(byteBuffer.array()));
+    }
+
+    @Test
+    public void testJavaSerializable() throws IOException, ClassNotFoundException {
+        final ElasticDeDuplicator deDuplicator = newDeDuplicator();
+        fnNumber(deDuplicator);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(deDuplicator);
+        oos.close();
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ObjectInputStream ois = new ObjectInputStream(in);
+        final ElasticDeDuplicator serialized = (ElasticDeDuplicator) ois.readObject();
+        ois.close();
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(deDuplicator.numBits(), serialized.numBits());
+    }
+
+    private static ElasticDeDuplicator newDeDuplicator() {
+        return new ElasticDeDuplicator(DeDuplicatorAlgorithm.RLBSBF, INITIAL_NUM_BITS, 2, MAX_NUM_BITS, MAX_FPP);
+    }
+
+    private static int fnNumber(ProbabilisticDeDuplicator deDuplicator) {
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        final boolean[] isVisited = new boolean[CARDINALITY];
+        int fnNumber = 0;
+        for (long sequenceNumber = 1; sequenceNumber <= MAX_SEQUENCE_NUMBER; sequenceNumber++) {
+            final int currentElement = random.nextInt(CARDINALITY);
+            byteBuffer.clear();
+            byteBuffer.putInt(currentElement);
+            final boolean actuallyDuplicate = isVisited[currentElement];
+            final boolean reportedDistinct = deDuplicator.classifyDistinct(byteBuffer.array());
+            if (actuallyDuplicate && reportedDistinct) {
+                fnNumber++;
+            }
+            isVisited[currentElement] = true;
+        }
+        return fnNumber;
+    }
+}
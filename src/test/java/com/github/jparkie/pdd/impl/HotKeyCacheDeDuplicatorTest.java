@@ -0,0 +1,172 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class HotKeyCacheDeDuplicatorTest {
+    private static final long NUM_BITS = 64 * 8L * 16L;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullDeDuplicator() {
+        new HotKeyCacheDeDuplicator(null, 64);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorCacheCapacityLowerBound() {
+        new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), HotKeyCacheDeDuplicator.BUCKET_SIZE - 1);
+    }
+
+    @Test
+    public void testCacheCapacity() {
+        assertEquals(8, new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), 8).cacheCapacity());
+        assertEquals(128, new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), 100).cacheCapacity());
+        assertEquals(128, new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), 128).cacheCapacity());
+    }
+
+    @Test
+    public void testHitSkipsDeDuplicator() {
+        final RLBSBFDeDuplicator rlbsbf = new RLBSBFDeDuplicator(NUM_BITS, 2);
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(rlbsbf, 64);
+        assertTrue(deDuplicator.peekDistinct(bytes(42)));
+        assertTrue(deDuplicator.classifyDistinct(bytes(42)));
+        final BitArray[] bloomFilters = new BitArray[rlbsbf.bloomFilters.length];
+        for (int index = 0; index < bloomFilters.length; index++) {
+            bloomFilters[index] = new BitArray(rlbsbf.bloomFilters[index].bitSize());
+            bloomFilters[index].putAll(rlbsbf.bloomFilters[index]);
+        }
+        final double reportedDuplicateProbability = rlbsbf.reportedDuplicateProbability;
+        for (int repeat = 0; repeat < 100; repeat++) {
+            assertFalse(deDuplicator.classifyDistinct(bytes(42)));
+            assertFalse(deDuplicator.peekDistinct(bytes(42)));
+        }
+        assertArrayEquals(bloomFilters, rlbsbf.bloomFilters);
+        assertEquals(reportedDuplicateProbability, rlbsbf.reportedDuplicateProbability, 0D);
+    }
+
+    @Test
+    public void testMissFallsThrough() {
+        final BSBFDeDuplicator bsbf = new BSBFDeDuplicator(NUM_BITS, 2);
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(bsbf, 8);
+        assertTrue(deDuplicator.classifyDistinct(bytes(0)));
+        // Evicts 0 from the single bucket, which the wrapped de-duplicator still remembers.
+        for (int element = 1; element <= HotKeyCacheDeDuplicator.BUCKET_SIZE; element++) {
+            assertTrue(deDuplicator.classifyDistinct(bytes(element)));
+        }
+        assertFalse(deDuplicator.isCached(bytes(0)));
+        assertFalse(bsbf.peekDistinct(bytes(0)));
+        assertFalse(deDuplicator.classifyDistinct(bytes(0)));
+        assertTrue(deDuplicator.isCached(bytes(0)));
+    }
+
+    @Test
+    public void testClockEviction() {
+        final HotKeyCacheDeDuplicator deDuplicator =
+                new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), HotKeyCacheDeDuplicator.BUCKET_SIZE);
+        for (int element = 0; element < 8; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        // Every slot is referenced, so the hand clears them all and evicts the first slot.
+        deDuplicator.classifyDistinct(bytes(8));
+        assertFalse(deDuplicator.isCached(bytes(0)));
+        // A hit gives 3 a second chance, so the hand evicts 1, 2, and then 4.
+        assertFalse(deDuplicator.classifyDistinct(bytes(3)));
+        deDuplicator.classifyDistinct(bytes(9));
+        deDuplicator.classifyDistinct(bytes(10));
+        deDuplicator.classifyDistinct(bytes(11));
+        assertFalse(deDuplicator.isCached(bytes(1)));
+        assertFalse(deDuplicator.isCached(bytes(2)));
+        assertTrue(deDuplicator.isCached(bytes(3)));
+        assertFalse(deDuplicator.isCached(bytes(4)));
+        for (int element : new int[]{5, 6, 7, 8, 9, 10, 11}) {
+            assertTrue(deDuplicator.isCached(bytes(element)));
+        }
+    }
+
+    @Test
+    public void testReset() {
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(new BSBFDeDuplicator(NUM_BITS, 2), 64);
+        assertTrue(deDuplicator.classifyDistinct(bytes(42)));
+        deDuplicator.reset();
+        assertFalse(deDuplicator.isCached(bytes(42)));
+        assertTrue(deDuplicator.classifyDistinct(bytes(42)));
+    }
+
+    @Test
+    public void testFingerprint() {
+        final Random random = new Random();
+        final Set<Long> fingerprints = new HashSet<>();
+        for (int length = 0; length < 64; length++) {
+            final byte[] element = new byte[length];
+            random.nextBytes(element);
+            final long fingerprint = HotKeyCacheDeDuplicator.fingerprint(element);
+            assertEquals(fingerprint, HotKeyCacheDeDuplicator.fingerprint(element.clone()));
+            assertNotEquals(0L, fingerprint);
+            fingerprints.add(fingerprint);
+        }
+        // A zero byte is not the same as a shorter element.
+        assertNotEquals(
+                HotKeyCacheDeDuplicator.fingerprint(new byte[1]),
+                HotKeyCacheDeDuplicator.fingerprint(new byte[2])
+        );
+        assertEquals(64, fingerprints.size());
+    }
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final RLBSBFDeDuplicator rlbsbf = new RLBSBFDeDuplicator(NUM_BITS, 2);
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(rlbsbf, 64);
+        final HashedElement element = HashedElement.of(bytes(42));
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(rlbsbf.peekDistinct(bytes(42)));
+        // Cached by the fingerprint of the hashes, and classified by the wrapped de-duplicator as the element itself.
+        assertFalse(deDuplicator.isCached(bytes(42)));
+        assertFalse(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.classifyDistinct(bytes(42)));
+        assertNotEquals(0L, HotKeyCacheDeDuplicator.fingerprint(HashedElement.ofHashes(0, 0)));
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final RLBSBFDeDuplicator rlbsbf = new RLBSBFDeDuplicator(NUM_BITS, 2);
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(rlbsbf, 64);
+        final Funnel<Integer> funnel = (from, into) -> into.putInt(from);
+        final byte[] element = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(42).array();
+        assertTrue(deDuplicator.classifyDistinct(42, funnel));
+        assertFalse(rlbsbf.peekDistinct(element));
+        // Cached by the fingerprint of its hashed element, so a hit no longer reaches the wrapped de-duplicator.
+        assertFalse(deDuplicator.isCached(element));
+        rlbsbf.reset();
+        assertFalse(deDuplicator.classifyDistinct(HashedElement.of(element)));
+        assertFalse(deDuplicator.classifyDistinct(42, funnel));
+        assertTrue(rlbsbf.peekDistinct(element));
+    }
+
+    @Test
+    public void testPeekDistinctFunnel() {
+        final RLBSBFDeDuplicator rlbsbf = new RLBSBFDeDuplicator(NUM_BITS, 2);
+        final HotKeyCacheDeDuplicator deDuplicator = new HotKeyCacheDeDuplicator(rlbsbf, 64);
+        final Funnel<Integer> funnel = (from, into) -> into.putInt(from);
+        assertTrue(deDuplicator.peekDistinct(42, funnel));
+        assertTrue(deDuplicator.classifyDistinct(42, funnel));
+        assertFalse(deDuplicator.peekDistinct(42, funnel));
+        // A hit of the cache, by the same fingerprint as classifyDistinct, even once the wrapped de-duplicator forgot.
+        rlbsbf.reset();
+        assertFalse(deDuplicator.peekDistinct(42, funnel));
+        assertTrue(deDuplicator.peekDistinct(43, funnel));
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
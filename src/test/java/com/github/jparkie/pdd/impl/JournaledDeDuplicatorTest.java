@@ -0,0 +1,212 @@
+package com.github.jparkie.pdd.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class JournaledDeDuplicatorTest {
+    private static final long NUM_BITS = 64 * 8L * 4L;
+    private static final int NUM_HASH_FUNCTIONS = 2;
+    private static final int GROUP_COMMIT_SIZE = 16;
+    private static final int GROUPS_PER_SYNC = 4;
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenNonPositiveGroupCommitSize() throws IOException {
+        open(DeDuplicatorAlgorithm.BSBF, 0, GROUPS_PER_SYNC);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenNonPositiveGroupsPerSync() throws IOException {
+        open(DeDuplicatorAlgorithm.BSBF, GROUP_COMMIT_SIZE, 0);
+    }
+
+    @Test
+    public void testRecoverFromJournal() throws IOException {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final JournaledDeDuplicator deDuplicator = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            classify(deDuplicator, 0, 1000);
+            deDuplicator.flush();
+            // A crash, without a checkpoint or a close.
+            final JournaledDeDuplicator recovered = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            assertEquals(algorithm.name(), deDuplicator.deDuplicator, recovered.deDuplicator);
+            assertEquals(deDuplicator.estimateFpp(1D), recovered.estimateFpp(1D), 0D);
+            deDuplicator.close();
+            recovered.close();
+            Files.delete(journalPath());
+        }
+    }
+
+    @Test
+    public void testRecoverCardinalityFromJournal() throws IOException {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final JournaledDeDuplicator deDuplicator = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            classify(deDuplicator, 0, 500);
+            deDuplicator.checkpoint();
+            classify(deDuplicator, 500, 1000);
+            deDuplicator.flush();
+            // A crash, whose replay restores the sums which were accumulated since the checkpoint.
+            final JournaledDeDuplicator recovered = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            assertEquals(
+                    algorithm.name(),
+                    algorithm.estimatedCardinality(deDuplicator.deDuplicator),
+                    algorithm.estimatedCardinality(recovered.deDuplicator),
+                    0D
+            );
+            assertEquals(
+                    algorithm.name(),
+                    algorithm.estimatedCardinalityVariance(deDuplicator.deDuplicator),
+                    algorithm.estimatedCardinalityVariance(recovered.deDuplicator),
+                    0D
+            );
+            assertTrue(algorithm.name(), algorithm.estimatedCardinality(recovered.deDuplicator) > 500D);
+            deDuplicator.close();
+            recovered.close();
+            Files.delete(journalPath());
+            Files.delete(snapshotPath());
+        }
+    }
+
+    @Test
+    public void testRecoverFromCheckpointAndJournal() throws IOException {
+        for (DeDuplicatorAlgorithm algorithm : DeDuplicatorAlgorithm.values()) {
+            final JournaledDeDuplicator deDuplicator = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            classify(deDuplicator, 0, 500);
+            deDuplicator.checkpoint();
+            assertEquals(0L, Files.size(journalPath()));
+            classify(deDuplicator, 500, 1000);
+            deDuplicator.flush();
+            assertTrue(Files.size(journalPath()) > 0L);
+            final JournaledDeDuplicator recovered = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            assertEquals(algorithm.name(), deDuplicator.deDuplicator, recovered.deDuplicator);
+            recovered.close();
+            // A crash between a checkpoint and the truncation of the journal is harmless.
+            final byte[] journal = Files.readAllBytes(journalPath());
+            deDuplicator.checkpoint();
+            deDuplicator.close();
+            Files.write(journalPath(), journal);
+            final JournaledDeDuplicator replayed = open(algorithm, GROUP_COMMIT_SIZE, GROUPS_PER_SYNC);
+            assertEquals(algorithm.name(), deDuplicator.deDuplicator, replayed.deDuplicator);
+            replayed.close();
+            Files.delete(journalPath());
+            Files.delete(snapshotPath());
+        }
+    }
+
+    @Test
+    public void testRecoverAfterReset() throws IOException {
+        final JournaledDeDuplicator deDuplicator = open(DeDuplicatorAlgorithm.RLBSBF, GROUP_COMMIT_SIZE, 1);
+        classify(deDuplicator, 0, 500);
+        deDuplicator.checkpoint();
+        deDuplicator.reset();
+        classify(deDuplicator, 500, 600);
+        deDuplicator.flush();
+        final JournaledDeDuplicator recovered = open(DeDuplicatorAlgorithm.RLBSBF, GROUP_COMMIT_SIZE, 1);
+        assertEquals(deDuplicator.deDuplicator, recovered.deDuplicator);
+        assertTrue(recovered.peekDistinct(bytes(0)));
+        assertFalse(recovered.peekDistinct(bytes(599)));
+        deDuplicator.close();
+        recovered.close();
+    }
+
+    @Test
+    public void testRecoverFromTornJournal() throws IOException {
+        final JournaledDeDuplicator deDuplicator = open(DeDuplicatorAlgorithm.BSBF, GROUP_COMMIT_SIZE, 1);
+        classify(deDuplicator, 0, 1000);
+        deDuplicator.flush();
+        final long validSize = Files.size(journalPath());
+        // A torn group, whose number of records promises more bytes than were written.
+        final byte[] tornGroup = ByteBuffer.allocate(28).putInt(100).putLong(42L).array();
+        Files.write(journalPath(), tornGroup, StandardOpenOption.APPEND);
+        final JournaledDeDuplicator recovered = open(DeDuplicatorAlgorithm.BSBF, GROUP_COMMIT_SIZE, 1);
+        assertEquals(deDuplicator.deDuplicator, recovered.deDuplicator);
+        assertEquals(validSize, Files.size(journalPath()));
+        // The recovered journal appends after the last intact group.
+        classify(recovered, 1000, 1100);
+        recovered.close();
+        assertEquals(recovered.deDuplicator, open(DeDuplicatorAlgorithm.BSBF, GROUP_COMMIT_SIZE, 1).deDuplicator);
+    }
+
+    @Test
+    public void testBatchLargerThanGroup() throws IOException {
+        final JournaledDeDuplicator deDuplicator = open(DeDuplicatorAlgorithm.BSBFSD, 1, GROUPS_PER_SYNC);
+        final byte[][] elements = new byte[200][];
+        for (int index = 0; index < elements.length; index++) {
+            elements[index] = bytes(index);
+        }
+        deDuplicator.classifyDistinct(elements, new boolean[elements.length]);
+        deDuplicator.close();
+        assertEquals(deDuplicator.deDuplicator, open(DeDuplicatorAlgorithm.BSBFSD, 1, GROUPS_PER_SYNC).deDuplicator);
+    }
+
+    @Test
+    public void testForceDirectory() throws IOException {
+        // The directory of the snapshot is forced between the move of the snapshot and the truncation of the journal.
+        JournaledDeDuplicator.forceDirectory(temporaryFolder.getRoot().toPath());
+        final JournaledDeDuplicator deDuplicator = open(DeDuplicatorAlgorithm.RLBSBF, GROUP_COMMIT_SIZE, 1);
+        classify(deDuplicator, 0, 100);
+        deDuplicator.checkpoint();
+        assertEquals(0L, Files.size(journalPath()));
+        deDuplicator.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenSnapshotShapeMismatch() throws IOException {
+        final JournaledDeDuplicator deDuplicator = open(DeDuplicatorAlgorithm.BSBF, GROUP_COMMIT_SIZE, 1);
+        deDuplicator.checkpoint();
+        deDuplicator.close();
+        JournaledDeDuplicator.open(
+                DeDuplicatorAlgorithm.BSBF,
+                NUM_BITS * 2L,
+                NUM_HASH_FUNCTIONS,
+                snapshotPath(),
+                journalPath(),
+                GROUP_COMMIT_SIZE,
+                1
+        );
+    }
+
+    private JournaledDeDuplicator open(
+            DeDuplicatorAlgorithm algorithm,
+            int groupCommitSize,
+            int groupsPerSync
+    ) throws IOException {
+        return JournaledDeDuplicator.open(
+                algorithm,
+                NUM_BITS,
+                NUM_HASH_FUNCTIONS,
+                snapshotPath(),
+                journalPath(),
+                groupCommitSize,
+                groupsPerSync
+        );
+    }
+
+    private Path snapshotPath() {
+        return temporaryFolder.getRoot().toPath().resolve("snapshot");
+    }
+
+    private Path journalPath() {
+        return temporaryFolder.getRoot().toPath().resolve("journal");
+    }
+
+    private static void classify(JournaledDeDuplicator deDuplicator, int fromElement, int toElement) {
+        for (int element = fromElement; element < toElement; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class PartitionedDeDuplicatorTest {
+    private static final long NUM_BITS = 64 * 8L * 1024L;
+    private static final int NUM_PARTITIONS = 8;
+    private static final int NUM_ELEMENTS = (int) 1E5;
+    private static final int NUM_THREADS = 4;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorEmptyPartitions() {
+        new PartitionedDeDuplicator(new ProbabilisticDeDuplicator[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullPartition() {
+        new PartitionedDeDuplicator(new ProbabilisticDeDuplicator[]{new BSBFDeDuplicator(64L, 1), null});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorSharedPartition() {
+        final BSBFDeDuplicator partition = new BSBFDeDuplicator(64L, 1);
+        new PartitionedDeDuplicator(new ProbabilisticDeDuplicator[]{partition, partition});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateNonPositiveNumPartitions() {
+        PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2, 0);
+    }
+
+    @Test
+    public void testCreate() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        assertEquals(NUM_PARTITIONS, deDuplicator.numPartitions());
+        assertEquals(NUM_BITS, deDuplicator.numBits());
+        assertEquals(2, deDuplicator.numHashFunctions());
+        for (ProbabilisticDeDuplicator partition : deDuplicator.partitions) {
+            assertTrue(partition instanceof RLBSBFDeDuplicator);
+            assertEquals(NUM_BITS / NUM_PARTITIONS, partition.numBits());
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctPeekDistinct() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        final byte[] element = bytes(42);
+        final ProbabilisticDeDuplicator partition = deDuplicator.partitions[partitionIndex(deDuplicator, element)];
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.peekDistinct(element));
+        assertFalse(partition.peekDistinct(element));
+        deDuplicator.reset();
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(partition.peekDistinct(element));
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        final Funnel<Integer> funnel = (from, into) -> into.putInt(from);
+        for (int element = 0; element < 1000; element++) {
+            final byte[] bytes =
+                    ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(element).array();
+            assertTrue(deDuplicator.classifyDistinct(element, funnel));
+            assertFalse(deDuplicator.peekDistinct(bytes));
+            assertFalse(deDuplicator.peekDistinct(element, funnel));
+        }
+    }
+
+    @Test
+    public void testResetAsync() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        for (int element = 0; element < 1000; element++) {
+            assertTrue(deDuplicator.classifyDistinct(bytes(element)));
+        }
+        final CompletableFuture<Void> cleared = deDuplicator.resetAsync(ForkJoinPool.commonPool());
+        for (int element = 0; element < 1000; element++) {
+            assertTrue(deDuplicator.classifyDistinct(bytes(element)));
+        }
+        cleared.join();
+    }
+
+    @Test
+    public void testPartitionIndexSpread() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        final int[] counts = new int[NUM_PARTITIONS];
+        for (int element = 0; element < NUM_ELEMENTS; element++) {
+            counts[partitionIndex(deDuplicator, bytes(element))]++;
+        }
+        for (int count : counts) {
+            assertEquals(NUM_ELEMENTS / NUM_PARTITIONS, count, NUM_ELEMENTS / NUM_PARTITIONS * 0.05D);
+        }
+    }
+
+    @Test
+    public void testEstimates() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        for (int element = 0; element < NUM_ELEMENTS; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        double totalFpp = 0D;
+        double totalFnp = 0D;
+        for (ProbabilisticDeDuplicator partition : deDuplicator.partitions) {
+            totalFpp += partition.estimateFpp(0.5D);
+            totalFnp += partition.estimateFnp(0.5D);
+        }
+        assertEquals(totalFpp / NUM_PARTITIONS, deDuplicator.estimateFpp(0.5D), 1E-12D);
+        assertEquals(totalFnp / NUM_PARTITIONS, deDuplicator.estimateFnp(0.5D), 1E-12D);
+    }
+
+    @Test
+    public void testConcurrentClassifyDistinct() throws Exception {
+        // Large enough that no partition deletes, so every element is reported distinct exactly once.
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.BSBF, NUM_BITS * 64, 4, NUM_PARTITIONS);
+        final AtomicInteger numDistinct = new AtomicInteger();
+        final ExecutorService executorService = Executors.newFixedThreadPool(NUM_THREADS);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < NUM_THREADS; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (int element = 0; element < NUM_ELEMENTS / 10; element++) {
+                        if (deDuplicator.classifyDistinct(bytes(element))) {
+                            numDistinct.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertEquals(NUM_ELEMENTS / 10, numDistinct.get(), NUM_ELEMENTS / 10 * 0.01D);
+    }
+
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final PartitionedDeDuplicator deDuplicator =
+                PartitionedDeDuplicator.create(DeDuplicatorAlgorithm.RLBSBF, NUM_BITS, 2, NUM_PARTITIONS);
+        for (int element = 0; element < 1000; element++) {
+            final HashedElement hashedElement = HashedElement.of(bytes(element));
+            assertTrue(deDuplicator.peekDistinct(hashedElement));
+            assertTrue(deDuplicator.classifyDistinct(hashedElement));
+            assertFalse(deDuplicator.peekDistinct(hashedElement));
+            // Routed and hashed as the element itself.
+            assertFalse(deDuplicator.classifyDistinct(bytes(element)));
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctOtherPartitions() {
+        // Not of a DeDuplicatorAlgorithm, so the partitions are passed the elements themselves.
+        final PartitionedDeDuplicator deDuplicator = new PartitionedDeDuplicator(new ProbabilisticDeDuplicator[]{
+                new CuckooFilterDeDuplicator(NUM_BITS, 16),
+                new CuckooFilterDeDuplicator(NUM_BITS, 16)
+        });
+        final Funnel<Integer> funnel = (from, into) -> into.putInt(from);
+        for (int element = 0; element < 1000; element++) {
+            final byte[] bytes =
+                    ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(element).array();
+            assertTrue(deDuplicator.classifyDistinct(element, funnel));
+            assertFalse(deDuplicator.classifyDistinct(bytes));
+            assertFalse(deDuplicator.classifyDistinct(HashedElement.of(bytes)));
+            assertFalse(deDuplicator.peekDistinct(element, funnel));
+        }
+    }
+
+    private static int partitionIndex(PartitionedDeDuplicator deDuplicator, byte[] element) {
+        final HashedElement hashedElement = HashedElement.of(element);
+        return deDuplicator.partitionIndex(hashedElement.hash1(), hashedElement.hash2());
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
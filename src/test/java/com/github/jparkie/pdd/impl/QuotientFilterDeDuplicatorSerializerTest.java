@@ -0,0 +1,69 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class QuotientFilterDeDuplicatorSerializerTest {
+    @Test
+    public void testWriteToReadFromVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<QuotientFilterDeDuplicator> serializer =
+                QuotientFilterDeDuplicatorSerializers.VERSION_1;
+        final QuotientFilterDeDuplicator deDuplicator = new QuotientFilterDeDuplicator(64L, 16);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        byteBuffer.putLong(1L);
+        assertTrue(deDuplicator.classifyDistinct(byteBuffer.array()));
+        byteBuffer.clear();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final QuotientFilterDeDuplicator serialized = serializer.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(deDuplicator.numEntries, serialized.numEntries);
+        assertEquals(deDuplicator.numInsertions, serialized.numInsertions);
+    }
+
+    @Test
+    public void testWriteToReadIntoVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<QuotientFilterDeDuplicator> serializer =
+                QuotientFilterDeDuplicatorSerializers.VERSION_1;
+        final QuotientFilterDeDuplicator deDuplicator = new QuotientFilterDeDuplicator(1024L, 16);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        for (long element = 0L; element < 16L; element++) {
+            byteBuffer.clear();
+            byteBuffer.putLong(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final QuotientFilterDeDuplicator existing = new QuotientFilterDeDuplicator(1024L, 16);
+        final long[] slots = existing.slots;
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        serializer.readInto(existing, in);
+        in.close();
+        assertSame(slots, existing.slots);
+        assertEquals(deDuplicator, existing);
+        assertEquals(deDuplicator.numEntries, existing.numEntries);
+        assertEquals(deDuplicator.numInsertions, existing.numInsertions);
+        assertEquals(deDuplicator.numClassifications, existing.numClassifications);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadIntoShapeMismatch() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<QuotientFilterDeDuplicator> serializer =
+                QuotientFilterDeDuplicatorSerializers.VERSION_1;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(new QuotientFilterDeDuplicator(1024L, 16), out);
+        out.close();
+        serializer.readInto(new QuotientFilterDeDuplicator(2048L, 16), new ByteArrayInputStream(out.toByteArray()));
+    }
+}
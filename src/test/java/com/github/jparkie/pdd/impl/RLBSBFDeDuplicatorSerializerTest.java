@@ -1,5 +1,7 @@
 package com.github.jparkie.pdd.impl;
 
+import com.github.jparkie.pdd.BitArray;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
 import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -9,8 +11,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class RLBSBFDeDuplicatorSerializerTest {
     // TODO: Consider how to write regression tests for version comparability.
@@ -50,4 +51,132 @@ public class RLBSBFDeDuplicatorSerializerTest {
         in.close();
         assertEquals(deDuplicator, serialized);
     }
+
+    @Test
+    public void testWriteToReadFromVersion3() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<RLBSBFDeDuplicator> serializer =
+                RLBSBFDeDuplicatorSerializers.VERSION_3;
+        final RLBSBFDeDuplicator deDuplicator = new RLBSBFDeDuplicator(64L, 1, DeletionMode.HASH_DERIVED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        byteBuffer.putLong(1L);
+        assertTrue(deDuplicator.classifyDistinct(byteBuffer.array()));
+        byteBuffer.clear();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final RLBSBFDeDuplicator serialized = serializer.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(DeletionMode.HASH_DERIVED, serialized.deletionMode());
+        assertEquals(deDuplicator.reportedDuplicateProbability, serialized.reportedDuplicateProbability, 0D);
+    }
+
+    @Test
+    public void testWriteToReadIntoVersion3() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<RLBSBFDeDuplicator> serializer =
+                RLBSBFDeDuplicatorSerializers.VERSION_3;
+        final RLBSBFDeDuplicator deDuplicator = new RLBSBFDeDuplicator(256L, 2, DeletionMode.HASH_DERIVED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        for (long element = 0L; element < 16L; element++) {
+            byteBuffer.clear();
+            byteBuffer.putLong(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final RLBSBFDeDuplicator existing = new RLBSBFDeDuplicator(256L, 2);
+        final BitArray[] bloomFilters = existing.bloomFilters.clone();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        serializer.readInto(existing, in);
+        in.close();
+        assertEquals(deDuplicator, existing);
+        for (int index = 0; index < bloomFilters.length; index++) {
+            assertSame(bloomFilters[index], existing.bloomFilters[index]);
+            assertEquals(deDuplicator.bloomFilters[index].bitCount(), existing.bloomFilters[index].bitCount());
+        }
+        assertEquals(DeletionMode.HASH_DERIVED, existing.deletionMode());
+        assertEquals(deDuplicator.reportedDuplicateProbability, existing.reportedDuplicateProbability, 0D);
+    }
+
+    @Test
+    public void testWriteToReadFromVersion4() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<RLBSBFDeDuplicator> serializer =
+                RLBSBFDeDuplicatorSerializers.VERSION_4;
+        final RLBSBFDeDuplicator deDuplicator = classified(new RLBSBFDeDuplicator(256L, 2, DeletionMode.HASH_DERIVED));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final RLBSBFDeDuplicator serialized = serializer.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(DeletionMode.HASH_DERIVED, serialized.deletionMode());
+        assertEquals(deDuplicator.reportedDuplicateProbability, serialized.reportedDuplicateProbability, 0D);
+        assertEquals(deDuplicator.estimateCardinality(), serialized.estimateCardinality(), 0D);
+        assertEquals(
+                deDuplicator.estimateCardinalityStandardError(),
+                serialized.estimateCardinalityStandardError(),
+                0D
+        );
+    }
+
+    @Test
+    public void testWriteToReadIntoVersion4() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<RLBSBFDeDuplicator> serializer =
+                RLBSBFDeDuplicatorSerializers.VERSION_4;
+        final RLBSBFDeDuplicator deDuplicator = classified(new RLBSBFDeDuplicator(256L, 2));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final RLBSBFDeDuplicator existing = new RLBSBFDeDuplicator(256L, 2);
+        serializer.readInto(existing, new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(deDuplicator, existing);
+        assertEquals(deDuplicator.estimateCardinality(), existing.estimateCardinality(), 0D);
+        // An earlier version has no cardinality, so reading it over an existing one zeroes it.
+        final ByteArrayOutputStream version3Out = new ByteArrayOutputStream();
+        RLBSBFDeDuplicatorSerializers.VERSION_3.writeTo(deDuplicator, version3Out);
+        version3Out.close();
+        RLBSBFDeDuplicatorSerializers.VERSION_3.readInto(existing, new ByteArrayInputStream(version3Out.toByteArray()));
+        assertEquals(deDuplicator, existing);
+        assertEquals(0D, existing.estimateCardinality(), 0D);
+    }
+
+    @Test
+    public void testAlgorithmReadFromVersion3() throws IOException {
+        final RLBSBFDeDuplicator deDuplicator = classified(new RLBSBFDeDuplicator(256L, 2));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RLBSBFDeDuplicatorSerializers.VERSION_3.writeTo(deDuplicator, out);
+        RLBSBFDeDuplicatorSerializers.VERSION_4.writeTo(deDuplicator, out);
+        out.close();
+        // Each snapshot is read by the serializer of its version, without reading beyond it.
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ProbabilisticDeDuplicator version3 = DeDuplicatorAlgorithm.RLBSBF.readFrom(in);
+        final ProbabilisticDeDuplicator version4 = DeDuplicatorAlgorithm.RLBSBF.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, version3);
+        assertEquals(deDuplicator, version4);
+        assertEquals(deDuplicator.estimateCardinality(), ((RLBSBFDeDuplicator) version4).estimateCardinality(), 0D);
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadIntoShapeMismatch() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<RLBSBFDeDuplicator> serializer =
+                RLBSBFDeDuplicatorSerializers.VERSION_3;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(new RLBSBFDeDuplicator(256L, 2), out);
+        out.close();
+        serializer.readInto(new RLBSBFDeDuplicator(256L, 4), new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static RLBSBFDeDuplicator classified(RLBSBFDeDuplicator deDuplicator) {
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        for (long element = 0L; element < 16L; element++) {
+            byteBuffer.clear();
+            byteBuffer.putLong(element);
+            deDuplicator.classifyDistinct(byteBuffer.array());
+        }
+        return deDuplicator;
+    }
 }
@@ -0,0 +1,111 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.HashedElement;
+import com.github.jparkie.pdd.ProbabilisticDeDuplicator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleWriterDeDuplicatorTest {
+    private static final long NUM_BITS = 64 * 8L * 1024L;
+    private static final int NUM_ELEMENTS = (int) 1E5;
+    private static final int NUM_READERS = 4;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorNullDeDuplicator() {
+        new SingleWriterDeDuplicator(null);
+    }
+
+    @Test
+    public void testIsOptimisticallyReadable() {
+        assertTrue(SingleWriterDeDuplicator.isOptimisticallyReadable(new BSBFDeDuplicator(64L, 1)));
+        assertTrue(SingleWriterDeDuplicator.isOptimisticallyReadable(new BSBFSDDeDuplicator(64L, 1)));
+        assertTrue(SingleWriterDeDuplicator.isOptimisticallyReadable(new RLBSBFDeDuplicator(64L, 1)));
+        assertTrue(SingleWriterDeDuplicator.isOptimisticallyReadable(new CuckooFilterDeDuplicator(64L, 16)));
+        assertFalse(SingleWriterDeDuplicator.isOptimisticallyReadable(new QuotientFilterDeDuplicator(128L, 5)));
+    }
+
+    @Test
+    public void testClassifyDistinctPeekDistinct() {
+        final RLBSBFDeDuplicator wrapped = new RLBSBFDeDuplicator(NUM_BITS, 2);
+        final SingleWriterDeDuplicator deDuplicator = new SingleWriterDeDuplicator(wrapped);
+        final Random random = new Random();
+        final byte[] element = new byte[128];
+        random.nextBytes(element);
+        assertEquals(NUM_BITS, deDuplicator.numBits());
+        assertEquals(2, deDuplicator.numHashFunctions());
+        assertSame(wrapped, deDuplicator.deDuplicator());
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.peekDistinct(element));
+        assertEquals(wrapped.estimateFpp(0.5D), deDuplicator.estimateFpp(0.5D), 0D);
+        assertEquals(wrapped.estimateFnp(0.5D), deDuplicator.estimateFnp(0.5D), 0D);
+        deDuplicator.reset();
+        assertTrue(deDuplicator.peekDistinct(element));
+    }
+
+    @Test
+    public void testConcurrentPeekDistinct() throws Exception {
+        for (ProbabilisticDeDuplicator wrapped : new ProbabilisticDeDuplicator[]{
+                new CuckooFilterDeDuplicator(NUM_BITS * 16, 32),
+                new QuotientFilterDeDuplicator(NUM_BITS * 16, 16)
+        }) {
+            final SingleWriterDeDuplicator deDuplicator = new SingleWriterDeDuplicator(wrapped);
+            final AtomicInteger numWritten = new AtomicInteger();
+            final ExecutorService executorService = Executors.newFixedThreadPool(NUM_READERS);
+            try {
+                final List<Future<Integer>> readers = new ArrayList<>();
+                for (int reader = 0; reader < NUM_READERS; reader++) {
+                    readers.add(executorService.submit(new Callable<Integer>() {
+                        @Override
+                        public Integer call() {
+                            final Random random = new Random();
+                            int numReads = 0;
+                            int currentNumWritten;
+                            do {
+                                currentNumWritten = numWritten.get();
+                                if (currentNumWritten > 0) {
+                                    final int element = random.nextInt(currentNumWritten);
+                                    assertFalse(deDuplicator.peekDistinct(bytes(element)));
+                                    numReads++;
+                                }
+                            } while (currentNumWritten < NUM_ELEMENTS);
+                            return numReads;
+                        }
+                    }));
+                }
+                for (int element = 0; element < NUM_ELEMENTS; element++) {
+                    deDuplicator.classifyDistinct(bytes(element));
+                    numWritten.incrementAndGet();
+                }
+                for (Future<Integer> reader : readers) {
+                    assertTrue(reader.get(1, TimeUnit.MINUTES) > 0);
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+        }
+    }
+
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final SingleWriterDeDuplicator deDuplicator = new SingleWriterDeDuplicator(new RLBSBFDeDuplicator(NUM_BITS, 2));
+        final HashedElement element = HashedElement.of(bytes(42));
+        assertTrue(deDuplicator.peekDistinct(element));
+        assertTrue(deDuplicator.classifyDistinct(element));
+        assertFalse(deDuplicator.peekDistinct(element));
+        assertFalse(deDuplicator.peekDistinct(bytes(42)));
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(element).array();
+    }
+}
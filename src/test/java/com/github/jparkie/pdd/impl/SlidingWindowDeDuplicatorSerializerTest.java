@@ -0,0 +1,75 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.ProbabilisticDeDuplicatorSerializer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowDeDuplicatorSerializerTest {
+    @Test
+    public void testWriteToReadFromVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<SlidingWindowDeDuplicator> serializer =
+                SlidingWindowDeDuplicatorSerializers.VERSION_1;
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(64);
+        classify(deDuplicator, 0, 100);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final SlidingWindowDeDuplicator serialized = serializer.readFrom(in);
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        // Both expire the same oldest elements afterwards.
+        classify(deDuplicator, 100, 110);
+        classify(serialized, 100, 110);
+        assertEquals(deDuplicator, serialized);
+        assertTrue(serialized.peekDistinct(bytes(45)));
+        assertFalse(serialized.peekDistinct(bytes(46)));
+    }
+
+    @Test
+    public void testWriteToReadIntoVersion1() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<SlidingWindowDeDuplicator> serializer =
+                SlidingWindowDeDuplicatorSerializers.VERSION_1;
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(64);
+        classify(deDuplicator, 0, 40);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(deDuplicator, out);
+        out.close();
+        final SlidingWindowDeDuplicator existing = new SlidingWindowDeDuplicator(64);
+        classify(existing, 1000, 1100);
+        final long[] ring = existing.ring;
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        serializer.readInto(existing, in);
+        in.close();
+        assertSame(ring, existing.ring);
+        assertEquals(deDuplicator, existing);
+        assertTrue(existing.peekDistinct(bytes(1099)));
+        assertFalse(existing.peekDistinct(bytes(0)));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadIntoShapeMismatch() throws IOException {
+        final ProbabilisticDeDuplicatorSerializer<SlidingWindowDeDuplicator> serializer =
+                SlidingWindowDeDuplicatorSerializers.VERSION_1;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeTo(new SlidingWindowDeDuplicator(64), out);
+        out.close();
+        serializer.readInto(new SlidingWindowDeDuplicator(128), new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void classify(SlidingWindowDeDuplicator deDuplicator, int fromElement, int toElement) {
+        for (int element = fromElement; element < toElement; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.jparkie.pdd.impl;
+
+import com.github.jparkie.pdd.Funnel;
+import com.github.jparkie.pdd.HashedElement;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowDeDuplicatorTest {
+
+    @Test
+    public void testClassifyDistinctHashedElement() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        final SlidingWindowDeDuplicator hashedDeDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        final Random random = new Random(RANDOM_SEED);
+        final ByteBuffer byteBuffer = ByteBuffer.allocate(Integer.BYTES);
+        for (int index = 0; index < 10 * WINDOW_SIZE; index++) {
+            byteBuffer.clear();
+            byteBuffer.putInt(random.nextInt(2 * WINDOW_SIZE));
+            final byte[] element = byteBuffer.array();
+            final HashedElement hashedElement = HashedElement.of(element);
+            assertEquals(deDuplicator.peekDistinct(element), hashedDeDuplicator.peekDistinct(hashedElement));
+            assertEquals(deDuplicator.classifyDistinct(element), hashedDeDuplicator.classifyDistinct(hashedElement));
+        }
+        assertEquals(deDuplicator, hashedDeDuplicator);
+    }
+
+    private static final long RANDOM_SEED = 42L;
+    private static final int WINDOW_SIZE = 100;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWindowSizeLowerBound() {
+        new SlidingWindowDeDuplicator(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorWindowSizeUpperBound() {
+        new SlidingWindowDeDuplicator(SlidingWindowDeDuplicator.MAX_WINDOW_SIZE + 1);
+    }
+
+    @Test
+    public void testIndexLength() {
+        for (int windowSize : new int[]{1, 2, 3, 1000, SlidingWindowDeDuplicator.MAX_WINDOW_SIZE - 1}) {
+            final int indexLength = SlidingWindowDeDuplicator.indexLength(windowSize);
+            assertEquals(1, Integer.bitCount(indexLength));
+            assertTrue(indexLength >= 2 * windowSize);
+        }
+        // The largest window still has a positive index length, instead of overflowing into a negative array size.
+        assertEquals(1 << 30, SlidingWindowDeDuplicator.indexLength(SlidingWindowDeDuplicator.MAX_WINDOW_SIZE));
+    }
+
+    @Test
+    public void testConstructor() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        assertEquals(WINDOW_SIZE, deDuplicator.windowSize());
+        assertEquals(0, deDuplicator.size());
+        assertEquals(64L * 100L + 32L * 256L, deDuplicator.numBits());
+        assertEquals(SlidingWindowDeDuplicator.NUM_HASH_FUNCTIONS, deDuplicator.numHashFunctions());
+    }
+
+    @Test
+    public void testClassifyDistinctWithinWindow() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        for (int element = 0; element < WINDOW_SIZE; element++) {
+            assertTrue(deDuplicator.classifyDistinct(bytes(element)));
+        }
+        assertEquals(WINDOW_SIZE, deDuplicator.size());
+        for (int element = 0; element < WINDOW_SIZE; element++) {
+            assertFalse(deDuplicator.peekDistinct(bytes(element)));
+        }
+    }
+
+    @Test
+    public void testExpiry() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        assertTrue(deDuplicator.classifyDistinct(bytes(-1)));
+        for (int element = 0; element < WINDOW_SIZE - 1; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        assertFalse(deDuplicator.peekDistinct(bytes(-1)));
+        // The next element pushes -1 out of the window.
+        deDuplicator.classifyDistinct(bytes(WINDOW_SIZE));
+        assertTrue(deDuplicator.peekDistinct(bytes(-1)));
+        assertTrue(deDuplicator.classifyDistinct(bytes(-1)));
+        assertEquals(WINDOW_SIZE, deDuplicator.size());
+    }
+
+    @Test
+    public void testRepeatKeepsLatestPosition() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        assertTrue(deDuplicator.classifyDistinct(bytes(-1)));
+        for (int element = 0; element < WINDOW_SIZE - 2; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        assertFalse(deDuplicator.classifyDistinct(bytes(-1)));
+        // The first occurrence of -1 expires, but its repeat is still within the window.
+        deDuplicator.classifyDistinct(bytes(WINDOW_SIZE));
+        assertFalse(deDuplicator.peekDistinct(bytes(-1)));
+        for (int element = 0; element < WINDOW_SIZE - 1; element++) {
+            deDuplicator.classifyDistinct(bytes(WINDOW_SIZE + 1 + element));
+        }
+        assertTrue(deDuplicator.peekDistinct(bytes(-1)));
+    }
+
+    @Test
+    public void testClassifyDistinctAgainstExactWindow() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        final ArrayDeque<Integer> window = new ArrayDeque<>();
+        final Map<Integer, Integer> counts = new HashMap<>();
+        final Random random = new Random(RANDOM_SEED);
+        for (int index = 0; index < 100000; index++) {
+            final int element = random.nextInt(3 * WINDOW_SIZE);
+            final boolean isDistinct = !counts.containsKey(element);
+            assertEquals(isDistinct, deDuplicator.peekDistinct(bytes(element)));
+            assertEquals(isDistinct, deDuplicator.classifyDistinct(bytes(element)));
+            window.addLast(element);
+            counts.merge(element, 1, Integer::sum);
+            if (window.size() > WINDOW_SIZE) {
+                counts.computeIfPresent(window.removeFirst(), (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    @Test
+    public void testClassifyDistinctFunnel() {
+        final Funnel<Integer> funnel = (element, into) -> into.putInt(element);
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        for (int element = 0; element < WINDOW_SIZE; element++) {
+            assertTrue(deDuplicator.classifyDistinct(element, funnel));
+        }
+        for (int element = 0; element < WINDOW_SIZE; element++) {
+            assertFalse(deDuplicator.peekDistinct(element, funnel));
+            // The same bytes, hashed the same way.
+            final byte[] bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(element).array();
+            assertFalse(deDuplicator.peekDistinct(bytes));
+        }
+    }
+
+    @Test
+    public void testEstimateFppAndFnp() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        assertEquals(0D, deDuplicator.estimateFpp(1D), 0D);
+        for (int element = 0; element < WINDOW_SIZE; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        assertEquals(WINDOW_SIZE * 0x1.0p-64, deDuplicator.estimateFpp(1D), 1e-30);
+        assertEquals(0D, deDuplicator.estimateFnp(1D), 0D);
+    }
+
+    @Test
+    public void testReset() {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        assertTrue(deDuplicator.classifyDistinct(bytes(42)));
+        deDuplicator.reset();
+        assertEquals(0, deDuplicator.size());
+        assertEquals(new SlidingWindowDeDuplicator(WINDOW_SIZE), deDuplicator);
+        assertTrue(deDuplicator.classifyDistinct(bytes(42)));
+    }
+
+    @Test
+    public void testJavaSerializable() throws IOException, ClassNotFoundException {
+        final SlidingWindowDeDuplicator deDuplicator = new SlidingWindowDeDuplicator(WINDOW_SIZE);
+        // Wraps around the ring, so that the head is not at 0.
+        for (int element = 0; element < WINDOW_SIZE + WINDOW_SIZE / 2; element++) {
+            deDuplicator.classifyDistinct(bytes(element));
+        }
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(deDuplicator);
+        oos.close();
+        out.close();
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final ObjectInputStream ois = new ObjectInputStream(in);
+        final SlidingWindowDeDuplicator serialized = (SlidingWindowDeDuplicator) ois.readObject();
+        ois.close();
+        in.close();
+        assertEquals(deDuplicator, serialized);
+        assertEquals(deDuplicator.hashCode(), serialized.hashCode());
+        assertFalse(serialized.classifyDistinct(bytes(WINDOW_SIZE / 2)));
+        assertTrue(serialized.classifyDistinct(bytes(WINDOW_SIZE / 2 - 1)));
+    }
+
+    private static byte[] bytes(int element) {
+        return ByteBuffer.allocate(4).putInt(element).array();
+    }
+}
@@ -0,0 +1,21 @@
+package com.github.jparkie.pdd;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the tests of testJava9 run against the Java 9 version of {@link Platform}, so that they check its parity
+ * with the sun.misc.Unsafe version rather than the Unsafe version itself.
+ */
+public class VarHandlePlatformTest {
+
+    @Test
+    public void testWithoutUnsafe() {
+        for (Field field : Platform.class.getDeclaredFields()) {
+            assertNotEquals(field.getName(), "sun.misc.Unsafe", field.getType().getName());
+        }
+    }
+}